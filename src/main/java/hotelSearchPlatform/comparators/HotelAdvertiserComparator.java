@@ -2,13 +2,31 @@ package hotelSearchPlatform.comparators;
 
 import java.util.Comparator;
 
+import hotelSearchPlatform.data.CurrencyRates;
 import hotelSearchPlatform.entities.HotelAdvertiser;
 
 public class HotelAdvertiserComparator implements Comparator<HotelAdvertiser> {
 
+	private final CurrencyRates currencyRates;
+
+	/**
+	 * Creates a comparator of hotel advertisers by their price as it is, whatever their currency.
+	 */
+	public HotelAdvertiserComparator() {
+		this(CurrencyRates.NONE);
+	}
+
+	/**
+	 * Creates a comparator of hotel advertisers by their price normalized to the base currency of the given rates.
+	 */
+	public HotelAdvertiserComparator(CurrencyRates currencyRates) {
+		this.currencyRates = currencyRates;
+	}
+
 	@Override
 	public int compare(HotelAdvertiser o1, HotelAdvertiser o2) {
-		int priceCmp =  Integer.valueOf(o1.getPrice()).compareTo(Integer.valueOf(o2.getPrice()));
+		int priceCmp =  Integer.valueOf(currencyRates.normalize(o1.getPrice(), o1.getCurrency()))
+				.compareTo(Integer.valueOf(currencyRates.normalize(o2.getPrice(), o2.getCurrency())));
 		if (priceCmp !=0)
 			return priceCmp;
 		int cpcCmp = Integer.valueOf(o1.getCpc()).compareTo(Integer.valueOf(o2.getCpc()));
@@ -13,7 +13,7 @@ public class HotelComparator implements Comparator<Hotel>{
 			return 1;
 		if (hotel1.getRating()>hotel2.getRating())
 			return -1;
-		return 0;
+		return Integer.valueOf(hotel1.getId()).compareTo(Integer.valueOf(hotel2.getId()));
 	}
 	
 	
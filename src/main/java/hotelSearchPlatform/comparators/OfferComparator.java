@@ -8,7 +8,7 @@ public class OfferComparator implements Comparator<Offer>{
 
 	@Override
 	public int compare(Offer o1, Offer o2) {
-		int priceCmp =  Integer.valueOf(o1.getPrice()).compareTo(Integer.valueOf(o2.getPrice()));
+		int priceCmp =  Integer.valueOf(o1.getNormalized_price()).compareTo(Integer.valueOf(o2.getNormalized_price()));
 		if (priceCmp !=0)
 			return priceCmp;
 		int cpcCmp = Integer.valueOf(o1.getCpc()).compareTo(Integer.valueOf(o2.getCpc()));
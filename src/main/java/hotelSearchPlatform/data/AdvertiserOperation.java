@@ -0,0 +1,129 @@
+package hotelSearchPlatform.data;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The AdvertiserOperation class is a bulk change of all hotel advertisers of one advertiser, applied by the HotelData
+ * class as one new version through the advertiser to rows index of the snapshot, so it only touches the rows of that
+ * advertiser and the hotels they belong to:
+ * SUSPEND hides the advertiser's offers from searches and keeps them, RESUME shows them again, DELETE removes them,
+ * and ADJUST changes their prices and cpcs. An adjusted value is the old one times (100 + percent) / 100, rounded,
+ * plus delta, and never below 0. Prices are changed in their own currency.
+ * Updates of a suspended advertiser's hotel advertisers are kept hidden until it is resumed.
+ */
+public final class AdvertiserOperation {
+
+	/**
+	 * The Kind enum lists the bulk changes, see the AdvertiserOperation class. Its ordinal is stored in the update log.
+	 */
+	public enum Kind {
+		SUSPEND, RESUME, DELETE, ADJUST
+	}
+
+	private final Kind kind;
+	private final int advertiserId;
+	private final double pricePercent;
+	private final int priceDelta;
+	private final double cpcPercent;
+	private final int cpcDelta;
+
+	AdvertiserOperation(Kind kind, int advertiserId, double pricePercent, int priceDelta, double cpcPercent, int cpcDelta) {
+		this.kind = kind;
+		this.advertiserId = advertiserId;
+		this.pricePercent = pricePercent;
+		this.priceDelta = priceDelta;
+		this.cpcPercent = cpcPercent;
+		this.cpcDelta = cpcDelta;
+	}
+
+	public static AdvertiserOperation suspend(int advertiserId) {
+		return new AdvertiserOperation(Kind.SUSPEND, advertiserId, 0, 0, 0, 0);
+	}
+
+	public static AdvertiserOperation resume(int advertiserId) {
+		return new AdvertiserOperation(Kind.RESUME, advertiserId, 0, 0, 0, 0);
+	}
+
+	public static AdvertiserOperation delete(int advertiserId) {
+		return new AdvertiserOperation(Kind.DELETE, advertiserId, 0, 0, 0, 0);
+	}
+
+	/**
+	 * @param advertiserId
+	 * @param pricePercent - percentage the prices change by, e.g. -10 for 10% cheaper.
+	 * @param priceDelta - amount added to the prices after the percentage.
+	 * @param cpcPercent - percentage the cpcs change by.
+	 * @param cpcDelta - amount added to the cpcs after the percentage.
+	 * @return an ADJUST operation.
+	 */
+	public static AdvertiserOperation adjust(int advertiserId, double pricePercent, int priceDelta, double cpcPercent, int cpcDelta) {
+		return new AdvertiserOperation(Kind.ADJUST, advertiserId, pricePercent, priceDelta, cpcPercent, cpcDelta);
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public int getAdvertiserId() {
+		return advertiserId;
+	}
+
+	public double getPricePercent() {
+		return pricePercent;
+	}
+
+	public int getPriceDelta() {
+		return priceDelta;
+	}
+
+	public double getCpcPercent() {
+		return cpcPercent;
+	}
+
+	public int getCpcDelta() {
+		return cpcDelta;
+	}
+
+	int adjustPrice(int price) {
+		return adjust(price, pricePercent, priceDelta);
+	}
+
+	int adjustCpc(int cpc) {
+		return adjust(cpc, cpcPercent, cpcDelta);
+	}
+
+	private static int adjust(int value, double percent, int delta) {
+		long adjusted = Math.round(value * (100 + percent) / 100) + delta;
+		return (int) Math.max(0, Math.min(Integer.MAX_VALUE, adjusted));
+	}
+
+	@Override
+	public String toString() {
+		return "AdvertiserOperation [kind=" + kind + ", advertiserId=" + advertiserId + ", pricePercent=" + pricePercent
+				+ ", priceDelta=" + priceDelta + ", cpcPercent=" + cpcPercent + ", cpcDelta=" + cpcDelta + "]";
+	}
+
+	/**
+	 * The Result class is the outcome of an operation: how many rows of the advertiser it changed and the cities
+	 * whose hotel advertisers changed.
+	 */
+	public static final class Result {
+
+		private final int rows;
+		private final Set<Integer> changedCityIds;
+
+		Result(int rows, Set<Integer> changedCityIds) {
+			this.rows = rows;
+			this.changedCityIds = Collections.unmodifiableSet(changedCityIds);
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public Set<Integer> getChangedCityIds() {
+			return changedCityIds;
+		}
+	}
+}
@@ -0,0 +1,318 @@
+package hotelSearchPlatform.data;
+
+import java.util.Arrays;
+
+/**
+ * The AvailabilityIndex class answers containment queries on the availability ranges of the hotel advertisers
+ * of a single city: "all hotel advertiser rows whose availability range contains [startDay, endDay]".
+ * Hotel advertisers are referred to by their row id in the HotelAdvertiserStore, and availability dates are epoch day ints.
+ * The index has a static part built in bulk, which keeps the rows sorted by start day together with a max end day
+ * tree over them. A query binary searches the last row starting on or before the requested start day and only
+ * descends into subtrees whose max end day reaches the requested end day, so rows that cannot match are skipped
+ * a subtree at a time instead of one by one.
+ * An AvailabilityIndex is immutable. Incremental inserts and removals create a new index that shares the static part
+ * and holds a small delta (inserted rows and removed rows). Once the delta grows past about sqrt(size) rows, it is
+ * merged into a new static part.
+ */
+public class AvailabilityIndex {
+
+	private static final int MIN_DELTA_SIZE_TO_MERGE = 64;
+	private static final int[] NO_ROWS = new int[0];
+	private static final int[] EMPTY_TREE = {Integer.MIN_VALUE, Integer.MIN_VALUE};
+
+	private final HotelAdvertiserStore store;
+	private final int[] startDays;
+	private final int[] rows;
+	private final int leafCount;
+	private final int[] maxEndDays;
+	private final int[] insertedRows;
+	private final int[] removedRows;
+
+	public AvailabilityIndex(HotelAdvertiserStore store) {
+		this(store, NO_ROWS, NO_ROWS, 1, EMPTY_TREE, NO_ROWS, NO_ROWS);
+	}
+
+	private AvailabilityIndex(HotelAdvertiserStore store, int[] startDays, int[] rows, int leafCount, int[] maxEndDays,
+			int[] insertedRows, int[] removedRows) {
+		this.store = store;
+		this.startDays = startDays;
+		this.rows = rows;
+		this.leafCount = leafCount;
+		this.maxEndDays = maxEndDays;
+		this.insertedRows = insertedRows;
+		this.removedRows = removedRows;
+	}
+
+	/**
+	 * The build method creates an index with all given rows in its static part.
+	 * It is used by the HotelData class to index the hotel advertisers loaded by the CSVLoader class.
+	 * @param store
+	 * @param rows - row ids of the hotel advertisers to index.
+	 * @return a new AvailabilityIndex.
+	 */
+	public static AvailabilityIndex build(HotelAdvertiserStore store, int[] rows) {
+		int[] sortedRows = sortByStartDay(store, rows);
+		int[] startDays = new int[sortedRows.length];
+		for (int i = 0; i < sortedRows.length; i++)
+			startDays[i] = store.getStartDay(sortedRows[i]);
+		return fromSortedRows(store, sortedRows, startDays);
+	}
+
+	/**
+	 * The buildSorted method creates an index with all given rows in its static part, like the build method, for rows
+	 * that are already sorted by start day. It is used by the HotelDataSnapshotFile class, which stores that order.
+	 * @param store
+	 * @param sortedRows - row ids of the hotel advertisers to index, sorted by start day.
+	 * @return a new AvailabilityIndex.
+	 * @throws IllegalArgumentException - in case the rows are not sorted by start day.
+	 */
+	public static AvailabilityIndex buildSorted(HotelAdvertiserStore store, int[] sortedRows) throws IllegalArgumentException {
+		int[] startDays = new int[sortedRows.length];
+		for (int i = 0; i < sortedRows.length; i++) {
+			startDays[i] = store.getStartDay(sortedRows[i]);
+			if (i > 0 && startDays[i] < startDays[i - 1])
+				throw new IllegalArgumentException("Rows are not sorted by start day at index " + i);
+		}
+		return fromSortedRows(store, sortedRows, startDays);
+	}
+
+	private static int[] sortByStartDay(HotelAdvertiserStore store, int[] rows) {
+		long[] sortKeys = new long[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			sortKeys[i] = ((long) store.getStartDay(rows[i]) << 32) | i;
+		Arrays.sort(sortKeys);
+		int[] sortedRows = new int[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			sortedRows[i] = rows[(int) sortKeys[i]];
+		return sortedRows;
+	}
+
+	private static AvailabilityIndex fromSortedRows(HotelAdvertiserStore store, int[] sortedRows, int[] startDays) {
+		int leafCount = 1;
+		while (leafCount < sortedRows.length)
+			leafCount <<= 1;
+		int[] maxEndDays = new int[2 * leafCount];
+		Arrays.fill(maxEndDays, Integer.MIN_VALUE);
+		for (int i = 0; i < sortedRows.length; i++)
+			maxEndDays[leafCount + i] = store.getEndDay(sortedRows[i]);
+		for (int node = leafCount - 1; node > 0; node--)
+			maxEndDays[node] = Math.max(maxEndDays[2 * node], maxEndDays[2 * node + 1]);
+		return new AvailabilityIndex(store, startDays, sortedRows, leafCount, maxEndDays, NO_ROWS, NO_ROWS);
+	}
+
+	/**
+	 * The withChanges method creates a new index with the given rows inserted and removed. The static part of this
+	 * index is shared with the new index unless the delta has grown enough to be merged into it.
+	 * @param rowsToInsert - rows that are not in the index yet.
+	 * @param rowsToRemove - rows that are in the index, or in rowsToInsert.
+	 * @return a new AvailabilityIndex. This index is not changed.
+	 */
+	public AvailabilityIndex withChanges(int[] rowsToInsert, int[] rowsToRemove) {
+		int[] sortedRowsToRemove = rowsToRemove.clone();
+		Arrays.sort(sortedRowsToRemove);
+		int[] newInsertedRows = new int[insertedRows.length + rowsToInsert.length];
+		int newInsertedCount = 0;
+		for (int row : insertedRows) {
+			if (Arrays.binarySearch(sortedRowsToRemove, row) < 0)
+				newInsertedRows[newInsertedCount++] = row;
+		}
+		for (int row : rowsToInsert) {
+			if (Arrays.binarySearch(sortedRowsToRemove, row) < 0)
+				newInsertedRows[newInsertedCount++] = row;
+		}
+		int[] sortedInsertedRows = insertedRows.clone();
+		Arrays.sort(sortedInsertedRows);
+		int[] sortedRowsToInsert = rowsToInsert.clone();
+		Arrays.sort(sortedRowsToInsert);
+		int[] newRemovedRows = new int[removedRows.length + sortedRowsToRemove.length];
+		System.arraycopy(removedRows, 0, newRemovedRows, 0, removedRows.length);
+		int newRemovedCount = removedRows.length;
+		for (int row : sortedRowsToRemove) {
+			if (Arrays.binarySearch(sortedInsertedRows, row) < 0 && Arrays.binarySearch(sortedRowsToInsert, row) < 0)
+				newRemovedRows[newRemovedCount++] = row;
+		}
+		newInsertedRows = Arrays.copyOf(newInsertedRows, newInsertedCount);
+		newRemovedRows = Arrays.copyOf(newRemovedRows, newRemovedCount);
+		Arrays.sort(newRemovedRows);
+
+		int deltaSize = newInsertedRows.length + newRemovedRows.length;
+		if (deltaSize >= Math.max(MIN_DELTA_SIZE_TO_MERGE, 4 * (int) Math.sqrt(rows.length)))
+			return merge(newInsertedRows, newRemovedRows);
+		return new AvailabilityIndex(store, startDays, rows, leafCount, maxEndDays, newInsertedRows, newRemovedRows);
+	}
+
+	/**
+	 * The merge method merges the static part, minus the removed rows, with the inserted rows sorted by start day.
+	 * As the static part is already sorted, only the inserted rows need sorting.
+	 */
+	private AvailabilityIndex merge(int[] insertedRowsToMerge, int[] removedRowsToMerge) {
+		int[] sortedInsertedRows = sortByStartDay(store, insertedRowsToMerge);
+		int mergedSize = rows.length - removedRowsToMerge.length + sortedInsertedRows.length;
+		int[] mergedRows = new int[mergedSize];
+		int[] mergedStartDays = new int[mergedSize];
+		int mergedCount = 0;
+		int insertedPosition = 0;
+		for (int i = 0; i < rows.length; i++) {
+			if (Arrays.binarySearch(removedRowsToMerge, rows[i]) >= 0)
+				continue;
+			while (insertedPosition < sortedInsertedRows.length
+					&& store.getStartDay(sortedInsertedRows[insertedPosition]) < startDays[i]) {
+				mergedStartDays[mergedCount] = store.getStartDay(sortedInsertedRows[insertedPosition]);
+				mergedRows[mergedCount++] = sortedInsertedRows[insertedPosition++];
+			}
+			mergedStartDays[mergedCount] = startDays[i];
+			mergedRows[mergedCount++] = rows[i];
+		}
+		while (insertedPosition < sortedInsertedRows.length) {
+			mergedStartDays[mergedCount] = store.getStartDay(sortedInsertedRows[insertedPosition]);
+			mergedRows[mergedCount++] = sortedInsertedRows[insertedPosition++];
+		}
+		return fromSortedRows(store, mergedRows, mergedStartDays);
+	}
+
+	/**
+	 * The findContaining method returns the rows whose availability range contains the given start and end epoch days.
+	 * @param startDay
+	 * @param endDay
+	 * @return row ids of the hotel advertisers available for the whole given date range, in no particular order.
+	 */
+	public int[] findContaining(int startDay, int endDay) {
+		RowCollector result = new RowCollector();
+		int candidateCount = upperBound(startDays, startDay);
+		if (candidateCount > 0)
+			collect(1, 0, leafCount, candidateCount, endDay, result);
+		for (int row : insertedRows) {
+			if (store.getStartDay(row) <= startDay && store.getEndDay(row) >= endDay)
+				result.add(row);
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * The findContainingAll method answers several findContaining queries in one walk of the max end day tree.
+	 * Every node is visited once for all the queries that can still match below it, so queries on overlapping date
+	 * ranges share the nodes they have in common, and the inserted rows are read once.
+	 * @param startDays - start epoch day of every query.
+	 * @param endDays - end epoch day of every query, at the same position as its start day.
+	 * @return the rows of every query, at the position of the query, as findContaining(startDays[i], endDays[i]) returns them.
+	 */
+	public int[][] findContainingAll(int[] startDays, int[] endDays) {
+		int queryCount = startDays.length;
+		RowCollector[] results = new RowCollector[queryCount];
+		int[] candidateCounts = new int[queryCount];
+		for (int query = 0; query < queryCount; query++) {
+			results[query] = new RowCollector();
+			candidateCounts[query] = upperBound(this.startDays, startDays[query]);
+		}
+		for (int first = 0; first < queryCount; first += Long.SIZE) {
+			int last = Math.min(queryCount, first + Long.SIZE);
+			long queries = last - first == Long.SIZE ? -1L : (1L << (last - first)) - 1;
+			collectAll(1, 0, leafCount, queries, first, candidateCounts, endDays, results);
+		}
+		for (int row : insertedRows) {
+			int rowStartDay = store.getStartDay(row);
+			int rowEndDay = store.getEndDay(row);
+			for (int query = 0; query < queryCount; query++) {
+				if (rowStartDay <= startDays[query] && rowEndDay >= endDays[query])
+					results[query].add(row);
+			}
+		}
+		int[][] rowsByQuery = new int[queryCount][];
+		for (int query = 0; query < queryCount; query++)
+			rowsByQuery[query] = results[query].toArray();
+		return rowsByQuery;
+	}
+
+	/**
+	 * The collectAll method walks the max end day tree like the collect method, for the queries first + i of the set
+	 * bits i of the given queries. A subtree is skipped for the queries it cannot match, and skipped altogether once
+	 * no query is left.
+	 */
+	private void collectAll(int node, int nodeStart, int nodeSize, long queries, int first, int[] candidateCounts,
+			int[] endDays, RowCollector[] results) {
+		long matchingQueries = queries;
+		for (long remaining = queries; remaining != 0; remaining &= remaining - 1) {
+			int bit = Long.numberOfTrailingZeros(remaining);
+			if (nodeStart >= candidateCounts[first + bit] || maxEndDays[node] < endDays[first + bit])
+				matchingQueries &= ~(1L << bit);
+		}
+		if (matchingQueries == 0)
+			return;
+		if (nodeSize == 1) {
+			int row = rows[nodeStart];
+			if (removedRows.length != 0 && Arrays.binarySearch(removedRows, row) >= 0)
+				return;
+			for (long remaining = matchingQueries; remaining != 0; remaining &= remaining - 1)
+				results[first + Long.numberOfTrailingZeros(remaining)].add(row);
+			return;
+		}
+		int halfSize = nodeSize >> 1;
+		collectAll(2 * node, nodeStart, halfSize, matchingQueries, first, candidateCounts, endDays, results);
+		collectAll(2 * node + 1, nodeStart + halfSize, halfSize, matchingQueries, first, candidateCounts, endDays, results);
+	}
+
+	/**
+	 * The countCandidates method returns how many rows a findContaining query with the given start day considers:
+	 * the rows of the static part starting on or before it, most of which the max end day tree skips a subtree at a
+	 * time, and the inserted rows, which are checked one by one.
+	 * @param startDay
+	 * @return the number of candidate rows.
+	 */
+	public int countCandidates(int startDay) {
+		return upperBound(startDays, startDay) + insertedRows.length;
+	}
+
+	/**
+	 * The collect method walks the max end day tree, skipping subtrees that start at or after the candidate count
+	 * or whose max end day is before the requested end day.
+	 */
+	private void collect(int node, int nodeStart, int nodeSize, int candidateCount, int endDay, RowCollector result) {
+		if (nodeStart >= candidateCount || maxEndDays[node] < endDay)
+			return;
+		if (nodeSize == 1) {
+			int row = rows[nodeStart];
+			if (removedRows.length == 0 || Arrays.binarySearch(removedRows, row) < 0)
+				result.add(row);
+			return;
+		}
+		int halfSize = nodeSize >> 1;
+		collect(2 * node, nodeStart, halfSize, candidateCount, endDay, result);
+		collect(2 * node + 1, nodeStart + halfSize, halfSize, candidateCount, endDay, result);
+	}
+
+	/**
+	 * @return the number of values in the sorted array that are smaller than or equal to the given key.
+	 */
+	private static int upperBound(int[] sortedValues, int key) {
+		int low = 0;
+		int high = sortedValues.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sortedValues[middle] <= key)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	public int size() {
+		return rows.length - removedRows.length + insertedRows.length;
+	}
+
+	private static class RowCollector {
+
+		private int[] rows = new int[16];
+		private int count = 0;
+
+		private void add(int row) {
+			if (count == rows.length)
+				rows = Arrays.copyOf(rows, count * 2);
+			rows[count++] = row;
+		}
+
+		private int[] toArray() {
+			return Arrays.copyOf(rows, count);
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package hotelSearchPlatform.data;
+
+import java.util.Arrays;
+
+/**
+ * The BestOffers class is the materialized "best offer" view of one hotel: for every date range, the row of the
+ * cheapest offer available for all of it, as the OfferComparator class orders offers under the currency rates of a
+ * snapshot (normalized price increasing, then cpc decreasing, then advertiser id).
+ * The rows of the hotel are bucketed by availability window, keeping the best row of every distinct (start day,
+ * end day) window, and a window is dropped when a better row is available for all of its days, as that row wins
+ * every date range the window contains. What is left is a short list of windows in offer order, and the best offer
+ * of a date range is the first window containing it. The list holds the windows next to their rows, so a lookup
+ * reads no row of the HotelAdvertiserStore.
+ * A BestOffers is immutable. The HotelDataSnapshot class keeps one per hotel and rebuilds it from the hotel's rows
+ * whenever they or the currency rates change. It also indexes the rows of the windows of all hotels of a city in an
+ * AvailabilityIndex, so the hotels with an offer for a date range are found without visiting every hotel.
+ */
+public final class BestOffers {
+
+	public static final int NOT_FOUND = -1;
+	private static final BestOffers EMPTY = new BestOffers(new int[0]);
+
+	/** Row, start day and end day of every window, in offer order. */
+	private final int[] windows;
+
+	private BestOffers(int[] windows) {
+		this.windows = windows;
+	}
+
+	/**
+	 * The build method creates the view of the given rows.
+	 * @param store
+	 * @param normalizedPrices - normalized prices the rows are ordered by.
+	 * @param rows - row ids of the hotel advertisers of one hotel, sorted by normalized price.
+	 * @return a new BestOffers.
+	 */
+	public static BestOffers build(HotelAdvertiserStore store, NormalizedPrices normalizedPrices, int[] rows) {
+		if (rows.length == 0)
+			return EMPTY;
+		int[] offerRows = rows.clone();
+		// rows are sorted by price, cpc increasing, so only rows of the same price need ordering by cpc decreasing
+		for (int i = 1; i < offerRows.length; i++) {
+			int row = offerRows[i];
+			int position = i;
+			while (position > 0 && normalizedPrices.compareOffers(row, offerRows[position - 1]) < 0) {
+				offerRows[position] = offerRows[position - 1];
+				position--;
+			}
+			offerRows[position] = row;
+		}
+		int[] windows = new int[3 * Math.min(offerRows.length, 8)];
+		int length = 0;
+		for (int row : offerRows) {
+			int startDay = store.getStartDay(row);
+			int endDay = store.getEndDay(row);
+			if (find(windows, length, startDay, endDay) != NOT_FOUND)
+				continue;
+			if (length == windows.length)
+				windows = Arrays.copyOf(windows, 2 * length);
+			windows[length++] = row;
+			windows[length++] = startDay;
+			windows[length++] = endDay;
+		}
+		return new BestOffers(Arrays.copyOf(windows, length));
+	}
+
+	/**
+	 * @param startDay
+	 * @param endDay
+	 * @return the row of the best offer available for the whole given date range, or NOT_FOUND if the hotel has none.
+	 */
+	public int find(int startDay, int endDay) {
+		return find(windows, windows.length, startDay, endDay);
+	}
+
+	private static int find(int[] windows, int length, int startDay, int endDay) {
+		for (int i = 0; i < length; i += 3) {
+			if (windows[i + 1] <= startDay && windows[i + 2] >= endDay)
+				return windows[i];
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * @return the rows of the windows, in offer order.
+	 */
+	public int[] getRows() {
+		int[] rows = new int[windows.length / 3];
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = windows[3 * i];
+		return rows;
+	}
+
+	/**
+	 * @return the number of windows kept.
+	 */
+	public int size() {
+		return windows.length / 3;
+	}
+}
@@ -3,10 +3,8 @@ package hotelSearchPlatform.data;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -25,22 +23,19 @@ import hotelSearchPlatform.entities.HotelAdvertiser;
 /**
  * The CSVLoader class is a service that uses the Apache Common CVS Reader to read data from external *.csv 
  * files stored in the resources directory. The data is translated into relevant entities and returned as a map.   *
+ * It is the "commons-csv" HotelDataLoader of the HotelData class.
  */
 
 @Service
-public class CSVLoader {
+public class CSVLoader implements HotelDataLoader {
 
 	/**
-	 * The records Iterator will hold data translated from relevant csv files. 
 	 * The headers map will hold the relevant headers for each data entity. 
-	 * The dateFormater will be used to parse String data from the csv file into LocalDate format.
 	 * The CSVLoader constructor loads the header names of the relevant csv file and data entity
 	 * into the headers map.   
 	 */
 	
-	private Iterable<CSVRecord> records = null;
 	private Map<String, String[]> headers = new HashMap<String, String[]>();
-	private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.ENGLISH);
 
 	public CSVLoader() {
 		String[] cityHeaders = {"id", "city_name"};
@@ -62,12 +57,14 @@ public class CSVLoader {
 	 * @param path - - location of the cities.csv file in the resource directory.
 	 * @return - map of cities from the csv file with the city name as a String Key.
 	 */
+	@Override
 	public Map<String, City> loadCities(String path) {
 		Map<String, City> cities = new HashMap<String, City>();
-		readFromFile(path, "cities");
+		Iterable<CSVRecord> records = readFromFile(path, "cities");
 		for (CSVRecord record : records) {
 			int id = Integer.parseInt(record.get("id"));
-			cities.put(record.get("city_name"), new City(id, record.get("city_name")));
+			String cityName = record.get("city_name");
+			cities.put(cityName, new City(id, cityName));
 		}
 		return cities;
 	}
@@ -77,9 +74,10 @@ public class CSVLoader {
 	 * @param path - location of the advertisers.csv file in the resource directory.
 	 * @return - map of the advertisers from the csv file with the advertiser id as Key.
 	 */
+	@Override
 	public Map<Integer, Advertiser> loadAdvertisers(String path) {
 		Map<Integer, Advertiser> advertisers = new HashMap<Integer, Advertiser>();
-		readFromFile(path, "advertisers");
+		Iterable<CSVRecord> records = readFromFile(path, "advertisers");
 		for (CSVRecord record : records) {
 			int id = Integer.parseInt(record.get("id"));
 			advertisers.put(id, new Advertiser(id, record.get("advertiser_name")));
@@ -92,9 +90,10 @@ public class CSVLoader {
 	 * @param path - location of the hotels.csv file in the resource directory.
 	 * @return - map of the hotels from the csv file with the hotel id as Key.
 	 */
+	@Override
 	public Map<Integer, Hotel> loadHotels(String path) {
 		Map<Integer, Hotel> hotels = new HashMap<Integer, Hotel>();
-		readFromFile(path, "hotels");
+		Iterable<CSVRecord> records = readFromFile(path, "hotels");
 		for (CSVRecord record : records) {
 			int id = Integer.parseInt(record.get("id"));
 			int city_id = Integer.parseInt(record.get("city_id"));
@@ -116,7 +115,7 @@ public class CSVLoader {
 	 */
 	public SortedMap<Integer, TreeSet<HotelAdvertiser>> loadHotelAdvertisers(String path) {
 		SortedMap<Integer, TreeSet<HotelAdvertiser>> hotelAdvertisers = new TreeMap<Integer, TreeSet<HotelAdvertiser>>();
-		readFromFile(path, "hotelAdvertisers");
+		Iterable<CSVRecord> records = readFromFile(path, "hotelAdvertisers");
 		for (CSVRecord record : records) {
 			int advertiser_id = Integer.parseInt(record.get("advertiser_id"));
 			int hotel_id = Integer.parseInt(record.get("hotel_id"));
@@ -133,9 +132,29 @@ public class CSVLoader {
 		return hotelAdvertisers;
 	}
 
+	/**
+	 * The loadHotelAdvertisers method adds every record of the hotel_advertiser.csv file as a row to the given
+	 * HotelAdvertiserStore, in file order, without building a set per hotel. Rows are added field by field, so the
+	 * store keeps the canonical instance of the currency of every record instead of the one commons-csv created.
+	 * @param path - location of the hotel_advertiser.csv file in the resource directory.
+	 * @param hotelAdvertiserStore - store the rows are added to.
+	 */
+	@Override
+	public void loadHotelAdvertisers(String path, HotelAdvertiserStore hotelAdvertiserStore) {
+		Iterable<CSVRecord> records = readFromFile(path, "hotelAdvertisers");
+		for (CSVRecord record : records) {
+			int advertiser_id = Integer.parseInt(record.get("advertiser_id"));
+			int hotel_id = Integer.parseInt(record.get("hotel_id"));
+			int cpc = Integer.parseInt(record.get("cpc"));
+			int price = Integer.parseInt(record.get("price"));
+			hotelAdvertiserStore.add(advertiser_id, hotel_id, cpc, price, record.get("currency"),
+					EpochDays.parse(record.get("availability_start_date")), EpochDays.parse(record.get("availability_end_date")));
+		}
+	}
+
 	/**
 	 * The createAdvertiser method is used by the loadHotelAdvertiser method to create HotelAdvertiser entities
-	 * and parse the String date in the csv file to a LocalDate using dateFormatter. 
+	 * and parse the String date in the csv file to an epoch day using the EpochDays class. 
 	 * All parameters are taken from the csv file via the loadHotelAdvertiser method and passed to the entity's constructor.
 	 * @param record
 	 * @param advertiser_id
@@ -146,23 +165,24 @@ public class CSVLoader {
 	 */
 	private HotelAdvertiser createHotelAdvertiser(CSVRecord record, int advertiser_id, int hotel_id, int cpc, int price) {
 		return new HotelAdvertiser(advertiser_id, hotel_id, cpc, price, record.get("currency"),
-				LocalDate.parse(record.get("availability_start_date"), dateFormatter),
-				LocalDate.parse(record.get("availability_end_date"), dateFormatter));
+				EpochDays.parse(record.get("availability_start_date")), EpochDays.parse(record.get("availability_end_date")));
 	}
 
 	/**
 	 * The readFromFile method is used by loadCities, loadAdvertisers, loadHotels and loadHotelAdvertiser method
-	 * to set the relevant data from a specific csv file in the records Iterator in this CSVLoader class, to 
+	 * to read the relevant data from a specific csv file into a records Iterator, to 
 	 * be used by the specific method to populate the relevant dataEntity map.
 	 * @param path - location of the relevant csv file in the resources directory.
 	 * @param dataEntity - type of entity to be mapped (i.e. City/Hotel/Advertiser/hoteAdvertiser)
+	 * @return the records of the file.
+	 * @throws UncheckedIOException - in case the file cannot be read.
 	 */
-	private void readFromFile(String path, String dataEntity) {
+	private Iterable<CSVRecord> readFromFile(String path, String dataEntity) throws UncheckedIOException {
 		try {
 			Reader in = new FileReader(path);
-			records = CSVFormat.EXCEL.withHeader(headers.get(dataEntity)).withFirstRecordAsHeader().parse(in);
+			return CSVFormat.EXCEL.withHeader(headers.get(dataEntity)).withFirstRecordAsHeader().parse(in);
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new UncheckedIOException("Cannot read " + path, e);
 		}
 	}
 }
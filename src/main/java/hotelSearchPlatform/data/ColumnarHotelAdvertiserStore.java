@@ -0,0 +1,121 @@
+package hotelSearchPlatform.data;
+
+import hotelSearchPlatform.entities.HotelAdvertiser;
+
+/**
+ * The ColumnarHotelAdvertiserStore class keeps the hotel advertiser rows as parallel int columns: advertiser id,
+ * hotel id, cpc, price, availability start and end epoch days and the code of the currency in the StringDictionary
+ * of currencies shared with the HotelData class.
+ * A row costs 7 ints instead of a HotelAdvertiser entity, its object header and a reference to a currency String, and 
+ * filters can read the columns they need without touching the others.
+ * The columns are kept on the heap, or outside of the heap in direct ByteBuffers when created with offHeap set.
+ * It is the "columnar" and "off-heap" storage engine of the HotelData class.
+ * Rows are added by a single writer while readers of older HotelDataSnapshot versions keep reading existing rows:
+ * columns are never changed below the size and grown columns are published through volatile fields, so readers see
+ * every row referred to by the snapshot they read.
+ */
+public class ColumnarHotelAdvertiserStore implements HotelAdvertiserStore {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private volatile IntColumn advertiserIds, hotelIds, cpcs, prices, currencyCodes, startDays, endDays;
+	private int size = 0;
+	private final StringDictionary currencies;
+
+	/**
+	 * @param offHeap - true to keep the columns outside of the heap.
+	 * @param currencies - dictionary the currencies of the rows are encoded with.
+	 */
+	public ColumnarHotelAdvertiserStore(boolean offHeap, StringDictionary currencies) {
+		this.currencies = currencies;
+		advertiserIds = IntColumn.create(INITIAL_CAPACITY, offHeap);
+		hotelIds = IntColumn.create(INITIAL_CAPACITY, offHeap);
+		cpcs = IntColumn.create(INITIAL_CAPACITY, offHeap);
+		prices = IntColumn.create(INITIAL_CAPACITY, offHeap);
+		currencyCodes = IntColumn.create(INITIAL_CAPACITY, offHeap);
+		startDays = IntColumn.create(INITIAL_CAPACITY, offHeap);
+		endDays = IntColumn.create(INITIAL_CAPACITY, offHeap);
+	}
+
+	@Override
+	public int add(HotelAdvertiser hotelAdvertiser) {
+		return add(hotelAdvertiser.getAdvertiser_id(), hotelAdvertiser.getHotel_id(), hotelAdvertiser.getCpc(),
+				hotelAdvertiser.getPrice(), hotelAdvertiser.getCurrency(), hotelAdvertiser.getAvailability_start_day(),
+				hotelAdvertiser.getAvailability_end_day());
+	}
+
+	@Override
+	public int add(int advertiserId, int hotelId, int cpc, int price, String currency, int startDay, int endDay) {
+		if (size == advertiserIds.capacity())
+			grow(IntColumn.grownCapacity(size, advertiserIds.maxCapacity(), "hotel advertiser rows"));
+		advertiserIds.set(size, advertiserId);
+		hotelIds.set(size, hotelId);
+		cpcs.set(size, cpc);
+		prices.set(size, price);
+		currencyCodes.set(size, currencies.code(currency));
+		startDays.set(size, startDay);
+		endDays.set(size, endDay);
+		return size++;
+	}
+
+	private void grow(int capacity) {
+		advertiserIds = advertiserIds.grow(capacity);
+		hotelIds = hotelIds.grow(capacity);
+		cpcs = cpcs.grow(capacity);
+		prices = prices.grow(capacity);
+		currencyCodes = currencyCodes.grow(capacity);
+		startDays = startDays.grow(capacity);
+		endDays = endDays.grow(capacity);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int getAdvertiserId(int row) {
+		return advertiserIds.get(row);
+	}
+
+	@Override
+	public int getHotelId(int row) {
+		return hotelIds.get(row);
+	}
+
+	@Override
+	public int getCpc(int row) {
+		return cpcs.get(row);
+	}
+
+	@Override
+	public int getPrice(int row) {
+		return prices.get(row);
+	}
+
+	@Override
+	public String getCurrency(int row) {
+		return currencies.get(currencyCodes.get(row));
+	}
+
+	@Override
+	public int getStartDay(int row) {
+		return startDays.get(row);
+	}
+
+	@Override
+	public int getEndDay(int row) {
+		return endDays.get(row);
+	}
+
+	@Override
+	public HotelAdvertiser get(int row) {
+		return new HotelAdvertiser(getAdvertiserId(row), getHotelId(row), getCpc(row), getPrice(row), getCurrency(row),
+				getStartDay(row), getEndDay(row));
+	}
+
+	@Override
+	public long estimatedBytes() {
+		return 7L * Integer.BYTES * advertiserIds.capacity();
+	}
+}
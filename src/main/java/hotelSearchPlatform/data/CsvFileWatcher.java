@@ -0,0 +1,89 @@
+package hotelSearchPlatform.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The CsvFileWatcher class tracks the modification time of the *.csv files of the HotelData class and, when
+ * 'hotel-data.reload.watch-interval-ms' is set, reloads them once they changed and have settled.
+ */
+final class CsvFileWatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(CsvFileWatcher.class);
+
+	private final Path dataDirectory;
+	private final List<Path> csvFiles;
+	private final long intervalMillis;
+	private volatile long loadedMillis;
+
+	/**
+	 * @param dataDirectory
+	 * @param csvFiles - the *.csv files of the data directory.
+	 * @param intervalMillis - how often to look at the files, and how long they must be unchanged to be reloaded.
+	 */
+	CsvFileWatcher(Path dataDirectory, List<Path> csvFiles, long intervalMillis) {
+		this.dataDirectory = dataDirectory;
+		this.csvFiles = csvFiles;
+		this.intervalMillis = intervalMillis;
+	}
+
+	/**
+	 * The start method looks at the files every interval on the reload thread, unless the interval is 0.
+	 * @param reloadThread
+	 * @param reload - reloads the files on the calling thread, given the trigger.
+	 */
+	void start(ReloadThread reloadThread, Consumer<String> reload) {
+		if (intervalMillis > 0)
+			reloadThread.scheduleWithFixedDelay(() -> watch(reloadThread, reload), intervalMillis);
+	}
+
+	/**
+	 * The loaded method records the modification time of the files that were loaded last.
+	 * @param modifiedMillis - as returned by modifiedMillis() before the files were loaded.
+	 */
+	void loaded(long modifiedMillis) {
+		loadedMillis = modifiedMillis;
+	}
+
+	/**
+	 * @return the latest modification time of the *.csv files, in milliseconds since the epoch, or 0 if one is missing.
+	 */
+	long modifiedMillis() throws UncheckedIOException {
+		long modified = 0;
+		try {
+			for (Path csvFile : csvFiles) {
+				if (!Files.exists(csvFile))
+					return 0;
+				modified = Math.max(modified, Files.getLastModifiedTime(csvFile).toMillis());
+			}
+			return modified;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read the modification time of the hotel data files", e);
+		}
+	}
+
+	/**
+	 * The watch method reloads the files once they were modified after the last load and have not been modified for
+	 * the interval, so files still being written are not loaded.
+	 */
+	private void watch(ReloadThread reloadThread, Consumer<String> reload) {
+		try {
+			long modified = modifiedMillis();
+			if (modified > loadedMillis && modified < System.currentTimeMillis() - intervalMillis) {
+				reloadThread.runIfIdle(() -> {
+					logger.info("The *.csv files of {} changed, reloading them", dataDirectory);
+					reload.accept("file-watch");
+				});
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Cannot watch the *.csv files of " + dataDirectory, e);
+		}
+	}
+}
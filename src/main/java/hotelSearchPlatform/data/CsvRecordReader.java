@@ -0,0 +1,285 @@
+package hotelSearchPlatform.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The CsvRecordReader class reads the records of a *.csv file, or of a line aligned range of it, straight from a
+ * ByteBuffer (usually memory mapped by the MappedCSVLoader class). A record is read by recording where its fields
+ * start and end, and fields are only converted when asked for: ints and yyyyMMdd dates are parsed from the bytes
+ * without creating a String, and short repeated values such as currencies are returned from a small cache.
+ * Fields may be quoted as in the Excel format ("a, ""b""" for a, "b"). Empty lines are skipped.
+ * A CsvRecordReader is used by one thread only.
+ */
+final class CsvRecordReader {
+
+	private static final int STRING_CACHE_SIZE = 256;
+	private static final int STRING_CACHE_PROBES = 8;
+	private static final int MAX_CACHED_STRING_LENGTH = 16;
+
+	private final String path;
+	private final ByteBuffer buffer;
+	private long fileOffset;
+	private int limit;
+	private int position;
+	private int recordStart;
+	private int fieldCount;
+	private int[] fieldStarts = new int[16];
+	private int[] fieldEnds = new int[16];
+	private boolean[] fieldEscaped = new boolean[16];
+	private final byte[][] cachedStringBytes = new byte[STRING_CACHE_SIZE][];
+	private final String[] cachedStrings = new String[STRING_CACHE_SIZE];
+
+	/**
+	 * @param path - file the buffer belongs to, for error messages.
+	 * @param buffer - bytes to read, from its position to its limit.
+	 * @param fileOffset - offset of the buffer's position in the file, for error messages.
+	 */
+	CsvRecordReader(String path, ByteBuffer buffer, long fileOffset) {
+		this.path = path;
+		this.buffer = buffer;
+		this.fileOffset = fileOffset - buffer.position();
+		this.position = buffer.position();
+		this.limit = buffer.limit();
+	}
+
+	/**
+	 * The reset method moves the reader to another range of its buffer, whose bytes may have changed since, so one
+	 * reader can read a stream through a buffer that is refilled (see the PriceFeedReader class).
+	 * @param position - start of the range in the buffer.
+	 * @param limit - end of the range in the buffer.
+	 * @param fileOffset - offset of the start of the range in the stream, for error messages.
+	 */
+	void reset(int position, int limit, long fileOffset) {
+		this.fileOffset = fileOffset - position;
+		this.position = position;
+		this.limit = limit;
+	}
+
+	/**
+	 * The next method reads the next record.
+	 * @return false if there are no more records.
+	 * @throws IllegalArgumentException - in case a quoted field is not terminated properly.
+	 */
+	boolean next() throws IllegalArgumentException {
+		while (position < limit && (buffer.get(position) == '\n' || buffer.get(position) == '\r'))
+			position++;
+		if (position >= limit)
+			return false;
+		recordStart = position;
+		fieldCount = 0;
+		while (true) {
+			if (buffer.get(position) == '"')
+				readQuotedField();
+			else
+				readField();
+			if (position >= limit)
+				return true;
+			byte separator = buffer.get(position++);
+			if (separator == ',') {
+				if (position >= limit)
+					addField(position, position, false);
+				continue;
+			}
+			if (separator == '\r' && position < limit && buffer.get(position) == '\n')
+				position++;
+			return true;
+		}
+	}
+
+	private void readField() {
+		int start = position;
+		while (position < limit) {
+			byte b = buffer.get(position);
+			if (b == ',' || b == '\n' || b == '\r')
+				break;
+			position++;
+		}
+		addField(start, position, false);
+	}
+
+	private void readQuotedField() {
+		int start = ++position;
+		boolean escaped = false;
+		while (true) {
+			if (position >= limit)
+				throw invalid("unterminated quoted field", recordStart, limit);
+			if (buffer.get(position++) != '"')
+				continue;
+			if (position < limit && buffer.get(position) == '"') {
+				escaped = true;
+				position++;
+				continue;
+			}
+			break;
+		}
+		addField(start, position - 1, escaped);
+		if (position < limit && buffer.get(position) != ',' && buffer.get(position) != '\n' && buffer.get(position) != '\r')
+			throw invalid("quoted field", start - 1, position + 1);
+	}
+
+	private void addField(int start, int end, boolean escaped) {
+		if (fieldCount == fieldStarts.length) {
+			fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+			fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+			fieldEscaped = Arrays.copyOf(fieldEscaped, fieldCount * 2);
+		}
+		fieldStarts[fieldCount] = start;
+		fieldEnds[fieldCount] = end;
+		fieldEscaped[fieldCount++] = escaped;
+	}
+
+	/**
+	 * @return the position after the current record in the buffer.
+	 */
+	int position() {
+		return position;
+	}
+
+	/**
+	 * The readHeader method reads the next record as the header of the file.
+	 * @return the column index of every header name.
+	 */
+	Map<String, Integer> readHeader() {
+		Map<String, Integer> columns = new HashMap<String, Integer>();
+		if (!next())
+			return columns;
+		for (int column = 0; column < fieldCount; column++)
+			columns.put(getString(column), column);
+		return columns;
+	}
+
+	/**
+	 * @param columns - header of the file, see readHeader().
+	 * @param name
+	 * @return the index of the column with the given name.
+	 * @throws IllegalArgumentException - in case the header has no such column.
+	 */
+	int column(Map<String, Integer> columns, String name) throws IllegalArgumentException {
+		Integer column = columns.get(name);
+		if (column == null)
+			throw new IllegalArgumentException("Missing column '" + name + "' in " + path);
+		return column;
+	}
+
+	/**
+	 * @param column
+	 * @return the field of the current record in the given column as an int.
+	 * @throws IllegalArgumentException - in case the field is missing or not a valid int.
+	 */
+	int getInt(int column) throws IllegalArgumentException {
+		int start = fieldStart(column);
+		int end = fieldEnds[column];
+		boolean negative = start < end && buffer.get(start) == '-';
+		int digitsStart = negative ? start + 1 : start;
+		if (digitsStart == end)
+			throw invalid("int", start, end);
+		long value = 0;
+		for (int i = digitsStart; i < end; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9)
+				throw invalid("int", start, end);
+			value = value * 10 + digit;
+			if (value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE))
+				throw invalid("int", start, end);
+		}
+		return (int) (negative ? -value : value);
+	}
+
+	/**
+	 * @param column
+	 * @return the yyyyMMdd date field of the current record in the given column as an epoch day.
+	 * @throws IllegalArgumentException - in case the field is missing or not a valid yyyyMMdd date.
+	 */
+	int getEpochDay(int column) throws IllegalArgumentException {
+		int start = fieldStart(column);
+		int end = fieldEnds[column];
+		if (end - start != 8)
+			throw invalid("yyyyMMdd date", start, end);
+		int date = 0;
+		for (int i = start; i < end; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9)
+				throw invalid("yyyyMMdd date", start, end);
+			date = date * 10 + digit;
+		}
+		int year = date / 10000;
+		int month = date / 100 % 100;
+		int day = date % 100;
+		if (!EpochDays.isValid(year, month, day))
+			throw invalid("yyyyMMdd date", start, end);
+		return EpochDays.of(year, month, day);
+	}
+
+	/**
+	 * @param column
+	 * @return the field of the current record in the given column as a String.
+	 * @throws IllegalArgumentException - in case the record has no such field.
+	 */
+	String getString(int column) throws IllegalArgumentException {
+		int start = fieldStart(column);
+		byte[] bytes = new byte[fieldEnds[column] - start];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(start + i);
+		String value = new String(bytes, StandardCharsets.UTF_8);
+		return fieldEscaped[column] ? value.replace("\"\"", "\"") : value;
+	}
+
+	/**
+	 * The getCachedString method returns the same String instance for fields with the same bytes, and only creates
+	 * a String for bytes it has not seen yet. It is meant for short fields with few distinct values (e.g. currencies).
+	 * @param column
+	 * @return the field of the current record in the given column as a String.
+	 * @throws IllegalArgumentException - in case the record has no such field.
+	 */
+	String getCachedString(int column) throws IllegalArgumentException {
+		int start = fieldStart(column);
+		int length = fieldEnds[column] - start;
+		if (fieldEscaped[column] || length > MAX_CACHED_STRING_LENGTH)
+			return getString(column);
+		int hash = length;
+		for (int i = start; i < start + length; i++)
+			hash = 31 * hash + buffer.get(i);
+		hash ^= hash >>> 16;
+		for (int probe = 0; probe < STRING_CACHE_PROBES; probe++) {
+			int slot = (hash + probe) & (STRING_CACHE_SIZE - 1);
+			byte[] cachedBytes = cachedStringBytes[slot];
+			if (cachedBytes == null) {
+				String value = getString(column);
+				cachedStrings[slot] = value;
+				cachedStringBytes[slot] = value.getBytes(StandardCharsets.UTF_8);
+				return value;
+			}
+			if (equalBytes(cachedBytes, start, length))
+				return cachedStrings[slot];
+		}
+		return getString(column);
+	}
+
+	private boolean equalBytes(byte[] bytes, int start, int length) {
+		if (bytes.length != length)
+			return false;
+		for (int i = 0; i < length; i++) {
+			if (bytes[i] != buffer.get(start + i))
+				return false;
+		}
+		return true;
+	}
+
+	private int fieldStart(int column) {
+		if (column >= fieldCount)
+			throw invalid("record, missing column " + column + " in", recordStart, position);
+		return fieldStarts[column];
+	}
+
+	private IllegalArgumentException invalid(String what, int start, int end) {
+		byte[] bytes = new byte[Math.min(end - start, 64)];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = buffer.get(start + i);
+		return new IllegalArgumentException("Invalid " + what + " '" + new String(bytes, StandardCharsets.UTF_8).trim()
+				+ "' in " + path + " at byte " + (fileOffset + start));
+	}
+}
@@ -0,0 +1,122 @@
+package hotelSearchPlatform.data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The CurrencyRates class is a version of the FX rate table the prices of hotel advertisers are normalized with:
+ * the value of one unit of every currency in a common base currency. The normalized price of a hotel advertiser is
+ * its price times the rate of its currency, rounded to a whole unit of the base currency, so prices in different
+ * currencies compare as ints. A currency without a rate keeps its price, as if it were the base currency, so when a
+ * table is configured the HotelFacade class rejects updates in such a currency, see hasRate().
+ * The table is read from a local *.csv file with a "currency,rate" header and a line per currency, e.g.
+ * <pre>
+ * currency,rate
+ * EUR,1
+ * USD,0.92
+ * </pre>
+ * A CurrencyRates is immutable, and every table loaded by the HotelData class gets the next version.
+ */
+public final class CurrencyRates {
+
+	/** The table without rates, under which every normalized price is the price itself. */
+	public static final CurrencyRates NONE = new CurrencyRates(0, new TreeMap<String, Double>());
+
+	private final long version;
+	private final Map<String, Double> rates;
+
+	private CurrencyRates(long version, Map<String, Double> rates) {
+		this.version = version;
+		this.rates = Collections.unmodifiableMap(rates);
+	}
+
+	/**
+	 * The load method reads a rate table from the given file.
+	 * @param path - location of the *.csv file.
+	 * @param version - version of the loaded table.
+	 * @return the rate table of the file.
+	 * @throws UncheckedIOException - in case the file cannot be read.
+	 * @throws IllegalArgumentException - in case a line is not a currency and a positive rate.
+	 */
+	public static CurrencyRates load(Path path, long version) throws UncheckedIOException, IllegalArgumentException {
+		Map<String, Double> rates = new TreeMap<String, Double>();
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line = reader.readLine();
+			for (int lineNumber = 2; (line = reader.readLine()) != null; lineNumber++) {
+				if (line.trim().isEmpty())
+					continue;
+				String[] fields = line.split(",");
+				double rate;
+				try {
+					rate = fields.length == 2 ? Double.parseDouble(fields[1].trim()) : Double.NaN;
+				} catch (NumberFormatException e) {
+					rate = Double.NaN;
+				}
+				if (!(rate > 0) || Double.isInfinite(rate))
+					throw new IllegalArgumentException(path + " line " + lineNumber + " is not a currency and a positive rate");
+				rates.put(fields[0].trim(), rate);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read currency rates " + path, e);
+		}
+		return new CurrencyRates(version, rates);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the rate of every currency of the table, by currency.
+	 */
+	public Map<String, Double> getRates() {
+		return rates;
+	}
+
+	/**
+	 * @param currency
+	 * @return the value of one unit of the given currency in the base currency, 1 for a currency without a rate.
+	 */
+	public double rateOf(String currency) {
+		Double rate = currency == null ? null : rates.get(currency);
+		if (rate == null)
+			return 1;
+		return rate;
+	}
+
+	/**
+	 * @param currency
+	 * @return true if the table has a rate for the given currency.
+	 */
+	public boolean hasRate(String currency) {
+		return currency != null && rates.get(currency) != null;
+	}
+
+	/**
+	 * @param price
+	 * @param currency
+	 * @return the given price in the base currency, rounded and limited to the int range.
+	 */
+	public int normalize(int price, String currency) {
+		return normalize(price, rateOf(currency));
+	}
+
+	static int normalize(int price, double rate) {
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.round(price * rate)));
+	}
+
+	/**
+	 * @param other
+	 * @return true if the given table has the same rates as this one, whatever their versions.
+	 */
+	public boolean hasSameRates(CurrencyRates other) {
+		return rates.equals(other.rates);
+	}
+}
@@ -0,0 +1,133 @@
+package hotelSearchPlatform.data;
+
+import java.util.Arrays;
+
+/**
+ * The DayBitmap class holds the days on which a hotel is available, one bit per epoch day, as the union of the
+ * availability ranges of the hotel's advertisers. Like a Roaring bitmap it only stores the non empty parts of the
+ * day range: the days are split in words of 64 days, and only words with at least one available day are kept, with
+ * their word keys (epoch day / 64) in a sorted array next to them. A hotel available for a few months of the year
+ * takes a few words, however far apart its ranges are.
+ * Queries work on whole words: the firstRun method finds a run of consecutive available days by masking and shifting
+ * words, instead of checking the rows of the hotel day by day.
+ * A DayBitmap is immutable. The HotelDataSnapshot class keeps one per hotel and rebuilds it from the hotel's rows
+ * whenever they change.
+ */
+public final class DayBitmap {
+
+	public static final int NOT_FOUND = Integer.MIN_VALUE;
+	private static final DayBitmap EMPTY = new DayBitmap(new int[0], new long[0]);
+
+	private final int[] keys;
+	private final long[] words;
+
+	private DayBitmap(int[] keys, long[] words) {
+		this.keys = keys;
+		this.words = words;
+	}
+
+	/**
+	 * The build method creates the bitmap of the days contained in the availability range of any of the given rows.
+	 * @param store
+	 * @param rows - row ids of the hotel advertisers of one hotel.
+	 * @return a new DayBitmap.
+	 */
+	public static DayBitmap build(HotelAdvertiserStore store, int[] rows) {
+		if (rows.length == 0)
+			return EMPTY;
+		long[] ranges = new long[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			ranges[i] = ((long) store.getStartDay(rows[i]) << 32) | (store.getEndDay(rows[i]) & 0xFFFFFFFFL);
+		Arrays.sort(ranges);
+		int[] keys = new int[8];
+		long[] words = new long[8];
+		int wordCount = 0;
+		for (long range : ranges) {
+			int startDay = (int) (range >> 32);
+			int endDay = (int) range;
+			for (int key = startDay >> 6; key <= endDay >> 6; key++) {
+				int fromBit = key == startDay >> 6 ? startDay & 63 : 0;
+				int toBit = key == endDay >> 6 ? endDay & 63 : 63;
+				long mask = (-1L >>> (63 - toBit + fromBit)) << fromBit;
+				if (wordCount > 0 && keys[wordCount - 1] == key) {
+					words[wordCount - 1] |= mask;
+				} else if (wordCount > 0 && keys[wordCount - 1] > key) {
+					// ranges are sorted by start day, so a word before the last one was already added by an earlier range
+					int position = Arrays.binarySearch(keys, 0, wordCount, key);
+					words[position] |= mask;
+				} else {
+					if (wordCount == keys.length) {
+						keys = Arrays.copyOf(keys, 2 * wordCount);
+						words = Arrays.copyOf(words, 2 * wordCount);
+					}
+					keys[wordCount] = key;
+					words[wordCount++] = mask;
+				}
+			}
+		}
+		return new DayBitmap(Arrays.copyOf(keys, wordCount), Arrays.copyOf(words, wordCount));
+	}
+
+	/**
+	 * @param day - epoch day.
+	 * @return whether the given day is available.
+	 */
+	public boolean contains(int day) {
+		int position = Arrays.binarySearch(keys, day >> 6);
+		return position >= 0 && (words[position] & (1L << (day & 63))) != 0;
+	}
+
+	/**
+	 * The firstRun method finds the first run of at least the given number of consecutive available days within the
+	 * given days. It walks the words of the days from the first one, and the set bits of every word a run at a time:
+	 * the length of a run is the number of trailing zeros of the inverted word, and a run reaching the last bit of a
+	 * word is carried on to the next word if its key follows.
+	 * @param fromDay - first epoch day the run may start on.
+	 * @param toDay - last epoch day the run may end on.
+	 * @param length - number of consecutive days, at least 1.
+	 * @return the epoch day the first such run starts on, or NOT_FOUND.
+	 */
+	public int firstRun(int fromDay, int toDay, int length) {
+		if ((long) toDay - fromDay + 1 < length)
+			return NOT_FOUND;
+		int position = Arrays.binarySearch(keys, fromDay >> 6);
+		if (position < 0)
+			position = -position - 1;
+		int lastKey = toDay >> 6;
+		int runStart = NOT_FOUND;
+		long runLength = 0;
+		for (; position < keys.length && keys[position] <= lastKey; position++) {
+			int key = keys[position];
+			long word = words[position];
+			if (key == fromDay >> 6)
+				word &= -1L << (fromDay & 63);
+			if (key == lastKey)
+				word &= -1L >>> (63 - (toDay & 63));
+			if (runLength > 0 && (key != keys[position - 1] + 1 || (word & 1) == 0))
+				runLength = 0;
+			while (word != 0) {
+				int bit = Long.numberOfTrailingZeros(word);
+				int ones = Long.numberOfTrailingZeros(~(word >>> bit));
+				if (bit > 0 || runLength == 0) {
+					runStart = (key << 6) + bit;
+					runLength = 0;
+				}
+				runLength += ones;
+				if (runLength >= length)
+					return runStart;
+				if (bit + ones == 64)
+					break;
+				runLength = 0;
+				word &= -1L << (bit + ones);
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * @return the number of 64 day words stored.
+	 */
+	public int getWordCount() {
+		return words.length;
+	}
+}
@@ -0,0 +1,101 @@
+package hotelSearchPlatform.data;
+
+import java.time.format.DateTimeParseException;
+
+/**
+ * The EpochDays class converts calendar dates to epoch day ints (days since 1970-01-01, as LocalDate.toEpochDay())
+ * and back without creating LocalDate objects, so parsers can convert dates field by field. Epoch days are the date
+ * representation of the whole application: requests, hotel advertisers, the store and the indexes compare them as
+ * ints, and only 'yyyyMMdd' strings at the edges are parsed and written.
+ */
+public final class EpochDays {
+
+	private EpochDays() {
+	}
+
+	/**
+	 * @param year
+	 * @param month - 1 to 12.
+	 * @param day - 1 to the length of the month.
+	 * @return true if the given year, month and day form a valid date.
+	 */
+	public static boolean isValid(int year, int month, int day) {
+		return month >= 1 && month <= 12 && day >= 1 && day <= lengthOfMonth(year, month);
+	}
+
+	/**
+	 * @param year
+	 * @param month - 1 to 12.
+	 * @param day - 1 to the length of the month.
+	 * @return the epoch day of the given date.
+	 * @throws IllegalArgumentException - in case the given year, month and day do not form a valid date.
+	 */
+	public static int of(int year, int month, int day) throws IllegalArgumentException {
+		if (!isValid(year, month, day))
+			throw new IllegalArgumentException("Invalid date " + year + "-" + month + "-" + day);
+		long shiftedYear = month <= 2 ? year - 1L : year;
+		long era = Math.floorDiv(shiftedYear, 400);
+		long yearOfEra = shiftedYear - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return (int) (era * 146097 + dayOfEra - 719468);
+	}
+
+	/**
+	 * The parse method parses and validates a 'yyyyMMdd' date digit by digit, without creating any object for a
+	 * valid date.
+	 * @param date - a date in the 'yyyyMMdd' format.
+	 * @return the epoch day of the given date.
+	 * @throws DateTimeParseException - in case the given date is null or not a valid 'yyyyMMdd' date.
+	 */
+	public static int parse(String date) throws DateTimeParseException {
+		if (date == null || date.length() != 8)
+			throw new DateTimeParseException("Invalid yyyyMMdd date '" + date + "'", String.valueOf(date), 0);
+		int value = 0;
+		for (int i = 0; i < 8; i++) {
+			int digit = date.charAt(i) - '0';
+			if (digit < 0 || digit > 9)
+				throw new DateTimeParseException("Invalid yyyyMMdd date '" + date + "'", date, i);
+			value = value * 10 + digit;
+		}
+		if (!isValid(value / 10000, value / 100 % 100, value % 100))
+			throw new DateTimeParseException("Invalid yyyyMMdd date '" + date + "'", date, 0);
+		return of(value / 10000, value / 100 % 100, value % 100);
+	}
+
+	/**
+	 * The toYyyyMmDd method converts an epoch day back to its calendar date, as the inverse of the of() method.
+	 * @param epochDay
+	 * @return the date of the given epoch day as a yyyyMMdd int, e.g. 20240105 for 2024-01-05.
+	 */
+	public static int toYyyyMmDd(int epochDay) {
+		long shiftedDay = epochDay + 719468L;
+		long era = Math.floorDiv(shiftedDay, 146097);
+		long dayOfEra = shiftedDay - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long shiftedMonth = (5 * dayOfYear + 2) / 153;
+		long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+		long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+		long year = era * 400 + yearOfEra + (month <= 2 ? 1 : 0);
+		return (int) (year * 10000 + month * 100 + day);
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return isLeapYear(year) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	private static boolean isLeapYear(int year) {
+		return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+	}
+}
@@ -0,0 +1,64 @@
+package hotelSearchPlatform.data;
+
+import hotelSearchPlatform.entities.HotelAdvertiser;
+
+/**
+ * The HotelAdvertiserStore interface is the storage engine of the hotel advertiser rows held by the HotelData class.
+ * Every hotel advertiser added to the store gets an int row id, and the HotelData indexes refer to hotel advertisers
+ * by row id only. Rows are append only: an updated hotel advertiser is added as a new row and the indexes stop
+ * referring to the old one.
+ * Availability dates are exposed as epoch day ints, so filters can compare them without LocalDate objects.
+ * Prices are kept in their own currency, rows are compared by their price in the base currency with the
+ * NormalizedPrices class. Currencies are the canonical instances of the StringDictionary the store was created with,
+ * whatever instance a row was added with.
+ * Rows are added by a single writer (the HotelData class) while other threads read existing rows, so a row 
+ * never changes once it has been added.
+ */
+public interface HotelAdvertiserStore {
+
+	/**
+	 * @param hotelAdvertiser
+	 * @return the row id of the added hotel advertiser.
+	 */
+	int add(HotelAdvertiser hotelAdvertiser);
+
+	/**
+	 * The add method adds a hotel advertiser given field by field, as parsed by the MappedCSVLoader class.
+	 * Storage engines that keep columns override it to add the row without creating a HotelAdvertiser entity.
+	 * @return the row id of the added hotel advertiser.
+	 */
+	default int add(int advertiserId, int hotelId, int cpc, int price, String currency, int startDay, int endDay) {
+		return add(new HotelAdvertiser(advertiserId, hotelId, cpc, price, currency, startDay, endDay));
+	}
+
+	/**
+	 * @return the number of rows in the store, including rows that are no longer referred to by the indexes.
+	 */
+	int size();
+
+	int getAdvertiserId(int row);
+
+	int getHotelId(int row);
+
+	int getCpc(int row);
+
+	int getPrice(int row);
+
+	String getCurrency(int row);
+
+	int getStartDay(int row);
+
+	int getEndDay(int row);
+
+	/**
+	 * @param row
+	 * @return the hotel advertiser stored in the given row.
+	 */
+	HotelAdvertiser get(int row);
+
+	/**
+	 * The estimatedBytes method estimates the memory held by the rows of the store, on the heap or outside of it for
+	 * the "off-heap" storage, not counting the currency dictionary shared by all stores.
+	 */
+	long estimatedBytes();
+}
@@ -0,0 +1,62 @@
+package hotelSearchPlatform.data;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import hotelSearchPlatform.entities.Hotel;
+
+/**
+ * The HotelAttributes class holds the star level and rating of every hotel in primitive columns, by position of the
+ * hotel id in a sorted array of all hotel ids, so search filters read them without visiting Hotel entities.
+ * HotelAttributes is immutable and is built with the HotelDataSnapshot class from its hotels.
+ */
+public final class HotelAttributes {
+
+	private final int[] hotelIds;
+	private final int[] stars;
+	private final int[] ratings;
+
+	private HotelAttributes(int[] hotelIds, int[] stars, int[] ratings) {
+		this.hotelIds = hotelIds;
+		this.stars = stars;
+		this.ratings = ratings;
+	}
+
+	/**
+	 * @param hotels - all hotels by hotel id.
+	 * @return the attributes of all given hotels.
+	 */
+	public static HotelAttributes build(Map<Integer, Hotel> hotels) {
+		int[] hotelIds = new int[hotels.size()];
+		int hotelCount = 0;
+		for (Integer hotelId : hotels.keySet())
+			hotelIds[hotelCount++] = hotelId;
+		Arrays.sort(hotelIds);
+		int[] stars = new int[hotelIds.length];
+		int[] ratings = new int[hotelIds.length];
+		for (int i = 0; i < hotelIds.length; i++) {
+			Hotel hotel = hotels.get(hotelIds[i]);
+			stars[i] = hotel.getStars();
+			ratings[i] = hotel.getRating();
+		}
+		return new HotelAttributes(hotelIds, stars, ratings);
+	}
+
+	/**
+	 * @param hotelId
+	 * @return the star level of the given hotel, or Integer.MIN_VALUE for an unknown hotel.
+	 */
+	public int getStars(int hotelId) {
+		int position = Arrays.binarySearch(hotelIds, hotelId);
+		return position < 0 ? Integer.MIN_VALUE : stars[position];
+	}
+
+	/**
+	 * @param hotelId
+	 * @return the rating of the given hotel, or Integer.MIN_VALUE for an unknown hotel.
+	 */
+	public int getRating(int hotelId) {
+		int position = Arrays.binarySearch(hotelIds, hotelId);
+		return position < 0 ? Integer.MIN_VALUE : ratings[position];
+	}
+}
@@ -4,57 +4,978 @@ package hotelSearchPlatform.data;
  * The HotelData class load all the hotel data necessary for the functioning of the system / Case Study to memory.
  * The HotelFacade and Filters classes utilize this class as an in memory database to perform
  * queries and update information according to client requests via the HotelController class.
- * The data is loaded from *.csv files using the methods in the CSVLoader class 
- * that are invoked with the creation of the class by the constructor.  
+ * The data is loaded from the *.csv files of the 'hotel-data.directory' directory, or from the snapshot file when it
+ * is newer, and is published as immutable HotelDataSnapshot versions: searches read the current one without locking,
+ * and updates build the next one and swap it in. Updates are appended to the UpdateLog before they are acknowledged.
+ * Reloads of the *.csv files and compactions of the rows run in the background, see the HotelDataReloader and
+ * RowCompactor classes.
  */
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import hotelSearchPlatform.entities.Advertiser;
 import hotelSearchPlatform.entities.City;
 import hotelSearchPlatform.entities.Hotel;
 import hotelSearchPlatform.entities.HotelAdvertiser;
+import hotelSearchPlatform.ranking.HotelScores;
+import hotelSearchPlatform.ranking.RankingFormulas;
 
 @Service
 public class HotelData {
 	
-	private Map<String, City> cities = new HashMap<String, City>();
-	private Map<Integer, Advertiser> advertisers = new HashMap<Integer, Advertiser>();
-	private Map<Integer, Hotel> hotels = new HashMap<Integer, Hotel>();
-	private SortedMap<Integer, TreeSet<HotelAdvertiser>> hotelAdvertisers = new TreeMap<Integer, TreeSet<HotelAdvertiser>>();
-	private CSVLoader csvLoader = new CSVLoader();
+	private static final Logger logger = LoggerFactory.getLogger(HotelData.class);
+	private static final int[] NO_ROWS = new int[0];
+	
+	private volatile HotelDataSnapshot snapshot;
+	
+	private static final String CITIES_FILE = "cities.csv";
+	private static final String ADVERTISERS_FILE = "advertisers.csv";
+	private static final String HOTELS_FILE = "hotels.csv";
+	private static final String HOTEL_ADVERTISERS_FILE = "hotel_advertiser.csv";
+	private static final List<String> CSV_FILES = Arrays.asList(CITIES_FILE, ADVERTISERS_FILE, HOTELS_FILE, HOTEL_ADVERTISERS_FILE);
+	
+	private final Path dataDirectory;
+	private final Path snapshotFile;
+	private final Path currencyRatesFile;
+	private final RankingFormulas rankingFormulas;
+	private final String storage;
+	private final String loader;
+	private final int loaderThreads;
+	private final Object snapshotFileLock = new Object();
+	private final UpdateLog updateLog;
+	private final StringDictionary currencies = new StringDictionary();
+	private final AtomicBoolean compacting = new AtomicBoolean();
+	private final ExecutorService compactionExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "hotel-data-compaction");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final ReloadThread reloadThread = new ReloadThread();
+	private final CsvFileWatcher csvFileWatcher;
+	private final RowCompactor rowCompactor;
+	private final HotelDataReloader reloader;
+	/** Updates applied while a reload or a compaction runs, to apply them again over its new data, or null. */
+	private List<PendingUpdate> pendingUpdates;
+	
+	public HotelData(@Value("${hotel-data.storage:columnar}") String storage, 
+			@Value("${hotel-data.loader:mapped}") String loader,
+			@Value("${hotel-data.loader-threads:0}") int loaderThreads, 
+			@Value("${hotel-data.directory:src/main/resources/data}") String dataDirectory,
+			@Value("${hotel-data.snapshot-file:}") String snapshotFile,
+			@Value("${hotel-data.reload.watch-interval-ms:0}") long watchIntervalMillis,
+			@Value("${hotel-data.compaction.dead-row-fraction:0.5}") double compactionDeadRowFraction,
+			@Value("${currency.rates-file:}") String currencyRatesFile, RankingFormulas rankingFormulas, UpdateLog updateLog) {
+		this.storage = storage;
+		this.loader = loader;
+		this.loaderThreads = loaderThreads;
+		this.dataDirectory = Paths.get(dataDirectory);
+		this.snapshotFile = snapshotFile.isEmpty() ? null : Paths.get(snapshotFile);
+		this.currencyRatesFile = currencyRatesFile.isEmpty() ? null : Paths.get(currencyRatesFile);
+		this.rankingFormulas = rankingFormulas;
+		this.updateLog = updateLog;
+		List<Path> csvFiles = new ArrayList<Path>();
+		for (String csvFile : CSV_FILES)
+			csvFiles.add(this.dataDirectory.resolve(csvFile));
+		this.csvFileWatcher = new CsvFileWatcher(this.dataDirectory, csvFiles, watchIntervalMillis);
+		this.rowCompactor = new RowCompactor(this, reloadThread, rankingFormulas, compactionDeadRowFraction);
+		this.reloader = new HotelDataReloader(this, reloadThread, csvFileWatcher, rowCompactor, rankingFormulas, this.dataDirectory);
+		if (updateLog.isEnabled() && this.snapshotFile == null)
+			throw new IllegalStateException("The update log is compacted into the snapshot file, "
+					+ "enabling hotel-data.update-log.file needs hotel-data.snapshot-file");
+		CurrencyRates currencyRates = loadCurrencyRates(1);
+		if (this.currencyRatesFile != null)
+			logger.info("Loaded currency rates with {} currencies from {}", currencyRates.getRates().size(), this.currencyRatesFile);
+		String newerCsvFile = newerCsvFile();
+		csvFileWatcher.loaded(csvFileWatcher.modifiedMillis());
+		HotelAdvertiserStore hotelAdvertiserStore = createStore();
+		boolean readSnapshotFile = newerCsvFile == null && readSnapshotFile(hotelAdvertiserStore, currencyRates);
+		if (!readSnapshotFile) {
+			hotelAdvertiserStore = createStore();
+			snapshot = loadCsvFiles(hotelAdvertiserStore, currencyRates, () -> {});
+		}
+		rowCompactor.compacted(hotelAdvertiserStore.size());
+		warnUnratedRows(snapshot.getNormalizedPrices());
+		if (updateLog.isEnabled())
+			updateLog.open(snapshot.getVersion(), newerCsvFile != null, this::replay);
+		if (!readSnapshotFile && this.snapshotFile != null) {
+			try {
+				writeSnapshotFile();
+			} catch (UncheckedIOException e) {
+				logger.warn("Cannot write hotel data snapshot file", e);
+			}
+		}
+		csvFileWatcher.start(reloadThread, reloader::reload);
+		rowCompactor.compactIfNeeded();
+	}
+	
+	/**
+	 * The loadCsvFiles method loads the *.csv files of the 'hotel-data.directory' directory into the given empty
+	 * store and builds the first version of the data from them.
+	 * @param filesLoaded - runs once the files are loaded, before the indexes are built.
+	 */
+	HotelDataSnapshot loadCsvFiles(HotelAdvertiserStore hotelAdvertiserStore, CurrencyRates currencyRates, 
+			Runnable filesLoaded) {
+		ForkJoinPool pool = new ForkJoinPool(loaderThreads > 0 ? loaderThreads : Runtime.getRuntime().availableProcessors());
+		try {
+			HotelDataLoader hotelDataLoader = createLoader(loader, pool);
+			CompletableFuture<Map<String, City>> cities = CompletableFuture.supplyAsync(() -> timedLoad(dataFile(CITIES_FILE), 
+					hotelDataLoader::loadCities, Map::size), pool);
+			CompletableFuture<Map<Integer, Advertiser>> advertisers = CompletableFuture.supplyAsync(() -> timedLoad(dataFile(ADVERTISERS_FILE), 
+					hotelDataLoader::loadAdvertisers, Map::size), pool);
+			CompletableFuture<Map<Integer, Hotel>> hotels = CompletableFuture.supplyAsync(() -> timedLoad(dataFile(HOTELS_FILE), 
+					hotelDataLoader::loadHotels, Map::size), pool);
+			timedLoad(dataFile(HOTEL_ADVERTISERS_FILE), path -> {
+				hotelDataLoader.loadHotelAdvertisers(path, hotelAdvertiserStore);
+				return hotelAdvertiserStore;
+			}, HotelAdvertiserStore::size);
+			Map<String, City> loadedCities = join(cities::join);
+			Map<Integer, Advertiser> loadedAdvertisers = join(advertisers::join);
+			Map<Integer, Hotel> loadedHotels = join(hotels::join);
+			filesLoaded.run();
+			return buildSnapshot(loadedCities, loadedAdvertisers, loadedHotels, hotelAdvertiserStore, rankingFormulas,
+					NormalizedPrices.build(hotelAdvertiserStore, currencyRates));
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * @return the first *.csv file modified after the snapshot file, or null if there is none or no snapshot file.
+	 */
+	private String newerCsvFile() {
+		if (snapshotFile == null || !Files.isRegularFile(snapshotFile))
+			return null;
+		try {
+			FileTime snapshotFileTime = Files.getLastModifiedTime(snapshotFile);
+			for (String csvFile : CSV_FILES) {
+				if (Files.getLastModifiedTime(Paths.get(dataFile(csvFile))).compareTo(snapshotFileTime) > 0) {
+					logger.info("Ignoring snapshot file {}, {} is newer", snapshotFile, csvFile);
+					return csvFile;
+				}
+			}
+			return null;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read the modification time of the hotel data files", e);
+		}
+	}
+	
+	/**
+	 * The readSnapshotFile method reads the snapshot file into the given empty store, unless there is no snapshot
+	 * file. A snapshot file that cannot be read is logged and ignored.
+	 * @return true if the snapshot was read from the snapshot file.
+	 */
+	private boolean readSnapshotFile(HotelAdvertiserStore hotelAdvertiserStore, CurrencyRates currencyRates) {
+		if (snapshotFile == null || !Files.isRegularFile(snapshotFile))
+			return false;
+		try {
+			long start = System.nanoTime();
+			snapshot = HotelDataSnapshotFile.read(snapshotFile, hotelAdvertiserStore, rankingFormulas, currencyRates);
+			logger.info("Loaded snapshot version {} with {} rows from {} in {} ms", snapshot.getVersion(), 
+					hotelAdvertiserStore.size(), snapshotFile, (System.nanoTime() - start) / 1000000);
+			return true;
+		} catch (RuntimeException e) {
+			logger.warn("Cannot read snapshot file " + snapshotFile + ", loading the csv files", e);
+			return false;
+		}
+	}
+	
+	/**
+	 * The replay method applies a record of the update log during startup.
+	 * @throws IllegalStateException - in case the record does not create the next version of the data.
+	 */
+	private synchronized void replay(UpdateLog.Record record) throws IllegalStateException {
+		if (record.getVersion() != snapshot.getVersion() + 1)
+			throw new IllegalStateException("Update log record version " + record.getVersion() 
+					+ " does not follow the hotel data version " + snapshot.getVersion());
+		if (record.getOperation() != null)
+			snapshot = withOperation(snapshot, record.getOperation());
+		else
+			snapshot = withUpdate(snapshot, record.getHotelAdvertisers());
+	}
+	
+	/**
+	 * The writeSnapshotFile method writes the current snapshot to the snapshot file and compacts the update log.
+	 * @return the version of the written snapshot.
+	 * @throws IllegalStateException - in case the 'hotel-data.snapshot-file' property is not set.
+	 * @throws UncheckedIOException - in case the file cannot be written.
+	 */
+	public long writeSnapshotFile() throws IllegalStateException, UncheckedIOException {
+		if (snapshotFile == null)
+			throw new IllegalStateException("hotel-data.snapshot-file is not set");
+		synchronized (snapshotFileLock) {
+			HotelDataSnapshot current = snapshot;
+			long start = System.nanoTime();
+			HotelDataSnapshotFile.write(current, snapshotFile);
+			logger.info("Wrote snapshot version {} to {} in {} ms", current.getVersion(), snapshotFile, 
+					(System.nanoTime() - start) / 1000000);
+			if (updateLog.isEnabled())
+				updateLog.rotate(current.getVersion());
+			return current.getVersion();
+		}
+	}
+	
+	/**
+	 * @return the location of the snapshot file, or null if the 'hotel-data.snapshot-file' property is not set.
+	 */
+	public Path getSnapshotFile() {
+		return snapshotFile;
+	}
+	
+	/**
+	 * @param fileName - name of one of the *.csv files.
+	 * @return the path of the given file in the 'hotel-data.directory' directory.
+	 */
+	private String dataFile(String fileName) {
+		return dataDirectory.resolve(fileName).toString();
+	}
+	
+	private static HotelDataLoader createLoader(String loader, ForkJoinPool pool) {
+		switch (loader) {
+		case "mapped":
+			return new MappedCSVLoader(pool);
+		case "commons-csv":
+			return new CSVLoader();
+		default:
+			throw new IllegalArgumentException("Unknown hotel-data.loader '" + loader + "', use mapped or commons-csv");
+		}
+	}
+	
+	/**
+	 * The timedLoad method loads one file and logs how many rows it held and how fast they were loaded.
+	 * @param path - location of the file.
+	 * @param load - loads the file at the given path.
+	 * @param rowCount - number of rows in the loaded data.
+	 * @return the loaded data.
+	 */
+	private static <T> T timedLoad(String path, Function<String, T> load, Function<T, Integer> rowCount) {
+		long start = System.nanoTime();
+		T data = load.apply(path);
+		long elapsedNanos = Math.max(System.nanoTime() - start, 1);
+		int rows = rowCount.apply(data);
+		logger.info("Loaded {} rows from {} in {} ms ({} rows/s)", rows, path, elapsedNanos / 1000000, 
+				(long) (rows * 1e9 / elapsedNanos));
+		return data;
+	}
 	
-	public HotelData() {
-		loadDataFromCSV();
+	/**
+	 * @return the result of the given join, rethrowing the failure of a file load as it was thrown by the loader.
+	 */
+	private static <T> T join(Supplier<T> join) {
+		try {
+			return join.get();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw e;
+		}
 	}
 	
-	private void loadDataFromCSV() {
-		cities = csvLoader.loadCities("src/main/resources/data/cities.csv");
-		advertisers = csvLoader.loadAdvertisers("src/main/resources/data/advertisers.csv");
-		hotels = csvLoader.loadHotels("src/main/resources/data/hotels.csv");
-		hotelAdvertisers = csvLoader.loadHotelAdvertisers("src/main/resources/data/hotel_advertiser.csv");
+	/**
+	 * @return a new empty store of the 'hotel-data.storage' kind.
+	 */
+	HotelAdvertiserStore createStore() {
+		switch (storage) {
+		case "objects":
+			return new ObjectHotelAdvertiserStore(currencies);
+		case "columnar":
+			return new ColumnarHotelAdvertiserStore(false, currencies);
+		case "off-heap":
+			return new ColumnarHotelAdvertiserStore(true, currencies);
+		default:
+			throw new IllegalArgumentException("Unknown hotel-data.storage '" + storage + "', use objects, columnar or off-heap");
+		}
+	}
+	
+	/**
+	 * The buildSnapshot method groups the loaded rows by hotel and builds the first version of the hotel data from them.
+	 * @return the first version of the hotel data.
+	 */
+	private static HotelDataSnapshot buildSnapshot(Map<String, City> cities, Map<Integer, Advertiser> advertisers,
+			Map<Integer, Hotel> hotels, HotelAdvertiserStore hotelAdvertiserStore, RankingFormulas rankingFormulas,
+			NormalizedPrices normalizedPrices) {
+		return buildSnapshot(1, cities, advertisers, hotels, hotelAdvertiserStore, rankingFormulas, normalizedPrices,
+				buildRowsByHotel(hotelAdvertiserStore, normalizedPrices), Collections.<Integer>emptySet(), NO_ROWS);
+	}
+
+	/**
+	 * The buildSnapshot method builds the city to hotels index, the per city availability indexes and the scores.
+	 * @param version - version of the built snapshot.
+	 * @param rowsByHotel - sorted rows of every hotel.
+	 * @param suspendedAdvertiserIds
+	 * @param suspendedRows - rows of the suspended advertisers.
+	 * @return a snapshot in which no city has changed.
+	 */
+	static HotelDataSnapshot buildSnapshot(long version, Map<String, City> cities, Map<Integer, Advertiser> advertisers,
+			Map<Integer, Hotel> hotels, HotelAdvertiserStore hotelAdvertiserStore, RankingFormulas rankingFormulas,
+			NormalizedPrices normalizedPrices, Map<Integer, int[]> rowsByHotel, Set<Integer> suspendedAdvertiserIds, 
+			int[] suspendedRows) {
+		Map<Integer, SortedSet<Integer>> hotelIdsByCity = buildHotelIdsByCity(hotels);
+		Map<Integer, AvailabilityIndex> availabilityIndexByCity = new HashMap<Integer, AvailabilityIndex>();
+		for (Entry<Integer, SortedSet<Integer>> hotelIdsOfCity : hotelIdsByCity.entrySet()) {
+			int rowCount = 0;
+			for (Integer hotelId : hotelIdsOfCity.getValue())
+				rowCount += rowsByHotel.containsKey(hotelId) ? rowsByHotel.get(hotelId).length : 0;
+			int[] cityRows = new int[rowCount];
+			int cityRowCount = 0;
+			for (Integer hotelId : hotelIdsOfCity.getValue()) {
+				int[] hotelRows = rowsByHotel.get(hotelId);
+				if (hotelRows == null)
+					continue;
+				System.arraycopy(hotelRows, 0, cityRows, cityRowCount, hotelRows.length);
+				cityRowCount += hotelRows.length;
+			}
+			availabilityIndexByCity.put(hotelIdsOfCity.getKey(), AvailabilityIndex.build(hotelAdvertiserStore, cityRows));
+		}
+		HotelScores hotelScores = HotelScores.build(rankingFormulas, hotels,
+				hotelId -> bestCpc(hotelAdvertiserStore, normalizedPrices, rowsByHotel.get(hotelId)));
+		return new HotelDataSnapshot(version, cities, advertisers, hotels, hotelIdsByCity, hotelAdvertiserStore,
+				PersistentIntMap.of(rowsByHotel), PersistentIntMap.of(availabilityIndexByCity), hotelScores, normalizedPrices,
+				suspendedAdvertiserIds, suspendedRows);
+	}
+
+	/**
+	 * @param hotels
+	 * @return the sorted hotel ids of every city, by city id.
+	 */
+	static Map<Integer, SortedSet<Integer>> buildHotelIdsByCity(Map<Integer, Hotel> hotels) {
+		Map<Integer, SortedSet<Integer>> hotelIdsByCity = new HashMap<Integer, SortedSet<Integer>>();
+		for (Hotel hotel : hotels.values()) {
+			if (hotelIdsByCity.get(hotel.getCity_id()) == null)
+				hotelIdsByCity.put(hotel.getCity_id(), new TreeSet<Integer>());
+			hotelIdsByCity.get(hotel.getCity_id()).add(hotel.getId());
+		}
+		return hotelIdsByCity;
+	}
+
+	/**
+	 * @param hotelAdvertiserStore
+	 * @param normalizedPrices
+	 * @param hotelRows - may be null.
+	 * @return the cpc of the best of the given rows, ordered like the OfferComparator class orders offers, 
+	 * or 0 if there are no rows.
+	 */
+	static int bestCpc(HotelAdvertiserStore hotelAdvertiserStore, NormalizedPrices normalizedPrices, int[] hotelRows) {
+		if (hotelRows == null || hotelRows.length == 0)
+			return 0;
+		int bestRow = hotelRows[0];
+		for (int row : hotelRows) {
+			if (normalizedPrices.compareOffers(row, bestRow) < 0)
+				bestRow = row;
+		}
+		return hotelAdvertiserStore.getCpc(bestRow);
+	}
+
+	/**
+	 * The buildRowsByHotel method groups the rows of the store by hotel id, sorted like the HotelAdvertiserComparator
+	 * class sorts hotel advertisers, and leaves out rows comparing equal to an earlier row of the same hotel.
+	 */
+	private static Map<Integer, int[]> buildRowsByHotel(HotelAdvertiserStore hotelAdvertiserStore, NormalizedPrices normalizedPrices) {
+		Map<Integer, int[]> rowsByHotel = new HashMap<Integer, int[]>();
+		Map<Integer, int[]> rowCountByHotel = new HashMap<Integer, int[]>();
+		for (int row = 0; row < hotelAdvertiserStore.size(); row++) {
+			int[] rowCount = rowCountByHotel.get(hotelAdvertiserStore.getHotelId(row));
+			if (rowCount == null) {
+				rowCount = new int[1];
+				rowCountByHotel.put(hotelAdvertiserStore.getHotelId(row), rowCount);
+			}
+			rowCount[0]++;
+		}
+		for (Entry<Integer, int[]> rowCount : rowCountByHotel.entrySet()) {
+			rowsByHotel.put(rowCount.getKey(), new int[rowCount.getValue()[0]]);
+			rowCount.getValue()[0] = 0;
+		}
+		for (int row = 0; row < hotelAdvertiserStore.size(); row++) {
+			int hotelId = hotelAdvertiserStore.getHotelId(row);
+			rowsByHotel.get(hotelId)[rowCountByHotel.get(hotelId)[0]++] = row;
+		}
+		for (Entry<Integer, int[]> hotelRows : rowsByHotel.entrySet())
+			hotelRows.setValue(sortAndDeduplicateRows(normalizedPrices, hotelRows.getValue()));
+		return rowsByHotel;
+	}
+
+	private static int[] sortAndDeduplicateRows(NormalizedPrices normalizedPrices, int[] hotelRows) {
+		int[] sortedRows = sortRows(normalizedPrices, hotelRows);
+		int[] result = new int[sortedRows.length];
+		int resultCount = 0;
+		for (int row : sortedRows) {
+			if (resultCount == 0 || normalizedPrices.compareRows(result[resultCount - 1], row) != 0)
+				result[resultCount++] = row;
+		}
+		return resultCount == result.length ? result : Arrays.copyOf(result, resultCount);
+	}
+
+	/**
+	 * The sortRows method sorts the rows of a hotel like the HotelAdvertiserComparator class sorts hotel advertisers
+	 * under the rates of the given normalized prices, and then by row id.
+	 * @return the given rows if they are sorted already, or a sorted copy of them.
+	 */
+	static int[] sortRows(NormalizedPrices normalizedPrices, int[] hotelRows) {
+		Comparator<Integer> rowComparator = (row1, row2) -> {
+			int rowCmp = normalizedPrices.compareRows(row1, row2);
+			return rowCmp != 0 ? rowCmp : Integer.compare(row1, row2);
+		};
+		boolean sorted = true;
+		for (int i = 1; i < hotelRows.length && sorted; i++)
+			sorted = rowComparator.compare(hotelRows[i - 1], hotelRows[i]) < 0;
+		if (sorted)
+			return hotelRows;
+		Integer[] sortedRows = new Integer[hotelRows.length];
+		for (int i = 0; i < hotelRows.length; i++)
+			sortedRows[i] = hotelRows[i];
+		Arrays.sort(sortedRows, rowComparator);
+		int[] result = new int[sortedRows.length];
+		for (int i = 0; i < sortedRows.length; i++)
+			result[i] = sortedRows[i];
+		return result;
+	}
+
+	/**
+	 * The updateHotelAdvertisers method replaces, for each given hotel advertiser, the last hotel advertiser of the same
+	 * hotel and advertiser in the order of the hotel's rows, or adds it, and publishes the whole list as one new version.
+	 * A given hotel advertiser equal to another one of the hotel is left out, as it was by the TreeSet per hotel.
+	 * When the update log is enabled, the method returns once the log has made the update durable.
+	 * @param hotelAdvertisers - must belong to hotels that exist in the hotels map.
+	 * @return the ids of the cities whose hotel advertisers changed.
+	 * @throws UncheckedIOException - in case the update was applied but the update log could not write it.
+	 * @throws IllegalStateException - in case the update log refuses records since a failure, nothing is published.
+	 */
+	public Set<Integer> updateHotelAdvertisers(List<HotelAdvertiser> hotelAdvertisers) 
+			throws UncheckedIOException, IllegalStateException {
+		Update update;
+		CompletableFuture<Void> durable = null;
+		synchronized (this) {
+			update = applyUpdate(snapshot, hotelAdvertisers);
+			if (updateLog.isEnabled())
+				durable = updateLog.append(update.snapshot.getVersion(), hotelAdvertisers);
+			snapshot = update.snapshot;
+			if (pendingUpdates != null)
+				pendingUpdates.add(new PendingUpdate(hotelAdvertisers, null));
+		}
+		if (durable != null)
+			join(durable::join);
+		if (updateLog.isEnabled() && updateLog.needsCompaction())
+			compactInBackground();
+		rowCompactor.compactIfNeeded();
+		return update.changedCityIds;
+	}
+
+	/**
+	 * The applyAdvertiserOperation method applies the given bulk change to all hotel advertisers of one advertiser
+	 * as one new version, see the AdvertiserOperation class. An operation that changes nothing creates no version.
+	 * @param operation
+	 * @return the number of rows of the advertiser and the ids of the cities whose hotel advertisers changed.
+	 * @throws UncheckedIOException - in case the operation was applied but the update log could not write it.
+	 * @throws IllegalStateException - in case the update log refuses records since a failure, nothing is published.
+	 */
+	public AdvertiserOperation.Result applyAdvertiserOperation(AdvertiserOperation operation) 
+			throws UncheckedIOException, IllegalStateException {
+		Update update;
+		CompletableFuture<Void> durable = null;
+		synchronized (this) {
+			update = applyOperation(snapshot, operation);
+			if (update.snapshot == snapshot)
+				return new AdvertiserOperation.Result(update.rows, update.changedCityIds);
+			if (updateLog.isEnabled())
+				durable = updateLog.append(update.snapshot.getVersion(), operation);
+			snapshot = update.snapshot;
+			if (pendingUpdates != null)
+				pendingUpdates.add(new PendingUpdate(null, operation));
+		}
+		if (durable != null)
+			join(durable::join);
+		if (updateLog.isEnabled() && updateLog.needsCompaction())
+			compactInBackground();
+		rowCompactor.compactIfNeeded();
+		logger.info("Applied {} to {} rows as version {}", operation, update.rows, update.snapshot.getVersion());
+		return new AdvertiserOperation.Result(update.rows, update.changedCityIds);
+	}
+
+	/**
+	 * @return the next version of the given snapshot with the given hotel advertisers, see updateHotelAdvertisers().
+	 */
+	static HotelDataSnapshot withUpdate(HotelDataSnapshot current, List<HotelAdvertiser> hotelAdvertisers) {
+		return applyUpdate(current, hotelAdvertisers).snapshot;
+	}
+
+	/**
+	 * @return the next version of the given snapshot with the given operation, or the given snapshot if it changes nothing.
+	 */
+	static HotelDataSnapshot withOperation(HotelDataSnapshot current, AdvertiserOperation operation) {
+		return applyOperation(current, operation).snapshot;
+	}
+
+	/**
+	 * The applyUpdate method builds the next version of the given snapshot with copies of the touched hotels' rows and
+	 * of the availability indexes of their cities only, see updateHotelAdvertisers().
+	 */
+	private static Update applyUpdate(HotelDataSnapshot current, List<HotelAdvertiser> hotelAdvertisers) {
+		HotelAdvertiserStore hotelAdvertiserStore = current.getHotelAdvertiserStore();
+		NormalizedPrices normalizedPrices = current.getNormalizedPrices();
+		PersistentIntMap<int[]> rowsByHotel = current.getRowsByHotelMap();
+		PersistentIntMap<PersistentIntMap<int[]>> rowsByAdvertiser = current.getRowsByAdvertiserMap();
+		Map<Integer, RowChanges> rowChangesByCity = new HashMap<Integer, RowChanges>();
+		Set<Integer> touchedHotelIds = new HashSet<Integer>();
+		for (HotelAdvertiser hotelAdvertiser : hotelAdvertisers) {
+			int hotelId = hotelAdvertiser.getHotel_id();
+			int advertiserId = hotelAdvertiser.getAdvertiser_id();
+			PersistentIntMap<int[]> advertiserRows = rowsByAdvertiser.get(advertiserId);
+			int[] advertiserHotelRows = advertiserRows == null ? null : advertiserRows.get(hotelId);
+			int removedRow = lastRow(normalizedPrices, advertiserHotelRows);
+			int row = hotelAdvertiserStore.add(hotelAdvertiser);
+			normalizedPrices.add(row);
+			if (containsEqualRow(normalizedPrices, advertiserHotelRows, removedRow, row))
+				row = -1;
+			rowsByAdvertiser = rowsByAdvertiser.with(advertiserId, replaceAdvertiserRow(advertiserRows, hotelId, removedRow, row));
+			if (current.isSuspended(advertiserId))
+				continue;
+			touchedHotelIds.add(hotelId);
+			int[] hotelRows = rowsByHotel.get(hotelId);
+			if (hotelRows == null)
+				hotelRows = new int[0];
+			rowsByHotel = rowsByHotel.with(hotelId, replaceRow(normalizedPrices, hotelRows, removedRow, row));
+
+			int cityId = current.getHotels().get(hotelId).getCity_id();
+			if (rowChangesByCity.get(cityId) == null)
+				rowChangesByCity.put(cityId, new RowChanges());
+			rowChangesByCity.get(cityId).add(row, removedRow);
+		}
+		return buildUpdate(current, rowsByHotel, rowChangesByCity, touchedHotelIds, rowsByAdvertiser, 
+				current.getSuspendedAdvertiserIds(), hotelAdvertisers.size());
+	}
+
+	/**
+	 * The applyOperation method builds the next version of the given snapshot with the given bulk change of one
+	 * advertiser, visiting its rows through the advertiser to rows index, see applyAdvertiserOperation().
+	 * @return the update, with the given snapshot itself if the operation changes nothing.
+	 */
+	private static Update applyOperation(HotelDataSnapshot current, AdvertiserOperation operation) {
+		HotelAdvertiserStore hotelAdvertiserStore = current.getHotelAdvertiserStore();
+		NormalizedPrices normalizedPrices = current.getNormalizedPrices();
+		int advertiserId = operation.getAdvertiserId();
+		boolean suspended = current.isSuspended(advertiserId);
+		PersistentIntMap<int[]> advertiserRows = current.getRowsByAdvertiserMap().get(advertiserId);
+		if (advertiserRows == null)
+			advertiserRows = PersistentIntMap.of(new HashMap<Integer, int[]>());
+		Set<Integer> suspendedAdvertiserIds = new HashSet<Integer>(current.getSuspendedAdvertiserIds());
+		PersistentIntMap<int[]> newAdvertiserRows = advertiserRows;
+		boolean removeFromHotels = !suspended;
+		boolean addToHotels = !suspended;
+		switch (operation.getKind()) {
+		case SUSPEND:
+			addToHotels = false;
+			suspendedAdvertiserIds.add(advertiserId);
+			break;
+		case RESUME:
+			removeFromHotels = false;
+			addToHotels = suspended;
+			suspendedAdvertiserIds.remove(advertiserId);
+			break;
+		case DELETE:
+			addToHotels = false;
+			newAdvertiserRows = null;
+			suspendedAdvertiserIds.remove(advertiserId);
+			break;
+		case ADJUST:
+			for (int hotelId : advertiserRows.keys()) {
+				int[] hotelRows = advertiserRows.get(hotelId);
+				int[] adjustedRows = new int[hotelRows.length];
+				for (int i = 0; i < hotelRows.length; i++) {
+					int row = hotelRows[i];
+					adjustedRows[i] = hotelAdvertiserStore.add(advertiserId, hotelId, operation.adjustCpc(hotelAdvertiserStore.getCpc(row)),
+							operation.adjustPrice(hotelAdvertiserStore.getPrice(row)), hotelAdvertiserStore.getCurrency(row),
+							hotelAdvertiserStore.getStartDay(row), hotelAdvertiserStore.getEndDay(row));
+					normalizedPrices.add(adjustedRows[i]);
+				}
+				newAdvertiserRows = newAdvertiserRows.with(hotelId, adjustedRows);
+			}
+			break;
+		}
+		int rowCount = 0;
+		for (int hotelId : advertiserRows.keys())
+			rowCount += advertiserRows.get(hotelId).length;
+		boolean unchanged = rowCount == 0 || (!removeFromHotels && !addToHotels && newAdvertiserRows == advertiserRows);
+		if (unchanged && suspendedAdvertiserIds.equals(current.getSuspendedAdvertiserIds()))
+			return new Update(current, Collections.<Integer>emptySet(), 0);
+
+		PersistentIntMap<int[]> rowsByHotel = current.getRowsByHotelMap();
+		Map<Integer, RowChanges> rowChangesByCity = new HashMap<Integer, RowChanges>();
+		Set<Integer> touchedHotelIds = new HashSet<Integer>();
+		for (int hotelId : advertiserRows.keys()) {
+			int[] removedRows = removeFromHotels ? advertiserRows.get(hotelId) : NO_ROWS;
+			int[] addedRows = addToHotels ? newAdvertiserRows.get(hotelId) : NO_ROWS;
+			if (removedRows.length == 0 && addedRows.length == 0)
+				continue;
+			touchedHotelIds.add(hotelId);
+			int[] hotelRows = rowsByHotel.get(hotelId);
+			if (hotelRows == null)
+				hotelRows = NO_ROWS;
+			int[] updatedHotelRows = new int[hotelRows.length - removedRows.length + addedRows.length];
+			int updatedRowCount = 0;
+			for (int row : hotelRows) {
+				if (Arrays.binarySearch(removedRows, row) < 0)
+					updatedHotelRows[updatedRowCount++] = row;
+			}
+			System.arraycopy(addedRows, 0, updatedHotelRows, updatedRowCount, addedRows.length);
+			rowsByHotel = rowsByHotel.with(hotelId, sortRows(normalizedPrices, updatedHotelRows));
+
+			int cityId = current.getHotels().get(hotelId).getCity_id();
+			if (rowChangesByCity.get(cityId) == null)
+				rowChangesByCity.put(cityId, new RowChanges());
+			for (int row : removedRows)
+				rowChangesByCity.get(cityId).remove(row);
+			for (int row : addedRows)
+				rowChangesByCity.get(cityId).insert(row);
+		}
+		PersistentIntMap<PersistentIntMap<int[]>> rowsByAdvertiser = newAdvertiserRows == null
+				? current.getRowsByAdvertiserMap().without(advertiserId)
+				: current.getRowsByAdvertiserMap().with(advertiserId, newAdvertiserRows);
+		return buildUpdate(current, rowsByHotel, rowChangesByCity, touchedHotelIds, rowsByAdvertiser, suspendedAdvertiserIds, rowCount);
+	}
+
+	/**
+	 * The buildUpdate method rescores the touched hotels, applies the row changes to the availability indexes of
+	 * their cities and builds the next version of the given snapshot with them.
+	 */
+	private static Update buildUpdate(HotelDataSnapshot current, PersistentIntMap<int[]> rowsByHotel, 
+			Map<Integer, RowChanges> rowChangesByCity, Set<Integer> touchedHotelIds, 
+			PersistentIntMap<PersistentIntMap<int[]>> rowsByAdvertiser, Set<Integer> suspendedAdvertiserIds, int rows) {
+		HotelAdvertiserStore hotelAdvertiserStore = current.getHotelAdvertiserStore();
+		NormalizedPrices normalizedPrices = current.getNormalizedPrices();
+		HotelScores hotelScores = current.getHotelScores();
+		for (Integer hotelId : touchedHotelIds)
+			hotelScores = hotelScores.withBestCpc(current.getHotels().get(hotelId), bestCpc(hotelAdvertiserStore, normalizedPrices, rowsByHotel.get(hotelId)));
+		PersistentIntMap<AvailabilityIndex> availabilityIndexByCity = current.getAvailabilityIndexByCity();
+		for (Entry<Integer, RowChanges> rowChangesOfCity : rowChangesByCity.entrySet()) {
+			AvailabilityIndex availabilityIndex = current.getAvailabilityIndex(rowChangesOfCity.getKey());
+			availabilityIndexByCity = availabilityIndexByCity.with(rowChangesOfCity.getKey(), 
+					availabilityIndex.withChanges(rowChangesOfCity.getValue().getInsertedRows(), rowChangesOfCity.getValue().getRemovedRows()));
+		}
+		return new Update(current.withRows(rowsByHotel, availabilityIndexByCity, hotelScores, rowChangesByCity.keySet(), touchedHotelIds,
+				rowsByAdvertiser, suspendedAdvertiserIds), rowChangesByCity.keySet(), rows);
+	}
+
+	/**
+	 * @return the last of the given rows in the order of the rows of a hotel, or -1 if there are none. This is the 
+	 * hotel advertiser an update replaced when the hotel advertisers of a hotel were kept in a TreeSet.
+	 */
+	private static int lastRow(NormalizedPrices normalizedPrices, int[] rows) {
+		if (rows == null || rows.length == 0)
+			return -1;
+		int lastRow = rows[0];
+		for (int row : rows) {
+			int rowCmp = normalizedPrices.compareRows(row, lastRow);
+			if (rowCmp > 0 || (rowCmp == 0 && row > lastRow))
+				lastRow = row;
+		}
+		return lastRow;
+	}
+
+	/**
+	 * @return true if one of the given rows other than the removed row compares equal to the added row, in which case
+	 * the added row is left out like TreeSet.add() left out a hotel advertiser equal to an existing one.
+	 */
+	private static boolean containsEqualRow(NormalizedPrices normalizedPrices, int[] rows, int removedRow, int addedRow) {
+		if (rows == null)
+			return false;
+		for (int row : rows) {
+			if (row != removedRow && normalizedPrices.compareRows(row, addedRow) == 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The replaceAdvertiserRow method creates a copy of the rows of an advertiser with the rows of the given hotel
+	 * without the removed row (if any) and with the added row (if any), which is the newest row and stays last in row
+	 * id order.
+	 * @param advertiserRows - rows of the advertiser by hotel, or null if it has none.
+	 */
+	private static PersistentIntMap<int[]> replaceAdvertiserRow(PersistentIntMap<int[]> advertiserRows, int hotelId, 
+			int removedRow, int addedRow) {
+		if (advertiserRows == null)
+			advertiserRows = PersistentIntMap.of(new HashMap<Integer, int[]>());
+		int[] hotelRows = advertiserRows.get(hotelId);
+		if (hotelRows == null)
+			hotelRows = NO_ROWS;
+		int[] updatedHotelRows = new int[hotelRows.length + (addedRow < 0 ? 0 : 1) - (removedRow < 0 ? 0 : 1)];
+		int updatedRowCount = 0;
+		for (int row : hotelRows) {
+			if (row != removedRow)
+				updatedHotelRows[updatedRowCount++] = row;
+		}
+		if (addedRow >= 0)
+			updatedHotelRows[updatedRowCount] = addedRow;
+		return advertiserRows.with(hotelId, updatedHotelRows);
+	}
+
+	/**
+	 * The reloadCurrencyRates method reads the 'currency.rates-file' file again and, if its rates changed, normalizes
+	 * every price in bulk and publishes the result as one new version, appended to the update log as an empty update.
+	 * @return the rates in use after the reload.
+	 * @throws IllegalStateException - in case the 'currency.rates-file' property is not set.
+	 * @throws UncheckedIOException - in case the file cannot be read, or the update log could not write the new version.
+	 * @throws IllegalArgumentException - in case the file is not a valid rate table, see CurrencyRates.load().
+	 */
+	public CurrencyRates reloadCurrencyRates() throws IllegalStateException, UncheckedIOException, IllegalArgumentException {
+		if (currencyRatesFile == null)
+			throw new IllegalStateException("currency.rates-file is not set");
+		HotelDataSnapshot next;
+		CompletableFuture<Void> durable = null;
+		synchronized (this) {
+			HotelDataSnapshot current = snapshot;
+			CurrencyRates currentRates = current.getNormalizedPrices().getRates();
+			CurrencyRates currencyRates = loadCurrencyRates(currentRates.getVersion() + 1);
+			if (currencyRates.hasSameRates(currentRates)) {
+				logger.info("Currency rates in {} unchanged, keeping version {}", currencyRatesFile, currentRates.getVersion());
+				return currentRates;
+			}
+			long start = System.nanoTime();
+			next = withCurrencyRates(current, currencyRates, rankingFormulas);
+			logger.info("Normalized {} prices with currency rates version {} in {} ms", current.getHotelAdvertiserStore().size(), 
+					currencyRates.getVersion(), (System.nanoTime() - start) / 1000000);
+			warnUnratedRows(next.getNormalizedPrices());
+			if (updateLog.isEnabled())
+				durable = updateLog.append(next.getVersion(), Collections.<HotelAdvertiser>emptyList());
+			snapshot = next;
+		}
+		if (durable != null)
+			join(durable::join);
+		return next.getNormalizedPrices().getRates();
+	}
+
+	/**
+	 * The withCurrencyRates method builds the next version of the given snapshot with the prices normalized under 
+	 * the given rates, see reloadCurrencyRates().
+	 */
+	static HotelDataSnapshot withCurrencyRates(HotelDataSnapshot current, CurrencyRates currencyRates, 
+			RankingFormulas rankingFormulas) {
+		HotelAdvertiserStore hotelAdvertiserStore = current.getHotelAdvertiserStore();
+		NormalizedPrices normalizedPrices = NormalizedPrices.build(hotelAdvertiserStore, currencyRates);
+		Map<Integer, int[]> rowsByHotel = new HashMap<Integer, int[]>();
+		for (Integer hotelId : current.getHotels().keySet()) {
+			int[] hotelRows = current.getRowsByHotelMap().get(hotelId);
+			if (hotelRows != null)
+				rowsByHotel.put(hotelId, sortRows(normalizedPrices, hotelRows));
+		}
+		HotelScores hotelScores = HotelScores.build(rankingFormulas, current.getHotels(),
+				hotelId -> bestCpc(hotelAdvertiserStore, normalizedPrices, rowsByHotel.get(hotelId)));
+		return current.withNormalizedPrices(normalizedPrices, PersistentIntMap.of(rowsByHotel), hotelScores);
+	}
+
+	/**
+	 * The loadCurrencyRates method reads the 'currency.rates-file' file.
+	 * @param version - version of the loaded rates.
+	 * @return the rates of the file, or CurrencyRates.NONE if the 'currency.rates-file' property is not set.
+	 */
+	private CurrencyRates loadCurrencyRates(long version) throws UncheckedIOException, IllegalArgumentException {
+		if (currencyRatesFile == null)
+			return CurrencyRates.NONE;
+		return CurrencyRates.load(currencyRatesFile, version);
+	}
+
+	/**
+	 * The warnUnratedRows method logs the rows whose currency has no rate in the 'currency.rates-file' file.
+	 * @param normalizedPrices
+	 */
+	void warnUnratedRows(NormalizedPrices normalizedPrices) {
+		if (currencyRatesFile != null && normalizedPrices.getUnratedRows() > 0)
+			logger.warn("{} rows have a currency without a rate in {}, their prices are not converted: {}", 
+					normalizedPrices.getUnratedRows(), currencyRatesFile, normalizedPrices.getUnratedCurrencies());
+	}
+
+	/**
+	 * @return the rates the prices of the current snapshot are normalized with.
+	 */
+	public CurrencyRates getCurrencyRates() {
+		return snapshot.getNormalizedPrices().getRates();
+	}
+
+	/**
+	 * @return true if the 'currency.rates-file' property is set, so the rates can be reloaded.
+	 */
+	public boolean hasCurrencyRatesFile() {
+		return currencyRatesFile != null;
+	}
+
+	/**
+	 * The compactInBackground method writes the snapshot file on the compaction thread, which compacts the update log.
+	 */
+	private void compactInBackground() {
+		if (snapshotFile == null || !compacting.compareAndSet(false, true))
+			return;
+		compactionExecutor.execute(() -> {
+			try {
+				writeSnapshotFile();
+			} catch (RuntimeException e) {
+				logger.warn("Cannot compact the update log", e);
+			} finally {
+				compacting.set(false);
+			}
+		});
+	}
+
+	/**
+	 * The startReload method starts a hot reload of the *.csv files on the reload thread, see HotelDataReloader.
+	 * @param trigger - what started the reload, reported with its progress.
+	 * @return false if a reload or a compaction of the rows is already running.
+	 * @throws IllegalStateException - in case the update log is enabled and the 'hotel-data.snapshot-file' property
+	 * is not set.
+	 */
+	public boolean startReload(String trigger) throws IllegalStateException {
+		if (updateLog.isEnabled() && snapshotFile == null)
+			throw new IllegalStateException("Reloading with the update log enabled needs hotel-data.snapshot-file");
+		return reloader.start(trigger);
+	}
+
+	/**
+	 * The collectUpdates method starts collecting the updates applied from now on, for data rebuilt in the background.
+	 * @return the current snapshot.
+	 */
+	synchronized HotelDataSnapshot collectUpdates() {
+		pendingUpdates = new ArrayList<PendingUpdate>();
+		return snapshot;
+	}
+
+	synchronized void stopCollectingUpdates() {
+		pendingUpdates = null;
+	}
+
+	/**
+	 * The publishRebuilt method stops collecting updates and publishes the data the given function rebases onto the
+	 * current snapshot and the updates collected since collectUpdates(), unless it returns null.
+	 * @return the published snapshot, or null.
+	 */
+	synchronized HotelDataSnapshot publishRebuilt(BiFunction<HotelDataSnapshot, List<PendingUpdate>, HotelDataSnapshot> rebase) {
+		List<PendingUpdate> collectedUpdates = pendingUpdates;
+		pendingUpdates = null;
+		HotelDataSnapshot next = rebase.apply(snapshot, collectedUpdates);
+		if (next != null)
+			snapshot = next;
+		return next;
+	}
+
+	/**
+	 * @return the progress of the running or last reload.
+	 */
+	public ReloadProgress getReloadProgress() {
+		return reloader.getProgress();
+	}
+
+	/**
+	 * @return the memory report of the current snapshot.
+	 */
+	public MemoryReport getMemoryReport() {
+		return new MemoryReport(storage, snapshot, currencies);
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		compactionExecutor.shutdown();
+		reloadThread.shutdown();
+	}
+
+	/**
+	 * The Update class is the result of applyUpdate() and applyOperation(): the next snapshot, the cities whose rows
+	 * changed in it and the number of rows the update was about.
+	 */
+	private static class Update {
+
+		private final HotelDataSnapshot snapshot;
+		private final Set<Integer> changedCityIds;
+		private final int rows;
+
+		private Update(HotelDataSnapshot snapshot, Set<Integer> changedCityIds, int rows) {
+			this.snapshot = snapshot;
+			this.changedCityIds = changedCityIds;
+			this.rows = rows;
+		}
+	}
+
+	/**
+	 * The replaceRow method creates a copy of the sorted rows of a hotel without the removed row (if any) and with 
+	 * the added row (if any) at its sorted position.
+	 */
+	private static int[] replaceRow(NormalizedPrices normalizedPrices, int[] hotelRows, int removedRow, int addedRow) {
+		int[] updatedHotelRows = new int[hotelRows.length + (addedRow < 0 ? 0 : 1) - (removedRow < 0 ? 0 : 1)];
+		int updatedRowCount = 0;
+		boolean rowPlaced = addedRow < 0;
+		for (int existingRow : hotelRows) {
+			if (existingRow == removedRow)
+				continue;
+			if (!rowPlaced && normalizedPrices.compareRows(addedRow, existingRow) < 0) {
+				updatedHotelRows[updatedRowCount++] = addedRow;
+				rowPlaced = true;
+			}
+			updatedHotelRows[updatedRowCount++] = existingRow;
+		}
+		if (!rowPlaced)
+			updatedHotelRows[updatedRowCount] = addedRow;
+		return updatedHotelRows;
+	}
+
+	/**
+	 * @return the current version of the hotel data. The snapshot never changes, so a search should read it once 
+	 * and use it for all of its work.
+	 */
+	public HotelDataSnapshot getSnapshot() {
+		return snapshot;
 	}
 	
 	public Map<String,City> getCities() {
-		return cities;
+		return snapshot.getCities();
 	}
 	
 	public Map<Integer,Advertiser> getAdvertisers() {
-		return advertisers;
+		return snapshot.getAdvertisers();
 	}
 	
 	public Map<Integer, Hotel> getHotels() {
-		return hotels;
+		return snapshot.getHotels();
 	}
 	
+	/**
+	 * @return sorted map of the hotel advertisers by hotel id of the current snapshot, see
+	 * HotelDataSnapshot.getHotelAdvertisers().
+	 */
 	public SortedMap<Integer, TreeSet<HotelAdvertiser>> getHotelAdvertisers() {
-		return hotelAdvertisers;
+		return snapshot.getHotelAdvertisers();
 	}
 	
 
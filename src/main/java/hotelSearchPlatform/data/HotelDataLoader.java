@@ -0,0 +1,41 @@
+package hotelSearchPlatform.data;
+
+import java.util.Map;
+
+import hotelSearchPlatform.entities.Advertiser;
+import hotelSearchPlatform.entities.City;
+import hotelSearchPlatform.entities.Hotel;
+
+/**
+ * The HotelDataLoader interface reads the four *.csv files of the hotel data for the HotelData class.
+ * It is implemented by the CSVLoader class ("commons-csv" loader) and the MappedCSVLoader class ("mapped" loader),
+ * selected by the 'hotel-data.loader' property. Methods may be called concurrently for different files.
+ */
+public interface HotelDataLoader {
+
+	/**
+	 * @param path - location of the cities.csv file.
+	 * @return map of the cities with the city name as key.
+	 */
+	Map<String, City> loadCities(String path);
+
+	/**
+	 * @param path - location of the advertisers.csv file.
+	 * @return map of the advertisers with the advertiser id as key.
+	 */
+	Map<Integer, Advertiser> loadAdvertisers(String path);
+
+	/**
+	 * @param path - location of the hotels.csv file.
+	 * @return map of the hotels with the hotel id as key.
+	 */
+	Map<Integer, Hotel> loadHotels(String path);
+
+	/**
+	 * The loadHotelAdvertisers method adds every record of the hotel_advertiser.csv file as a row to the given
+	 * HotelAdvertiserStore, in file order.
+	 * @param path - location of the hotel_advertiser.csv file.
+	 * @param hotelAdvertiserStore - store the rows are added to.
+	 */
+	void loadHotelAdvertisers(String path, HotelAdvertiserStore hotelAdvertiserStore);
+}
@@ -0,0 +1,130 @@
+package hotelSearchPlatform.data;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hotelSearchPlatform.entities.HotelAdvertiser;
+import hotelSearchPlatform.ranking.RankingFormulas;
+
+/**
+ * The HotelDataReloader class hot reloads the *.csv files of the HotelData class on the reload thread while the
+ * current snapshot keeps serving, and swaps the new data in with the updates applied meanwhile.
+ */
+final class HotelDataReloader {
+
+	private static final Logger logger = LoggerFactory.getLogger(HotelDataReloader.class);
+
+	private final HotelData hotelData;
+	private final ReloadThread reloadThread;
+	private final CsvFileWatcher csvFileWatcher;
+	private final RowCompactor rowCompactor;
+	private final RankingFormulas rankingFormulas;
+	private final Path dataDirectory;
+	private final ReloadProgress reloadProgress = new ReloadProgress();
+
+	HotelDataReloader(HotelData hotelData, ReloadThread reloadThread, CsvFileWatcher csvFileWatcher, RowCompactor rowCompactor,
+			RankingFormulas rankingFormulas, Path dataDirectory) {
+		this.hotelData = hotelData;
+		this.reloadThread = reloadThread;
+		this.csvFileWatcher = csvFileWatcher;
+		this.rowCompactor = rowCompactor;
+		this.rankingFormulas = rankingFormulas;
+		this.dataDirectory = dataDirectory;
+	}
+
+	/**
+	 * The start method starts a reload on the reload thread, see reload().
+	 * @param trigger - what started the reload, reported with its progress.
+	 * @return false if a reload or a compaction of the rows is already running.
+	 */
+	boolean start(String trigger) {
+		return reloadThread.start(() -> reload(trigger));
+	}
+
+	/**
+	 * The reload method loads the *.csv files into a new store and publishes them as the next version, with the
+	 * updates applied during the reload, then writes them to the snapshot file, which rotates the update log.
+	 * A reload that fails keeps the current data. The old and new data are both in memory until it is done.
+	 */
+	void reload(String trigger) {
+		try {
+			long csvFilesModified = csvFileWatcher.modifiedMillis();
+			HotelAdvertiserStore hotelAdvertiserStore = hotelData.createStore();
+			Set<Integer> suspendedAdvertiserIds = hotelData.collectUpdates().getSuspendedAdvertiserIds();
+			reloadProgress.start(trigger, hotelAdvertiserStore);
+			long start = System.nanoTime();
+			HotelDataSnapshot reloaded = hotelData.loadCsvFiles(hotelAdvertiserStore, hotelData.getCurrencyRates(),
+					() -> reloadProgress.phase(ReloadProgress.Phase.BUILDING_INDEXES));
+			reloadProgress.phase(ReloadProgress.Phase.REAPPLYING_UPDATES);
+			HotelDataSnapshot published = hotelData.publishRebuilt(
+					(current, pendingUpdates) -> rebase(reloaded, suspendedAdvertiserIds, current, pendingUpdates));
+			csvFileWatcher.loaded(csvFilesModified);
+			rowCompactor.compacted(hotelAdvertiserStore.size());
+			hotelData.warnUnratedRows(published.getNormalizedPrices());
+			reloadProgress.published(published.getVersion());
+			logger.info("Reloaded {} rows from {} as version {} in {} ms, applied {} updates again", hotelAdvertiserStore.size(),
+					dataDirectory, published.getVersion(), (System.nanoTime() - start) / 1000000, reloadProgress.getReappliedUpdates());
+			if (hotelData.getSnapshotFile() != null) {
+				reloadProgress.phase(ReloadProgress.Phase.WRITING_SNAPSHOT);
+				try {
+					hotelData.writeSnapshotFile();
+				} catch (RuntimeException e) {
+					logger.warn("Reloaded version " + published.getVersion() + " is live but cannot be written to the "
+							+ "snapshot file, a restart loads the *.csv files again", e);
+				}
+			}
+			reloadProgress.done();
+		} catch (RuntimeException e) {
+			hotelData.stopCollectingUpdates();
+			logger.warn("Cannot reload the hotel data from " + dataDirectory, e);
+			reloadProgress.failed(String.valueOf(e.getMessage()));
+		}
+	}
+
+	/**
+	 * @return the progress of the running or last reload.
+	 */
+	ReloadProgress getProgress() {
+		return reloadProgress;
+	}
+
+	/**
+	 * The rebase method moves the reloaded data onto the current snapshot: the current currency rates, the
+	 * advertisers suspended when the reload started, the next version and the pending updates, except for hotels the
+	 * new files no longer hold.
+	 * @return the reloaded data to publish.
+	 */
+	private HotelDataSnapshot rebase(HotelDataSnapshot reloaded, Set<Integer> suspendedAdvertiserIds, HotelDataSnapshot current,
+			List<PendingUpdate> pendingUpdates) {
+		CurrencyRates currencyRates = current.getNormalizedPrices().getRates();
+		if (!reloaded.getNormalizedPrices().getRates().hasSameRates(currencyRates))
+			reloaded = HotelData.withCurrencyRates(reloaded, currencyRates, rankingFormulas);
+		for (Integer advertiserId : suspendedAdvertiserIds)
+			reloaded = HotelData.withOperation(reloaded, AdvertiserOperation.suspend(advertiserId));
+		HotelDataSnapshot next = reloaded.withVersion(current.getVersion() + 1);
+		int skipped = 0;
+		for (PendingUpdate update : pendingUpdates) {
+			if (update.getOperation() != null) {
+				next = update.applyTo(next);
+				continue;
+			}
+			List<HotelAdvertiser> hotelAdvertisers = new ArrayList<HotelAdvertiser>(update.getHotelAdvertisers().size());
+			for (HotelAdvertiser hotelAdvertiser : update.getHotelAdvertisers()) {
+				if (next.getHotels().get(hotelAdvertiser.getHotel_id()) == null)
+					skipped++;
+				else
+					hotelAdvertisers.add(hotelAdvertiser);
+			}
+			next = HotelData.withUpdate(next, hotelAdvertisers);
+		}
+		if (skipped > 0)
+			logger.warn("Dropped {} hotel advertisers updated during the reload, their hotels are not in the reloaded data", skipped);
+		reloadProgress.reapplied(pendingUpdates.size());
+		return next;
+	}
+}
@@ -0,0 +1,519 @@
+package hotelSearchPlatform.data;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import hotelSearchPlatform.comparators.HotelAdvertiserComparator;
+import hotelSearchPlatform.entities.Advertiser;
+import hotelSearchPlatform.entities.City;
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.entities.HotelAdvertiser;
+import hotelSearchPlatform.ranking.HotelScores;
+
+/**
+ * The HotelDataSnapshot class is an immutable version of the hotel data published by the HotelData class.
+ * A search reads one snapshot from start to end without taking locks, and sees a consistent set of hotel
+ * advertisers even while updates are applied. An update never changes a published snapshot: it builds the next 
+ * version, sharing everything it does not touch with the previous one, and the HotelData class swaps it in atomically.
+ * Every city carries the version of the last snapshot that changed its hotel advertisers, so results computed for
+ * a city can be reused until that city changes.
+ * Every hotel also has a DayBitmap of the days it is available on, built from its rows when the snapshot is created
+ * and rebuilt for the hotels an update changes. Every hotel has a BestOffers view as well, maintained the same way
+ * and rebuilt for all hotels when the currency rates change, and every city has an AvailabilityIndex of the rows of
+ * the best offer views of its hotels, changed by the rows the rebuilt views gained and lost. Summary searches read
+ * them instead of the rows. The star levels and ratings of the hotels are kept in the primitive columns of a
+ * HotelAttributes, built once with the snapshot, as hotels only change with a reload.
+ * Rows are ordered by their price in the base currency, read from the NormalizedPrices column of the snapshot. A change
+ * of the currency rates publishes a new column with a new version in which every city has changed.
+ * The advertiser to rows index maps every advertiser to its rows by hotel, so bulk changes of one advertiser find its
+ * rows without scanning hotels. It also holds the rows of suspended advertisers, which the hotel to rows index and
+ * the availability indexes leave out, so searches never see them.
+ */
+public class HotelDataSnapshot {
+
+	private static final int[] NO_ROWS = new int[0];
+
+	private final long version;
+	private final Map<String, City> cities;
+	private final Map<Integer, Advertiser> advertisers;
+	private final Map<Integer, Hotel> hotels;
+	private final HotelAttributes hotelAttributes;
+	private final Map<Integer, SortedSet<Integer>> hotelIdsByCity;
+	private final HotelAdvertiserStore hotelAdvertiserStore;
+	private final PersistentIntMap<int[]> rowsByHotel;
+	private final PersistentIntMap<AvailabilityIndex> availabilityIndexByCity;
+	private final HotelScores hotelScores;
+	private final PersistentIntMap<Long> cityVersions;
+	private final PersistentIntMap<DayBitmap> dayBitmapsByHotel;
+	private final PersistentIntMap<BestOffers> bestOffersByHotel;
+	private final PersistentIntMap<AvailabilityIndex> bestOffersIndexByCity;
+	private final NormalizedPrices normalizedPrices;
+	private final PersistentIntMap<PersistentIntMap<int[]>> rowsByAdvertiser;
+	private final Set<Integer> suspendedAdvertiserIds;
+
+	/**
+	 * @param suspendedAdvertiserIds - advertisers whose rows are hidden from searches.
+	 * @param suspendedRows - rows of the suspended advertisers, which are not in the given hotel rows.
+	 */
+	public HotelDataSnapshot(long version, Map<String, City> cities, Map<Integer, Advertiser> advertisers,
+			Map<Integer, Hotel> hotels, Map<Integer, SortedSet<Integer>> hotelIdsByCity, HotelAdvertiserStore hotelAdvertiserStore,
+			PersistentIntMap<int[]> rowsByHotel, PersistentIntMap<AvailabilityIndex> availabilityIndexByCity,
+			HotelScores hotelScores, NormalizedPrices normalizedPrices, Set<Integer> suspendedAdvertiserIds, int[] suspendedRows) {
+		this(version, cities, advertisers, hotels, HotelAttributes.build(hotels), hotelIdsByCity, hotelAdvertiserStore, rowsByHotel,
+				availabilityIndexByCity, hotelScores, PersistentIntMap.of(new HashMap<Integer, Long>()), buildDayBitmaps(hotelAdvertiserStore, rowsByHotel),
+				buildBestOffers(hotelAdvertiserStore, normalizedPrices, rowsByHotel), null, normalizedPrices,
+				buildRowsByAdvertiser(hotelAdvertiserStore, rowsByHotel, suspendedRows), 
+				new HashSet<Integer>(suspendedAdvertiserIds));
+	}
+
+	private HotelDataSnapshot(long version, Map<String, City> cities, Map<Integer, Advertiser> advertisers,
+			Map<Integer, Hotel> hotels, HotelAttributes hotelAttributes, Map<Integer, SortedSet<Integer>> hotelIdsByCity, 
+			HotelAdvertiserStore hotelAdvertiserStore,
+			PersistentIntMap<int[]> rowsByHotel, PersistentIntMap<AvailabilityIndex> availabilityIndexByCity,
+			HotelScores hotelScores, PersistentIntMap<Long> cityVersions, PersistentIntMap<DayBitmap> dayBitmapsByHotel,
+			PersistentIntMap<BestOffers> bestOffersByHotel, PersistentIntMap<AvailabilityIndex> bestOffersIndexByCity,
+			NormalizedPrices normalizedPrices, PersistentIntMap<PersistentIntMap<int[]>> rowsByAdvertiser, 
+			Set<Integer> suspendedAdvertiserIds) {
+		this.version = version;
+		this.cities = Collections.unmodifiableMap(cities);
+		this.advertisers = Collections.unmodifiableMap(advertisers);
+		this.hotels = Collections.unmodifiableMap(hotels);
+		this.hotelAttributes = hotelAttributes;
+		this.hotelIdsByCity = Collections.unmodifiableMap(hotelIdsByCity);
+		this.hotelAdvertiserStore = hotelAdvertiserStore;
+		this.rowsByHotel = rowsByHotel;
+		this.availabilityIndexByCity = availabilityIndexByCity;
+		this.hotelScores = hotelScores;
+		this.cityVersions = cityVersions;
+		this.dayBitmapsByHotel = dayBitmapsByHotel;
+		this.bestOffersByHotel = bestOffersByHotel;
+		this.bestOffersIndexByCity = bestOffersIndexByCity == null
+				? buildBestOffersIndexes(hotelAdvertiserStore, hotelIdsByCity, bestOffersByHotel) : bestOffersIndexByCity;
+		this.normalizedPrices = normalizedPrices;
+		this.rowsByAdvertiser = rowsByAdvertiser;
+		this.suspendedAdvertiserIds = Collections.unmodifiableSet(suspendedAdvertiserIds);
+	}
+
+	private static PersistentIntMap<DayBitmap> buildDayBitmaps(HotelAdvertiserStore hotelAdvertiserStore,
+			PersistentIntMap<int[]> rowsByHotel) {
+		Map<Integer, DayBitmap> dayBitmaps = new HashMap<Integer, DayBitmap>();
+		for (int hotelId : rowsByHotel.keys())
+			dayBitmaps.put(hotelId, DayBitmap.build(hotelAdvertiserStore, rowsByHotel.get(hotelId)));
+		return PersistentIntMap.of(dayBitmaps);
+	}
+
+	private static PersistentIntMap<BestOffers> buildBestOffers(HotelAdvertiserStore hotelAdvertiserStore,
+			NormalizedPrices normalizedPrices, PersistentIntMap<int[]> rowsByHotel) {
+		Map<Integer, BestOffers> bestOffers = new HashMap<Integer, BestOffers>();
+		for (int hotelId : rowsByHotel.keys())
+			bestOffers.put(hotelId, BestOffers.build(hotelAdvertiserStore, normalizedPrices, rowsByHotel.get(hotelId)));
+		return PersistentIntMap.of(bestOffers);
+	}
+
+	private static PersistentIntMap<AvailabilityIndex> buildBestOffersIndexes(HotelAdvertiserStore hotelAdvertiserStore,
+			Map<Integer, SortedSet<Integer>> hotelIdsByCity, PersistentIntMap<BestOffers> bestOffersByHotel) {
+		Map<Integer, AvailabilityIndex> bestOffersIndexes = new HashMap<Integer, AvailabilityIndex>();
+		for (Map.Entry<Integer, SortedSet<Integer>> cityHotelIds : hotelIdsByCity.entrySet()) {
+			int[] rows = new int[16];
+			int rowCount = 0;
+			for (Integer hotelId : cityHotelIds.getValue()) {
+				BestOffers bestOffers = bestOffersByHotel.get(hotelId);
+				if (bestOffers == null)
+					continue;
+				int[] hotelRows = bestOffers.getRows();
+				if (rowCount + hotelRows.length > rows.length)
+					rows = Arrays.copyOf(rows, Math.max(2 * rows.length, rowCount + hotelRows.length));
+				System.arraycopy(hotelRows, 0, rows, rowCount, hotelRows.length);
+				rowCount += hotelRows.length;
+			}
+			bestOffersIndexes.put(cityHotelIds.getKey(), AvailabilityIndex.build(hotelAdvertiserStore, Arrays.copyOf(rows, rowCount)));
+		}
+		return PersistentIntMap.of(bestOffersIndexes);
+	}
+
+	/**
+	 * The buildRowsByAdvertiser method groups the given hotel rows and suspended rows by advertiser and then by hotel,
+	 * sorting packed (advertiser id, row) and (hotel id, row) longs instead of filling boxed collections.
+	 */
+	private static PersistentIntMap<PersistentIntMap<int[]>> buildRowsByAdvertiser(HotelAdvertiserStore hotelAdvertiserStore,
+			PersistentIntMap<int[]> rowsByHotel, int[] suspendedRows) {
+		int[] hotelIds = rowsByHotel.keys();
+		int rowCount = suspendedRows.length;
+		for (int hotelId : hotelIds)
+			rowCount += rowsByHotel.get(hotelId).length;
+		long[] rowsByAdvertiserKeys = new long[rowCount];
+		int count = 0;
+		for (int hotelId : hotelIds) {
+			for (int row : rowsByHotel.get(hotelId))
+				rowsByAdvertiserKeys[count++] = ((long) hotelAdvertiserStore.getAdvertiserId(row) << 32) | row;
+		}
+		for (int row : suspendedRows)
+			rowsByAdvertiserKeys[count++] = ((long) hotelAdvertiserStore.getAdvertiserId(row) << 32) | row;
+		Arrays.sort(rowsByAdvertiserKeys);
+		Map<Integer, PersistentIntMap<int[]>> advertiserRows = new HashMap<Integer, PersistentIntMap<int[]>>();
+		for (int first = 0, next; first < rowsByAdvertiserKeys.length; first = next) {
+			int advertiserId = (int) (rowsByAdvertiserKeys[first] >> 32);
+			next = first + 1;
+			while (next < rowsByAdvertiserKeys.length && (int) (rowsByAdvertiserKeys[next] >> 32) == advertiserId)
+				next++;
+			long[] rowsByHotelKeys = new long[next - first];
+			for (int i = first; i < next; i++) {
+				int row = (int) rowsByAdvertiserKeys[i];
+				rowsByHotelKeys[i - first] = ((long) hotelAdvertiserStore.getHotelId(row) << 32) | row;
+			}
+			Arrays.sort(rowsByHotelKeys);
+			Map<Integer, int[]> hotelRows = new HashMap<Integer, int[]>();
+			for (int hotelFirst = 0, hotelNext; hotelFirst < rowsByHotelKeys.length; hotelFirst = hotelNext) {
+				int hotelId = (int) (rowsByHotelKeys[hotelFirst] >> 32);
+				hotelNext = hotelFirst + 1;
+				while (hotelNext < rowsByHotelKeys.length && (int) (rowsByHotelKeys[hotelNext] >> 32) == hotelId)
+					hotelNext++;
+				int[] rows = new int[hotelNext - hotelFirst];
+				for (int i = 0; i < rows.length; i++)
+					rows[i] = (int) rowsByHotelKeys[hotelFirst + i];
+				hotelRows.put(hotelId, rows);
+			}
+			advertiserRows.put(advertiserId, PersistentIntMap.of(hotelRows));
+		}
+		return PersistentIntMap.of(advertiserRows);
+	}
+
+	/**
+	 * @param newRowsByHotel
+	 * @param newAvailabilityIndexByCity
+	 * @param newHotelScores
+	 * @param changedCityIds - cities whose hotel advertisers changed.
+	 * @param changedHotelIds - hotels whose rows changed, their day bitmaps and best offers are rebuilt.
+	 * @param newRowsByAdvertiser
+	 * @param newSuspendedAdvertiserIds
+	 * @return the next version of this snapshot with the given hotel rows, availability indexes, hotel scores and 
+	 * advertiser rows.
+	 */
+	public HotelDataSnapshot withRows(PersistentIntMap<int[]> newRowsByHotel, PersistentIntMap<AvailabilityIndex> newAvailabilityIndexByCity,
+			HotelScores newHotelScores, Collection<Integer> changedCityIds, Collection<Integer> changedHotelIds, 
+			PersistentIntMap<PersistentIntMap<int[]>> newRowsByAdvertiser, Set<Integer> newSuspendedAdvertiserIds) {
+		long newVersion = version + 1;
+		PersistentIntMap<Long> newCityVersions = cityVersions;
+		for (Integer cityId : changedCityIds)
+			newCityVersions = newCityVersions.with(cityId, newVersion);
+		PersistentIntMap<DayBitmap> newDayBitmapsByHotel = dayBitmapsByHotel;
+		PersistentIntMap<BestOffers> newBestOffersByHotel = bestOffersByHotel;
+		Map<Integer, RowChanges> bestOfferChangesByCity = new HashMap<Integer, RowChanges>();
+		for (Integer hotelId : changedHotelIds) {
+			int[] hotelRows = newRowsByHotel.get(hotelId);
+			if (hotelRows == null)
+				hotelRows = NO_ROWS;
+			newDayBitmapsByHotel = newDayBitmapsByHotel.with(hotelId, DayBitmap.build(hotelAdvertiserStore, hotelRows));
+			BestOffers newBestOffers = BestOffers.build(hotelAdvertiserStore, normalizedPrices, hotelRows);
+			int cityId = hotels.get(hotelId).getCity_id();
+			if (bestOfferChangesByCity.get(cityId) == null)
+				bestOfferChangesByCity.put(cityId, new RowChanges());
+			addBestOfferChanges(bestOfferChangesByCity.get(cityId), getBestOffers(hotelId).getRows(), newBestOffers.getRows());
+			newBestOffersByHotel = newBestOffersByHotel.with(hotelId, newBestOffers);
+		}
+		PersistentIntMap<AvailabilityIndex> newBestOffersIndexByCity = bestOffersIndexByCity;
+		for (Map.Entry<Integer, RowChanges> cityChanges : bestOfferChangesByCity.entrySet()) {
+			newBestOffersIndexByCity = newBestOffersIndexByCity.with(cityChanges.getKey(), getBestOffersIndex(cityChanges.getKey())
+					.withChanges(cityChanges.getValue().getInsertedRows(), cityChanges.getValue().getRemovedRows()));
+		}
+		return new HotelDataSnapshot(newVersion, cities, advertisers, hotels, hotelAttributes, hotelIdsByCity, hotelAdvertiserStore,
+				newRowsByHotel, newAvailabilityIndexByCity, newHotelScores, newCityVersions, newDayBitmapsByHotel, 
+				newBestOffersByHotel, newBestOffersIndexByCity, normalizedPrices, newRowsByAdvertiser, newSuspendedAdvertiserIds);
+	}
+
+	/**
+	 * The addBestOfferChanges method adds the rows a hotel's best offer view gained and lost to the changes of its
+	 * city. Views are short, so rows are looked up by linear scans.
+	 */
+	private static void addBestOfferChanges(RowChanges cityChanges, int[] oldRows, int[] newRows) {
+		for (int row : newRows) {
+			if (!contains(oldRows, row))
+				cityChanges.insert(row);
+		}
+		for (int row : oldRows) {
+			if (!contains(newRows, row))
+				cityChanges.remove(row);
+		}
+	}
+
+	private static boolean contains(int[] rows, int row) {
+		for (int r : rows) {
+			if (r == row)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param newNormalizedPrices - normalized prices of all rows under new currency rates.
+	 * @param newRowsByHotel - rows of every hotel sorted by the new normalized prices.
+	 * @param newHotelScores - scores of every hotel with the best offers under the new normalized prices.
+	 * @return the next version of this snapshot with the given normalized prices, hotel rows and hotel scores, in which
+	 * every city has changed and the best offers of every hotel are rebuilt.
+	 */
+	public HotelDataSnapshot withNormalizedPrices(NormalizedPrices newNormalizedPrices, PersistentIntMap<int[]> newRowsByHotel,
+			HotelScores newHotelScores) {
+		long newVersion = version + 1;
+		return new HotelDataSnapshot(newVersion, cities, advertisers, hotels, hotelAttributes, hotelIdsByCity, hotelAdvertiserStore,
+				newRowsByHotel, availabilityIndexByCity, newHotelScores, allCitiesChanged(newVersion), dayBitmapsByHotel, 
+				buildBestOffers(hotelAdvertiserStore, newNormalizedPrices, newRowsByHotel), null, newNormalizedPrices, rowsByAdvertiser,
+				suspendedAdvertiserIds);
+	}
+
+	/**
+	 * @param newVersion - version following the one of the snapshot this snapshot replaces.
+	 * @return this snapshot with the given version, in which every city has changed. A snapshot built from reloaded
+	 * data is published with it, so versions keep increasing and nothing computed from the replaced data is reused.
+	 */
+	public HotelDataSnapshot withVersion(long newVersion) {
+		return new HotelDataSnapshot(newVersion, cities, advertisers, hotels, hotelAttributes, hotelIdsByCity, hotelAdvertiserStore,
+				rowsByHotel, availabilityIndexByCity, hotelScores, allCitiesChanged(newVersion), dayBitmapsByHotel, 
+				bestOffersByHotel, bestOffersIndexByCity, normalizedPrices, rowsByAdvertiser, suspendedAdvertiserIds);
+	}
+
+	private PersistentIntMap<Long> allCitiesChanged(long newVersion) {
+		PersistentIntMap<Long> newCityVersions = cityVersions;
+		for (City city : cities.values())
+			newCityVersions = newCityVersions.with(city.getId(), newVersion);
+		return newCityVersions;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param cityId
+	 * @return the version of the last snapshot that changed the hotel advertisers of the given city. Anything 
+	 * computed from this city's data in a snapshot with the same city version is still up to date.
+	 */
+	public long getCityVersion(int cityId) {
+		Long cityVersion = cityVersions.get(cityId);
+		if (cityVersion == null)
+			return 1;
+		return cityVersion;
+	}
+
+	public Map<String, City> getCities() {
+		return cities;
+	}
+
+	public Map<Integer, Advertiser> getAdvertisers() {
+		return advertisers;
+	}
+
+	public Map<Integer, Hotel> getHotels() {
+		return hotels;
+	}
+
+	/**
+	 * @return the star levels and ratings of the hotels.
+	 */
+	public HotelAttributes getHotelAttributes() {
+		return hotelAttributes;
+	}
+
+	public HotelAdvertiserStore getHotelAdvertiserStore() {
+		return hotelAdvertiserStore;
+	}
+
+	/**
+	 * @return the prices of the rows in the base currency, under the currency rates of this snapshot.
+	 */
+	public NormalizedPrices getNormalizedPrices() {
+		return normalizedPrices;
+	}
+
+	/**
+	 * @return the precomputed ranking scores of the hotels, up to date with the hotel advertisers of this snapshot.
+	 */
+	public HotelScores getHotelScores() {
+		return hotelScores;
+	}
+
+	PersistentIntMap<int[]> getRowsByHotelMap() {
+		return rowsByHotel;
+	}
+
+	PersistentIntMap<AvailabilityIndex> getAvailabilityIndexByCity() {
+		return availabilityIndexByCity;
+	}
+
+	PersistentIntMap<PersistentIntMap<int[]>> getRowsByAdvertiserMap() {
+		return rowsByAdvertiser;
+	}
+
+	/**
+	 * @param advertiserId
+	 * @return the ids of the hotels the given advertiser has rows in, sorted, whether it is suspended or not.
+	 */
+	public int[] getHotelIdsByAdvertiser(int advertiserId) {
+		PersistentIntMap<int[]> advertiserRows = rowsByAdvertiser.get(advertiserId);
+		if (advertiserRows == null)
+			return NO_ROWS;
+		return advertiserRows.keys();
+	}
+
+	/**
+	 * @param advertiserId
+	 * @param hotelId
+	 * @return the row ids of the given advertiser in the given hotel, sorted by row id, whether it is suspended or not.
+	 */
+	public int[] getRowsByAdvertiser(int advertiserId, int hotelId) {
+		PersistentIntMap<int[]> advertiserRows = rowsByAdvertiser.get(advertiserId);
+		int[] rows = advertiserRows == null ? null : advertiserRows.get(hotelId);
+		if (rows == null)
+			return NO_ROWS;
+		return rows;
+	}
+
+	/**
+	 * @param advertiserId
+	 * @return the number of rows of the given advertiser, whether it is suspended or not.
+	 */
+	public int getRowCountByAdvertiser(int advertiserId) {
+		PersistentIntMap<int[]> advertiserRows = rowsByAdvertiser.get(advertiserId);
+		if (advertiserRows == null)
+			return 0;
+		int rowCount = 0;
+		for (int hotelId : advertiserRows.keys())
+			rowCount += advertiserRows.get(hotelId).length;
+		return rowCount;
+	}
+
+	public boolean isSuspended(int advertiserId) {
+		return suspendedAdvertiserIds.contains(advertiserId);
+	}
+
+	/**
+	 * @return the ids of the advertisers whose rows are hidden from searches.
+	 */
+	public Set<Integer> getSuspendedAdvertiserIds() {
+		return suspendedAdvertiserIds;
+	}
+
+	/**
+	 * @return the rows of the suspended advertisers, sorted by row id.
+	 */
+	public int[] getSuspendedRows() {
+		int rowCount = 0;
+		for (Integer advertiserId : suspendedAdvertiserIds)
+			rowCount += getRowCountByAdvertiser(advertiserId);
+		int[] rows = new int[rowCount];
+		int count = 0;
+		for (Integer advertiserId : suspendedAdvertiserIds) {
+			for (int hotelId : getHotelIdsByAdvertiser(advertiserId)) {
+				int[] hotelRows = getRowsByAdvertiser(advertiserId, hotelId);
+				System.arraycopy(hotelRows, 0, rows, count, hotelRows.length);
+				count += hotelRows.length;
+			}
+		}
+		Arrays.sort(rows);
+		return rows;
+	}
+
+	/**
+	 * @param hotelId
+	 * @return the row ids of the hotel advertisers of the given hotel, sorted like the HotelAdvertiserComparator 
+	 * class sorts hotel advertisers under the currency rates of this snapshot.
+	 */
+	public int[] getRowsByHotel(int hotelId) {
+		int[] hotelRows = rowsByHotel.get(hotelId);
+		if (hotelRows == null)
+			return NO_ROWS;
+		return hotelRows;
+	}
+
+	/**
+	 * @param hotelId
+	 * @return the days the given hotel is available on, as the union of the availability ranges of its rows.
+	 */
+	public DayBitmap getDayBitmap(int hotelId) {
+		DayBitmap dayBitmap = dayBitmapsByHotel.get(hotelId);
+		if (dayBitmap == null)
+			return DayBitmap.build(hotelAdvertiserStore, NO_ROWS);
+		return dayBitmap;
+	}
+
+	/**
+	 * @return the number of rows referred to by the indexes, including the rows of suspended advertisers. The other
+	 * rows of the store were replaced or deleted by updates, see the RowCompactor class.
+	 */
+	public int getLiveRowCount() {
+		int liveRows = 0;
+		for (int hotelId : hotels.keySet())
+			liveRows += getRowsByHotel(hotelId).length;
+		for (Integer advertiserId : suspendedAdvertiserIds)
+			liveRows += getRowCountByAdvertiser(advertiserId);
+		return liveRows;
+	}
+
+	/**
+	 * @param hotelId
+	 * @return the best offer view of the given hotel, see the BestOffers class.
+	 */
+	public BestOffers getBestOffers(int hotelId) {
+		BestOffers bestOffers = bestOffersByHotel.get(hotelId);
+		if (bestOffers == null)
+			return BestOffers.build(hotelAdvertiserStore, normalizedPrices, NO_ROWS);
+		return bestOffers;
+	}
+
+	/**
+	 * @param cityId
+	 * @return the availability index of the rows of the best offer views of the hotels in the given city.
+	 */
+	public AvailabilityIndex getBestOffersIndex(int cityId) {
+		AvailabilityIndex bestOffersIndex = bestOffersIndexByCity.get(cityId);
+		if (bestOffersIndex == null)
+			return new AvailabilityIndex(hotelAdvertiserStore);
+		return bestOffersIndex;
+	}
+
+	/**
+	 * @param cityId
+	 * @return the ids of all hotels in the given city, sorted by hotel id.
+	 */
+	public SortedSet<Integer> getHotelIdsByCity(int cityId) {
+		SortedSet<Integer> hotelIds = hotelIdsByCity.get(cityId);
+		if (hotelIds == null)
+			return Collections.emptySortedSet();
+		return hotelIds;
+	}
+
+	/**
+	 * @param cityId
+	 * @return the availability index of the hotel advertisers in the given city.
+	 */
+	public AvailabilityIndex getAvailabilityIndex(int cityId) {
+		AvailabilityIndex availabilityIndex = availabilityIndexByCity.get(cityId);
+		if (availabilityIndex == null)
+			return new AvailabilityIndex(hotelAdvertiserStore);
+		return availabilityIndex;
+	}
+
+	/**
+	 * The getHotelAdvertisers method creates HotelAdvertiser entities for every row referred to by the hotel to
+	 * rows index. It copies the whole data set and is not meant to be used while answering queries.
+	 * @return sorted map of the hotel advertisers by hotel id.
+	 */
+	public SortedMap<Integer, TreeSet<HotelAdvertiser>> getHotelAdvertisers() {
+		SortedMap<Integer, TreeSet<HotelAdvertiser>> hotelAdvertisers = new TreeMap<Integer, TreeSet<HotelAdvertiser>>();
+		for (int hotelId : rowsByHotel.keys()) {
+			TreeSet<HotelAdvertiser> hotelAdvertiserSet = new TreeSet<HotelAdvertiser>(new HotelAdvertiserComparator(normalizedPrices.getRates()));
+			for (int row : rowsByHotel.get(hotelId))
+				hotelAdvertiserSet.add(hotelAdvertiserStore.get(row));
+			hotelAdvertisers.put(hotelId, hotelAdvertiserSet);
+		}
+		return hotelAdvertisers;
+	}
+}
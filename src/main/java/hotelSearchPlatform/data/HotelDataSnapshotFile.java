@@ -0,0 +1,514 @@
+package hotelSearchPlatform.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.zip.CRC32;
+
+import hotelSearchPlatform.entities.Advertiser;
+import hotelSearchPlatform.entities.City;
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.ranking.HotelScores;
+import hotelSearchPlatform.ranking.RankingFormulas;
+
+/**
+ * The HotelDataSnapshotFile class writes a HotelDataSnapshot to a binary file and reads it back, so the HotelData
+ * class can start from the last written version instead of parsing the *.csv files again.
+ * The file starts with a header (magic number, format version, snapshot version, creation time, number of sections
+ * and a CRC32 of the header), followed by sections that each start with their id, length and the CRC32 of their
+ * content: cities, advertisers, hotels, hotel advertiser rows, the hotel to rows index, the start day order of the
+ * rows of every city and the suspended advertisers with their rows. Rows are stored column by column and only rows
+ * still referred to by the snapshot are written, grouped by hotel, so the hotel to rows index is stored as a row count
+ * per hotel. The advertiser to rows index is built again from the rows of both sections.
+ * Files of format version 1, written before advertisers could be suspended, have no suspended advertisers section.
+ * A file is read by memory mapping it: checksums are verified over the mapping, and rows are added to the
+ * HotelAdvertiserStore straight from it. The availability indexes are built from the stored start day order without
+ * sorting again. Ranking scores are not stored but computed again, so changed ranking weights take effect on restart.
+ */
+public final class HotelDataSnapshotFile {
+
+	private static final int MAGIC = 0x48535053;
+	private static final int FORMAT_VERSION = 2;
+	private static final int FORMAT_VERSION_WITHOUT_SUSPENDED = 1;
+	private static final int HEADER_SIZE = 32;
+	private static final int SECTION_HEADER_SIZE = 16;
+
+	private static final int CITIES = 1;
+	private static final int ADVERTISERS = 2;
+	private static final int HOTELS = 3;
+	private static final int ROWS = 4;
+	private static final int ROWS_BY_HOTEL = 5;
+	private static final int AVAILABILITY = 6;
+	private static final int SUSPENDED = 7;
+	private static final int SECTION_COUNT = 7;
+
+	private HotelDataSnapshotFile() {
+	}
+
+	/**
+	 * The write method writes the given snapshot to a temporary file next to the given path and then moves it to
+	 * the path, so a reader never sees a partly written file.
+	 * @param snapshot
+	 * @param path
+	 * @throws UncheckedIOException - in case the file cannot be written.
+	 */
+	public static void write(HotelDataSnapshot snapshot, Path path) throws UncheckedIOException {
+		Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			SectionWriter writer = new SectionWriter(channel);
+			int[] hotelIds = sortedKeys(snapshot.getHotels());
+			writer.writeCities(snapshot.getCities());
+			writer.writeAdvertisers(snapshot.getAdvertisers());
+			writer.writeHotels(hotelIds, snapshot.getHotels());
+			int[] newRowsByRow = writer.writeRows(snapshot, hotelIds);
+			writer.writeRowsByHotel(snapshot, hotelIds);
+			writer.writeAvailability(snapshot, newRowsByRow);
+			writer.writeSuspended(snapshot);
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(snapshot.getVersion()).putLong(System.currentTimeMillis())
+					.putInt(SECTION_COUNT);
+			header.putInt(crc(header.array(), HEADER_SIZE - 4));
+			header.flip();
+			channel.write(header, 0);
+			channel.force(true);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write " + temporaryPath, e);
+		}
+		try {
+			Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot move " + temporaryPath + " to " + path, e);
+		}
+	}
+
+	/**
+	 * The read method reads a snapshot written by the write method.
+	 * @param path
+	 * @param hotelAdvertiserStore - empty store the hotel advertiser rows are added to.
+	 * @param rankingFormulas - formulas the ranking scores of the hotels are computed with.
+	 * @param currencyRates - rates the prices of the rows are normalized with. The rows of a hotel are sorted again if
+	 * the file was written under other rates.
+	 * @return the snapshot, with the version it had when it was written.
+	 * @throws UncheckedIOException - in case the file cannot be read.
+	 * @throws IllegalArgumentException - in case the file is not a snapshot file of this or the previous format
+	 * version, or its content does not match its checksums.
+	 */
+	public static HotelDataSnapshot read(Path path, HotelAdvertiserStore hotelAdvertiserStore, RankingFormulas rankingFormulas,
+			CurrencyRates currencyRates) throws UncheckedIOException, IllegalArgumentException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read " + path, e);
+		}
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new IllegalArgumentException(path + " is not a hotel data snapshot file");
+		int formatVersion = buffer.getInt(4);
+		if (formatVersion != FORMAT_VERSION && formatVersion != FORMAT_VERSION_WITHOUT_SUSPENDED)
+			throw new IllegalArgumentException(path + " has snapshot format version " + buffer.getInt(4) + ", expected " + FORMAT_VERSION);
+		if (crc(buffer, 0, HEADER_SIZE - 4) != buffer.getInt(HEADER_SIZE - 4))
+			throw new IllegalArgumentException(path + " has a corrupt header");
+		long version = buffer.getLong(8);
+		int sectionCount = buffer.getInt(24);
+
+		Map<Integer, ByteBuffer> sections = new HashMap<Integer, ByteBuffer>();
+		int position = HEADER_SIZE;
+		for (int i = 0; i < sectionCount; i++) {
+			if (buffer.limit() - position < SECTION_HEADER_SIZE)
+				throw new IllegalArgumentException(path + " is truncated");
+			int id = buffer.getInt(position);
+			long length = buffer.getLong(position + 4);
+			int expectedCrc = buffer.getInt(position + 12);
+			position += SECTION_HEADER_SIZE;
+			if (length < 0 || length > buffer.limit() - position)
+				throw new IllegalArgumentException(path + " is truncated");
+			if (crc(buffer, position, (int) length) != expectedCrc)
+				throw new IllegalArgumentException(path + " has a corrupt section " + id);
+			ByteBuffer section = buffer.duplicate();
+			section.position(position).limit(position + (int) length);
+			sections.put(id, section.slice());
+			position += (int) length;
+		}
+
+		Map<String, City> cities = readCities(section(sections, CITIES, path));
+		Map<Integer, Advertiser> advertisers = readAdvertisers(section(sections, ADVERTISERS, path));
+		Map<Integer, Hotel> hotels = readHotels(section(sections, HOTELS, path));
+		readRows(section(sections, ROWS, path), hotelAdvertiserStore);
+		int[] suspendedRows = new int[0];
+		Set<Integer> suspendedAdvertiserIds = new HashSet<Integer>();
+		if (formatVersion != FORMAT_VERSION_WITHOUT_SUSPENDED)
+			suspendedRows = readSuspended(section(sections, SUSPENDED, path), hotelAdvertiserStore, suspendedAdvertiserIds);
+		NormalizedPrices normalizedPrices = NormalizedPrices.build(hotelAdvertiserStore, currencyRates);
+		Map<Integer, int[]> rowsByHotel = readRowsByHotel(section(sections, ROWS_BY_HOTEL, path));
+		for (Map.Entry<Integer, int[]> hotelRows : rowsByHotel.entrySet())
+			hotelRows.setValue(HotelData.sortRows(normalizedPrices, hotelRows.getValue()));
+		Map<Integer, AvailabilityIndex> availabilityIndexByCity = readAvailability(section(sections, AVAILABILITY, path),
+				hotelAdvertiserStore);
+		Map<Integer, SortedSet<Integer>> hotelIdsByCity = HotelData.buildHotelIdsByCity(hotels);
+		for (Integer cityId : hotelIdsByCity.keySet()) {
+			if (availabilityIndexByCity.get(cityId) == null)
+				availabilityIndexByCity.put(cityId, new AvailabilityIndex(hotelAdvertiserStore));
+		}
+		HotelScores hotelScores = HotelScores.build(rankingFormulas, hotels,
+				hotelId -> HotelData.bestCpc(hotelAdvertiserStore, normalizedPrices, rowsByHotel.get(hotelId)));
+		return new HotelDataSnapshot(version, cities, advertisers, hotels, hotelIdsByCity, hotelAdvertiserStore,
+				PersistentIntMap.of(rowsByHotel), PersistentIntMap.of(availabilityIndexByCity), hotelScores, normalizedPrices,
+				suspendedAdvertiserIds, suspendedRows);
+	}
+
+	private static ByteBuffer section(Map<Integer, ByteBuffer> sections, int id, Path path) {
+		ByteBuffer section = sections.get(id);
+		if (section == null)
+			throw new IllegalArgumentException(path + " has no section " + id);
+		return section;
+	}
+
+	private static Map<String, City> readCities(ByteBuffer section) {
+		int count = section.getInt();
+		Map<String, City> cities = new HashMap<String, City>();
+		for (int i = 0; i < count; i++) {
+			int id = section.getInt();
+			String name = readString(section);
+			cities.put(name, new City(id, name));
+		}
+		return cities;
+	}
+
+	private static Map<Integer, Advertiser> readAdvertisers(ByteBuffer section) {
+		int count = section.getInt();
+		Map<Integer, Advertiser> advertisers = new HashMap<Integer, Advertiser>();
+		for (int i = 0; i < count; i++) {
+			int id = section.getInt();
+			advertisers.put(id, new Advertiser(id, readString(section)));
+		}
+		return advertisers;
+	}
+
+	private static Map<Integer, Hotel> readHotels(ByteBuffer section) {
+		int count = section.getInt();
+		Map<Integer, Hotel> hotels = new HashMap<Integer, Hotel>();
+		for (int i = 0; i < count; i++) {
+			int id = section.getInt();
+			hotels.put(id, new Hotel(id, section.getInt(), section.getInt(), section.getInt(), section.getInt(), section.getInt(),
+					readString(section)));
+		}
+		return hotels;
+	}
+
+	/**
+	 * The readRows method adds the rows of the ROWS section, or of the rest of the SUSPENDED section, to the store.
+	 * Columns are stored one after the other, so every column is read through its own view of the section.
+	 * @return the number of rows added.
+	 */
+	private static int readRows(ByteBuffer section, HotelAdvertiserStore hotelAdvertiserStore) {
+		int currencyCount = section.getInt();
+		String[] currencies = new String[currencyCount];
+		for (int i = 0; i < currencyCount; i++)
+			currencies[i] = readString(section);
+		int rowCount = section.getInt();
+		ByteBuffer[] columns = new ByteBuffer[7];
+		for (int column = 0; column < columns.length; column++) {
+			columns[column] = section.slice();
+			section.position(section.position() + rowCount * 4);
+		}
+		for (int row = 0; row < rowCount; row++) {
+			hotelAdvertiserStore.add(columns[0].getInt(), columns[1].getInt(), columns[2].getInt(), columns[3].getInt(),
+					currencies[columns[4].getInt()], columns[5].getInt(), columns[6].getInt());
+		}
+		section.position(section.limit());
+		return rowCount;
+	}
+
+	/**
+	 * The readSuspended method reads the ids of the suspended advertisers into the given set and adds their rows to
+	 * the store, after the rows of the ROWS section.
+	 * @return the row ids of the added rows.
+	 */
+	private static int[] readSuspended(ByteBuffer section, HotelAdvertiserStore hotelAdvertiserStore, 
+			Set<Integer> suspendedAdvertiserIds) {
+		int count = section.getInt();
+		for (int i = 0; i < count; i++)
+			suspendedAdvertiserIds.add(section.getInt());
+		int firstRow = hotelAdvertiserStore.size();
+		int[] suspendedRows = new int[readRows(section.slice(), hotelAdvertiserStore)];
+		for (int i = 0; i < suspendedRows.length; i++)
+			suspendedRows[i] = firstRow + i;
+		return suspendedRows;
+	}
+
+	private static Map<Integer, int[]> readRowsByHotel(ByteBuffer section) {
+		int count = section.getInt();
+		Map<Integer, int[]> rowsByHotel = new HashMap<Integer, int[]>();
+		int nextRow = 0;
+		for (int i = 0; i < count; i++) {
+			int hotelId = section.getInt();
+			int[] hotelRows = new int[section.getInt()];
+			for (int j = 0; j < hotelRows.length; j++)
+				hotelRows[j] = nextRow++;
+			rowsByHotel.put(hotelId, hotelRows);
+		}
+		return rowsByHotel;
+	}
+
+	private static Map<Integer, AvailabilityIndex> readAvailability(ByteBuffer section, HotelAdvertiserStore hotelAdvertiserStore) {
+		int count = section.getInt();
+		Map<Integer, AvailabilityIndex> availabilityIndexByCity = new HashMap<Integer, AvailabilityIndex>();
+		for (int i = 0; i < count; i++) {
+			int cityId = section.getInt();
+			int[] sortedRows = new int[section.getInt()];
+			section.asIntBuffer().get(sortedRows);
+			section.position(section.position() + sortedRows.length * 4);
+			availabilityIndexByCity.put(cityId, AvailabilityIndex.buildSorted(hotelAdvertiserStore, sortedRows));
+		}
+		return availabilityIndexByCity;
+	}
+
+	private static String readString(ByteBuffer section) {
+		byte[] bytes = new byte[section.getInt()];
+		section.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int[] sortedKeys(Map<Integer, ?> map) {
+		int[] keys = new int[map.size()];
+		int count = 0;
+		for (Integer key : map.keySet())
+			keys[count++] = key;
+		Arrays.sort(keys);
+		return keys;
+	}
+
+	private static int crc(byte[] bytes, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, length);
+		return (int) crc.getValue();
+	}
+
+	private static int crc(ByteBuffer buffer, int position, int length) {
+		ByteBuffer range = buffer.duplicate();
+		range.position(position).limit(position + length);
+		CRC32 crc = new CRC32();
+		crc.update(range);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * The SectionWriter class writes sections through a buffered stream, and fills in the length and CRC32 of every
+	 * section at its start once its content has been written, computing the CRC32 over a mapping of the written content.
+	 */
+	private static class SectionWriter {
+
+		private final FileChannel channel;
+		private final DataOutputStream out;
+		private long sectionStart;
+
+		private SectionWriter(FileChannel channel) throws IOException {
+			this.channel = channel;
+			channel.position(HEADER_SIZE);
+			this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+		}
+
+		private void startSection() throws IOException {
+			out.flush();
+			sectionStart = channel.position();
+			channel.position(sectionStart + SECTION_HEADER_SIZE);
+		}
+
+		private void endSection(int id) throws IOException {
+			out.flush();
+			long length = channel.position() - sectionStart - SECTION_HEADER_SIZE;
+			int sectionCrc = crc(channel.map(MapMode.READ_ONLY, sectionStart + SECTION_HEADER_SIZE, length), 0, (int) length);
+			ByteBuffer sectionHeader = ByteBuffer.allocate(SECTION_HEADER_SIZE);
+			sectionHeader.putInt(id).putLong(length).putInt(sectionCrc);
+			sectionHeader.flip();
+			channel.write(sectionHeader, sectionStart);
+		}
+
+		private void writeString(String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		private void writeCities(Map<String, City> cities) throws IOException {
+			startSection();
+			out.writeInt(cities.size());
+			for (City city : cities.values()) {
+				out.writeInt(city.getId());
+				writeString(city.getCity());
+			}
+			endSection(CITIES);
+		}
+
+		private void writeAdvertisers(Map<Integer, Advertiser> advertisers) throws IOException {
+			startSection();
+			out.writeInt(advertisers.size());
+			for (Advertiser advertiser : advertisers.values()) {
+				out.writeInt(advertiser.getId());
+				writeString(advertiser.getAdvertiser_name());
+			}
+			endSection(ADVERTISERS);
+		}
+
+		private void writeHotels(int[] hotelIds, Map<Integer, Hotel> hotels) throws IOException {
+			startSection();
+			out.writeInt(hotelIds.length);
+			for (int hotelId : hotelIds) {
+				Hotel hotel = hotels.get(hotelId);
+				out.writeInt(hotel.getId());
+				out.writeInt(hotel.getCity_id());
+				out.writeInt(hotel.getClicks());
+				out.writeInt(hotel.getImpressions());
+				out.writeInt(hotel.getRating());
+				out.writeInt(hotel.getStars());
+				writeString(hotel.getName());
+			}
+			endSection(HOTELS);
+		}
+
+		/**
+		 * The writeRows method writes the rows referred to by the snapshot, hotel by hotel in the order of the given
+		 * hotel ids and in the sorted order of each hotel's rows, as columns.
+		 * @return the new row id of every written row by its row id in the snapshot's store, -1 for rows not written.
+		 */
+		private int[] writeRows(HotelDataSnapshot snapshot, int[] hotelIds) throws IOException {
+			HotelAdvertiserStore hotelAdvertiserStore = snapshot.getHotelAdvertiserStore();
+			int rowCount = 0;
+			for (int hotelId : hotelIds)
+				rowCount += snapshot.getRowsByHotel(hotelId).length;
+			int[] rows = new int[rowCount];
+			int[] newRowsByRow = new int[hotelAdvertiserStore.size()];
+			Arrays.fill(newRowsByRow, -1);
+			int newRow = 0;
+			for (int hotelId : hotelIds) {
+				for (int row : snapshot.getRowsByHotel(hotelId)) {
+					newRowsByRow[row] = newRow;
+					rows[newRow++] = row;
+				}
+			}
+			startSection();
+			writeRowColumns(hotelAdvertiserStore, rows);
+			endSection(ROWS);
+			return newRowsByRow;
+		}
+
+		/**
+		 * The writeSuspended method writes the ids of the suspended advertisers and then their rows, as columns.
+		 */
+		private void writeSuspended(HotelDataSnapshot snapshot) throws IOException {
+			int[] suspendedAdvertiserIds = new int[snapshot.getSuspendedAdvertiserIds().size()];
+			int count = 0;
+			for (Integer advertiserId : snapshot.getSuspendedAdvertiserIds())
+				suspendedAdvertiserIds[count++] = advertiserId;
+			Arrays.sort(suspendedAdvertiserIds);
+			startSection();
+			out.writeInt(suspendedAdvertiserIds.length);
+			for (int advertiserId : suspendedAdvertiserIds)
+				out.writeInt(advertiserId);
+			writeRowColumns(snapshot.getHotelAdvertiserStore(), snapshot.getSuspendedRows());
+			endSection(SUSPENDED);
+		}
+
+		/**
+		 * The writeRowColumns method writes the currencies of the given rows, their number and their columns.
+		 */
+		private void writeRowColumns(HotelAdvertiserStore hotelAdvertiserStore, int[] rows) throws IOException {
+			int rowCount = rows.length;
+			Map<String, Integer> currencyCodes = new HashMap<String, Integer>();
+			int[] currencyCodeByRow = new int[rowCount];
+			for (int i = 0; i < rowCount; i++) {
+				String currency = hotelAdvertiserStore.getCurrency(rows[i]);
+				if (currencyCodes.get(currency) == null)
+					currencyCodes.put(currency, currencyCodes.size());
+				currencyCodeByRow[i] = currencyCodes.get(currency);
+			}
+			String[] currencies = new String[currencyCodes.size()];
+			for (Map.Entry<String, Integer> currencyCode : currencyCodes.entrySet())
+				currencies[currencyCode.getValue()] = currencyCode.getKey();
+
+			out.writeInt(currencies.length);
+			for (String currency : currencies)
+				writeString(currency);
+			out.writeInt(rowCount);
+			for (int row : rows)
+				out.writeInt(hotelAdvertiserStore.getAdvertiserId(row));
+			for (int row : rows)
+				out.writeInt(hotelAdvertiserStore.getHotelId(row));
+			for (int row : rows)
+				out.writeInt(hotelAdvertiserStore.getCpc(row));
+			for (int row : rows)
+				out.writeInt(hotelAdvertiserStore.getPrice(row));
+			for (int currencyCode : currencyCodeByRow)
+				out.writeInt(currencyCode);
+			for (int row : rows)
+				out.writeInt(hotelAdvertiserStore.getStartDay(row));
+			for (int row : rows)
+				out.writeInt(hotelAdvertiserStore.getEndDay(row));
+		}
+
+		private void writeRowsByHotel(HotelDataSnapshot snapshot, int[] hotelIds) throws IOException {
+			startSection();
+			int count = 0;
+			for (int hotelId : hotelIds) {
+				if (snapshot.getRowsByHotel(hotelId).length > 0)
+					count++;
+			}
+			out.writeInt(count);
+			for (int hotelId : hotelIds) {
+				int rowCount = snapshot.getRowsByHotel(hotelId).length;
+				if (rowCount == 0)
+					continue;
+				out.writeInt(hotelId);
+				out.writeInt(rowCount);
+			}
+			endSection(ROWS_BY_HOTEL);
+		}
+
+		/**
+		 * The writeAvailability method writes, for every city, the new row ids of the rows of its hotels sorted by
+		 * start day and then by row id, the order AvailabilityIndex.build() sorts them in.
+		 */
+		private void writeAvailability(HotelDataSnapshot snapshot, int[] newRowsByRow) throws IOException {
+			HotelAdvertiserStore hotelAdvertiserStore = snapshot.getHotelAdvertiserStore();
+			int[] cityIds = sortedKeys(HotelData.buildHotelIdsByCity(snapshot.getHotels()));
+			startSection();
+			out.writeInt(cityIds.length);
+			for (int cityId : cityIds) {
+				int rowCount = 0;
+				for (Integer hotelId : snapshot.getHotelIdsByCity(cityId))
+					rowCount += snapshot.getRowsByHotel(hotelId).length;
+				long[] sortKeys = new long[rowCount];
+				int count = 0;
+				for (Integer hotelId : snapshot.getHotelIdsByCity(cityId)) {
+					for (int row : snapshot.getRowsByHotel(hotelId))
+						sortKeys[count++] = ((long) hotelAdvertiserStore.getStartDay(row) << 32) | newRowsByRow[row];
+				}
+				Arrays.sort(sortKeys);
+				out.writeInt(cityId);
+				out.writeInt(rowCount);
+				for (long sortKey : sortKeys)
+					out.writeInt((int) sortKey);
+			}
+			endSection(AVAILABILITY);
+		}
+	}
+}
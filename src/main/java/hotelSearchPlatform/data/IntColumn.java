@@ -0,0 +1,136 @@
+package hotelSearchPlatform.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * The IntColumn class is a growable column of int values used by the ColumnarHotelAdvertiserStore class.
+ * A column is either backed by an int array on the heap or by a direct ByteBuffer outside of the heap, so its
+ * capacity is bounded by the largest array, or by the largest buffer, of ints.
+ */
+public abstract class IntColumn {
+
+	/** Largest capacity of a column on the heap, the largest array the JVM allocates. */
+	static final int MAX_HEAP_CAPACITY = Integer.MAX_VALUE - 8;
+	/** Largest capacity of a column outside of the heap, whose size in bytes must be an int. */
+	static final int MAX_DIRECT_CAPACITY = Integer.MAX_VALUE / Integer.BYTES;
+
+	public static IntColumn create(int capacity, boolean offHeap) {
+		if (offHeap)
+			return new DirectIntColumn(capacity);
+		return new HeapIntColumn(capacity);
+	}
+
+	public abstract int get(int index);
+
+	public abstract void set(int index, int value);
+
+	public abstract int capacity();
+
+	/**
+	 * @return the largest capacity this column can grow to.
+	 */
+	public abstract int maxCapacity();
+
+	/**
+	 * The grownCapacity method doubles the given capacity of a column, up to the given maximum capacity, computing in
+	 * long so a large capacity does not overflow.
+	 * @param capacity - the current capacity.
+	 * @param maxCapacity - the largest capacity the column can grow to.
+	 * @param name - what the column holds, for the error message.
+	 * @return the capacity to grow to.
+	 * @throws IllegalStateException - in case the capacity is the maximum capacity already.
+	 */
+	static int grownCapacity(int capacity, int maxCapacity, String name) throws IllegalStateException {
+		if (capacity >= maxCapacity)
+			throw new IllegalStateException("The " + name + " are full with " + capacity + " rows, reload the hotel data to compact them");
+		return (int) Math.min(Math.max(2L * capacity, 1), maxCapacity);
+	}
+
+	/**
+	 * @param capacity - the new capacity, must not be smaller than the current capacity.
+	 * @return a column with the given capacity holding the values of this column.
+	 */
+	public abstract IntColumn grow(int capacity);
+
+	private static class HeapIntColumn extends IntColumn {
+
+		private final int[] values;
+
+		private HeapIntColumn(int capacity) {
+			this(new int[capacity]);
+		}
+
+		private HeapIntColumn(int[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public int get(int index) {
+			return values[index];
+		}
+
+		@Override
+		public void set(int index, int value) {
+			values[index] = value;
+		}
+
+		@Override
+		public int capacity() {
+			return values.length;
+		}
+
+		@Override
+		public int maxCapacity() {
+			return MAX_HEAP_CAPACITY;
+		}
+
+		@Override
+		public IntColumn grow(int capacity) {
+			return new HeapIntColumn(Arrays.copyOf(values, capacity));
+		}
+	}
+
+	private static class DirectIntColumn extends IntColumn {
+
+		private final IntBuffer values;
+
+		private DirectIntColumn(int capacity) {
+			if (capacity > MAX_DIRECT_CAPACITY)
+				throw new IllegalArgumentException("An off-heap column holds at most " + MAX_DIRECT_CAPACITY + " values");
+			values = ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+		}
+
+		@Override
+		public int get(int index) {
+			return values.get(index);
+		}
+
+		@Override
+		public void set(int index, int value) {
+			values.put(index, value);
+		}
+
+		@Override
+		public int capacity() {
+			return values.capacity();
+		}
+
+		@Override
+		public int maxCapacity() {
+			return MAX_DIRECT_CAPACITY;
+		}
+
+		@Override
+		public IntColumn grow(int capacity) {
+			DirectIntColumn grown = new DirectIntColumn(capacity);
+			IntBuffer source = values.duplicate();
+			source.clear();
+			grown.values.put(source);
+			grown.values.clear();
+			return grown;
+		}
+	}
+}
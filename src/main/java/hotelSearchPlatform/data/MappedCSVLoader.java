@@ -0,0 +1,244 @@
+package hotelSearchPlatform.data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import hotelSearchPlatform.entities.Advertiser;
+import hotelSearchPlatform.entities.City;
+import hotelSearchPlatform.entities.Hotel;
+
+/**
+ * The MappedCSVLoader class reads the *.csv files of the hotel data by memory mapping them and parsing their bytes
+ * with the CsvRecordReader class, instead of reading them through a Reader into commons-csv record objects.
+ * The hotel_advertiser.csv file is split into line aligned chunks that are parsed in parallel on the given
+ * ForkJoinPool into int columns, and added to the HotelAdvertiserStore in file order, so row ids are the same as with
+ * the CSVLoader class. At most two chunks per pool thread are parsed ahead of the rows added to the store, so memory
+ * stays bounded however large the file is. Chunks are split on line ends, so records of that file must not hold
+ * line breaks inside quoted fields.
+ * It is the "mapped" HotelDataLoader of the HotelData class.
+ */
+public class MappedCSVLoader implements HotelDataLoader {
+
+	private static final long CHUNK_SIZE = 32L << 20;
+	private static final int BOUNDARY_READ_SIZE = 64 << 10;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param pool - pool the chunks of the hotel_advertiser.csv file are parsed on.
+	 */
+	public MappedCSVLoader(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public Map<String, City> loadCities(String path) {
+		Map<String, City> cities = new HashMap<String, City>();
+		CsvRecordReader reader = new CsvRecordReader(path, mapWholeFile(path), 0);
+		Map<String, Integer> columns = reader.readHeader();
+		int idColumn = reader.column(columns, "id");
+		int nameColumn = reader.column(columns, "city_name");
+		while (reader.next()) {
+			String cityName = reader.getString(nameColumn);
+			cities.put(cityName, new City(reader.getInt(idColumn), cityName));
+		}
+		return cities;
+	}
+
+	@Override
+	public Map<Integer, Advertiser> loadAdvertisers(String path) {
+		Map<Integer, Advertiser> advertisers = new HashMap<Integer, Advertiser>();
+		CsvRecordReader reader = new CsvRecordReader(path, mapWholeFile(path), 0);
+		Map<String, Integer> columns = reader.readHeader();
+		int idColumn = reader.column(columns, "id");
+		int nameColumn = reader.column(columns, "advertiser_name");
+		while (reader.next()) {
+			int id = reader.getInt(idColumn);
+			advertisers.put(id, new Advertiser(id, reader.getString(nameColumn)));
+		}
+		return advertisers;
+	}
+
+	@Override
+	public Map<Integer, Hotel> loadHotels(String path) {
+		Map<Integer, Hotel> hotels = new HashMap<Integer, Hotel>();
+		CsvRecordReader reader = new CsvRecordReader(path, mapWholeFile(path), 0);
+		Map<String, Integer> columns = reader.readHeader();
+		int idColumn = reader.column(columns, "id");
+		int cityIdColumn = reader.column(columns, "city_id");
+		int clicksColumn = reader.column(columns, "clicks");
+		int impressionsColumn = reader.column(columns, "impressions");
+		int nameColumn = reader.column(columns, "name");
+		int ratingColumn = reader.column(columns, "rating");
+		int starsColumn = reader.column(columns, "stars");
+		while (reader.next()) {
+			int id = reader.getInt(idColumn);
+			hotels.put(id, new Hotel(id, reader.getInt(cityIdColumn), reader.getInt(clicksColumn), reader.getInt(impressionsColumn),
+					reader.getInt(ratingColumn), reader.getInt(starsColumn), reader.getString(nameColumn)));
+		}
+		return hotels;
+	}
+
+	@Override
+	public void loadHotelAdvertisers(String path, HotelAdvertiserStore hotelAdvertiserStore) {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			long size = channel.size();
+			CsvRecordReader headerReader = new CsvRecordReader(path, channel.map(MapMode.READ_ONLY, 0, Math.min(size, CHUNK_SIZE)), 0);
+			HotelAdvertiserColumns columns = new HotelAdvertiserColumns(headerReader, headerReader.readHeader());
+			long[] chunkStarts = chunkStarts(channel, headerReader.position(), size);
+
+			int maxChunksAhead = 2 * pool.getParallelism();
+			ArrayDeque<ForkJoinTask<ParsedRows>> parsedChunks = new ArrayDeque<ForkJoinTask<ParsedRows>>();
+			int nextChunk = 0;
+			while (nextChunk < chunkStarts.length - 1 && parsedChunks.size() < maxChunksAhead) {
+				parsedChunks.add(pool.submit(parseChunk(path, channel, chunkStarts[nextChunk], chunkStarts[nextChunk + 1], columns)));
+				nextChunk++;
+			}
+			while (!parsedChunks.isEmpty()) {
+				ParsedRows parsedRows = parsedChunks.poll().join();
+				if (nextChunk < chunkStarts.length - 1) {
+					parsedChunks.add(pool.submit(parseChunk(path, channel, chunkStarts[nextChunk], chunkStarts[nextChunk + 1], columns)));
+					nextChunk++;
+				}
+				parsedRows.addTo(hotelAdvertiserStore);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read " + path, e);
+		}
+	}
+
+	private static ForkJoinTask<ParsedRows> parseChunk(String path, FileChannel channel, long start, long end,
+			HotelAdvertiserColumns columns) {
+		return ForkJoinTask.adapt(() -> {
+			CsvRecordReader reader = new CsvRecordReader(path, channel.map(MapMode.READ_ONLY, start, end - start), start);
+			ParsedRows parsedRows = new ParsedRows((int) ((end - start) / 32) + 16);
+			while (reader.next()) {
+				parsedRows.add(reader.getInt(columns.advertiserId), reader.getInt(columns.hotelId), reader.getInt(columns.cpc),
+						reader.getInt(columns.price), reader.getCachedString(columns.currency),
+						reader.getEpochDay(columns.startDate), reader.getEpochDay(columns.endDate));
+			}
+			return parsedRows;
+		});
+	}
+
+	/**
+	 * The chunkStarts method splits the file after its header into chunks of about CHUNK_SIZE bytes, moving every
+	 * split to the start of the next line.
+	 * @return the start offsets of the chunks, followed by the file size.
+	 */
+	private static long[] chunkStarts(FileChannel channel, long dataStart, long size) throws IOException {
+		long[] chunkStarts = new long[(int) ((size - dataStart) / CHUNK_SIZE) + 2];
+		int chunkCount = 0;
+		chunkStarts[chunkCount++] = dataStart;
+		ByteBuffer boundaryBuffer = ByteBuffer.allocate(BOUNDARY_READ_SIZE);
+		long nextStart = dataStart + CHUNK_SIZE;
+		while (nextStart < size) {
+			long lineStart = nextLineStart(channel, boundaryBuffer, nextStart, size);
+			if (lineStart >= size)
+				break;
+			chunkStarts[chunkCount++] = lineStart;
+			nextStart = lineStart + CHUNK_SIZE;
+		}
+		chunkStarts[chunkCount++] = size;
+		return Arrays.copyOf(chunkStarts, chunkCount);
+	}
+
+	private static long nextLineStart(FileChannel channel, ByteBuffer boundaryBuffer, long from, long size) throws IOException {
+		long position = from;
+		while (position < size) {
+			boundaryBuffer.clear();
+			int read = channel.read(boundaryBuffer, position);
+			if (read <= 0)
+				break;
+			for (int i = 0; i < read; i++) {
+				if (boundaryBuffer.get(i) == '\n')
+					return position + i + 1;
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	private static MappedByteBuffer mapWholeFile(String path) {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			return channel.map(MapMode.READ_ONLY, 0, channel.size());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read " + path, e);
+		}
+	}
+
+	/**
+	 * The HotelAdvertiserColumns class holds the column indexes of the hotel_advertiser.csv header.
+	 */
+	private static class HotelAdvertiserColumns {
+
+		private final int advertiserId, hotelId, cpc, price, currency, startDate, endDate;
+
+		private HotelAdvertiserColumns(CsvRecordReader reader, Map<String, Integer> columns) {
+			advertiserId = reader.column(columns, "advertiser_id");
+			hotelId = reader.column(columns, "hotel_id");
+			cpc = reader.column(columns, "cpc");
+			price = reader.column(columns, "price");
+			currency = reader.column(columns, "currency");
+			startDate = reader.column(columns, "availability_start_date");
+			endDate = reader.column(columns, "availability_end_date");
+		}
+	}
+
+	/**
+	 * The ParsedRows class holds the rows parsed from one chunk as int columns, until they are added to the store.
+	 */
+	private static class ParsedRows {
+
+		private int count = 0;
+		private int[] advertiserIds, hotelIds, cpcs, prices, startDays, endDays;
+		private String[] currencies;
+
+		private ParsedRows(int capacity) {
+			advertiserIds = new int[capacity];
+			hotelIds = new int[capacity];
+			cpcs = new int[capacity];
+			prices = new int[capacity];
+			startDays = new int[capacity];
+			endDays = new int[capacity];
+			currencies = new String[capacity];
+		}
+
+		private void add(int advertiserId, int hotelId, int cpc, int price, String currency, int startDay, int endDay) {
+			if (count == advertiserIds.length) {
+				int capacity = count * 2;
+				advertiserIds = Arrays.copyOf(advertiserIds, capacity);
+				hotelIds = Arrays.copyOf(hotelIds, capacity);
+				cpcs = Arrays.copyOf(cpcs, capacity);
+				prices = Arrays.copyOf(prices, capacity);
+				startDays = Arrays.copyOf(startDays, capacity);
+				endDays = Arrays.copyOf(endDays, capacity);
+				currencies = Arrays.copyOf(currencies, capacity);
+			}
+			advertiserIds[count] = advertiserId;
+			hotelIds[count] = hotelId;
+			cpcs[count] = cpc;
+			prices[count] = price;
+			currencies[count] = currency;
+			startDays[count] = startDay;
+			endDays[count++] = endDay;
+		}
+
+		private void addTo(HotelAdvertiserStore hotelAdvertiserStore) {
+			for (int i = 0; i < count; i++)
+				hotelAdvertiserStore.add(advertiserIds[i], hotelIds[i], cpcs[i], prices[i], currencies[i], startDays[i], endDays[i]);
+		}
+	}
+}
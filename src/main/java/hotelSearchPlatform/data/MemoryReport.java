@@ -0,0 +1,154 @@
+package hotelSearchPlatform.data;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * The MemoryReport class accounts for the memory of one snapshot of the hotel data, and is the JSON view of it
+ * returned by the AdminController class: the estimated bytes of the hotel advertiser rows, of their normalized prices,
+ * of the hotel to rows index and of the currency dictionary, next to the heap and direct memory the JVM reports.
+ * Estimates assume compressed references. Other indexes are not itemized, they are part of the heap used.
+ * The heap used includes garbage, the heap used after the last garbage collection is closer to the live data.
+ */
+public final class MemoryReport {
+
+	private final String storage;
+	private final long version;
+	private final int rows;
+	private final int liveRows;
+	private final int cities;
+	private final int advertisers;
+	private final int hotels;
+	private final long hotelAdvertiserStoreBytes;
+	private final long normalizedPricesBytes;
+	private final long hotelRowsIndexBytes;
+	private final int currencies;
+	private final long currencyDictionaryBytes;
+	private final long heapUsedBytes;
+	private final long heapUsedAfterGcBytes;
+	private final long heapCommittedBytes;
+	private final long heapMaxBytes;
+	private final long directMemoryBytes;
+
+	MemoryReport(String storage, HotelDataSnapshot snapshot, StringDictionary currencyDictionary) {
+		this.storage = storage;
+		this.version = snapshot.getVersion();
+		HotelAdvertiserStore hotelAdvertiserStore = snapshot.getHotelAdvertiserStore();
+		this.rows = hotelAdvertiserStore.size();
+		this.cities = snapshot.getCities().size();
+		this.advertisers = snapshot.getAdvertisers().size();
+		this.hotels = snapshot.getHotels().size();
+		this.hotelAdvertiserStoreBytes = hotelAdvertiserStore.estimatedBytes();
+		this.normalizedPricesBytes = snapshot.getNormalizedPrices().estimatedBytes();
+		long indexBytes = 0;
+		for (int hotelId : snapshot.getHotels().keySet()) {
+			int[] hotelRows = snapshot.getRowsByHotel(hotelId);
+			if (hotelRows.length > 0)
+				indexBytes += (16 + 4L * hotelRows.length + 7) & ~7L;
+		}
+		this.liveRows = snapshot.getLiveRowCount();
+		this.hotelRowsIndexBytes = indexBytes;
+		this.currencies = currencyDictionary.size();
+		this.currencyDictionaryBytes = currencyDictionary.estimatedBytes();
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		this.heapUsedBytes = heap.getUsed();
+		long usedAfterGc = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			MemoryUsage collectionUsage = pool.getType() == MemoryType.HEAP ? pool.getCollectionUsage() : null;
+			if (collectionUsage != null)
+				usedAfterGc += collectionUsage.getUsed();
+		}
+		this.heapUsedAfterGcBytes = usedAfterGc;
+		this.heapCommittedBytes = heap.getCommitted();
+		this.heapMaxBytes = heap.getMax();
+		this.directMemoryBytes = ReloadProgress.directMemoryUsed();
+	}
+
+	/**
+	 * @return the storage engine of the rows, see the 'hotel-data.storage' property.
+	 */
+	public String getStorage() {
+		return storage;
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the number of rows in the store, including rows replaced by updates.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of rows referred to by the indexes, including the rows of suspended advertisers.
+	 */
+	public int getLiveRows() {
+		return liveRows;
+	}
+
+	public int getCities() {
+		return cities;
+	}
+
+	public int getAdvertisers() {
+		return advertisers;
+	}
+
+	public int getHotels() {
+		return hotels;
+	}
+
+	/**
+	 * @return the estimated bytes of the rows, outside of the heap for the "off-heap" storage.
+	 */
+	public long getHotelAdvertiserStoreBytes() {
+		return hotelAdvertiserStoreBytes;
+	}
+
+	public long getNormalizedPricesBytes() {
+		return normalizedPricesBytes;
+	}
+
+	public long getHotelRowsIndexBytes() {
+		return hotelRowsIndexBytes;
+	}
+
+	/**
+	 * @return the number of distinct currencies, each kept once for all rows.
+	 */
+	public int getCurrencies() {
+		return currencies;
+	}
+
+	public long getCurrencyDictionaryBytes() {
+		return currencyDictionaryBytes;
+	}
+
+	public long getHeapUsedBytes() {
+		return heapUsedBytes;
+	}
+
+	/**
+	 * @return the heap used by the heap memory pools right after their last garbage collection.
+	 */
+	public long getHeapUsedAfterGcBytes() {
+		return heapUsedAfterGcBytes;
+	}
+
+	public long getHeapCommittedBytes() {
+		return heapCommittedBytes;
+	}
+
+	public long getHeapMaxBytes() {
+		return heapMaxBytes;
+	}
+
+	public long getDirectMemoryBytes() {
+		return directMemoryBytes;
+	}
+}
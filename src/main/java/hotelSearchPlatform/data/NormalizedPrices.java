@@ -0,0 +1,136 @@
+package hotelSearchPlatform.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The NormalizedPrices class is the normalized price column of the rows of a HotelAdvertiserStore under one version
+ * of the CurrencyRates: the price of every row converted to the base currency, next to its native price in the store.
+ * Searches compare and filter rows by this column, so prices in different currencies are ordered correctly without
+ * converting anything while answering a query.
+ * The column is computed in bulk when it is built, looking up the rate of every distinct currency once, and extended
+ * by add() as the HotelData class adds rows to the store. When the rates change, the HotelData class builds a new
+ * column and publishes it with a new snapshot, while searches of older snapshots keep reading the old one.
+ * Rows in a currency the rates have no rate for keep their price and are counted, see getUnratedRows().
+ * Like the store, the column is written by a single writer, and values below its size never change.
+ */
+public final class NormalizedPrices {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final HotelAdvertiserStore store;
+	private final CurrencyRates rates;
+	private final Map<String, Double> ratesByCurrency = new HashMap<String, Double>();
+	private final Set<String> unratedCurrencies = new TreeSet<String>();
+	private volatile IntColumn prices;
+	private int size = 0;
+	private volatile int unratedRows = 0;
+
+	private NormalizedPrices(HotelAdvertiserStore store, CurrencyRates rates, int capacity) {
+		this.store = store;
+		this.rates = rates;
+		this.prices = IntColumn.create(Math.max(capacity, INITIAL_CAPACITY), false);
+	}
+
+	/**
+	 * The build method computes the normalized price of every row of the given store.
+	 * @param store
+	 * @param rates
+	 * @return a new column holding all rows of the store.
+	 */
+	public static NormalizedPrices build(HotelAdvertiserStore store, CurrencyRates rates) {
+		NormalizedPrices normalizedPrices = new NormalizedPrices(store, rates, store.size());
+		if (store.size() > 0)
+			normalizedPrices.add(store.size() - 1);
+		return normalizedPrices;
+	}
+
+	/**
+	 * The add method computes the normalized prices of the rows added to the store up to the given row.
+	 * @param row - the last row added to the store.
+	 */
+	public void add(int row) {
+		if (row >= prices.capacity())
+			prices = prices.grow(Math.max(row + 1, IntColumn.grownCapacity(prices.capacity(), prices.maxCapacity(), "normalized prices")));
+		for (; size <= row; size++) {
+			String currency = store.getCurrency(size);
+			prices.set(size, CurrencyRates.normalize(store.getPrice(size), rateOf(currency)));
+			if (!unratedCurrencies.isEmpty() && unratedCurrencies.contains(currency))
+				unratedRows++;
+		}
+	}
+
+	private double rateOf(String currency) {
+		Double rate = ratesByCurrency.get(currency);
+		if (rate == null) {
+			rate = rates.rateOf(currency);
+			ratesByCurrency.put(currency, rate);
+			if (!rates.hasRate(currency))
+				unratedCurrencies.add(String.valueOf(currency));
+		}
+		return rate;
+	}
+
+	/**
+	 * @return the number of rows whose currency has no rate, so their price is kept as it is.
+	 */
+	public int getUnratedRows() {
+		return unratedRows;
+	}
+
+	/**
+	 * @return the currencies of the rows without a rate.
+	 */
+	public Set<String> getUnratedCurrencies() {
+		return unratedCurrencies;
+	}
+
+	public CurrencyRates getRates() {
+		return rates;
+	}
+
+	/**
+	 * @return the estimated heap bytes of the column and of the rates it looked up.
+	 */
+	public long estimatedBytes() {
+		return 16 + (long) Integer.BYTES * prices.capacity() + 64L * ratesByCurrency.size();
+	}
+
+	/**
+	 * @param row
+	 * @return the price of the given row in the base currency.
+	 */
+	public int get(int row) {
+		return prices.get(row);
+	}
+
+	/**
+	 * The compareRows method orders rows like the HotelAdvertiserComparator class orders HotelAdvertiser entities
+	 * under the same rates: by normalized price increasing, then cpc increasing, then advertiser id.
+	 */
+	public int compareRows(int row1, int row2) {
+		int priceCmp = Integer.compare(get(row1), get(row2));
+		if (priceCmp != 0)
+			return priceCmp;
+		int cpcCmp = Integer.compare(store.getCpc(row1), store.getCpc(row2));
+		if (cpcCmp != 0)
+			return cpcCmp;
+		return Integer.compare(store.getAdvertiserId(row1), store.getAdvertiserId(row2));
+	}
+
+	/**
+	 * The compareOffers method orders rows like the OfferComparator class orders Offer entities:
+	 * by normalized price increasing, then cpc decreasing, then advertiser id.
+	 */
+	public int compareOffers(int row1, int row2) {
+		int priceCmp = Integer.compare(get(row1), get(row2));
+		if (priceCmp != 0)
+			return priceCmp;
+		int cpcCmp = Integer.compare(store.getCpc(row2), store.getCpc(row1));
+		if (cpcCmp != 0)
+			return cpcCmp;
+		return Integer.compare(store.getAdvertiserId(row1), store.getAdvertiserId(row2));
+	}
+}
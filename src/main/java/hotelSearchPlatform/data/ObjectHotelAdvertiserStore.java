@@ -0,0 +1,98 @@
+package hotelSearchPlatform.data;
+
+import java.util.Arrays;
+
+import hotelSearchPlatform.entities.HotelAdvertiser;
+
+/**
+ * The ObjectHotelAdvertiserStore class keeps every row as a HotelAdvertiser entity on the heap.
+ * It is the "objects" storage engine of the HotelData class.
+ * A hotel advertiser added with a currency that is not the canonical instance of the StringDictionary of currencies
+ * is stored as a copy referring to it, so parsers that create a currency String per row do not keep one per row.
+ * Rows are added by a single writer, and a grown array is published through a volatile field.
+ */
+public class ObjectHotelAdvertiserStore implements HotelAdvertiserStore {
+
+	/** Heap bytes of a HotelAdvertiser entity: its header, 6 ints and a reference, assuming compressed references. */
+	private static final int ENTITY_BYTES = 40;
+
+	private final StringDictionary currencies;
+	private volatile HotelAdvertiser[] hotelAdvertisers = new HotelAdvertiser[1024];
+	private int size = 0;
+
+	/**
+	 * @param currencies - dictionary of the canonical currencies of the rows.
+	 */
+	public ObjectHotelAdvertiserStore(StringDictionary currencies) {
+		this.currencies = currencies;
+	}
+
+	@Override
+	public int add(HotelAdvertiser hotelAdvertiser) {
+		String currency = currencies.canonical(hotelAdvertiser.getCurrency());
+		if (currency != hotelAdvertiser.getCurrency())
+			hotelAdvertiser = new HotelAdvertiser(hotelAdvertiser.getAdvertiser_id(), hotelAdvertiser.getHotel_id(),
+					hotelAdvertiser.getCpc(), hotelAdvertiser.getPrice(), currency, hotelAdvertiser.getAvailability_start_day(),
+					hotelAdvertiser.getAvailability_end_day());
+		if (size == hotelAdvertisers.length)
+			hotelAdvertisers = Arrays.copyOf(hotelAdvertisers, IntColumn.grownCapacity(size, IntColumn.MAX_HEAP_CAPACITY,
+					"hotel advertiser rows"));
+		hotelAdvertisers[size] = hotelAdvertiser;
+		return size++;
+	}
+
+	@Override
+	public int add(int advertiserId, int hotelId, int cpc, int price, String currency, int startDay, int endDay) {
+		return add(new HotelAdvertiser(advertiserId, hotelId, cpc, price, currencies.canonical(currency), startDay, endDay));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int getAdvertiserId(int row) {
+		return hotelAdvertisers[row].getAdvertiser_id();
+	}
+
+	@Override
+	public int getHotelId(int row) {
+		return hotelAdvertisers[row].getHotel_id();
+	}
+
+	@Override
+	public int getCpc(int row) {
+		return hotelAdvertisers[row].getCpc();
+	}
+
+	@Override
+	public int getPrice(int row) {
+		return hotelAdvertisers[row].getPrice();
+	}
+
+	@Override
+	public String getCurrency(int row) {
+		return hotelAdvertisers[row].getCurrency();
+	}
+
+	@Override
+	public int getStartDay(int row) {
+		return hotelAdvertisers[row].getAvailability_start_day();
+	}
+
+	@Override
+	public int getEndDay(int row) {
+		return hotelAdvertisers[row].getAvailability_end_day();
+	}
+
+	@Override
+	public HotelAdvertiser get(int row) {
+		return hotelAdvertisers[row];
+	}
+
+	@Override
+	public long estimatedBytes() {
+		return 16 + 4L * hotelAdvertisers.length + (long) ENTITY_BYTES * size;
+	}
+}
@@ -0,0 +1,43 @@
+package hotelSearchPlatform.data;
+
+import java.util.List;
+
+import hotelSearchPlatform.entities.HotelAdvertiser;
+
+/**
+ * The PendingUpdate class is an update applied while a reload or a row compaction runs, to be applied again over
+ * its new data: either a list of hotel advertisers or an advertiser operation.
+ */
+final class PendingUpdate {
+
+	private final List<HotelAdvertiser> hotelAdvertisers;
+	private final AdvertiserOperation operation;
+
+	PendingUpdate(List<HotelAdvertiser> hotelAdvertisers, AdvertiserOperation operation) {
+		this.hotelAdvertisers = hotelAdvertisers;
+		this.operation = operation;
+	}
+
+	/**
+	 * @return the hotel advertisers of the update, or null if it is an advertiser operation.
+	 */
+	List<HotelAdvertiser> getHotelAdvertisers() {
+		return hotelAdvertisers;
+	}
+
+	/**
+	 * @return the advertiser operation, or null if the update is a list of hotel advertisers.
+	 */
+	AdvertiserOperation getOperation() {
+		return operation;
+	}
+
+	/**
+	 * @return the next version of the given snapshot with this update applied.
+	 */
+	HotelDataSnapshot applyTo(HotelDataSnapshot snapshot) {
+		if (operation != null)
+			return HotelData.withOperation(snapshot, operation);
+		return HotelData.withUpdate(snapshot, hotelAdvertisers);
+	}
+}
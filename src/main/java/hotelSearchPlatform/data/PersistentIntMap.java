@@ -0,0 +1,177 @@
+package hotelSearchPlatform.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The PersistentIntMap class is an immutable map from int keys to values, used by the HotelDataSnapshot class.
+ * Keys are spread over about sqrt(size) buckets, each bucket holding its keys sorted with their values.
+ * The with() method returns a new map that shares every bucket with this map except the bucket of the given key,
+ * so changing one hotel copies the bucket table and one bucket, O(sqrt(size)), instead of the whole map.
+ * A map that grows well past the size its buckets were made for is rebuilt with more buckets by with(), so maps that
+ * start empty keep their O(sqrt(size)) changes.
+ * @param <V> - value type.
+ */
+public final class PersistentIntMap<V> {
+
+	private static final int[] NO_KEYS = new int[0];
+	private static final Object[] NO_VALUES = new Object[0];
+
+	private final int[][] keys;
+	private final Object[][] values;
+	private final int size;
+
+	private PersistentIntMap(int[][] keys, Object[][] values, int size) {
+		this.keys = keys;
+		this.values = values;
+		this.size = size;
+	}
+
+	/**
+	 * @param map
+	 * @return a PersistentIntMap with the entries of the given map, with a bucket count fitting its size.
+	 */
+	public static <V> PersistentIntMap<V> of(Map<Integer, V> map) {
+		int bucketCount = 1;
+		while ((long) bucketCount * bucketCount < map.size())
+			bucketCount <<= 1;
+		int[] bucketSizes = new int[bucketCount];
+		for (Integer key : map.keySet())
+			bucketSizes[bucketOf(key, bucketCount)]++;
+		int[][] keys = new int[bucketCount][];
+		Object[][] values = new Object[bucketCount][];
+		for (int bucket = 0; bucket < bucketCount; bucket++) {
+			keys[bucket] = bucketSizes[bucket] == 0 ? NO_KEYS : new int[bucketSizes[bucket]];
+			values[bucket] = bucketSizes[bucket] == 0 ? NO_VALUES : new Object[bucketSizes[bucket]];
+			bucketSizes[bucket] = 0;
+		}
+		for (Entry<Integer, V> entry : map.entrySet()) {
+			int bucket = bucketOf(entry.getKey(), bucketCount);
+			keys[bucket][bucketSizes[bucket]] = entry.getKey();
+			values[bucket][bucketSizes[bucket]++] = entry.getValue();
+		}
+		for (int bucket = 0; bucket < bucketCount; bucket++)
+			sortBucket(keys[bucket], values[bucket]);
+		return new PersistentIntMap<V>(keys, values, map.size());
+	}
+
+	private static void sortBucket(int[] bucketKeys, Object[] bucketValues) {
+		long[] sortKeys = new long[bucketKeys.length];
+		for (int i = 0; i < bucketKeys.length; i++)
+			sortKeys[i] = ((long) bucketKeys[i] << 32) | i;
+		Arrays.sort(sortKeys);
+		Object[] unsortedValues = bucketValues.clone();
+		for (int i = 0; i < bucketKeys.length; i++) {
+			bucketKeys[i] = (int) (sortKeys[i] >> 32);
+			bucketValues[i] = unsortedValues[(int) sortKeys[i]];
+		}
+	}
+
+	private static int bucketOf(int key, int bucketCount) {
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & (bucketCount - 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int bucket = bucketOf(key, keys.length);
+		int position = Arrays.binarySearch(keys[bucket], key);
+		if (position < 0)
+			return null;
+		return (V) values[bucket][position];
+	}
+
+	/**
+	 * @param key
+	 * @param value
+	 * @return a new map with the given key mapped to the given value, sharing all other buckets with this map.
+	 */
+	public PersistentIntMap<V> with(int key, V value) {
+		int bucket = bucketOf(key, keys.length);
+		int[] bucketKeys = keys[bucket];
+		Object[] bucketValues = values[bucket];
+		int position = Arrays.binarySearch(bucketKeys, key);
+		int[] newBucketKeys;
+		Object[] newBucketValues;
+		int newSize = size;
+		if (position >= 0) {
+			newBucketKeys = bucketKeys;
+			newBucketValues = bucketValues.clone();
+			newBucketValues[position] = value;
+		} else {
+			position = -position - 1;
+			newBucketKeys = new int[bucketKeys.length + 1];
+			newBucketValues = new Object[bucketKeys.length + 1];
+			System.arraycopy(bucketKeys, 0, newBucketKeys, 0, position);
+			System.arraycopy(bucketValues, 0, newBucketValues, 0, position);
+			newBucketKeys[position] = key;
+			newBucketValues[position] = value;
+			System.arraycopy(bucketKeys, position, newBucketKeys, position + 1, bucketKeys.length - position);
+			System.arraycopy(bucketValues, position, newBucketValues, position + 1, bucketKeys.length - position);
+			newSize++;
+		}
+		int[][] newKeys = keys.clone();
+		Object[][] newValues = values.clone();
+		newKeys[bucket] = newBucketKeys;
+		newValues[bucket] = newBucketValues;
+		PersistentIntMap<V> newMap = new PersistentIntMap<V>(newKeys, newValues, newSize);
+		if (newSize > 4L * keys.length * keys.length)
+			return of(newMap.toMap());
+		return newMap;
+	}
+
+	/**
+	 * @param key
+	 * @return a new map without the given key, sharing all other buckets with this map, or this map if it does not
+	 * hold the key.
+	 */
+	public PersistentIntMap<V> without(int key) {
+		int bucket = bucketOf(key, keys.length);
+		int[] bucketKeys = keys[bucket];
+		Object[] bucketValues = values[bucket];
+		int position = Arrays.binarySearch(bucketKeys, key);
+		if (position < 0)
+			return this;
+		int[] newBucketKeys = new int[bucketKeys.length - 1];
+		Object[] newBucketValues = new Object[bucketKeys.length - 1];
+		System.arraycopy(bucketKeys, 0, newBucketKeys, 0, position);
+		System.arraycopy(bucketValues, 0, newBucketValues, 0, position);
+		System.arraycopy(bucketKeys, position + 1, newBucketKeys, position, bucketKeys.length - position - 1);
+		System.arraycopy(bucketValues, position + 1, newBucketValues, position, bucketKeys.length - position - 1);
+		int[][] newKeys = keys.clone();
+		Object[][] newValues = values.clone();
+		newKeys[bucket] = newBucketKeys;
+		newValues[bucket] = newBucketValues;
+		return new PersistentIntMap<V>(newKeys, newValues, size - 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<Integer, V> toMap() {
+		Map<Integer, V> map = new HashMap<Integer, V>();
+		for (int bucket = 0; bucket < keys.length; bucket++) {
+			for (int i = 0; i < keys[bucket].length; i++)
+				map.put(keys[bucket][i], (V) values[bucket][i]);
+		}
+		return map;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return all keys of the map, sorted.
+	 */
+	public int[] keys() {
+		int[] allKeys = new int[size];
+		int keyCount = 0;
+		for (int[] bucketKeys : keys) {
+			System.arraycopy(bucketKeys, 0, allKeys, keyCount, bucketKeys.length);
+			keyCount += bucketKeys.length;
+		}
+		Arrays.sort(allKeys);
+		return allKeys;
+	}
+}
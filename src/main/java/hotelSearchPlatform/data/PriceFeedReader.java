@@ -0,0 +1,234 @@
+package hotelSearchPlatform.data;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+import hotelSearchPlatform.entities.HotelAdvertiser;
+
+/**
+ * The PriceFeedReader class reads a feed of hotel advertiser updates from a stream one row at a time, so a feed of
+ * any size is read with the same memory: bytes are read into one buffer that is refilled as rows are consumed, and
+ * every row is parsed straight from it.
+ * A feed is either CSV in the layout of the hotel_advertiser.csv file, starting with its header, or NDJSON, one JSON
+ * object per line with the fields of the hotel advertisers posted to /price/. Dates are 'yyyyMMdd' in both formats,
+ * and every row is one line of at most MAX_LINE_BYTES bytes.
+ * A row that cannot be parsed is rejected with the reason, and reading goes on with the next line.
+ * A PriceFeedReader is used by one thread only.
+ */
+public final class PriceFeedReader {
+
+	/**
+	 * The Format enum lists the formats of a feed, see the PriceFeedReader class.
+	 */
+	public enum Format {
+		CSV, NDJSON
+	}
+
+	public static final int MAX_LINE_BYTES = 1 << 16;
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final String[] FIELDS = { "advertiser_id", "hotel_id", "cpc", "price", "currency",
+			"availability_start_date", "availability_end_date" };
+
+	private final InputStream in;
+	private final Format format;
+	private final byte[] buffer = new byte[MAX_LINE_BYTES];
+	private final CsvRecordReader csvReader;
+	private final int[] csvColumns = new int[FIELDS.length];
+	private long bufferOffset;
+	private int start;
+	private int end;
+	private boolean endOfStream;
+	private int lineStart;
+	private int lineEnd;
+	private boolean lineTooLong;
+	private int lineNumber;
+	private HotelAdvertiser hotelAdvertiser;
+	private String rejection;
+
+	/**
+	 * @param in - stream of the feed, read up to its end but not closed.
+	 * @param format
+	 * @throws UncheckedIOException - in case the stream cannot be read.
+	 * @throws IllegalArgumentException - in case a CSV feed does not start with a header naming all fields.
+	 */
+	public PriceFeedReader(InputStream in, Format format) throws UncheckedIOException, IllegalArgumentException {
+		this.in = in;
+		this.format = format;
+		this.csvReader = new CsvRecordReader("price feed", ByteBuffer.wrap(buffer), 0);
+		if (format == Format.CSV) {
+			if (!nextLine() || lineTooLong)
+				throw new IllegalArgumentException("A CSV price feed must start with a header naming all fields");
+			csvReader.reset(lineStart, lineEnd, bufferOffset + lineStart);
+			Map<String, Integer> header = csvReader.readHeader();
+			for (int i = 0; i < FIELDS.length; i++)
+				csvColumns[i] = csvReader.column(header, FIELDS[i]);
+		}
+	}
+
+	/**
+	 * The next method reads the next row of the feed, skipping empty lines.
+	 * @return false if there are no more rows.
+	 * @throws UncheckedIOException - in case the stream cannot be read.
+	 */
+	public boolean next() throws UncheckedIOException {
+		while (nextLine()) {
+			hotelAdvertiser = null;
+			rejection = null;
+			if (lineTooLong) {
+				rejection = "Line longer than " + MAX_LINE_BYTES + " bytes";
+				return true;
+			}
+			if (isBlank())
+				continue;
+			try {
+				hotelAdvertiser = format == Format.CSV ? parseCsv() : parseJson();
+			} catch (IllegalArgumentException | DateTimeParseException e) {
+				rejection = e.getMessage();
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the line number of the current row in the feed, from 1.
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the hotel advertiser of the current row, or null if it was rejected.
+	 */
+	public HotelAdvertiser getHotelAdvertiser() {
+		return hotelAdvertiser;
+	}
+
+	/**
+	 * @return why the current row was rejected, or null if it was read.
+	 */
+	public String getRejection() {
+		return rejection;
+	}
+
+	/**
+	 * The nextLine method finds the next line in the buffer, refilling it from the stream as needed. The bytes of a
+	 * line that does not fit in the buffer are dropped up to its end, and the line is marked as too long.
+	 * @return false at the end of the stream.
+	 */
+	private boolean nextLine() throws UncheckedIOException {
+		boolean tooLong = false;
+		while (true) {
+			int newline = start;
+			while (newline < end && buffer[newline] != '\n')
+				newline++;
+			if (newline < end || (endOfStream && (start < end || tooLong))) {
+				lineStart = start;
+				lineEnd = newline > start && buffer[newline - 1] == '\r' ? newline - 1 : newline;
+				start = Math.min(newline + 1, end);
+				lineTooLong = tooLong;
+				lineNumber++;
+				return true;
+			}
+			if (endOfStream)
+				return false;
+			if (start == 0 && end == buffer.length) {
+				tooLong = true;
+				bufferOffset += end;
+				end = 0;
+			} else {
+				System.arraycopy(buffer, start, buffer, 0, end - start);
+				bufferOffset += start;
+				end -= start;
+				start = 0;
+			}
+			try {
+				int read = in.read(buffer, end, buffer.length - end);
+				if (read < 0)
+					endOfStream = true;
+				else
+					end += read;
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot read the price feed", e);
+			}
+		}
+	}
+
+	private boolean isBlank() {
+		for (int i = lineStart; i < lineEnd; i++) {
+			if (buffer[i] != ' ' && buffer[i] != '\t')
+				return false;
+		}
+		return true;
+	}
+
+	private HotelAdvertiser parseCsv() throws IllegalArgumentException {
+		csvReader.reset(lineStart, lineEnd, bufferOffset + lineStart);
+		csvReader.next();
+		return new HotelAdvertiser(csvReader.getInt(csvColumns[0]), csvReader.getInt(csvColumns[1]),
+				csvReader.getInt(csvColumns[2]), csvReader.getInt(csvColumns[3]), csvReader.getCachedString(csvColumns[4]),
+				csvReader.getEpochDay(csvColumns[5]), csvReader.getEpochDay(csvColumns[6]));
+	}
+
+	/**
+	 * The parseJson method reads the JSON object of the current line with a streaming parser, so no tree or entity
+	 * is created for it. Fields it does not know are skipped.
+	 */
+	private HotelAdvertiser parseJson() throws IllegalArgumentException {
+		int[] ints = new int[4];
+		String currency = null;
+		int startDay = 0;
+		int endDay = 0;
+		int foundFields = 0;
+		try (JsonParser parser = JSON_FACTORY.createParser(buffer, lineStart, lineEnd - lineStart)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT)
+				throw new IllegalArgumentException("Line is not a JSON object");
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+				int field = 0;
+				while (field < FIELDS.length && !FIELDS[field].equals(name))
+					field++;
+				if (field == FIELDS.length) {
+					parser.skipChildren();
+					continue;
+				}
+				if (field < ints.length) {
+					if (value != JsonToken.VALUE_NUMBER_INT || parser.getNumberType() != JsonParser.NumberType.INT)
+						throw new IllegalArgumentException("Invalid int '" + parser.getText() + "' in field '" + name + "'");
+					ints[field] = parser.getIntValue();
+				} else if (value != JsonToken.VALUE_STRING) {
+					throw new IllegalArgumentException("Invalid string '" + parser.getText() + "' in field '" + name + "'");
+				} else if (field == 4) {
+					currency = parser.getText();
+				} else if (field == 5) {
+					startDay = EpochDays.parse(parser.getText());
+				} else {
+					endDay = EpochDays.parse(parser.getText());
+				}
+				foundFields |= 1 << field;
+			}
+			if (parser.nextToken() != null)
+				throw new IllegalArgumentException("Line holds more than one JSON value");
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		for (int field = 0; field < FIELDS.length; field++) {
+			if ((foundFields & (1 << field)) == 0)
+				throw new IllegalArgumentException("Missing field '" + FIELDS[field] + "'");
+		}
+		return new HotelAdvertiser(ints[0], ints[1], ints[2], ints[3], currency, startDay, endDay);
+	}
+}
@@ -0,0 +1,190 @@
+package hotelSearchPlatform.data;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * The ReloadProgress class tracks the last hot reload of the hotel data by the HotelData class, and is the JSON view
+ * of it returned by the AdminController class: its phase, how many rows were loaded so far, how many updates were
+ * applied again over the new data and how long it took.
+ * It also reports the memory the reload needed. The heap high-water mark is the peak usage of the heap pools since
+ * the reload started, when the old and the new data are both in memory, so the heap can be sized for two copies.
+ * Direct memory, which holds the rows of the "off-heap" storage, has no peak counter and is sampled once the new
+ * data is built.
+ * The HotelDataReloader class is its only writer, other threads read it while the reload runs.
+ */
+public final class ReloadProgress {
+
+	/**
+	 * The Phase enum lists the steps of a reload, in order, and how it ended.
+	 */
+	public enum Phase {
+		IDLE, LOADING_FILES, BUILDING_INDEXES, REAPPLYING_UPDATES, WRITING_SNAPSHOT, DONE, FAILED
+	}
+
+	private volatile Phase phase = Phase.IDLE;
+	private volatile String trigger;
+	private volatile long startedAtMillis;
+	private volatile long finishedAtMillis;
+	private volatile HotelAdvertiserStore loadingStore;
+	private volatile int rowsLoaded;
+	private volatile int reappliedUpdates;
+	private volatile long version;
+	private volatile long heapUsedBeforeBytes;
+	private volatile long heapPeakBytes;
+	private volatile long directMemoryBytes;
+	private volatile String error;
+
+	/**
+	 * The start method resets the progress for a new reload, and the peak usage of the heap pools with it.
+	 * @param trigger - what started the reload, e.g. "admin" or "file-watch".
+	 * @param store - the empty store the rows are loaded into.
+	 */
+	void start(String trigger, HotelAdvertiserStore store) {
+		this.trigger = trigger;
+		this.startedAtMillis = System.currentTimeMillis();
+		this.finishedAtMillis = 0;
+		this.loadingStore = store;
+		this.rowsLoaded = 0;
+		this.reappliedUpdates = 0;
+		this.version = 0;
+		this.error = null;
+		this.heapUsedBeforeBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid())
+				pool.resetPeakUsage();
+		}
+		this.heapPeakBytes = 0;
+		this.directMemoryBytes = 0;
+		this.phase = Phase.LOADING_FILES;
+	}
+
+	void phase(Phase phase) {
+		if (phase == Phase.REAPPLYING_UPDATES)
+			directMemoryBytes = directMemoryUsed();
+		this.phase = phase;
+	}
+
+	void reapplied(int updates) {
+		this.reappliedUpdates = updates;
+	}
+
+	/**
+	 * The published method records that the reloaded data was swapped in with the given version.
+	 */
+	void published(long version) {
+		this.version = version;
+	}
+
+	void done() {
+		finish(Phase.DONE);
+	}
+
+	void failed(String error) {
+		this.error = error;
+		finish(Phase.FAILED);
+	}
+
+	private void finish(Phase phase) {
+		this.heapPeakBytes = heapPeakUsed();
+		HotelAdvertiserStore store = loadingStore;
+		this.rowsLoaded = store == null ? 0 : store.size();
+		this.loadingStore = null;
+		this.finishedAtMillis = System.currentTimeMillis();
+		this.phase = phase;
+	}
+
+	/**
+	 * @return true if a reload is running.
+	 */
+	public boolean isRunning() {
+		Phase current = phase;
+		return current != Phase.IDLE && current != Phase.DONE && current != Phase.FAILED;
+	}
+
+	public Phase getPhase() {
+		return phase;
+	}
+
+	public String getTrigger() {
+		return trigger;
+	}
+
+	public long getStartedAtMillis() {
+		return startedAtMillis;
+	}
+
+	/**
+	 * @return how long the running or last reload took, in milliseconds.
+	 */
+	public long getElapsedMillis() {
+		if (startedAtMillis == 0)
+			return 0;
+		long finished = finishedAtMillis;
+		return (finished == 0 ? System.currentTimeMillis() : finished) - startedAtMillis;
+	}
+
+	/**
+	 * @return the number of rows loaded into the new store so far, or by the last reload.
+	 */
+	public int getRowsLoaded() {
+		HotelAdvertiserStore store = loadingStore;
+		return store == null ? rowsLoaded : store.size();
+	}
+
+	public int getReappliedUpdates() {
+		return reappliedUpdates;
+	}
+
+	/**
+	 * @return the version the reloaded data was published with, or 0 if it was not published.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public long getHeapUsedBeforeBytes() {
+		return heapUsedBeforeBytes;
+	}
+
+	/**
+	 * @return the peak heap usage since the reload started, up to now while it runs.
+	 */
+	public long getHeapPeakBytes() {
+		return isRunning() ? heapPeakUsed() : heapPeakBytes;
+	}
+
+	public long getHeapMaxBytes() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getMax();
+	}
+
+	/**
+	 * @return the direct memory in use once the new data was built, with the old data still in use.
+	 */
+	public long getDirectMemoryBytes() {
+		return directMemoryBytes;
+	}
+
+	private static long heapPeakUsed() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid())
+				peak += pool.getPeakUsage().getUsed();
+		}
+		return peak;
+	}
+
+	static long directMemoryUsed() {
+		for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if ("direct".equals(pool.getName()))
+				return pool.getMemoryUsed();
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,58 @@
+package hotelSearchPlatform.data;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The ReloadThread class runs the reloads and row compactions of the HotelData class on one background thread, one at
+ * a time, as both build a complete new snapshot next to the current one.
+ */
+final class ReloadThread {
+
+	private final AtomicBoolean busy = new AtomicBoolean();
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "hotel-data-reload");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The start method runs the given task on the reload thread, unless a task is already running.
+	 * @return false if a task is already running.
+	 */
+	boolean start(Runnable task) {
+		if (!busy.compareAndSet(false, true))
+			return false;
+		executor.execute(() -> runClaimed(task));
+		return true;
+	}
+
+	/**
+	 * The runIfIdle method runs the given task on the calling thread, unless a task is already running.
+	 * @return false if a task is already running.
+	 */
+	boolean runIfIdle(Runnable task) {
+		if (!busy.compareAndSet(false, true))
+			return false;
+		runClaimed(task);
+		return true;
+	}
+
+	void scheduleWithFixedDelay(Runnable task, long delayMillis) {
+		executor.scheduleWithFixedDelay(task, delayMillis, delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private void runClaimed(Runnable task) {
+		try {
+			task.run();
+		} finally {
+			busy.set(false);
+		}
+	}
+}
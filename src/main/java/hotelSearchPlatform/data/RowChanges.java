@@ -0,0 +1,42 @@
+package hotelSearchPlatform.data;
+
+import java.util.Arrays;
+
+/**
+ * The RowChanges class collects the rows inserted and removed in one city during an update:
+ * rows of hotel advertisers, or of the best offer views of hotels, see the HotelDataSnapshot class.
+ */
+final class RowChanges {
+
+	private int[] insertedRows = new int[4];
+	private int insertedCount = 0;
+	private int[] removedRows = new int[4];
+	private int removedCount = 0;
+
+	void add(int insertedRow, int removedRow) {
+		if (insertedRow >= 0)
+			insert(insertedRow);
+		if (removedRow >= 0)
+			remove(removedRow);
+	}
+
+	void insert(int insertedRow) {
+		if (insertedCount == insertedRows.length)
+			insertedRows = Arrays.copyOf(insertedRows, insertedCount * 2);
+		insertedRows[insertedCount++] = insertedRow;
+	}
+
+	void remove(int removedRow) {
+		if (removedCount == removedRows.length)
+			removedRows = Arrays.copyOf(removedRows, removedCount * 2);
+		removedRows[removedCount++] = removedRow;
+	}
+
+	int[] getInsertedRows() {
+		return Arrays.copyOf(insertedRows, insertedCount);
+	}
+
+	int[] getRemovedRows() {
+		return Arrays.copyOf(removedRows, removedCount);
+	}
+}
@@ -0,0 +1,133 @@
+package hotelSearchPlatform.data;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import hotelSearchPlatform.ranking.RankingFormulas;
+
+/**
+ * The RowCompactor class copies the live rows of the HotelData class into a new store on the reload thread, once
+ * the rows replaced by updates are more than 'hotel-data.compaction.dead-row-fraction' of the store.
+ */
+final class RowCompactor {
+
+	private static final Logger logger = LoggerFactory.getLogger(RowCompactor.class);
+
+	private final HotelData hotelData;
+	private final ReloadThread reloadThread;
+	private final RankingFormulas rankingFormulas;
+	private final double deadRowFraction;
+	/** Rows of the store of the current snapshot that were live when it was loaded, reloaded or compacted. */
+	private volatile int compactedLiveRows;
+
+	RowCompactor(HotelData hotelData, ReloadThread reloadThread, RankingFormulas rankingFormulas, double deadRowFraction) {
+		this.hotelData = hotelData;
+		this.reloadThread = reloadThread;
+		this.rankingFormulas = rankingFormulas;
+		this.deadRowFraction = deadRowFraction;
+	}
+
+	/**
+	 * The compacted method records that the store of the current snapshot was built with the given live rows only.
+	 */
+	void compacted(int liveRows) {
+		compactedLiveRows = liveRows;
+	}
+
+	/**
+	 * The compactIfNeeded method starts a compaction on the reload thread when the rows added since the last load,
+	 * reload or compaction may have left too many dead rows, unless a reload or a compaction is already running.
+	 */
+	void compactIfNeeded() {
+		if (deadRowFraction <= 0)
+			return;
+		int rows = hotelData.getSnapshot().getHotelAdvertiserStore().size();
+		if (rows - compactedLiveRows >= deadRowFraction * rows)
+			reloadThread.start(this::compactRows);
+	}
+
+	/**
+	 * The compactRows method builds a snapshot of the same version from the live rows while searches and updates go
+	 * on, and swaps it in with the updates applied meanwhile. It is dropped if the currency rates changed meanwhile.
+	 */
+	private void compactRows() {
+		try {
+			HotelDataSnapshot current = hotelData.getSnapshot();
+			int rows = current.getHotelAdvertiserStore().size();
+			int liveRows = current.getLiveRowCount();
+			if (rows - liveRows < deadRowFraction * rows) {
+				compactedLiveRows = liveRows;
+				return;
+			}
+			HotelDataSnapshot collected = hotelData.collectUpdates();
+			long start = System.nanoTime();
+			HotelDataSnapshot compacted = compact(collected, hotelData.createStore(), rankingFormulas);
+			int[] reappliedUpdates = new int[1];
+			HotelDataSnapshot published = hotelData.publishRebuilt((latest, pendingUpdates) -> {
+				reappliedUpdates[0] = pendingUpdates.size();
+				return rebase(compacted, latest, pendingUpdates);
+			});
+			if (published == null) {
+				logger.info("Dropped the compaction of the rows of version {}, the currency rates changed", collected.getVersion());
+				return;
+			}
+			compactedLiveRows = compacted.getHotelAdvertiserStore().size();
+			logger.info("Compacted {} rows to {} live rows as version {} in {} ms, applied {} updates again",
+					collected.getHotelAdvertiserStore().size(), compactedLiveRows, published.getVersion(),
+					(System.nanoTime() - start) / 1000000, reappliedUpdates[0]);
+		} catch (RuntimeException e) {
+			hotelData.stopCollectingUpdates();
+			logger.warn("Cannot compact the hotel advertiser rows", e);
+		}
+	}
+
+	/**
+	 * The compact method copies the rows of the hotels and of the suspended advertisers of the given snapshot into the
+	 * given empty store, hotel by hotel, and builds a snapshot of the same data and version from them.
+	 */
+	static HotelDataSnapshot compact(HotelDataSnapshot current, HotelAdvertiserStore hotelAdvertiserStore,
+			RankingFormulas rankingFormulas) {
+		Map<Integer, int[]> rowsByHotel = new HashMap<Integer, int[]>();
+		for (Integer hotelId : current.getHotels().keySet()) {
+			int[] hotelRows = current.getRowsByHotel(hotelId);
+			if (hotelRows.length > 0)
+				rowsByHotel.put(hotelId, copyRows(current.getHotelAdvertiserStore(), hotelRows, hotelAdvertiserStore));
+		}
+		int[] suspendedRows = copyRows(current.getHotelAdvertiserStore(), current.getSuspendedRows(), hotelAdvertiserStore);
+		NormalizedPrices normalizedPrices = NormalizedPrices.build(hotelAdvertiserStore, current.getNormalizedPrices().getRates());
+		return HotelData.buildSnapshot(current.getVersion(), current.getCities(), current.getAdvertisers(), current.getHotels(),
+				hotelAdvertiserStore, rankingFormulas, normalizedPrices, rowsByHotel, current.getSuspendedAdvertiserIds(),
+				suspendedRows);
+	}
+
+	/**
+	 * @return the row ids in the target store of the given rows, added to it in the given order.
+	 */
+	private static int[] copyRows(HotelAdvertiserStore source, int[] rows, HotelAdvertiserStore target) {
+		int[] copiedRows = new int[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			int row = rows[i];
+			copiedRows[i] = target.add(source.getAdvertiserId(row), source.getHotelId(row), source.getCpc(row),
+					source.getPrice(row), source.getCurrency(row), source.getStartDay(row), source.getEndDay(row));
+		}
+		return copiedRows;
+	}
+
+	/**
+	 * The rebase method applies the given pending updates over the compacted data. Every city is marked as changed,
+	 * as the city versions of a built snapshot start over.
+	 * @return the compacted data to publish, or null if the rates or the version of the current snapshot changed.
+	 */
+	private static HotelDataSnapshot rebase(HotelDataSnapshot compacted, HotelDataSnapshot current, List<PendingUpdate> pendingUpdates) {
+		if (!compacted.getNormalizedPrices().getRates().hasSameRates(current.getNormalizedPrices().getRates()))
+			return null;
+		HotelDataSnapshot next = compacted.withVersion(compacted.getVersion());
+		for (PendingUpdate update : pendingUpdates)
+			next = update.applyTo(next);
+		return next.getVersion() == current.getVersion() ? next : null;
+	}
+}
@@ -0,0 +1,86 @@
+package hotelSearchPlatform.data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The StringDictionary class maps the distinct values of a repeated String field (e.g. currencies) to small int
+ * codes, and keeps one canonical String instance per value. The HotelData class holds one dictionary of currencies
+ * for the lifetime of the process and shares it with every HotelAdvertiserStore it creates, so rows of all loads,
+ * reloads and updates refer to the same instances, or carry the same codes, whichever parser produced the field.
+ * Codes are given in order of first use and never change. Values are never removed, a dictionary is meant for
+ * fields with few distinct values.
+ * Lookups do not lock. Values are added under the lock of the dictionary, so loaders and the update path may add
+ * values concurrently, and the table of values is published through a volatile field.
+ */
+public final class StringDictionary {
+
+	private final Map<String, Integer> codesByValue = new ConcurrentHashMap<String, Integer>();
+	private volatile String[] values = new String[0];
+
+	/**
+	 * The code method returns the code of the given value, adding the value to the dictionary if it is new.
+	 * @param value - must not be null.
+	 * @return the code of the value.
+	 */
+	public int code(String value) {
+		Integer code = codesByValue.get(value);
+		if (code == null)
+			code = add(value);
+		return code;
+	}
+
+	private synchronized int add(String value) {
+		Integer code = codesByValue.get(value);
+		if (code == null) {
+			code = values.length;
+			String[] newValues = Arrays.copyOf(values, code + 1);
+			newValues[code] = value;
+			values = newValues;
+			codesByValue.put(value, code);
+		}
+		return code;
+	}
+
+	/**
+	 * @param code
+	 * @return the canonical instance of the value with the given code.
+	 */
+	public String get(int code) {
+		return values[code];
+	}
+
+	/**
+	 * The canonical method returns the instance of the dictionary equal to the given value, adding the value to the
+	 * dictionary if it is new, so callers can drop their own copy.
+	 * @param value - may be null.
+	 * @return the canonical instance of the value, or null for null.
+	 */
+	public String canonical(String value) {
+		return value == null ? null : get(code(value));
+	}
+
+	/**
+	 * @return the number of distinct values.
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * The estimatedBytes method estimates the heap used by the dictionary: the String and byte array of every value,
+	 * its map entry and its slot in the table, assuming compressed references.
+	 */
+	public long estimatedBytes() {
+		long bytes = 16 + 4L * values.length;
+		for (String value : values)
+			bytes += 24 + align(16 + value.getBytes(StandardCharsets.UTF_8).length) + 32 + 16;
+		return bytes;
+	}
+
+	private static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+}
@@ -0,0 +1,617 @@
+package hotelSearchPlatform.data;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import hotelSearchPlatform.entities.HotelAdvertiser;
+
+/**
+ * The UpdateLog class is the append-only write-ahead log of the hotel advertiser updates applied by the HotelData
+ * class, so updates survive a restart. Every update list is appended as one record with the snapshot version it
+ * created, and on startup the records newer than the loaded data are replayed over it.
+ * Records are written by a single writer thread that takes all records queued since its last write, writes them at
+ * once and syncs them to disk once (group commit), so concurrent updates share one fsync. The 'durability' property
+ * selects when an update is acknowledged:
+ * "sync" once its record is synced to disk, "batched" once its record is written to the operating system, which syncs
+ * at least every 'flush-interval-ms', and "async" right away, the writer writing and syncing every 'flush-interval-ms'.
+ * The file starts with a header (magic number, format version and base version) and every record holds its length,
+ * CRC32, version and hotel advertisers, or the advertiser operation it applied. A record cut off by a crash is
+ * dropped when the log is opened. A write or sync that fails is cut off the same way right away, truncating the log
+ * back to where it started, so later records do not land after torn bytes that would hide them on the next open.
+ * If the log cannot be truncated, it refuses further records until the process is restarted.
+ * When the HotelData class writes its snapshot file, records up to the written version are no longer needed and the
+ * log is rotated to a new file holding only newer records, whose base version is the snapshot file's version.
+ */
+@Component
+public class UpdateLog {
+
+	/**
+	 * The Durability enum lists when an appended record is acknowledged, see the UpdateLog class.
+	 */
+	public enum Durability {
+		SYNC, BATCHED, ASYNC;
+
+		/**
+		 * @param name - case insensitive durability name.
+		 * @return the Durability of the given name.
+		 * @throws IllegalArgumentException - in case no durability has the given name.
+		 */
+		public static Durability of(String name) throws IllegalArgumentException {
+			for (Durability durability : values()) {
+				if (durability.name().equalsIgnoreCase(name))
+					return durability;
+			}
+			throw new IllegalArgumentException("Unknown hotel-data.update-log.durability '" + name + "', use sync, batched or async");
+		}
+	}
+
+	private static final Logger logger = LoggerFactory.getLogger(UpdateLog.class);
+
+	private static final int MAGIC = 0x4853504C;
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int MAX_RECORD_SIZE = 64 << 20;
+
+	private final Path path;
+	private final Durability durability;
+	private final long flushIntervalMillis;
+	private final int compactAfterRecords;
+	private final LinkedBlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<PendingRecord>();
+	private final Object fileLock = new Object();
+	private FileChannel channel;
+	private long baseVersion;
+	/** Position of the first record written since the last sync, or -1 if all are synced. Guarded by fileLock. */
+	private long unsyncedStart = -1;
+	private volatile int recordCount;
+	private Thread writer;
+	private volatile boolean closed;
+	/** Failure that left bytes of unknown state at the end of the log, or null. */
+	private volatile IOException failure;
+	private final LongAdder appended = new LongAdder();
+	private final LongAdder writes = new LongAdder();
+	private final LongAdder syncs = new LongAdder();
+	private final LongAdder rotations = new LongAdder();
+
+	public UpdateLog(@Value("${hotel-data.update-log.file:}") String file,
+			@Value("${hotel-data.update-log.durability:sync}") String durability,
+			@Value("${hotel-data.update-log.flush-interval-ms:50}") long flushIntervalMillis,
+			@Value("${hotel-data.update-log.compact-after-records:100000}") int compactAfterRecords) {
+		this.path = file.isEmpty() ? null : Paths.get(file);
+		this.durability = Durability.of(durability);
+		this.flushIntervalMillis = Math.max(flushIntervalMillis, 1);
+		this.compactAfterRecords = compactAfterRecords;
+	}
+
+	/**
+	 * @return false if the 'hotel-data.update-log.file' property is not set, updates are then not logged.
+	 */
+	public boolean isEnabled() {
+		return path != null;
+	}
+
+	/**
+	 * The open method opens the log for appending, after replaying its records newer than the loaded data.
+	 * A missing log is created with the loaded version as its base version.
+	 * @param loadedVersion - version of the data loaded from the *.csv files or the snapshot file.
+	 * @param discard - true if the log belongs to data that was replaced, it is then moved aside to a *.discarded file.
+	 * @param replay - applies a record to the data, in log order.
+	 * @throws IllegalStateException - in case the log continues a newer version than the loaded one, which happens when
+	 * the snapshot file it was rotated for is missing or unreadable.
+	 * @throws UncheckedIOException - in case the log cannot be read or written.
+	 */
+	public void open(long loadedVersion, boolean discard, Consumer<Record> replay) throws IllegalStateException, UncheckedIOException {
+		try {
+			if (discard && Files.exists(path)) {
+				Path discardedPath = path.resolveSibling(path.getFileName() + ".discarded");
+				Files.move(path, discardedPath, StandardCopyOption.REPLACE_EXISTING);
+				logger.warn("Moved update log {} of replaced data to {}", path, discardedPath);
+			}
+			if (!Files.exists(path))
+				writeLog(path, loadedVersion, Collections.<byte[]>emptyList());
+			LogContent content = readLog(path);
+			if (content.baseVersion > loadedVersion)
+				throw new IllegalStateException("Update log " + path + " continues version " + content.baseVersion
+						+ " but the loaded data has version " + loadedVersion + ", restore the snapshot file it belongs to");
+			int replayed = 0;
+			for (byte[] recordBytes : content.records) {
+				Record record = Record.decode(recordBytes);
+				if (record.getVersion() > loadedVersion) {
+					replay.accept(record);
+					replayed++;
+				}
+			}
+			channel = FileChannel.open(path, StandardOpenOption.WRITE);
+			if (content.validLength < channel.size()) {
+				logger.warn("Dropping {} bytes of a cut off record at the end of update log {}", channel.size() - content.validLength, path);
+				channel.truncate(content.validLength);
+				channel.force(true);
+			}
+			channel.position(content.validLength);
+			baseVersion = content.baseVersion;
+			recordCount = content.records.size();
+			logger.info("Replayed {} of {} records from update log {}", replayed, content.records.size(), path);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open update log " + path, e);
+		}
+		writer = new Thread(this::writeRecords, "update-log-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * The append method queues a record for the writer thread. Records must be appended in version order.
+	 * @param version - snapshot version created by the update.
+	 * @param hotelAdvertisers - hotel advertisers of the update.
+	 * @return a future completed when the record is durable according to the durability of the log, or failed with an
+	 * UncheckedIOException if it cannot be written.
+	 * @throws IllegalStateException - in case the log is not open, or refuses records after a failure it could not
+	 * recover from.
+	 */
+	public CompletableFuture<Void> append(long version, List<HotelAdvertiser> hotelAdvertisers) throws IllegalStateException {
+		return append(new Record(version, hotelAdvertisers, null));
+	}
+
+	/**
+	 * The append method queues a record of an advertiser operation for the writer thread, see the other append method.
+	 * @param version - snapshot version created by the operation.
+	 * @param operation
+	 * @return a future completed when the record is durable according to the durability of the log.
+	 * @throws IllegalStateException - in case the log is not open, or refuses records after a failure.
+	 */
+	public CompletableFuture<Void> append(long version, AdvertiserOperation operation) throws IllegalStateException {
+		return append(new Record(version, Collections.<HotelAdvertiser>emptyList(), operation));
+	}
+
+	private CompletableFuture<Void> append(Record record) throws IllegalStateException {
+		if (writer == null || closed)
+			throw new IllegalStateException("Update log " + path + " is not open");
+		if (failure != null)
+			throw new IllegalStateException("Update log " + path + " cannot be written since a failure, restart to recover it", failure);
+		PendingRecord pendingRecord = new PendingRecord(record.encode());
+		queue.add(pendingRecord);
+		appended.increment();
+		if (durability == Durability.ASYNC)
+			return CompletableFuture.completedFuture(null);
+		return pendingRecord.durable;
+	}
+
+	/**
+	 * @return true if the log holds at least 'compact-after-records' records and should be compacted into a new
+	 * snapshot file.
+	 */
+	public boolean needsCompaction() {
+		return compactAfterRecords > 0 && recordCount >= compactAfterRecords;
+	}
+
+	/**
+	 * The writeRecords method is the loop of the writer thread. It waits for queued records, writes all of them with
+	 * one write and syncs them, and completes their futures. In batched and async mode it only syncs once the flush
+	 * interval has passed since the last sync.
+	 * When a write fails, the log is truncated back to where the write started, and when a sync fails, back to where
+	 * the unsynced records started, as their bytes may not be on disk. The futures of the records of the batch fail, and
+	 * records of earlier batches cut off by a failed sync in batched or async mode are lost like after a crash.
+	 * The truncation happens under the file lock of the failed write, so a rotation cannot replace the file in between.
+	 */
+	private void writeRecords() {
+		List<PendingRecord> batch = new ArrayList<PendingRecord>();
+		long lastSyncNanos = System.nanoTime();
+		while (true) {
+			PendingRecord first;
+			try {
+				first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				first = null;
+			}
+			if (first != null) {
+				batch.add(first);
+				queue.drainTo(batch);
+			}
+			boolean closing = closed && queue.isEmpty();
+			IOException error = null;
+			synchronized (fileLock) {
+				long truncateTo = -1;
+				try {
+					if (failure != null)
+						throw failure;
+					if (!batch.isEmpty()) {
+						truncateTo = channel.position();
+						if (unsyncedStart < 0)
+							unsyncedStart = truncateTo;
+						ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+						for (int i = 0; i < buffers.length; i++)
+							buffers[i] = ByteBuffer.wrap(batch.get(i).bytes);
+						while (buffers[buffers.length - 1].hasRemaining())
+							channel.write(buffers);
+						recordCount += batch.size();
+						writes.increment();
+					}
+					if (unsyncedStart >= 0 && (durability == Durability.SYNC || closing
+							|| System.nanoTime() - lastSyncNanos >= TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis))) {
+						truncateTo = unsyncedStart;
+						channel.force(false);
+						syncs.increment();
+						lastSyncNanos = System.nanoTime();
+						unsyncedStart = -1;
+					}
+				} catch (IOException e) {
+					error = e;
+					if (e != failure) {
+						logger.error("Cannot write update log " + path, e);
+						truncate(truncateTo, e);
+					}
+				}
+			}
+			for (PendingRecord pendingRecord : batch) {
+				if (error == null)
+					pendingRecord.durable.complete(null);
+				else
+					pendingRecord.durable.completeExceptionally(new UncheckedIOException("Cannot write update log " + path, error));
+			}
+			batch.clear();
+			if (closing)
+				return;
+		}
+	}
+
+	/**
+	 * The truncate method cuts the log back to the given length after the given failure. If it cannot, the log is
+	 * marked as failed and refuses further records.
+	 * @param length - length of the log before the failed write or sync, or -1 if it is not known.
+	 */
+	private void truncate(long length, IOException cause) {
+		synchronized (fileLock) {
+			unsyncedStart = -1;
+			try {
+				if (length < 0)
+					throw cause;
+				long cutOff = channel.size() - length;
+				channel.truncate(length);
+				channel.position(length);
+				channel.force(false);
+				logger.warn("Truncated {} bytes of failed records at the end of update log {}", cutOff, path);
+			} catch (IOException | RuntimeException e) {
+				failure = cause;
+				logger.error("Cannot truncate update log " + path + ", refusing further records", e);
+			}
+		}
+	}
+
+	/**
+	 * The rotate method replaces the log with a new file whose base version is the given snapshot version and that
+	 * only holds the records newer than it. It is called by the HotelData class once a snapshot of the given version
+	 * is durable in its snapshot file. Records still queued are written to the new file.
+	 * @param snapshotVersion
+	 * @throws UncheckedIOException - in case the log cannot be rotated, the current log is then kept.
+	 */
+	public void rotate(long snapshotVersion) throws UncheckedIOException {
+		synchronized (fileLock) {
+			if (channel == null || snapshotVersion <= baseVersion)
+				return;
+			try {
+				channel.force(false);
+				unsyncedStart = -1;
+				LogContent content = readLog(path);
+				List<byte[]> newerRecords = new ArrayList<byte[]>();
+				for (byte[] recordBytes : content.records) {
+					if (Record.versionOf(recordBytes) > snapshotVersion)
+						newerRecords.add(recordBytes);
+				}
+				Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+				writeLog(temporaryPath, snapshotVersion, newerRecords);
+				Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+				channel.close();
+				channel = FileChannel.open(path, StandardOpenOption.WRITE);
+				channel.position(channel.size());
+				baseVersion = snapshotVersion;
+				recordCount = newerRecords.size();
+				rotations.increment();
+				logger.info("Rotated update log {} to base version {}, kept {} of {} records", path, snapshotVersion,
+						newerRecords.size(), content.records.size());
+			} catch (IOException e) {
+				throw new UncheckedIOException("Cannot rotate update log " + path, e);
+			}
+		}
+	}
+
+	/**
+	 * The close method writes and syncs the queued records and stops the writer thread.
+	 */
+	@PreDestroy
+	public void close() {
+		if (writer == null || closed)
+			return;
+		closed = true;
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (fileLock) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				logger.warn("Cannot close update log " + path, e);
+			}
+		}
+	}
+
+	private static void writeLog(Path path, long baseVersion, List<byte[]> records) throws IOException {
+		try (FileChannel newChannel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(baseVersion);
+			header.flip();
+			newChannel.write(header);
+			for (byte[] record : records) {
+				ByteBuffer buffer = ByteBuffer.wrap(record);
+				while (buffer.hasRemaining())
+					newChannel.write(buffer);
+			}
+			newChannel.force(true);
+		}
+	}
+
+	/**
+	 * The readLog method reads the header and the complete records of a log. Reading stops at the first record that
+	 * is cut off or does not match its CRC32, which can only be the last record written before a crash.
+	 */
+	private static LogContent readLog(Path path) throws IOException {
+		LogContent content = new LogContent();
+		try (InputStream stream = Files.newInputStream(path);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+			if (in.readInt() != MAGIC)
+				throw new IllegalStateException(path + " is not an update log");
+			int formatVersion = in.readInt();
+			if (formatVersion != FORMAT_VERSION)
+				throw new IllegalStateException(path + " has update log format version " + formatVersion + ", expected " + FORMAT_VERSION);
+			content.baseVersion = in.readLong();
+			content.validLength = HEADER_SIZE;
+			while (true) {
+				int length, crc;
+				byte[] payload;
+				try {
+					length = in.readInt();
+					crc = in.readInt();
+					if (length < 0 || length > MAX_RECORD_SIZE)
+						break;
+					payload = new byte[length];
+					in.readFully(payload);
+				} catch (EOFException e) {
+					break;
+				}
+				if (crc(payload, 0, length) != crc)
+					break;
+				byte[] record = new byte[8 + length];
+				ByteBuffer.wrap(record).putInt(length).putInt(crc).put(payload);
+				content.records.add(record);
+				content.validLength += record.length;
+			}
+		}
+		return content;
+	}
+
+	private static int crc(byte[] bytes, int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, offset, length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * @return the durability, base version, number of records in the log and counters of the log.
+	 */
+	public Stats getStats() {
+		return new Stats(isEnabled(), durability.name().toLowerCase(Locale.ENGLISH), baseVersion, recordCount,
+				appended.sum(), writes.sum(), syncs.sum(), rotations.sum());
+	}
+
+	/**
+	 * The Record class is one update of the log: the snapshot version it created and its hotel advertisers, or the
+	 * advertiser operation it applied.
+	 * A record is encoded as its payload length, the CRC32 of its payload and the payload: version, number of hotel
+	 * advertisers and the fields of every hotel advertiser, with dates as epoch days. An advertiser operation is
+	 * encoded with -1 hotel advertisers, followed by the kind of the operation, the advertiser id, and the price and
+	 * cpc changes.
+	 */
+	public static final class Record {
+
+		private static final int OPERATION = -1;
+
+		private final long version;
+		private final List<HotelAdvertiser> hotelAdvertisers;
+		private final AdvertiserOperation operation;
+
+		private Record(long version, List<HotelAdvertiser> hotelAdvertisers, AdvertiserOperation operation) {
+			this.version = version;
+			this.hotelAdvertisers = hotelAdvertisers;
+			this.operation = operation;
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public List<HotelAdvertiser> getHotelAdvertisers() {
+			return hotelAdvertisers;
+		}
+
+		/**
+		 * @return the advertiser operation of the record, or null if it holds hotel advertisers.
+		 */
+		public AdvertiserOperation getOperation() {
+			return operation;
+		}
+
+		private byte[] encode() {
+			if (operation != null) {
+				int length = 41;
+				ByteBuffer buffer = ByteBuffer.allocate(8 + length);
+				buffer.putInt(length).putInt(0).putLong(version).putInt(OPERATION)
+						.put((byte) operation.getKind().ordinal()).putInt(operation.getAdvertiserId())
+						.putDouble(operation.getPricePercent()).putInt(operation.getPriceDelta())
+						.putDouble(operation.getCpcPercent()).putInt(operation.getCpcDelta());
+				byte[] bytes = buffer.array();
+				buffer.putInt(4, crc(bytes, 8, length));
+				return bytes;
+			}
+			byte[][] currencies = new byte[hotelAdvertisers.size()][];
+			int length = 12;
+			for (int i = 0; i < currencies.length; i++) {
+				currencies[i] = hotelAdvertisers.get(i).getCurrency().getBytes(StandardCharsets.UTF_8);
+				length += 26 + currencies[i].length;
+			}
+			ByteBuffer buffer = ByteBuffer.allocate(8 + length);
+			buffer.putInt(length).putInt(0).putLong(version).putInt(hotelAdvertisers.size());
+			for (int i = 0; i < currencies.length; i++) {
+				HotelAdvertiser hotelAdvertiser = hotelAdvertisers.get(i);
+				buffer.putInt(hotelAdvertiser.getAdvertiser_id()).putInt(hotelAdvertiser.getHotel_id())
+						.putInt(hotelAdvertiser.getCpc()).putInt(hotelAdvertiser.getPrice())
+						.putInt(hotelAdvertiser.getAvailability_start_day())
+						.putInt(hotelAdvertiser.getAvailability_end_day())
+						.putShort((short) currencies[i].length).put(currencies[i]);
+			}
+			byte[] bytes = buffer.array();
+			buffer.putInt(4, crc(bytes, 8, length));
+			return bytes;
+		}
+
+		private static long versionOf(byte[] bytes) {
+			return ByteBuffer.wrap(bytes).getLong(8);
+		}
+
+		private static Record decode(byte[] bytes) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			buffer.position(8);
+			long version = buffer.getLong();
+			int count = buffer.getInt();
+			if (count == OPERATION) {
+				AdvertiserOperation.Kind kind = AdvertiserOperation.Kind.values()[buffer.get()];
+				int advertiserId = buffer.getInt();
+				double pricePercent = buffer.getDouble();
+				int priceDelta = buffer.getInt();
+				double cpcPercent = buffer.getDouble();
+				int cpcDelta = buffer.getInt();
+				return new Record(version, Collections.<HotelAdvertiser>emptyList(), 
+						new AdvertiserOperation(kind, advertiserId, pricePercent, priceDelta, cpcPercent, cpcDelta));
+			}
+			List<HotelAdvertiser> hotelAdvertisers = new ArrayList<HotelAdvertiser>(count);
+			for (int i = 0; i < count; i++) {
+				int advertiserId = buffer.getInt();
+				int hotelId = buffer.getInt();
+				int cpc = buffer.getInt();
+				int price = buffer.getInt();
+				int startDay = buffer.getInt();
+				int endDay = buffer.getInt();
+				byte[] currency = new byte[buffer.getShort()];
+				buffer.get(currency);
+				hotelAdvertisers.add(new HotelAdvertiser(advertiserId, hotelId, cpc, price, new String(currency, StandardCharsets.UTF_8),
+						startDay, endDay));
+			}
+			return new Record(version, hotelAdvertisers, null);
+		}
+	}
+
+	private static class PendingRecord {
+
+		private final byte[] bytes;
+		private final CompletableFuture<Void> durable = new CompletableFuture<Void>();
+
+		private PendingRecord(byte[] bytes) {
+			this.bytes = bytes;
+		}
+	}
+
+	private static class LogContent {
+
+		private long baseVersion;
+		private long validLength;
+		private final List<byte[]> records = new ArrayList<byte[]>();
+	}
+
+	/**
+	 * The Stats class is the JSON view of the update log returned by the AdminController class.
+	 */
+	public static class Stats {
+
+		private final boolean enabled;
+		private final String durability;
+		private final long baseVersion;
+		private final int records;
+		private final long appended;
+		private final long writes;
+		private final long syncs;
+		private final long rotations;
+
+		private Stats(boolean enabled, String durability, long baseVersion, int records, long appended, long writes,
+				long syncs, long rotations) {
+			this.enabled = enabled;
+			this.durability = durability;
+			this.baseVersion = baseVersion;
+			this.records = records;
+			this.appended = appended;
+			this.writes = writes;
+			this.syncs = syncs;
+			this.rotations = rotations;
+		}
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public String getDurability() {
+			return durability;
+		}
+
+		public long getBaseVersion() {
+			return baseVersion;
+		}
+
+		public int getRecords() {
+			return records;
+		}
+
+		public long getAppended() {
+			return appended;
+		}
+
+		public long getWrites() {
+			return writes;
+		}
+
+		public long getSyncs() {
+			return syncs;
+		}
+
+		public long getRotations() {
+			return rotations;
+		}
+	}
+}
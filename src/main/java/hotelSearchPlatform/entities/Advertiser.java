@@ -1,9 +1,12 @@
 package hotelSearchPlatform.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class Advertiser {
 	
 	private int id;
 	private String advertiser_name;
+	private volatile byte[] jsonFragment;
 	public Advertiser(int id, String advertiser_name) {
 		super();
 		this.id = id;
@@ -17,6 +20,18 @@ public class Advertiser {
 		return advertiser_name;
 	}
 	
+	/**
+	 * @return the JSON encoding of the fields of this advertiser, cached by the SearchResultWriter class, or null.
+	 */
+	@JsonIgnore
+	public byte[] getJsonFragment() {
+		return jsonFragment;
+	}
+	
+	public void setJsonFragment(byte[] jsonFragment) {
+		this.jsonFragment = jsonFragment;
+	}
+	
 	@Override
 	public String toString() {
 		return "Advertiser [id=" + id + ", name=" + advertiser_name + "]";
@@ -1,9 +1,12 @@
 package hotelSearchPlatform.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class Hotel {
 	
 	private int id,city_id,clicks,impressions, rating, stars;
 	private String name;
+	private volatile byte[] jsonFragment;
 	
 	public Hotel(int id, int city_id, int clicks, int impressions, int rating, int stars, String name) {
 		super();
@@ -47,6 +50,18 @@ public class Hotel {
 		return name;
 	}
 
+	/**
+	 * @return the JSON encoding of the fields of this hotel, cached by the SearchResultWriter class, or null.
+	 */
+	@JsonIgnore
+	public byte[] getJsonFragment() {
+		return jsonFragment;
+	}
+
+	public void setJsonFragment(byte[] jsonFragment) {
+		this.jsonFragment = jsonFragment;
+	}
+
 	@Override
 	public String toString() {
 		return "Hotel [id=" + id + ", city_id=" + city_id + ", rating=" + rating+ "]";
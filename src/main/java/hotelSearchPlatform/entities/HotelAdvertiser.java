@@ -1,23 +1,25 @@
 package hotelSearchPlatform.entities;
 
-import java.time.LocalDate;
-
+/**
+ * The HotelAdvertiser entity holds its availability dates as epoch day ints (days since 1970-01-01), see the
+ * EpochDays class, so dates are parsed, compared and stored without LocalDate objects.
+ */
 public class HotelAdvertiser {
 
 	private int advertiser_id, hotel_id, cpc, price;
 	private String currency;
-	private LocalDate availability_start_date, availability_end_date;
+	private int availability_start_day, availability_end_day;
 
 	public HotelAdvertiser(int advertiser_id, int hotel_id, int cpc, int price, String currency,
-			LocalDate availability_start_date, LocalDate availability_end_date) {
+			int availability_start_day, int availability_end_day) {
 		super();
 		this.advertiser_id = advertiser_id;
 		this.hotel_id = hotel_id;
 		this.cpc = cpc;
 		this.price = price;
 		this.currency = currency;
-		this.availability_start_date = availability_start_date;
-		this.availability_end_date = availability_end_date;
+		this.availability_start_day = availability_start_day;
+		this.availability_end_day = availability_end_day;
 	}
 
 	public int getAdvertiser_id() {
@@ -40,19 +42,25 @@ public class HotelAdvertiser {
 		return currency;
 	}
 
-	public LocalDate getAvailability_start_date() {
-		return availability_start_date;
+	/**
+	 * @return the first available day, as an epoch day.
+	 */
+	public int getAvailability_start_day() {
+		return availability_start_day;
 	}
 
-	public LocalDate getAvailability_end_date() {
-		return availability_end_date;
+	/**
+	 * @return the last available day, as an epoch day.
+	 */
+	public int getAvailability_end_day() {
+		return availability_end_day;
 	}
 
 	@Override
 	public String toString() {
 		return "HotelAdvertiser [advertiser_id=" + advertiser_id + ", hotel_id=" + hotel_id + ", cpc=" + cpc
-				+ ", price=" + price + ", currency=" + currency + ", availability_start_date=" + availability_start_date
-				+ ", availability_end_date=" + availability_end_date + "]";
+				+ ", price=" + price + ", currency=" + currency + ", availability_start_day=" + availability_start_day
+				+ ", availability_end_day=" + availability_end_day + "]";
 	}
 
 }
@@ -1,17 +1,28 @@
 package hotelSearchPlatform.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class Offer {
 
 	private int advertiser_id, cpc, price;
 	private String advertiser_name, currency;
+	private int normalized_price;
 
 	public Offer(int advertiser_id, int cpc, int price, String advertiser_name, String currency) {
+		this(advertiser_id, cpc, price, advertiser_name, currency, price);
+	}
+
+	/**
+	 * @param normalized_price - the price in the base currency, which offers are ordered by.
+	 */
+	public Offer(int advertiser_id, int cpc, int price, String advertiser_name, String currency, int normalized_price) {
 		super();
 		this.advertiser_id = advertiser_id;
 		this.cpc = cpc;
 		this.price = price;
 		this.advertiser_name = advertiser_name;
 		this.currency = currency;
+		this.normalized_price = normalized_price;
 	}
 
 	public Offer() {
@@ -37,6 +48,11 @@ public class Offer {
 		return currency;
 	}
 
+	@JsonIgnore
+	public int getNormalized_price() {
+		return normalized_price;
+	}
+
 	@Override
 	public String toString() {
 		return "Offer [advertiser_id=" + advertiser_id + ", cpc=" + cpc + ", price=" + price + ", advertiser_name="
@@ -0,0 +1,58 @@
+package hotelSearchPlatform.entities;
+
+public class SearchQueryWithStringDate {
+
+	private String id, city, startDate, endDate, rank;
+	private Integer offset, limit, offersPerHotel;
+
+	public SearchQueryWithStringDate(String id, String city, String startDate, String endDate, String rank, Integer offset,
+			Integer limit, Integer offersPerHotel) {
+		super();
+		this.id = id;
+		this.city = city;
+		this.startDate = startDate;
+		this.endDate = endDate;
+		this.rank = rank;
+		this.offset = offset;
+		this.limit = limit;
+		this.offersPerHotel = offersPerHotel;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getCity() {
+		return city;
+	}
+
+	public String getStartDate() {
+		return startDate;
+	}
+
+	public String getEndDate() {
+		return endDate;
+	}
+
+	public String getRank() {
+		return rank;
+	}
+
+	public Integer getOffset() {
+		return offset;
+	}
+
+	public Integer getLimit() {
+		return limit;
+	}
+
+	public Integer getOffersPerHotel() {
+		return offersPerHotel;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchQueryWithStringDate [id=" + id + ", city=" + city + ", startDate=" + startDate + ", endDate=" + endDate
+				+ ", rank=" + rank + ", offset=" + offset + ", limit=" + limit + ", offersPerHotel=" + offersPerHotel + "]";
+	}
+}
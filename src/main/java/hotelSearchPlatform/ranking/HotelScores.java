@@ -0,0 +1,117 @@
+package hotelSearchPlatform.ranking;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+import hotelSearchPlatform.entities.Hotel;
+
+/**
+ * The HotelScores class holds the precomputed score of every hotel in every RankingMode, so a search ranks hotels by
+ * a primitive key instead of calling a comparator on Hotel entities.
+ * Scores are kept per mode in int chunks, by position of the hotel id in a sorted array of all hotel ids.
+ * HotelScores is immutable and is kept by the HotelDataSnapshot class. When the best offer of a hotel changes,
+ * withBestCpc() creates new scores that copy only the chunks of that hotel in the modes depending on the best offer.
+ */
+public final class HotelScores {
+
+	private static final int CHUNK_BITS = 10;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	private final RankingFormulas formulas;
+	private final int[] hotelIds;
+	private final int[][][] scoresByMode;
+
+	private HotelScores(RankingFormulas formulas, int[] hotelIds, int[][][] scoresByMode) {
+		this.formulas = formulas;
+		this.hotelIds = hotelIds;
+		this.scoresByMode = scoresByMode;
+	}
+
+	/**
+	 * @param formulas
+	 * @param hotels - all hotels by hotel id.
+	 * @param bestCpcOfHotel - returns the cpc of the best offer of a hotel id, 0 if the hotel has no offers.
+	 * @return the scores of all given hotels in all ranking modes.
+	 */
+	public static HotelScores build(RankingFormulas formulas, Map<Integer, Hotel> hotels, IntUnaryOperator bestCpcOfHotel) {
+		int[] hotelIds = new int[hotels.size()];
+		int hotelCount = 0;
+		for (Integer hotelId : hotels.keySet())
+			hotelIds[hotelCount++] = hotelId;
+		Arrays.sort(hotelIds);
+		int[] bestCpcs = new int[hotelIds.length];
+		for (int i = 0; i < hotelIds.length; i++)
+			bestCpcs[i] = bestCpcOfHotel.applyAsInt(hotelIds[i]);
+		RankingMode[] modes = RankingMode.values();
+		int[][][] scoresByMode = new int[modes.length][][];
+		for (RankingMode mode : modes) {
+			int[][] chunks = new int[(hotelIds.length + CHUNK_SIZE - 1) >> CHUNK_BITS][];
+			for (int chunk = 0; chunk < chunks.length; chunk++)
+				chunks[chunk] = new int[Math.min(CHUNK_SIZE, hotelIds.length - (chunk << CHUNK_BITS))];
+			for (int i = 0; i < hotelIds.length; i++)
+				chunks[i >> CHUNK_BITS][i & (CHUNK_SIZE - 1)] = formulas.score(mode, hotels.get(hotelIds[i]), bestCpcs[i]);
+			scoresByMode[mode.ordinal()] = chunks;
+		}
+		return new HotelScores(formulas, hotelIds, scoresByMode);
+	}
+
+	/**
+	 * @param mode
+	 * @param hotelId
+	 * @return the score of the given hotel, or Integer.MIN_VALUE for an unknown hotel.
+	 */
+	public int getScore(RankingMode mode, int hotelId) {
+		int position = Arrays.binarySearch(hotelIds, hotelId);
+		if (position < 0)
+			return Integer.MIN_VALUE;
+		return scoresByMode[mode.ordinal()][position >> CHUNK_BITS][position & (CHUNK_SIZE - 1)];
+	}
+
+	/**
+	 * @param mode
+	 * @param hotelId
+	 * @return a key that orders hotels by score decreasing and then by hotel id, holding the hotel id in its low 32 bits.
+	 */
+	public long rankKey(RankingMode mode, int hotelId) {
+		return ((long) ~getScore(mode, hotelId) << 32) | (hotelId & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param rankKey
+	 * @return the hotel id of a key created by rankKey().
+	 */
+	public static int hotelIdOf(long rankKey) {
+		return (int) rankKey;
+	}
+
+	/**
+	 * @param hotel
+	 * @param bestCpc - cpc of the hotel's best offer, 0 if the hotel has no offers left.
+	 * @return scores with the given hotel rescored in the modes depending on the best offer. This instance is not changed.
+	 */
+	public HotelScores withBestCpc(Hotel hotel, int bestCpc) {
+		int position = Arrays.binarySearch(hotelIds, hotel.getId());
+		if (position < 0)
+			return this;
+		int[][][] newScoresByMode = scoresByMode;
+		for (RankingMode mode : RankingMode.values()) {
+			if (!formulas.dependsOnBestOffer(mode))
+				continue;
+			int[][] chunks = scoresByMode[mode.ordinal()];
+			int chunk = position >> CHUNK_BITS;
+			int score = formulas.score(mode, hotel, bestCpc);
+			if (chunks[chunk][position & (CHUNK_SIZE - 1)] == score)
+				continue;
+			if (newScoresByMode == scoresByMode)
+				newScoresByMode = scoresByMode.clone();
+			int[][] newChunks = chunks.clone();
+			newChunks[chunk] = chunks[chunk].clone();
+			newChunks[chunk][position & (CHUNK_SIZE - 1)] = score;
+			newScoresByMode[mode.ordinal()] = newChunks;
+		}
+		if (newScoresByMode == scoresByMode)
+			return this;
+		return new HotelScores(formulas, hotelIds, newScoresByMode);
+	}
+}
@@ -0,0 +1,79 @@
+package hotelSearchPlatform.ranking;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import hotelSearchPlatform.entities.Hotel;
+
+/**
+ * The RankingFormulas class computes the int score of a hotel for every RankingMode, from the hotel's fields and
+ * the cpc of its best offer (the cheapest one, and of those the one with the highest cpc).
+ * Fractional formulas are scaled by SCALE before rounding, so scores can be compared as ints.
+ * The weights of the WEIGHTED mode are set by the 'ranking.weighted.*' properties.
+ */
+@Component
+public class RankingFormulas {
+
+	public static final int SCALE = 1000;
+
+	private final double ratingWeight;
+	private final double starsWeight;
+	private final double ctrWeight;
+	private final double cpcWeight;
+
+	public RankingFormulas(@Value("${ranking.weighted.rating:1}") double ratingWeight,
+			@Value("${ranking.weighted.stars:0}") double starsWeight,
+			@Value("${ranking.weighted.ctr:0}") double ctrWeight,
+			@Value("${ranking.weighted.cpc:0}") double cpcWeight) {
+		this.ratingWeight = ratingWeight;
+		this.starsWeight = starsWeight;
+		this.ctrWeight = ctrWeight;
+		this.cpcWeight = cpcWeight;
+	}
+
+	/**
+	 * @param mode
+	 * @param hotel
+	 * @param bestCpc - cpc of the hotel's best offer, 0 if the hotel has no offers.
+	 * @return the score of the hotel in the given mode, higher is better.
+	 */
+	public int score(RankingMode mode, Hotel hotel, int bestCpc) {
+		switch (mode) {
+		case RATING:
+			return hotel.getRating();
+		case STARS:
+			return hotel.getStars();
+		case CTR:
+			return toScore(SCALE * clickThroughRate(hotel));
+		case REVENUE:
+			return toScore(SCALE * clickThroughRate(hotel) * bestCpc);
+		case WEIGHTED:
+			return toScore(SCALE * (ratingWeight * hotel.getRating() + starsWeight * hotel.getStars()
+					+ ctrWeight * clickThroughRate(hotel) + cpcWeight * bestCpc));
+		default:
+			throw new IllegalArgumentException("Unknown ranking mode " + mode);
+		}
+	}
+
+	/**
+	 * @param mode
+	 * @return true if scores of the given mode change when the best offer of a hotel changes.
+	 */
+	public boolean dependsOnBestOffer(RankingMode mode) {
+		return mode == RankingMode.REVENUE || (mode == RankingMode.WEIGHTED && cpcWeight != 0);
+	}
+
+	private static double clickThroughRate(Hotel hotel) {
+		if (hotel.getImpressions() <= 0)
+			return 0;
+		return (double) hotel.getClicks() / hotel.getImpressions();
+	}
+
+	private static int toScore(double value) {
+		if (value >= Integer.MAX_VALUE)
+			return Integer.MAX_VALUE;
+		if (value <= Integer.MIN_VALUE)
+			return Integer.MIN_VALUE;
+		return (int) Math.round(value);
+	}
+}
@@ -0,0 +1,32 @@
+package hotelSearchPlatform.ranking;
+
+/**
+ * The RankingMode enum lists the orders a search can rank hotels in. Every mode scores hotels with a formula of
+ * the RankingFormulas class, and hotels are ranked by score decreasing and then by hotel id.
+ */
+public enum RankingMode {
+
+	/** Hotel rating. */
+	RATING,
+	/** Hotel stars. */
+	STARS,
+	/** Click-through rate, clicks / impressions. */
+	CTR,
+	/** Expected revenue per impression, the click-through rate times the cpc of the hotel's best offer. */
+	REVENUE,
+	/** Weighted sum of rating, stars, click-through rate and best offer cpc, with weights set by properties. */
+	WEIGHTED;
+
+	/**
+	 * @param name - case insensitive mode name.
+	 * @return the RankingMode of the given name.
+	 * @throws IllegalArgumentException - in case no mode has the given name.
+	 */
+	public static RankingMode of(String name) throws IllegalArgumentException {
+		for (RankingMode mode : values()) {
+			if (mode.name().equalsIgnoreCase(name))
+				return mode;
+		}
+		throw new IllegalArgumentException("Unknown ranking mode '" + name + "'");
+	}
+}
@@ -0,0 +1,132 @@
+package hotelSearchPlatform.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The ConcurrentHistogram class counts non negative values in log-linear buckets, as HdrHistogram does: values below
+ * 64 have a bucket each and larger values share a bucket with values equal in their 6 most significant bits, so
+ * percentiles are reported within about 3% of the recorded values, with a fixed amount of memory. Values above 2^40
+ * are counted as 2^40.
+ * The buckets are striped by thread id, so threads recording concurrently rarely increment the same counter, and
+ * recording a value takes two uncontended atomic increments. Reading merges the stripes into a Snapshot.
+ */
+class ConcurrentHistogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final long MAX_VALUE = 1L << 40;
+	private static final int BUCKETS = index(MAX_VALUE) + 1;
+	/** The sum and the maximum of the values of a stripe follow its buckets. */
+	private static final int STRIPE_LENGTH = BUCKETS + 2;
+
+	private final int stripeMask;
+	private final AtomicLongArray counts;
+
+	ConcurrentHistogram() {
+		int stripes = Math.min(16, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1));
+		this.stripeMask = stripes - 1;
+		this.counts = new AtomicLongArray(stripes * STRIPE_LENGTH);
+	}
+
+	/**
+	 * @param value - clamped to 0 to 2^40.
+	 */
+	void record(long value) {
+		long clamped = Math.max(0, Math.min(value, MAX_VALUE));
+		int stripe = ((int) Thread.currentThread().getId() & stripeMask) * STRIPE_LENGTH;
+		counts.incrementAndGet(stripe + index(clamped));
+		counts.addAndGet(stripe + BUCKETS, clamped);
+		int maxIndex = stripe + BUCKETS + 1;
+		for (long max = counts.get(maxIndex); clamped > max; max = counts.get(maxIndex)) {
+			if (counts.compareAndSet(maxIndex, max, clamped))
+				break;
+		}
+	}
+
+	/**
+	 * @return the merged counts of all stripes. Values recorded while merging may be partly included.
+	 */
+	Snapshot snapshot() {
+		long[] merged = new long[BUCKETS];
+		long count = 0;
+		long sum = 0;
+		long max = 0;
+		for (int stripe = 0; stripe < counts.length(); stripe += STRIPE_LENGTH) {
+			for (int index = 0; index < BUCKETS; index++) {
+				long bucketCount = counts.get(stripe + index);
+				merged[index] += bucketCount;
+				count += bucketCount;
+			}
+			sum += counts.get(stripe + BUCKETS);
+			max = Math.max(max, counts.get(stripe + BUCKETS + 1));
+		}
+		return new Snapshot(merged, count, sum, max);
+	}
+
+	private static int index(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	private static long highestValue(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int shift = index / HALF_SUB_BUCKETS - 1;
+		long subBucket = index % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return (subBucket << shift) + (1L << shift) - 1;
+	}
+
+	/**
+	 * The Snapshot class holds the merged counts of a ConcurrentHistogram at one point in time.
+	 */
+	static final class Snapshot {
+
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		private Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		long getSum() {
+			return sum;
+		}
+
+		long getMax() {
+			return max;
+		}
+
+		double getMean() {
+			return count == 0 ? 0 : (double) sum / count;
+		}
+
+		/**
+		 * @param percentile - from 0 to 100.
+		 * @return the highest value of the bucket of the given percentile, at most the largest recorded value.
+		 */
+		long getValueAtPercentile(double percentile) {
+			if (count == 0)
+				return 0;
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+			long cumulativeCount = 0;
+			for (int index = 0; index < counts.length; index++) {
+				cumulativeCount += counts[index];
+				if (cumulativeCount >= rank)
+					return Math.min(highestValue(index), max);
+			}
+			return max;
+		}
+	}
+}
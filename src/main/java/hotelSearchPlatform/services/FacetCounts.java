@@ -0,0 +1,78 @@
+package hotelSearchPlatform.services;
+
+/**
+ * The FacetCounts class holds the facet counts of a search, counted by the Filters class in the same pass that
+ * applies the SearchFilter of the search: the number of hotels per star level, and the number of hotels with an offer
+ * in each price bucket. Every facet counts the hotels matching all filters except its own, so selecting another star
+ * level or price range changes the result by the counts shown.
+ * Price buckets are given by their lower bounds, increasing: bucket i holds the prices from bound i up to bound i + 1,
+ * excluded, and the last bucket has no upper bound. Prices below the first bound are counted in the first bucket.
+ */
+public final class FacetCounts {
+
+	private final int[] priceBucketBounds;
+	private final int[] hotelsByPriceBucket;
+	private final int[] hotelsByStars = new int[SearchFilter.MAX_STARS + 1];
+
+	/**
+	 * @param priceBucketBounds - lower bound of every price bucket, increasing.
+	 */
+	FacetCounts(int[] priceBucketBounds) {
+		this.priceBucketBounds = priceBucketBounds;
+		this.hotelsByPriceBucket = new int[priceBucketBounds.length];
+	}
+
+	/**
+	 * @param price
+	 * @return the index of the price bucket of the given price.
+	 */
+	int priceBucketOf(int price) {
+		int low = 1;
+		int high = priceBucketBounds.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (priceBucketBounds[middle] <= price)
+				low = middle + 1;
+			else
+				high = middle - 1;
+		}
+		return low - 1;
+	}
+
+	void countPriceBucket(int bucket) {
+		hotelsByPriceBucket[bucket]++;
+	}
+
+	void countStars(int stars) {
+		if (stars >= 0 && stars <= SearchFilter.MAX_STARS)
+			hotelsByStars[stars]++;
+	}
+
+	public int getPriceBucketCount() {
+		return priceBucketBounds.length;
+	}
+
+	/**
+	 * @param bucket
+	 * @return the lowest price of the given bucket.
+	 */
+	public int getPriceBucketBound(int bucket) {
+		return priceBucketBounds[bucket];
+	}
+
+	/**
+	 * @param bucket
+	 * @return the number of hotels with an offer in the given price bucket.
+	 */
+	public int getHotelsInPriceBucket(int bucket) {
+		return hotelsByPriceBucket[bucket];
+	}
+
+	/**
+	 * @param stars - from 0 to SearchFilter.MAX_STARS.
+	 * @return the number of hotels with the given star level.
+	 */
+	public int getHotelsWithStars(int stars) {
+		return hotelsByStars[stars];
+	}
+}
@@ -0,0 +1,34 @@
+package hotelSearchPlatform.services;
+
+import java.util.Map;
+import java.util.TreeSet;
+
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.entities.Offer;
+
+/**
+ * The FacetedSearchResult class holds the result of a filtered search, see HotelFacade.createFacetedSearchResult():
+ * the hotels of the requested page in rank order with their matching offers, and the facet counts of the search.
+ */
+public final class FacetedSearchResult {
+
+	private final Map<Hotel, TreeSet<Offer>> hotelOffers;
+	private final FacetCounts facetCounts;
+
+	/**
+	 * @param hotelOffers - hotels with their offers, in rank order.
+	 * @param facetCounts - facet counts of the search, or null if they were not requested.
+	 */
+	public FacetedSearchResult(Map<Hotel, TreeSet<Offer>> hotelOffers, FacetCounts facetCounts) {
+		this.hotelOffers = hotelOffers;
+		this.facetCounts = facetCounts;
+	}
+
+	public Map<Hotel, TreeSet<Offer>> getHotelOffers() {
+		return hotelOffers;
+	}
+
+	public FacetCounts getFacetCounts() {
+		return facetCounts;
+	}
+}
@@ -5,99 +5,133 @@ package hotelSearchPlatform.services;
  * based on client submitted queries sent via the HotelController class. 
  */
 
-import java.time.LocalDate;
-import java.util.Map.Entry;
-import java.util.SortedMap;
-import java.util.TreeMap;
-import java.util.TreeSet;
-
-import javax.annotation.Resource;
+import java.util.Arrays;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import hotelSearchPlatform.comparators.HotelAdvertiserComparator;
-import hotelSearchPlatform.data.HotelData;
+import hotelSearchPlatform.data.HotelAdvertiserStore;
+import hotelSearchPlatform.data.HotelAttributes;
+import hotelSearchPlatform.data.HotelDataSnapshot;
+import hotelSearchPlatform.data.NormalizedPrices;
 import hotelSearchPlatform.entities.City;
-import hotelSearchPlatform.entities.HotelAdvertiser;
 
 
 @Service
 public class Filters {
 	
-	@Resource
-	private HotelData hotelData;
+	private int[] priceBucketBounds;
+
+	/**
+	 * @param priceBucketBounds - lower bound of every price bucket of the facet counts, increasing, at most 64 of them.
+	 * @throws IllegalArgumentException - in case the bounds are not increasing or there are more than 64 of them.
+	 */
+	@Value("${search-facets.price-buckets:0,50,100,150,200,300,500}")
+	public void setPriceBucketBounds(int[] priceBucketBounds) throws IllegalArgumentException {
+		if (priceBucketBounds.length == 0 || priceBucketBounds.length > 64)
+			throw new IllegalArgumentException("search-facets.price-buckets must have 1 to 64 bounds");
+		for (int i = 1; i < priceBucketBounds.length; i++)
+			if (priceBucketBounds[i] <= priceBucketBounds[i - 1])
+				throw new IllegalArgumentException("search-facets.price-buckets must be increasing");
+		this.priceBucketBounds = priceBucketBounds;
+	}
 	
 	/**
-	 * The filterByQuery method filters the hotel data first by date using the filterHotelAdvertisersByDate() method, 
-	 * and then by city using filterHotelAdvetisersByCity().
+	 * The filterRowsByQuery method returns the row ids of the hotel advertisers in the given city whose availability 
+	 * contains the given start and end dates, without creating HotelAdvertiser entities.
+	 * @param snapshot - version of the hotel data to filter.
 	 * @param city
-	 * @param startDate
-	 * @param endDate
-	 * @return a set of sorted hotel advertisers by hotel id, within a specific date range and city.
+	 * @param startDay - epoch day of the start date.
+	 * @param endDay - epoch day of the end date.
+	 * @return row ids in the HotelAdvertiserStore of the snapshot, in no particular order.
 	 */
-	public SortedMap<Integer, TreeSet<HotelAdvertiser>> filterByQuery(City city, LocalDate startDate, LocalDate endDate) {
-		SortedMap<Integer, TreeSet<HotelAdvertiser>> hotelAdvertisersByQuery;
-		hotelAdvertisersByQuery = filterHotelAdvertisersByDate(startDate, endDate, this.hotelData.getHotelAdvertisers());
-		hotelAdvertisersByQuery = filterHotelAdvetisersByCity(city, hotelAdvertisersByQuery);
-		return hotelAdvertisersByQuery;
+	public int[] filterRowsByQuery(HotelDataSnapshot snapshot, City city, int startDay, int endDay) {
+		return snapshot.getAvailabilityIndex(city.getId()).findContaining(startDay, endDay);
 	}
 
 	/**
-	 * The filterHotelAdvertisersByDate() method filters the hotel advertiser data by given start and end date. 
-	 * The method uses the checkHotelAdvertiserDates() to check which hotel advertisers comply with given start and end dates.
-	 * @param startDate
-	 * @param endDate
-	 * @param allHotelAdvertiserSetsByHotel
-	 * @return a set of sorted hotel advertisers by hotel id, within a specific date range.
+	 * The filterRowsByQueries method returns the row ids of the hotel advertisers in the given city for several date
+	 * ranges at once, with one walk of the city's availability index, see AvailabilityIndex.findContainingAll().
+	 * @param snapshot - version of the hotel data to filter.
+	 * @param city
+	 * @param startDays - start epoch day of every date range.
+	 * @param endDays - end epoch day of every date range, at the same position as its start day.
+	 * @return row ids of every date range, at its position, as filterRowsByQuery() returns them.
 	 */
-	public SortedMap<Integer, TreeSet<HotelAdvertiser>> filterHotelAdvertisersByDate(LocalDate startDate,
-			LocalDate endDate, SortedMap<Integer, TreeSet<HotelAdvertiser>> allHotelAdvertiserSetsByHotel) {
-		SortedMap<Integer, TreeSet<HotelAdvertiser>> filterResult = new TreeMap<Integer, TreeSet<HotelAdvertiser>>();
-		for (Entry<Integer, TreeSet<HotelAdvertiser>> hotelAdvertiserSetByHotel : allHotelAdvertiserSetsByHotel.entrySet()) {
-			TreeSet<HotelAdvertiser> hotelAdvertiserSetByDate = new TreeSet<HotelAdvertiser>(new HotelAdvertiserComparator());
-			for (HotelAdvertiser hotelAdvertiser : hotelAdvertiserSetByHotel.getValue()) {
-				if (checkHotelAdvertiserDates(startDate, endDate, hotelAdvertiser)) {
-					hotelAdvertiserSetByDate.add(hotelAdvertiser);
-				}
-			}
-			filterResult.put(hotelAdvertiserSetByHotel.getKey(), hotelAdvertiserSetByDate);
-		}
-		return filterResult;
+	public int[][] filterRowsByQueries(HotelDataSnapshot snapshot, City city, int[] startDays, int[] endDays) {
+		return snapshot.getAvailabilityIndex(city.getId()).findContainingAll(startDays, endDays);
 	}
 
-	
 	/**
-	 * The checkHotelAdvertiserDates() method checks if given start and end dates are within the range of a specific
-	 * hotel advertiser's start and end dates.  
-	 * @param startDate
-	 * @param endDate
-	 * @param hotelAdvertiser
-	 * @return true if given dates are within the hotel advertisers range, false otherwise. 
+	 * @return empty facet counts with the price buckets of the 'search-facets.price-buckets' property, to be counted
+	 * by filterRowsByFilter().
 	 */
-	private boolean checkHotelAdvertiserDates(LocalDate startDate, LocalDate endDate, HotelAdvertiser hotelAdvertiser) {
-		return (hotelAdvertiser.getAvailability_start_date().isBefore(startDate)
-				|| hotelAdvertiser.getAvailability_start_date().isEqual(startDate))
-				&& (hotelAdvertiser.getAvailability_end_date().isAfter(endDate)
-				|| hotelAdvertiser.getAvailability_end_date().isEqual(endDate));
+	public FacetCounts createFacetCounts() {
+		return new FacetCounts(priceBucketBounds);
 	}
 
 	/**
-	 * The filterHotelAdvertisersByCity() method filters the hotel advertiser data by a given city. 
-	 * The method uses the HotelData class to check which hotels are in a specific city.
-	 * @param city
-	 * @param hotelAdvertiserSetsByHotelAndDate
-	 * @return a set of sorted hotel advertisers by hotel id, within a specific city.
+	 * The filterRowsByFilter method applies the given filter to the rows matching the city and dates of a search, and
+	 * counts the facets of the search in the same pass. The rows are sorted by hotel id, so every hotel is visited
+	 * once: its star level and rating are read from the primitive columns of the snapshot's HotelAttributes, and the
+	 * normalized prices of its rows are checked against the price range and mapped to their price buckets with a bit mask.
+	 * A hotel counts for its star level if its rating matches and it has a row in the price range, and for the price
+	 * buckets of its rows if its star level and rating match.
+	 * @param snapshot - version of the hotel data the rows belong to.
+	 * @param rows - row ids of the hotel advertisers matching the city and dates of the search.
+	 * @param filter
+	 * @param facetCounts - counts of the facets, see createFacetCounts(), or null to skip counting.
+	 * @return the row ids of the given rows whose hotel and price match the filter, grouped by hotel.
 	 */
-	public SortedMap<Integer, TreeSet<HotelAdvertiser>> filterHotelAdvetisersByCity(City city,
-			SortedMap<Integer, TreeSet<HotelAdvertiser>> hotelAdvertiserSetsByHotelAndDate) {
-		SortedMap<Integer, TreeSet<HotelAdvertiser>> filterResult = new TreeMap<Integer, TreeSet<HotelAdvertiser>>();
-		for (Entry<Integer, TreeSet<HotelAdvertiser>> hotelId : hotelAdvertiserSetsByHotelAndDate.entrySet()) {
-			if (this.hotelData.getHotels().get(hotelId.getKey()).getCity_id() == city.getId()) {
-				filterResult.put(hotelId.getKey(), hotelId.getValue());
+	public int[] filterRowsByFilter(HotelDataSnapshot snapshot, int[] rows, SearchFilter filter, FacetCounts facetCounts) {
+		HotelAdvertiserStore store = snapshot.getHotelAdvertiserStore();
+		HotelAttributes hotelAttributes = snapshot.getHotelAttributes();
+		NormalizedPrices normalizedPrices = snapshot.getNormalizedPrices();
+		long[] rowsByHotel = new long[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			rowsByHotel[i] = ((long) store.getHotelId(rows[i]) << 32) | (rows[i] & 0xFFFFFFFFL);
+		Arrays.sort(rowsByHotel);
+		int[] filteredRows = new int[rows.length];
+		int filteredCount = 0;
+		for (int first = 0, next; first < rowsByHotel.length; first = next) {
+			int hotelId = (int) (rowsByHotel[first] >> 32);
+			int stars = hotelAttributes.getStars(hotelId);
+			boolean ratingMatches = filter.matchesRating(hotelAttributes.getRating(hotelId));
+			boolean hotelMatches = ratingMatches && filter.matchesStars(stars);
+			boolean priceMatches = false;
+			long priceBuckets = 0;
+			for (next = first; next < rowsByHotel.length && (int) (rowsByHotel[next] >> 32) == hotelId; next++) {
+				int row = (int) rowsByHotel[next];
+				int price = normalizedPrices.get(row);
+				if (filter.matchesPrice(price)) {
+					priceMatches = true;
+					if (hotelMatches)
+						filteredRows[filteredCount++] = row;
+				}
+				if (facetCounts != null)
+					priceBuckets |= 1L << facetCounts.priceBucketOf(price);
+			}
+			if (facetCounts == null)
+				continue;
+			if (ratingMatches && priceMatches)
+				facetCounts.countStars(stars);
+			if (hotelMatches) {
+				for (; priceBuckets != 0; priceBuckets &= priceBuckets - 1)
+					facetCounts.countPriceBucket(Long.numberOfTrailingZeros(priceBuckets));
 			}
 		}
-		return filterResult;
+		return Arrays.copyOf(filteredRows, filteredCount);
 	}
 
-
+	/**
+	 * The countRowsScanned method returns how many rows of the given city filterRowsByQuery considers for the given
+	 * start date, matching or not, see AvailabilityIndex.countCandidates().
+	 * @param snapshot - version of the hotel data to filter.
+	 * @param city
+	 * @param startDay - epoch day of the start date.
+	 * @return the number of candidate rows.
+	 */
+	public int countRowsScanned(HotelDataSnapshot snapshot, City city, int startDay) {
+		return snapshot.getAvailabilityIndex(city.getId()).countCandidates(startDay);
+	}
 }
@@ -0,0 +1,55 @@
+package hotelSearchPlatform.services;
+
+import java.util.Map;
+import java.util.TreeSet;
+
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.entities.Offer;
+
+/**
+ * The FlexibleSearchResult class holds the result of a flexible date search, see HotelFacade.createFlexibleSearchResult():
+ * the hotels of the requested page in rank order with the offers for their stay, and the first day of the stay
+ * found for every hotel.
+ */
+public final class FlexibleSearchResult {
+
+	private final int nights;
+	private final Map<Hotel, TreeSet<Offer>> hotelOffers;
+	private final Map<Integer, Integer> stayStartDays;
+
+	/**
+	 * @param nights - length of the stays.
+	 * @param hotelOffers - hotels with the offers for their stay, in rank order.
+	 * @param stayStartDays - first day of the stay of every hotel as an epoch day, by hotel id.
+	 */
+	public FlexibleSearchResult(int nights, Map<Hotel, TreeSet<Offer>> hotelOffers, Map<Integer, Integer> stayStartDays) {
+		this.nights = nights;
+		this.hotelOffers = hotelOffers;
+		this.stayStartDays = stayStartDays;
+	}
+
+	public int getNights() {
+		return nights;
+	}
+
+	public Map<Hotel, TreeSet<Offer>> getHotelOffers() {
+		return hotelOffers;
+	}
+
+	/**
+	 * @param hotelId
+	 * @return the first day of the stay found for the given hotel of the result, as an epoch day.
+	 */
+	public int getStayStartDay(int hotelId) {
+		return stayStartDays.get(hotelId);
+	}
+
+	/**
+	 * @param hotelId
+	 * @return the last day of the stay found for the given hotel of the result, nights days after its first day, as an
+	 * epoch day.
+	 */
+	public int getStayEndDay(int hotelId) {
+		return stayStartDays.get(hotelId) + nights;
+	}
+}
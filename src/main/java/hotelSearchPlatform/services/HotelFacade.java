@@ -6,29 +6,41 @@ package hotelSearchPlatform.services;
  * the ability to perform said search and update functions.
  */
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map.Entry;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.Map;
 import java.util.TreeSet;
 
 import javax.annotation.Resource;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import hotelSearchPlatform.comparators.HotelComparator;
 import hotelSearchPlatform.comparators.OfferComparator;
+import hotelSearchPlatform.data.AdvertiserOperation;
+import hotelSearchPlatform.data.DayBitmap;
+import hotelSearchPlatform.data.EpochDays;
+import hotelSearchPlatform.data.HotelAdvertiserStore;
 import hotelSearchPlatform.data.HotelData;
+import hotelSearchPlatform.data.HotelDataSnapshot;
+import hotelSearchPlatform.data.NormalizedPrices;
+import hotelSearchPlatform.data.PriceFeedReader;
+import hotelSearchPlatform.entities.Advertiser;
 import hotelSearchPlatform.entities.City;
 import hotelSearchPlatform.entities.Hotel;
 import hotelSearchPlatform.entities.HotelAdvertiser;
 import hotelSearchPlatform.entities.HotelAdvertiserWithStringDate;
 import hotelSearchPlatform.entities.Offer;
 import hotelSearchPlatform.exceptions.HotelAdvertiserException;
+import hotelSearchPlatform.ranking.HotelScores;
+import hotelSearchPlatform.ranking.RankingMode;
 
 @Service
 public class HotelFacade {
@@ -37,126 +49,616 @@ public class HotelFacade {
 	private HotelData hotelData;
 	@Resource
 	private Filters filter;
+	@Resource
+	private SearchResultCache searchResultCache;
+	@Resource
+	private SearchCoalescer searchCoalescer;
+	@Resource
+	private SearchMetrics searchMetrics;
+	@Value("${price-feed.batch-size:10000}")
+	private int priceFeedBatchSize;
+	@Value("${price-feed.max-rejections:1000}")
+	private int priceFeedMaxRejections;
 	
-	private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.ENGLISH);
+	/** The createSearchResult method performs a query on the hotel data loaded to the HotelData class according
+	 * to city name, end and start dates, see createSearchResult(String, int, int, RankingMode, int, int, int).
+	 * The result includes all matching hotels, ranked by rating, with all their offers.
+	 * @param cityName
+	 * @param startDay - epoch day of the start date.
+	 * @param endDay - epoch day of the end date.
+	 * @return a map of hotels with their offers, in rank order.
+	 * @throws NullPointerException - in case the City doesn't exist in HotelData.
+	 */
+	public Map<Hotel, TreeSet<Offer>> createSearchResult(String cityName, int startDay, int endDay) 
+		throws NullPointerException {
+		return createSearchResult(cityName, startDay, endDay, RankingMode.RATING, 0, SearchKey.UNLIMITED, SearchKey.UNLIMITED);
+	}
 
 	/** The createSearchResult method performs a query on the hotel data loaded to the HotelData class according
-	 * to city name, end and start dates. The method relies on the sorted map of hotel id to hotel advertiser set in
-	 * the HotelData class and the filterbyQuery method() in the Filters class. The method creates results 
+	 * to city name, end and start dates. The method reads one snapshot of the HotelData class and returns the result
+	 * cached by the SearchResultCache class for the same query and city version if there is one. Otherwise it relies
+	 * on the filterRowsByQuery method() in the Filters class to filter the snapshot and caches the result. Identical
+	 * concurrent searches share one computation through the SearchCoalescer class. The method creates results 
 	 * with relevant hotel information and an offer set of hotel advertisers that includes the hotel advertiser 
-	 * name from the advertisers map in HotelData class. Hotels are sorted by rating based on the HotelComparator class. 
-	 * Offers are sorted by price increasing and cpc decreasing based on the OfferComparator class. 
+	 * name from the advertisers map in HotelData class. Hotels are ranked by their precomputed score in the given
+	 * ranking mode, decreasing, and then by hotel id. Offers are sorted by price increasing and cpc decreasing based 
+	 * on the OfferComparator class. Only the hotels and offers of the requested page are created, see computeSearchResult().
+	 * The time of the search and of every stage it computes is recorded by the SearchMetrics class.
 	 * @param cityName
-	 * @param startDate
-	 * @param endDate
-	 * @return a sorted map of 
+	 * @param startDay - epoch day of the start date.
+	 * @param endDay - epoch day of the end date.
+	 * @param rankingMode
+	 * @param offset - number of ranked hotels to skip.
+	 * @param limit - maximum number of hotels, or SearchKey.UNLIMITED.
+	 * @param offersPerHotel - maximum number of offers per hotel, or SearchKey.UNLIMITED.
+	 * @return a map of hotels with their offers, in rank order.
 	 * @throws NullPointerException - in case the City doesn't exist in HotelData.
 	 */
-	
-	public SortedMap<Hotel, TreeSet<Offer>> createSearchResult(String cityName, LocalDate startDate,LocalDate endDate) 
-		throws NullPointerException {	
-		City city = this.hotelData.getCities().get(cityName);
-		if (city.equals(null))
+	public Map<Hotel, TreeSet<Offer>> createSearchResult(String cityName, int startDay, int endDay,
+			RankingMode rankingMode, int offset, int limit, int offersPerHotel) throws NullPointerException {	
+		SearchMetrics.Recorder recorder = searchMetrics.start();
+		HotelDataSnapshot snapshot = this.hotelData.getSnapshot();
+		City city = snapshot.getCities().get(cityName);
+		if (city == null)
 			throw new NullPointerException();
 		
-		SortedMap<Hotel, TreeSet<Offer>> searchResult = new TreeMap<Hotel, TreeSet<Offer>>(new HotelComparator());
-		for (Entry<Integer, TreeSet<HotelAdvertiser>> hotelAdvertiserSetByHotel : filter.filterByQuery(city, startDate, endDate).entrySet()) {
+		SearchKey searchKey = new SearchKey(city.getId(), startDay, endDay, rankingMode, offset, limit, offersPerHotel);
+		Map<Hotel, TreeSet<Offer>> searchResult = createSearchResult(snapshot, city, searchKey, recorder);
+		recorder.finish();
+		return searchResult;
+	}
+
+	/** The createSummaryResult method performs a summary search: a query like createSearchResult(String, int, int,
+	 * RankingMode, int, int, int) with one offer per hotel, answered from the best offer view of the snapshot instead
+	 * of its rows, see computeSummaryResult(). Results are cached and coalesced under summary keys of the SearchKey class.
+	 * @param cityName
+	 * @param startDay - epoch day of the start date.
+	 * @param endDay - epoch day of the end date.
+	 * @param rankingMode
+	 * @param offset - number of ranked hotels to skip.
+	 * @param limit - maximum number of hotels, or SearchKey.UNLIMITED.
+	 * @return a map of hotels with their best offer, in rank order.
+	 * @throws NullPointerException - in case the City doesn't exist in HotelData.
+	 */
+	public Map<Hotel, TreeSet<Offer>> createSummaryResult(String cityName, int startDay, int endDay,
+			RankingMode rankingMode, int offset, int limit) throws NullPointerException {
+		SearchMetrics.Recorder recorder = searchMetrics.start();
+		HotelDataSnapshot snapshot = this.hotelData.getSnapshot();
+		City city = snapshot.getCities().get(cityName);
+		if (city == null)
+			throw new NullPointerException();
+		
+		SearchKey searchKey = SearchKey.summary(city.getId(), startDay, endDay, rankingMode, offset, limit);
+		Map<Hotel, TreeSet<Offer>> searchResult = createSearchResult(snapshot, city, searchKey, recorder);
+		recorder.finish();
+		return searchResult;
+	}
+
+	/**
+	 * The createSearchResult method returns the cached result of the given search key in the version of its city
+	 * in the given snapshot, or computes it, coalesced with identical concurrent searches, and caches it.
+	 */
+	private Map<Hotel, TreeSet<Offer>> createSearchResult(HotelDataSnapshot snapshot, City city, SearchKey searchKey,
+			SearchMetrics.Recorder recorder) {
+		long cityVersion = snapshot.getCityVersion(city.getId());
+		Map<Hotel, TreeSet<Offer>> searchResult = searchResultCache.get(searchKey, cityVersion);
+		if (searchResult == null) {
+			searchResult = searchCoalescer.execute(searchKey, cityVersion, () -> {
+				Map<Hotel, TreeSet<Offer>> computedSearchResult = searchKey.isSummary()
+						? computeSummaryResult(snapshot, city, searchKey, recorder)
+						: computeSearchResult(snapshot, city, searchKey.getStartDay(), searchKey.getEndDay(), searchKey, recorder);
+				searchResultCache.put(searchKey, cityVersion, computedSearchResult);
+				return computedSearchResult;
+			});
+		}
+		return searchResult;
+	}
+
+	/**
+	 * The createFacetedSearchResult method performs a query like createSearchResult(String, int, int,
+	 * RankingMode, int, int, int), keeping only the hotels and offers matching the given filter, and counts the facets
+	 * of the query in the same pass, see Filters.filterRowsByFilter(). Only the offers in the price range of the filter
+	 * are returned. Results are not cached.
+	 * @param query
+	 * @param searchFilter
+	 * @param countFacets - whether to count the facets of the query.
+	 * @return the hotels of the page with their offers in rank order, and the facet counts if requested.
+	 * @throws NullPointerException - in case the City doesn't exist in HotelData.
+	 */
+	public FacetedSearchResult createFacetedSearchResult(SearchQuery query, SearchFilter searchFilter, boolean countFacets)
+			throws NullPointerException {
+		SearchMetrics.Recorder recorder = searchMetrics.start();
+		HotelDataSnapshot snapshot = this.hotelData.getSnapshot();
+		City city = snapshot.getCities().get(query.getCityName());
+		if (city == null)
+			throw new NullPointerException();
+		SearchKey searchKey = new SearchKey(city.getId(), query.getStartDay(), query.getEndDay(),
+				query.getRankingMode(), query.getOffset(), query.getLimit(), query.getOffersPerHotel());
+		recorder.mark();
+		FacetCounts facetCounts = countFacets ? filter.createFacetCounts() : null;
+		int[] rows = filter.filterRowsByFilter(snapshot, filter.filterRowsByQuery(snapshot, city, query.getStartDay(), query.getEndDay()),
+				searchFilter, facetCounts);
+		recorder.stage(SearchMetrics.Stage.FILTER);
+		Map<Hotel, TreeSet<Offer>> searchResult = computeSearchResult(snapshot, rows, searchKey, recorder);
+		recorder.finish();
+		return new FacetedSearchResult(searchResult, facetCounts);
+	}
+
+	/**
+	 * The createSearchResults method answers a batch of search queries from one snapshot of the HotelData class, as
+	 * createSearchResult(String, int, int, RankingMode, int, int, int) answers each of them. Results
+	 * cached by the SearchResultCache class are reused. The other queries are grouped by city and the rows of all
+	 * date ranges of a city are found with one walk of its availability index by the filterRowsByQueries() method in
+	 * the Filters class, instead of one walk per query. Their results are cached, but not coalesced with concurrent
+	 * identical searches.
+	 * @param queries
+	 * @return the result of every query at the position of the query, or null for a query whose city does not exist.
+	 */
+	public List<Map<Hotel, TreeSet<Offer>>> createSearchResults(List<SearchQuery> queries) {
+		SearchMetrics.Recorder recorder = searchMetrics.start();
+		HotelDataSnapshot snapshot = this.hotelData.getSnapshot();
+		List<Map<Hotel, TreeSet<Offer>>> searchResults = new ArrayList<Map<Hotel, TreeSet<Offer>>>(queries.size());
+		SearchKey[] searchKeys = new SearchKey[queries.size()];
+		Map<City, List<Integer>> uncachedQueriesByCity = new LinkedHashMap<City, List<Integer>>();
+		for (int i = 0; i < queries.size(); i++) {
+			SearchQuery query = queries.get(i);
+			City city = snapshot.getCities().get(query.getCityName());
+			searchResults.add(null);
+			if (city == null)
+				continue;
+			searchKeys[i] = new SearchKey(city.getId(), query.getStartDay(), query.getEndDay(),
+					query.getRankingMode(), query.getOffset(), query.getLimit(), query.getOffersPerHotel());
+			Map<Hotel, TreeSet<Offer>> cachedSearchResult = searchResultCache.get(searchKeys[i], snapshot.getCityVersion(city.getId()));
+			if (cachedSearchResult != null) {
+				searchResults.set(i, cachedSearchResult);
+				continue;
+			}
+			if (uncachedQueriesByCity.get(city) == null)
+				uncachedQueriesByCity.put(city, new ArrayList<Integer>());
+			uncachedQueriesByCity.get(city).add(i);
+		}
+		for (Map.Entry<City, List<Integer>> cityQueries : uncachedQueriesByCity.entrySet()) {
+			City city = cityQueries.getKey();
+			List<Integer> queryIndexes = cityQueries.getValue();
+			int[] startDays = new int[queryIndexes.size()];
+			int[] endDays = new int[queryIndexes.size()];
+			for (int j = 0; j < queryIndexes.size(); j++) {
+				startDays[j] = searchKeys[queryIndexes.get(j)].getStartDay();
+				endDays[j] = searchKeys[queryIndexes.get(j)].getEndDay();
+			}
+			recorder.mark();
+			int[][] rowsByQuery = filter.filterRowsByQueries(snapshot, city, startDays, endDays);
+			recorder.stage(SearchMetrics.Stage.FILTER);
+			long cityVersion = snapshot.getCityVersion(city.getId());
+			for (int j = 0; j < queryIndexes.size(); j++) {
+				int i = queryIndexes.get(j);
+				Map<Hotel, TreeSet<Offer>> searchResult = computeSearchResult(snapshot, rowsByQuery[j], searchKeys[i], recorder);
+				searchResultCache.put(searchKeys[i], cityVersion, searchResult);
+				searchResults.set(i, searchResult);
+			}
+		}
+		recorder.finish();
+		return searchResults;
+	}
+
+	/**
+	 * The computeSearchResult method works on the matching row ids of the given snapshot instead of HotelAdvertiser
+	 * entities. The distinct matching hotels are ranked by the primitive rank key of the snapshot's HotelScores and
+	 * the LongTopK class keeps only the first offset + limit of them. A second pass over the matching rows keeps the 
+	 * best offersPerHotel rows of every hotel of the page, so Hotel and Offer results are only created for what is returned.
+	 * @param snapshot
+	 * @param city
+	 * @param startDate
+	 * @param endDate
+	 * @param searchKey - holds the requested ranking mode, offset, limit and offers per hotel.
+	 * @param recorder - records the filter, rank and offers stages and the sizes of the search.
+	 * @return a map of the hotels of the page with their offers, in rank order.
+	 */
+	private Map<Hotel, TreeSet<Offer>> computeSearchResult(HotelDataSnapshot snapshot, City city, int startDay,
+			int endDay, SearchKey searchKey, SearchMetrics.Recorder recorder) {
+		recorder.mark();
+		int[] rows = filter.filterRowsByQuery(snapshot, city, startDay, endDay);
+		recorder.stage(SearchMetrics.Stage.FILTER);
+		if (recorder.isRecording())
+			recorder.size(SearchMetrics.Size.ROWS_SCANNED, filter.countRowsScanned(snapshot, city, startDay));
+		return computeSearchResult(snapshot, rows, searchKey, recorder);
+	}
+
+	/**
+	 * The computeSearchResult method ranks the hotels of the given matching rows and creates the hotels and offers
+	 * of the requested page, see computeSearchResult(HotelDataSnapshot, City, int, int, SearchKey, SearchMetrics.Recorder).
+	 * @param snapshot
+	 * @param rows - row ids of the hotel advertisers matching the query of the search key.
+	 * @param searchKey - holds the requested ranking mode, offset, limit and offers per hotel.
+	 * @param recorder - records the rank and offers stages and the sizes of the search.
+	 * @return a map of the hotels of the page with their offers, in rank order.
+	 */
+	private Map<Hotel, TreeSet<Offer>> computeSearchResult(HotelDataSnapshot snapshot, int[] rows, SearchKey searchKey,
+			SearchMetrics.Recorder recorder) {
+		HotelAdvertiserStore store = snapshot.getHotelAdvertiserStore();
+		HotelScores hotelScores = snapshot.getHotelScores();
+		recorder.size(SearchMetrics.Size.ROWS_MATCHED, rows.length);
+		int[] matchingHotelIds = new int[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			matchingHotelIds[i] = store.getHotelId(rows[i]);
+		Arrays.sort(matchingHotelIds);
+		LongTopK topHotels = new LongTopK((int) Math.min((long) searchKey.getOffset() + searchKey.getLimit(), Integer.MAX_VALUE),
+				rows.length);
+		int matchingHotels = 0;
+		for (int i = 0; i < matchingHotelIds.length; i++) {
+			if (i == 0 || matchingHotelIds[i] != matchingHotelIds[i - 1]) {
+				topHotels.offer(hotelScores.rankKey(searchKey.getRankingMode(), matchingHotelIds[i]));
+				matchingHotels++;
+			}
+		}
+
+		Map<Hotel, TreeSet<Offer>> searchResult = new LinkedHashMap<Hotel, TreeSet<Offer>>();
+		long[] rankKeys = topHotels.toSortedArray();
+		recorder.stage(SearchMetrics.Stage.RANK);
+		recorder.size(SearchMetrics.Size.HOTELS_MATCHED, matchingHotels);
+		if (rankKeys.length <= searchKey.getOffset()) {
+			recorder.size(SearchMetrics.Size.HOTELS_RETURNED, 0);
+			recorder.size(SearchMetrics.Size.OFFERS_RETURNED, 0);
+			return searchResult;
+		}
+		int[] pageHotelIds = new int[rankKeys.length - searchKey.getOffset()];
+		for (int i = 0; i < pageHotelIds.length; i++)
+			pageHotelIds[i] = HotelScores.hotelIdOf(rankKeys[searchKey.getOffset() + i]);
+		int[] sortedPageHotelIds = pageHotelIds.clone();
+		Arrays.sort(sortedPageHotelIds);
+		int[][] offerRows = new int[pageHotelIds.length][];
+		int[] offerCounts = new int[pageHotelIds.length];
+		for (int row : rows) {
+			int slot = Arrays.binarySearch(sortedPageHotelIds, store.getHotelId(row));
+			if (slot >= 0)
+				addOfferRow(snapshot.getNormalizedPrices(), offerRows, offerCounts, slot, row, searchKey.getOffersPerHotel());
+		}
+		int offerCount = 0;
+		for (int hotelId : pageHotelIds) {
+			int slot = Arrays.binarySearch(sortedPageHotelIds, hotelId);
 			TreeSet<Offer> offers = new TreeSet<Offer>(new OfferComparator());
-			for (HotelAdvertiser hotelAdvertiser : hotelAdvertiserSetByHotel.getValue()) {
-				Offer offer = createOffer(hotelAdvertiser);
-				offers.add(offer);
+			for (int i = 0; i < offerCounts[slot]; i++)
+				offers.add(createOffer(snapshot, offerRows[slot][i]));
+			searchResult.put(snapshot.getHotels().get(hotelId), offers);
+			offerCount += offerCounts[slot];
+		}
+		recorder.stage(SearchMetrics.Stage.OFFERS);
+		recorder.size(SearchMetrics.Size.HOTELS_RETURNED, pageHotelIds.length);
+		recorder.size(SearchMetrics.Size.OFFERS_RETURNED, offerCount);
+		return searchResult;
+	}
+
+	/**
+	 * The computeSummaryResult method answers a summary search from the BestOffers views of the city in the given
+	 * snapshot instead of its rows: the city's index of the rows of the views finds the windows containing the dates
+	 * of the search, and a hotel matches if one of its windows does. Views drop the rows no search can pick,
+	 * so the best matching row of a hotel is its best offer, and it is picked while the matching hotels are collected
+	 * instead of in a second pass over the matching rows. The matching hotels are ranked like computeSearchResult()
+	 * ranks them, so the result is the same as with the rows.
+	 * @param snapshot
+	 * @param city
+	 * @param searchKey - holds the dates, ranking mode, offset and limit of the search.
+	 * @param recorder - records the filter, rank and offers stages and the sizes of the search.
+	 * @return a map of the hotels of the page with their best offer, in rank order.
+	 */
+	private Map<Hotel, TreeSet<Offer>> computeSummaryResult(HotelDataSnapshot snapshot, City city, SearchKey searchKey,
+			SearchMetrics.Recorder recorder) {
+		HotelAdvertiserStore store = snapshot.getHotelAdvertiserStore();
+		HotelScores hotelScores = snapshot.getHotelScores();
+		recorder.mark();
+		int[] rows = snapshot.getBestOffersIndex(city.getId()).findContaining(searchKey.getStartDay(), searchKey.getEndDay());
+		recorder.stage(SearchMetrics.Stage.FILTER);
+		recorder.size(SearchMetrics.Size.ROWS_MATCHED, rows.length);
+		long[] rowsByHotel = new long[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			rowsByHotel[i] = ((long) store.getHotelId(rows[i]) << 32) | (rows[i] & 0xFFFFFFFFL);
+		Arrays.sort(rowsByHotel);
+		int[] matchingHotelIds = new int[rows.length];
+		int[] bestRows = new int[rows.length];
+		LongTopK topHotels = new LongTopK((int) Math.min((long) searchKey.getOffset() + searchKey.getLimit(), Integer.MAX_VALUE),
+				rows.length);
+		int matchingHotels = 0;
+		for (long rowByHotel : rowsByHotel) {
+			int hotelId = (int) (rowByHotel >>> 32);
+			int row = (int) rowByHotel;
+			if (matchingHotels == 0 || matchingHotelIds[matchingHotels - 1] != hotelId) {
+				topHotels.offer(hotelScores.rankKey(searchKey.getRankingMode(), hotelId));
+				matchingHotelIds[matchingHotels] = hotelId;
+				bestRows[matchingHotels++] = row;
+			} else if (snapshot.getNormalizedPrices().compareOffers(row, bestRows[matchingHotels - 1]) < 0) {
+				bestRows[matchingHotels - 1] = row;
 			}
-			if (!offers.isEmpty())
-			searchResult.put(this.hotelData.getHotels().get(hotelAdvertiserSetByHotel.getKey()), offers);
 		}
+		long[] rankKeys = topHotels.toSortedArray();
+		recorder.stage(SearchMetrics.Stage.RANK);
+		recorder.size(SearchMetrics.Size.HOTELS_MATCHED, matchingHotels);
+		Map<Hotel, TreeSet<Offer>> searchResult = new LinkedHashMap<Hotel, TreeSet<Offer>>();
+		for (int i = searchKey.getOffset(); i < rankKeys.length; i++) {
+			int hotelId = HotelScores.hotelIdOf(rankKeys[i]);
+			TreeSet<Offer> offers = new TreeSet<Offer>(new OfferComparator());
+			offers.add(createOffer(snapshot, bestRows[Arrays.binarySearch(matchingHotelIds, 0, matchingHotels, hotelId)]));
+			searchResult.put(snapshot.getHotels().get(hotelId), offers);
+		}
+		recorder.stage(SearchMetrics.Stage.OFFERS);
+		recorder.size(SearchMetrics.Size.HOTELS_RETURNED, searchResult.size());
+		recorder.size(SearchMetrics.Size.OFFERS_RETURNED, searchResult.size());
 		return searchResult;
 	}
 
 	/**
-	 * The createOffer method creates an offer based on the given hotel advertiser, and includes the advertiser
-	 * name fetched from the HotelData class.
-	 * @param hotelAdvertiser - not including advertiser name. 
+	 * The createFlexibleSearchResult method answers a flexible date search: hotels of the given city that are available
+	 * for a stay of the given number of nights anywhere between the given dates, rather than on fixed dates. A hotel
+	 * is available on a day if the availability range of any of its hotel advertisers contains the day, so a stay may
+	 * be covered by several advertisers together. The method reads one snapshot of the HotelData class and asks the
+	 * DayBitmap of every hotel of the city for the first run of nights + 1 available days between the dates, which
+	 * takes a few word operations per hotel instead of a check per row and day. The hotels found are ranked as
+	 * createSearchResult() ranks them, and every hotel of the page gets the offers of its hotel advertisers available
+	 * on at least one day of its stay, sorted by the OfferComparator class. Results are not cached.
+	 * @param cityName
+	 * @param fromDay - first day a stay may start on, as an epoch day.
+	 * @param toDay - last day a stay may end on, as an epoch day.
+	 * @param nights - length of the stay, at least 1.
+	 * @param rankingMode
+	 * @param offset - number of ranked hotels to skip.
+	 * @param limit - maximum number of hotels, or SearchKey.UNLIMITED.
+	 * @param offersPerHotel - maximum number of offers per hotel, or SearchKey.UNLIMITED.
+	 * @return the hotels of the page with the first stay found for each of them and its offers, in rank order.
+	 * @throws NullPointerException - in case the City doesn't exist in HotelData.
+	 */
+	public FlexibleSearchResult createFlexibleSearchResult(String cityName, int fromDay, int toDay, int nights,
+			RankingMode rankingMode, int offset, int limit, int offersPerHotel) throws NullPointerException {
+		SearchMetrics.Recorder recorder = searchMetrics.start();
+		HotelDataSnapshot snapshot = this.hotelData.getSnapshot();
+		City city = snapshot.getCities().get(cityName);
+		if (city == null)
+			throw new NullPointerException();
+		Collection<Integer> cityHotelIds = snapshot.getHotelIdsByCity(city.getId());
+		recorder.mark();
+		int[] matchingHotelIds = new int[cityHotelIds.size()];
+		int[] stayStartDays = new int[cityHotelIds.size()];
+		int matchingHotels = 0;
+		for (Integer hotelId : cityHotelIds) {
+			int stayStartDay = snapshot.getDayBitmap(hotelId).firstRun(fromDay, toDay, nights + 1);
+			if (stayStartDay != DayBitmap.NOT_FOUND) {
+				matchingHotelIds[matchingHotels] = hotelId;
+				stayStartDays[matchingHotels++] = stayStartDay;
+			}
+		}
+		recorder.stage(SearchMetrics.Stage.FILTER);
+
+		HotelScores hotelScores = snapshot.getHotelScores();
+		LongTopK topHotels = new LongTopK((int) Math.min((long) offset + limit, Integer.MAX_VALUE), matchingHotels);
+		for (int i = 0; i < matchingHotels; i++)
+			topHotels.offer(hotelScores.rankKey(rankingMode, matchingHotelIds[i]));
+		long[] rankKeys = topHotels.toSortedArray();
+		recorder.stage(SearchMetrics.Stage.RANK);
+		recorder.size(SearchMetrics.Size.HOTELS_MATCHED, matchingHotels);
+
+		HotelAdvertiserStore store = snapshot.getHotelAdvertiserStore();
+		Map<Hotel, TreeSet<Offer>> hotelOffers = new LinkedHashMap<Hotel, TreeSet<Offer>>();
+		Map<Integer, Integer> stayStartDaysByHotel = new HashMap<Integer, Integer>();
+		int offerCount = 0;
+		for (int i = offset; i < rankKeys.length; i++) {
+			int hotelId = HotelScores.hotelIdOf(rankKeys[i]);
+			int stayStartDay = stayStartDays[Arrays.binarySearch(matchingHotelIds, 0, matchingHotels, hotelId)];
+			int[][] offerRows = new int[1][];
+			int[] offerCounts = new int[1];
+			for (int row : snapshot.getRowsByHotel(hotelId))
+				if (store.getStartDay(row) <= stayStartDay + nights && store.getEndDay(row) >= stayStartDay)
+					addOfferRow(snapshot.getNormalizedPrices(), offerRows, offerCounts, 0, row, offersPerHotel);
+			TreeSet<Offer> offers = new TreeSet<Offer>(new OfferComparator());
+			for (int j = 0; j < offerCounts[0]; j++)
+				offers.add(createOffer(snapshot, offerRows[0][j]));
+			hotelOffers.put(snapshot.getHotels().get(hotelId), offers);
+			stayStartDaysByHotel.put(hotelId, stayStartDay);
+			offerCount += offerCounts[0];
+		}
+		recorder.stage(SearchMetrics.Stage.OFFERS);
+		recorder.size(SearchMetrics.Size.HOTELS_RETURNED, hotelOffers.size());
+		recorder.size(SearchMetrics.Size.OFFERS_RETURNED, offerCount);
+		recorder.finish();
+		return new FlexibleSearchResult(nights, hotelOffers, stayStartDaysByHotel);
+	}
+
+	/**
+	 * The addOfferRow method adds the given row to the best offer rows of the hotel in the given slot, kept sorted 
+	 * like the OfferComparator class sorts offers. Once the hotel has offersPerHotel rows, a row only gets in by 
+	 * pushing out the worst one.
+	 */
+	private static void addOfferRow(NormalizedPrices normalizedPrices, int[][] offerRows, int[] offerCounts, int slot, int row,
+			int offersPerHotel) {
+		int[] hotelOfferRows = offerRows[slot];
+		int count = offerCounts[slot];
+		int position = count;
+		while (position > 0) {
+			int offerCmp = normalizedPrices.compareOffers(row, hotelOfferRows[position - 1]);
+			if (offerCmp == 0)
+				return;
+			if (offerCmp > 0)
+				break;
+			position--;
+		}
+		if (position >= offersPerHotel)
+			return;
+		int newCount = Math.min(count + 1, offersPerHotel);
+		if (hotelOfferRows == null)
+			hotelOfferRows = offerRows[slot] = new int[Math.min(offersPerHotel, 4)];
+		else if (newCount > hotelOfferRows.length)
+			hotelOfferRows = offerRows[slot] = Arrays.copyOf(hotelOfferRows, (int) Math.min(offersPerHotel, 2L * count));
+		System.arraycopy(hotelOfferRows, position, hotelOfferRows, position + 1, newCount - 1 - position);
+		hotelOfferRows[position] = row;
+		offerCounts[slot] = newCount;
+	}
+
+	/**
+	 * The createOffer method creates an offer based on the given row of the HotelAdvertiserStore of the given snapshot,
+	 * and includes the advertiser name fetched from the snapshot and the normalized price of the row.
+	 * @param snapshot
+	 * @param row
 	 * @return - an Offer entity with advertiser name. 
 	 */
-	private Offer createOffer(HotelAdvertiser hotelAdvertiser) {
-		Offer offer = new Offer(hotelAdvertiser.getAdvertiser_id(), hotelAdvertiser.getCpc(), hotelAdvertiser.getPrice(),
-				this.hotelData.getAdvertisers().get(hotelAdvertiser.getAdvertiser_id()).getAdvertiser_name(),
-				hotelAdvertiser.getCurrency());
-		return offer;
+	private Offer createOffer(HotelDataSnapshot snapshot, int row) {
+		HotelAdvertiserStore store = snapshot.getHotelAdvertiserStore();
+		return new Offer(store.getAdvertiserId(row), store.getCpc(row), store.getPrice(row),
+				snapshot.getAdvertisers().get(store.getAdvertiserId(row)).getAdvertiser_name(), store.getCurrency(row),
+				snapshot.getNormalizedPrices().get(row));
+	}
+
+	/**
+	 * @return the advertisers by id of the current snapshot of the HotelData class, to name the advertisers of offers.
+	 */
+	public Map<Integer, Advertiser> getAdvertisers() {
+		return this.hotelData.getSnapshot().getAdvertisers();
 	}
 
 	/**
 	 * The updateAdvertiser method translates a list of hotel advertisers with String dates, sent by a client via
 	 * the HotelController class, and updates or adds the information on the HotelData class. If the hotel advertiser
-	 * to be updated exists in the HotelData class, the method deletes the old hotel advertiser using the
-	 * removeHotelAdvertiserFromSet() method and replaces it with an updated hotel advertiser using the 
-	 * createHotelAdvertiser() method.
+	 * to be updated exists in the HotelData class, the HotelData class replaces the old hotel advertiser with the 
+	 * updated hotel advertiser created by the createHotelAdvertiser() method, keeping its indexes up to date.
+	 * Dates are parsed once, to epoch days, and then validated by the checkHotelAdvertiser() method.
+	 * The whole list is validated first and then published by the HotelData class as one new version, so searches
+	 * see either none or all of the list. Cached search results of the updated cities are evicted afterwards.
+	 * The method returns once the update is durable in the update log of the HotelData class, if it is enabled.
 	 * @param hotelAdvertisersWithStringDate - sent by client via HotelController.
 	 * @throws DateTimeParseException - in case date sent by client is not in the 'yyyyMMdd' format.
 	 * @throws HotelAdvertiserException - in case data sent by client is invalid 
-	 * (i.e. negative price or cpc, end date is before start date).
+	 * (i.e. negative price or cpc, end date is before start date, unknown hotel, currency without a rate).
+	 * @throws UncheckedIOException - in case the update was applied but could not be written to the update log.
+	 * @throws IllegalStateException - in case the update log refuses updates since a failure, the update is not applied.
 	 */
 	public void updateAdvertiser(List<HotelAdvertiserWithStringDate> hotelAdvertisersWithStringDate) 
-			throws DateTimeParseException, HotelAdvertiserException {
+			throws DateTimeParseException, HotelAdvertiserException, UncheckedIOException, IllegalStateException {
+		List<HotelAdvertiser> updatedHotelAdvertisers = new ArrayList<HotelAdvertiser>();
 		for (HotelAdvertiserWithStringDate hotelAdvWithStringDate : hotelAdvertisersWithStringDate) {
-			checkHotelAdvWithStingDate(hotelAdvWithStringDate);
 			int advertiserIdToUpdate = hotelAdvWithStringDate.getAdvertiser_id();
-			int hotelIdtoUpdate = hotelAdvWithStringDate.getHotel_id();
-			HotelAdvertiser updatedHotelAdvertiser = createHotelAdvertiser(hotelAdvWithStringDate, advertiserIdToUpdate);
-			TreeSet<HotelAdvertiser> hotelAdvertiserSetToUpdate = this.hotelData.getHotelAdvertisers().get(hotelAdvWithStringDate.getHotel_id());
-			hotelAdvertiserSetToUpdate = removeHotelAdvertiserFromSet(hotelAdvertiserSetToUpdate, advertiserIdToUpdate);
-			hotelAdvertiserSetToUpdate.add(updatedHotelAdvertiser);
-			this.hotelData.getHotelAdvertisers().put(hotelIdtoUpdate, hotelAdvertiserSetToUpdate);
-			System.out.println();
+			HotelAdvertiser hotelAdvertiser = createHotelAdvertiser(hotelAdvWithStringDate, advertiserIdToUpdate);
+			checkHotelAdvertiser(hotelAdvertiser);
+			updatedHotelAdvertisers.add(hotelAdvertiser);
 		}
+		for (Integer cityId : this.hotelData.updateHotelAdvertisers(updatedHotelAdvertisers))
+			searchResultCache.invalidateCity(cityId);
 	}
 
 	/**
-	 * The checkHotelAdvWithStingDate is used by the updateAdvertiser() method to ensure the given 
-	 * HotelAdvertiserWithStringDate entity can be translated to a HotelAdvertiser entity.  
-	 * @param hotelAdvWithStringDate - sent by client via HotelController.
-	 * @throws DateTimeParseException - in case date sent by client is not in the 'yyyyMMdd' format.
-	 * @throws HotelAdvertiserException - in case data sent by client is invalid 
-	 * (i.e. negative price or cpc, end date is before start date).
+	 * The ingestPriceFeed method reads a feed of hotel advertisers row by row with the PriceFeedReader class, validates
+	 * every row like the updateAdvertiser() method and applies the valid rows in batches of 'price-feed.batch-size',
+	 * each published by the HotelData class as one new version and made durable in its update log, if it is enabled,
+	 * before the next batch is read. Memory use is bounded by one batch whatever the size of the feed, and searches
+	 * see the feed batch by batch. Cached search results of the changed cities are evicted after every batch.
+	 * Invalid rows are rejected with their reason and do not stop the feed. A batch that cannot be written to the
+	 * update log stops it, the batch being applied in memory.
+	 * @param in - stream of the feed, read to its end.
+	 * @param format
+	 * @return the summary of the feed.
+	 * @throws IllegalArgumentException - in case a CSV feed does not start with a header naming all fields.
+	 * @throws UncheckedIOException - in case the feed cannot be read.
+	 */
+	public PriceFeedSummary ingestPriceFeed(InputStream in, PriceFeedReader.Format format) 
+			throws IllegalArgumentException, UncheckedIOException {
+		PriceFeedReader reader = new PriceFeedReader(in, format);
+		PriceFeedSummary summary = new PriceFeedSummary(format.name(), priceFeedMaxRejections);
+		List<HotelAdvertiser> batch = new ArrayList<HotelAdvertiser>();
+		boolean more = true;
+		while (more && summary.getError() == null) {
+			more = reader.next();
+			if (more) {
+				summary.read();
+				String rejection = reader.getRejection();
+				if (rejection == null) {
+					try {
+						checkHotelAdvertiser(reader.getHotelAdvertiser());
+						batch.add(reader.getHotelAdvertiser());
+					} catch (HotelAdvertiserException e) {
+						rejection = e.getMessage();
+					}
+				}
+				if (rejection != null)
+					summary.reject(reader.getLineNumber(), rejection);
+			}
+			if (batch.size() >= priceFeedBatchSize || (!more && !batch.isEmpty())) {
+				try {
+					for (Integer cityId : this.hotelData.updateHotelAdvertisers(batch))
+						searchResultCache.invalidateCity(cityId);
+					summary.applied(batch.size());
+				} catch (UncheckedIOException e) {
+					summary.failed("Batch ending at line " + reader.getLineNumber() 
+							+ " applied in memory, but the update log could not be written...");
+				} catch (IllegalStateException e) {
+					summary.failed("Batch ending at line " + reader.getLineNumber() 
+							+ " not applied, the update log refuses updates until a restart...");
+				}
+				batch = new ArrayList<HotelAdvertiser>();
+			}
+		}
+		summary.finish();
+		return summary;
+	}
+
+	/**
+	 * The applyAdvertiserOperation method applies a bulk change to all hotel advertisers of one advertiser, sent by a
+	 * client via the HotelController class, as one new version of the HotelData class: see the AdvertiserOperation
+	 * class. Cached search results of the changed cities are evicted afterwards.
+	 * The method returns once the operation is durable in the update log of the HotelData class, if it is enabled.
+	 * @param operation
+	 * @return the number of rows of the advertiser the operation applied to.
+	 * @throws HotelAdvertiserException - in case the advertiser does not exist, or an ADJUST operation changes nothing
+	 * or has a percentage that is not a number.
+	 * @throws UncheckedIOException - in case the operation was applied but could not be written to the update log.
+	 * @throws IllegalStateException - in case the update log refuses updates since a failure, the operation is not applied.
 	 */
-	private void checkHotelAdvWithStingDate(HotelAdvertiserWithStringDate hotelAdvWithStringDate) 
-			throws DateTimeParseException, HotelAdvertiserException{
-			LocalDate startDate = LocalDate.parse(hotelAdvWithStringDate.getAvailability_start_date(), dateFormatter);
-			LocalDate endDate = LocalDate.parse(hotelAdvWithStringDate.getAvailability_end_date(), dateFormatter);
-			if (hotelAdvWithStringDate.getPrice()<0 || hotelAdvWithStringDate.getCpc()<0 || endDate.isBefore(startDate))
-				throw new HotelAdvertiserException();
+	public int applyAdvertiserOperation(AdvertiserOperation operation) 
+			throws HotelAdvertiserException, UncheckedIOException, IllegalStateException {
+		HotelDataSnapshot snapshot = this.hotelData.getSnapshot();
+		int advertiserId = operation.getAdvertiserId();
+		if (snapshot.getAdvertisers().get(advertiserId) == null && snapshot.getRowCountByAdvertiser(advertiserId) == 0)
+			throw new HotelAdvertiserException("Cannot change advertiser " + advertiserId + ": advertiser id does not exist in database...");
+		if (operation.getKind() == AdvertiserOperation.Kind.ADJUST) {
+			if (!Double.isFinite(operation.getPricePercent()) || !Double.isFinite(operation.getCpcPercent()))
+				throw new HotelAdvertiserException("Cannot adjust advertiser " + advertiserId + ": percentages must be numbers...");
+			if (operation.getPricePercent() == 0 && operation.getPriceDelta() == 0 && operation.getCpcPercent() == 0 
+					&& operation.getCpcDelta() == 0)
+				throw new HotelAdvertiserException("Cannot adjust advertiser " + advertiserId + ": no price or cpc change given...");
+		}
+		AdvertiserOperation.Result result = this.hotelData.applyAdvertiserOperation(operation);
+		for (Integer cityId : result.getChangedCityIds())
+			searchResultCache.invalidateCity(cityId);
+		return result.getRows();
 	}
 
 	/**
-	 * The createHotelAdvertiser method creates a new HotelAdvertiser entity from a valid HotelAdvertiserWithStringDate entity.
+	 * The checkHotelAdvertiser method ensures the given hotel advertiser can be added to the HotelData class.
+	 * When the 'currency.rates-file' property is set, its currency must have a rate, as its price could not be
+	 * compared with the others otherwise.
+	 * @param hotelAdvertiser
+	 * @throws HotelAdvertiserException - in case the hotel advertiser is invalid
+	 * (i.e. negative price or cpc, end date is before start date, unknown hotel, currency without a rate).
+	 */
+	private void checkHotelAdvertiser(HotelAdvertiser hotelAdvertiser) throws HotelAdvertiserException {
+		if (hotelAdvertiser.getPrice() < 0 || hotelAdvertiser.getCpc() < 0 
+				|| hotelAdvertiser.getAvailability_end_day() < hotelAdvertiser.getAvailability_start_day())
+			throw new HotelAdvertiserException();
+		if (this.hotelData.getHotels().get(hotelAdvertiser.getHotel_id()) == null)
+			throw new HotelAdvertiserException("Cannot update hotel advertiser: hotel id does not exist in database...");
+		if (this.hotelData.hasCurrencyRatesFile() && !this.hotelData.getCurrencyRates().hasRate(hotelAdvertiser.getCurrency()))
+			throw new HotelAdvertiserException("Cannot update hotel advertiser: currency " + hotelAdvertiser.getCurrency() 
+					+ " has no rate in the currency rates...");
+	}
+
+	/**
+	 * The createHotelAdvertiser method creates a new HotelAdvertiser entity from a HotelAdvertiserWithStringDate entity,
+	 * parsing its dates with the EpochDays class.
 	 * @param hotelAdvWithStringDate
 	 * @param idToUpdate
 	 * @return
+	 * @throws DateTimeParseException - in case date sent by client is not in the 'yyyyMMdd' format.
 	 */
-	private HotelAdvertiser createHotelAdvertiser(HotelAdvertiserWithStringDate hotelAdvWithStringDate, int idToUpdate) {
+	private HotelAdvertiser createHotelAdvertiser(HotelAdvertiserWithStringDate hotelAdvWithStringDate, int idToUpdate)
+			throws DateTimeParseException {
 		HotelAdvertiser hotelAdv = new HotelAdvertiser(idToUpdate, hotelAdvWithStringDate.getHotel_id(),
 				hotelAdvWithStringDate.getCpc(), hotelAdvWithStringDate.getPrice(), hotelAdvWithStringDate.getCurrency(),
-				LocalDate.parse(hotelAdvWithStringDate.getAvailability_start_date(), dateFormatter),
-				LocalDate.parse(hotelAdvWithStringDate.getAvailability_end_date(), dateFormatter));
+				EpochDays.parse(hotelAdvWithStringDate.getAvailability_start_date()),
+				EpochDays.parse(hotelAdvWithStringDate.getAvailability_end_date()));
 		return hotelAdv;
 	}
-
-	/**
-	 * The removeHotelAdvertiserFromSet method is used by the updateAdvertiser() method to find and remove an
-	 * existing HotelAdvertiser that needs to be updated from a set of hotel advertisers of a specific hotel.
-	 * @param hotelAdvertisersToUpdate
-	 * @param advertiser_id
-	 */
-	private TreeSet<HotelAdvertiser> removeHotelAdvertiserFromSet(TreeSet<HotelAdvertiser> hotelAdvertisersToUpdate, int advertiser_id) {
-		HotelAdvertiser hotelAdvertiserToRemove = null;
-		for (HotelAdvertiser hotelAdvertiserToUpdate : hotelAdvertisersToUpdate) {
-			if (hotelAdvertiserToUpdate.getAdvertiser_id() == advertiser_id)
-				hotelAdvertiserToRemove = hotelAdvertiserToUpdate;
-		}
-		if (hotelAdvertiserToRemove != null)
-			hotelAdvertisersToUpdate.remove(hotelAdvertiserToRemove);
-		
-		return hotelAdvertisersToUpdate;
-
-	}
 }
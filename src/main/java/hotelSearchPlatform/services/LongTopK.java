@@ -0,0 +1,72 @@
+package hotelSearchPlatform.services;
+
+import java.util.Arrays;
+
+/**
+ * The LongTopK class selects the k smallest of a stream of long keys with a bounded max heap, in O(n log k) time
+ * and O(k) memory. It is used by the HotelFacade class to select the hotels of a search page by ranking key
+ * without sorting every matching hotel.
+ */
+final class LongTopK {
+
+	private final int capacity;
+	private long[] heap;
+	private int size = 0;
+
+	/**
+	 * @param capacity - the number of keys to keep.
+	 * @param expectedCount - an upper bound of the number of keys that will be offered, used to size the heap.
+	 */
+	LongTopK(int capacity, int expectedCount) {
+		this.capacity = capacity;
+		this.heap = new long[Math.max(1, Math.min(capacity, expectedCount))];
+	}
+
+	void offer(long key) {
+		if (size < capacity) {
+			if (size == heap.length)
+				heap = Arrays.copyOf(heap, (int) Math.min(capacity, 2L * size));
+			heap[size] = key;
+			siftUp(size++);
+		} else if (capacity > 0 && key < heap[0]) {
+			heap[0] = key;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * @return the kept keys, sorted increasing.
+	 */
+	long[] toSortedArray() {
+		long[] sortedKeys = Arrays.copyOf(heap, size);
+		Arrays.sort(sortedKeys);
+		return sortedKeys;
+	}
+
+	private void siftUp(int position) {
+		long key = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (heap[parent] >= key)
+				break;
+			heap[position] = heap[parent];
+			position = parent;
+		}
+		heap[position] = key;
+	}
+
+	private void siftDown(int position) {
+		long key = heap[position];
+		int half = size >>> 1;
+		while (position < half) {
+			int child = 2 * position + 1;
+			if (child + 1 < size && heap[child + 1] > heap[child])
+				child++;
+			if (key >= heap[child])
+				break;
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = key;
+	}
+}
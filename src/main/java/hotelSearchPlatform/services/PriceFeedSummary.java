@@ -0,0 +1,126 @@
+package hotelSearchPlatform.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The PriceFeedSummary class is the outcome of a price feed ingested by the HotelFacade class, and the JSON view of it
+ * returned by the HotelController class: how many rows were read, applied and rejected, in how many batches, and why
+ * rows were rejected. Only the first rejections are listed, up to 'price-feed.max-rejections', so the summary stays
+ * small however many rows a feed rejects.
+ */
+public final class PriceFeedSummary {
+
+	private final String format;
+	private final int maxRejections;
+	private final long startNanos = System.nanoTime();
+	private long elapsedMillis;
+	private int rowsRead;
+	private int rowsApplied;
+	private int rowsRejected;
+	private int batches;
+	private final List<Rejection> rejections = new ArrayList<Rejection>();
+	private String error;
+
+	PriceFeedSummary(String format, int maxRejections) {
+		this.format = format;
+		this.maxRejections = maxRejections;
+	}
+
+	void read() {
+		rowsRead++;
+	}
+
+	void reject(int line, String reason) {
+		rowsRejected++;
+		if (rejections.size() < maxRejections)
+			rejections.add(new Rejection(line, reason));
+	}
+
+	void applied(int rows) {
+		rowsApplied += rows;
+		batches++;
+	}
+
+	/**
+	 * The failed method records why the feed stopped before its end.
+	 */
+	void failed(String error) {
+		this.error = error;
+	}
+
+	void finish() {
+		elapsedMillis = (System.nanoTime() - startNanos) / 1000000;
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	public int getRowsRead() {
+		return rowsRead;
+	}
+
+	public int getRowsApplied() {
+		return rowsApplied;
+	}
+
+	public int getRowsRejected() {
+		return rowsRejected;
+	}
+
+	/**
+	 * @return the number of batches applied, each published as one new version of the hotel data.
+	 */
+	public int getBatches() {
+		return batches;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * @return the first rejected rows, in feed order.
+	 */
+	public List<Rejection> getRejections() {
+		return Collections.unmodifiableList(rejections);
+	}
+
+	/**
+	 * @return true if more rows were rejected than listed.
+	 */
+	public boolean isRejectionsTruncated() {
+		return rowsRejected > rejections.size();
+	}
+
+	/**
+	 * @return why the feed stopped before its end, or null if it was read to its end.
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * The Rejection class is a rejected row of a feed: its line number, from 1, and why it was rejected.
+	 */
+	public static final class Rejection {
+
+		private final int line;
+		private final String reason;
+
+		private Rejection(int line, String reason) {
+			this.line = line;
+			this.reason = reason;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package hotelSearchPlatform.services;
+
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.entities.Offer;
+
+/**
+ * The SearchCoalescer class lets concurrent identical searches of the HotelFacade class share one computation.
+ * The first request of a query computes the result on its own thread, and requests of the same query and city version
+ * arriving while it runs wait for that result instead of computing it again. A failure of the computation is thrown
+ * to every waiting request.
+ * A waiting request that does not get the result within the configured timeout computes the result itself, so a
+ * slow computation delays other requests by at most the timeout.
+ */
+@Service
+public class SearchCoalescer {
+
+	private final boolean enabled;
+	private final long timeoutMillis;
+	private final ConcurrentHashMap<SearchKey, Flight> flights = new ConcurrentHashMap<SearchKey, Flight>();
+	private final LongAdder computations = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+
+	public SearchCoalescer(@Value("${search-coalescing.enabled:true}") boolean enabled,
+			@Value("${search-coalescing.timeout-ms:5000}") long timeoutMillis) {
+		this.enabled = enabled;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * The execute method returns the result of the given search, sharing it with identical concurrent searches.
+	 * @param key
+	 * @param cityVersion - the version of the key's city in the snapshot the search reads.
+	 * @param search - computes the result, on the calling thread.
+	 * @return the result of the given search, or of an identical search in flight on the same city version.
+	 * @throws RuntimeException - any exception thrown by the search, on the thread that computed it or on a
+	 * thread waiting for it.
+	 */
+	public Map<Hotel, TreeSet<Offer>> execute(SearchKey key, long cityVersion, Supplier<Map<Hotel, TreeSet<Offer>>> search) {
+		if (!enabled)
+			return search.get();
+		Flight flight = new Flight(cityVersion);
+		Flight inFlight = flights.putIfAbsent(key, flight);
+		if (inFlight == null)
+			return lead(key, flight, search);
+		if (inFlight.cityVersion == cityVersion)
+			return follow(inFlight, search);
+		computations.increment();
+		return search.get();
+	}
+
+	private Map<Hotel, TreeSet<Offer>> lead(SearchKey key, Flight flight, Supplier<Map<Hotel, TreeSet<Offer>>> search) {
+		computations.increment();
+		try {
+			Map<Hotel, TreeSet<Offer>> result = search.get();
+			flight.result.complete(result);
+			return result;
+		} catch (RuntimeException | Error e) {
+			flight.result.completeExceptionally(e);
+			throw e;
+		} finally {
+			flights.remove(key, flight);
+		}
+	}
+
+	private Map<Hotel, TreeSet<Offer>> follow(Flight flight, Supplier<Map<Hotel, TreeSet<Offer>>> search) {
+		try {
+			Map<Hotel, TreeSet<Offer>> result = flight.result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+			coalesced.increment();
+			return result;
+		} catch (ExecutionException e) {
+			coalesced.increment();
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} catch (TimeoutException e) {
+			timeouts.increment();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		computations.increment();
+		return search.get();
+	}
+
+	public Stats getStats() {
+		return new Stats(enabled, timeoutMillis, computations.sum(), coalesced.sum(), timeouts.sum(), flights.size());
+	}
+
+	private static class Flight {
+
+		private final long cityVersion;
+		private final CompletableFuture<Map<Hotel, TreeSet<Offer>>> result = new CompletableFuture<Map<Hotel, TreeSet<Offer>>>();
+
+		private Flight(long cityVersion) {
+			this.cityVersion = cityVersion;
+		}
+	}
+
+	/**
+	 * The Stats class is a point in time view of the coalescing counters, returned by the AdminController class.
+	 */
+	public static class Stats {
+
+		private final boolean enabled;
+		private final long timeoutMillis;
+		private final long computations;
+		private final long coalesced;
+		private final long timeouts;
+		private final int inFlight;
+
+		public Stats(boolean enabled, long timeoutMillis, long computations, long coalesced, long timeouts, int inFlight) {
+			this.enabled = enabled;
+			this.timeoutMillis = timeoutMillis;
+			this.computations = computations;
+			this.coalesced = coalesced;
+			this.timeouts = timeouts;
+			this.inFlight = inFlight;
+		}
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public long getTimeoutMillis() {
+			return timeoutMillis;
+		}
+
+		public long getComputations() {
+			return computations;
+		}
+
+		public long getCoalesced() {
+			return coalesced;
+		}
+
+		public long getTimeouts() {
+			return timeouts;
+		}
+
+		public int getInFlight() {
+			return inFlight;
+		}
+	}
+}
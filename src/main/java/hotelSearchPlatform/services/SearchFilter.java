@@ -0,0 +1,85 @@
+package hotelSearchPlatform.services;
+
+/**
+ * The SearchFilter class holds the facet filters of a search on top of its city and dates: a price range the offers
+ * must be in, the star levels and the minimum rating the hotels must have. Unset filters match everything.
+ * Prices are compared in the base currency, see NormalizedPrices.
+ * Star levels are kept as a bit mask, so only levels 0 to MAX_STARS can be selected.
+ */
+public final class SearchFilter {
+
+	public static final int MAX_STARS = 31;
+	public static final SearchFilter NONE = new SearchFilter(Integer.MIN_VALUE, Integer.MAX_VALUE, 0, Integer.MIN_VALUE);
+
+	private final int minPrice;
+	private final int maxPrice;
+	private final int starsMask;
+	private final int minRating;
+
+	/**
+	 * @param minPrice - lowest price of an offer, or Integer.MIN_VALUE.
+	 * @param maxPrice - highest price of an offer, or Integer.MAX_VALUE.
+	 * @param starsMask - bit i set for every star level i a hotel may have, or 0 for all levels.
+	 * @param minRating - lowest rating of a hotel, or Integer.MIN_VALUE.
+	 */
+	public SearchFilter(int minPrice, int maxPrice, int starsMask, int minRating) {
+		this.minPrice = minPrice;
+		this.maxPrice = maxPrice;
+		this.starsMask = starsMask;
+		this.minRating = minRating;
+	}
+
+	public int getMinPrice() {
+		return minPrice;
+	}
+
+	public int getMaxPrice() {
+		return maxPrice;
+	}
+
+	public int getStarsMask() {
+		return starsMask;
+	}
+
+	public int getMinRating() {
+		return minRating;
+	}
+
+	public boolean matchesPrice(int price) {
+		return price >= minPrice && price <= maxPrice;
+	}
+
+	public boolean matchesStars(int stars) {
+		return starsMask == 0 || (stars >= 0 && stars <= MAX_STARS && (starsMask & (1 << stars)) != 0);
+	}
+
+	public boolean matchesRating(int rating) {
+		return rating >= minRating;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = minPrice;
+		result = 31 * result + maxPrice;
+		result = 31 * result + starsMask;
+		result = 31 * result + minRating;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof SearchFilter))
+			return false;
+		SearchFilter other = (SearchFilter) obj;
+		return minPrice == other.minPrice && maxPrice == other.maxPrice && starsMask == other.starsMask
+				&& minRating == other.minRating;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchFilter [minPrice=" + minPrice + ", maxPrice=" + maxPrice + ", starsMask=" + starsMask
+				+ ", minRating=" + minRating + "]";
+	}
+}
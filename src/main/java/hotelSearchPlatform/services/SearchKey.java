@@ -0,0 +1,117 @@
+package hotelSearchPlatform.services;
+
+import hotelSearchPlatform.ranking.RankingMode;
+
+/**
+ * The SearchKey class identifies a search query by city id, requested start and end epoch days, ranking mode and 
+ * the requested page: the number of ranked hotels to skip, the maximum number of hotels and the maximum number of 
+ * offers per hotel. A summary key is the key of a search answered with the best offer of every hotel.
+ * It is used by the SearchResultCache and SearchCoalescer classes as the key of search results.
+ */
+public final class SearchKey {
+
+	public static final int UNLIMITED = Integer.MAX_VALUE;
+
+	private final int cityId;
+	private final int startDay;
+	private final int endDay;
+	private final RankingMode rankingMode;
+	private final int offset;
+	private final int limit;
+	private final int offersPerHotel;
+	private final boolean summary;
+
+	/**
+	 * Creates the key of a query for all hotels ranked by rating with all their offers.
+	 */
+	public SearchKey(int cityId, int startDay, int endDay) {
+		this(cityId, startDay, endDay, RankingMode.RATING, 0, UNLIMITED, UNLIMITED);
+	}
+
+	public SearchKey(int cityId, int startDay, int endDay, RankingMode rankingMode, int offset, int limit, int offersPerHotel) {
+		this(cityId, startDay, endDay, rankingMode, offset, limit, offersPerHotel, false);
+	}
+
+	private SearchKey(int cityId, int startDay, int endDay, RankingMode rankingMode, int offset, int limit, int offersPerHotel,
+			boolean summary) {
+		this.cityId = cityId;
+		this.startDay = startDay;
+		this.endDay = endDay;
+		this.rankingMode = rankingMode;
+		this.offset = offset;
+		this.limit = limit;
+		this.offersPerHotel = offersPerHotel;
+		this.summary = summary;
+	}
+
+	/**
+	 * Creates the key of a summary search, which has one offer per hotel.
+	 */
+	public static SearchKey summary(int cityId, int startDay, int endDay, RankingMode rankingMode, int offset, int limit) {
+		return new SearchKey(cityId, startDay, endDay, rankingMode, offset, limit, 1, true);
+	}
+
+	public int getCityId() {
+		return cityId;
+	}
+
+	public int getStartDay() {
+		return startDay;
+	}
+
+	public int getEndDay() {
+		return endDay;
+	}
+
+	public RankingMode getRankingMode() {
+		return rankingMode;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getOffersPerHotel() {
+		return offersPerHotel;
+	}
+
+	public boolean isSummary() {
+		return summary;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = cityId;
+		result = 31 * result + startDay;
+		result = 31 * result + endDay;
+		result = 31 * result + rankingMode.ordinal();
+		result = 31 * result + offset;
+		result = 31 * result + limit;
+		result = 31 * result + offersPerHotel;
+		result = 31 * result + (summary ? 1 : 0);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof SearchKey))
+			return false;
+		SearchKey other = (SearchKey) obj;
+		return cityId == other.cityId && startDay == other.startDay && endDay == other.endDay
+				&& rankingMode == other.rankingMode && offset == other.offset
+				&& limit == other.limit && offersPerHotel == other.offersPerHotel && summary == other.summary;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchKey [cityId=" + cityId + ", startDay=" + startDay + ", endDay=" + endDay + ", rankingMode=" + rankingMode
+				+ ", offset=" + offset
+				+ ", limit=" + limit + ", offersPerHotel=" + offersPerHotel + ", summary=" + summary + "]";
+	}
+}
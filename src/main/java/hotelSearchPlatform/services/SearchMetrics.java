@@ -0,0 +1,336 @@
+package hotelSearchPlatform.services;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * The SearchMetrics class records how long every stage of a search takes, how many rows, hotels and offers it
+ * handles and, optionally, how many bytes every stage allocates, in ConcurrentHistogram instances:
+ * <ul>
+ * <li>search - the whole HotelFacade.createSearchResult() call, including searches answered by the search cache, or
+ * the whole createSearchResults() call of a batch search.</li>
+ * <li>filter - finding the matching rows in the availability index of the city, once per city for a batch search.</li>
+ * <li>rank - ranking the distinct matching hotels and keeping the requested page.</li>
+ * <li>offers - selecting the offer rows of the hotels of the page and creating their Offer and TreeSet results.</li>
+ * <li>serialize - writing a search result as JSON to the response, in the HotelController class.</li>
+ * </ul>
+ * Searches record through the Recorder of their thread, which reads System.nanoTime() once per stage and takes no locks.
+ * Allocation is read from the JVM's per-thread allocation counter, which costs more than the clock and is only read
+ * if 'search-metrics.allocation' is true. The metrics are served as JSON by getStats() and in the Prometheus text
+ * format under the names Micrometer uses for timers and distribution summaries by writePrometheus().
+ */
+@Service
+public class SearchMetrics {
+
+	private static final Logger logger = LoggerFactory.getLogger(SearchMetrics.class);
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+	private static final String[] QUANTILES = {"0.5", "0.9", "0.99", "0.999"};
+
+	/**
+	 * The Stage enum lists the stages of a search, see SearchMetrics.
+	 */
+	public enum Stage {
+		SEARCH, FILTER, RANK, OFFERS, SERIALIZE;
+
+		private final String tag = name().toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * The Size enum lists the counts recorded once per computed search, with the Prometheus metric and tag they are
+	 * served under.
+	 */
+	public enum Size {
+		ROWS_SCANNED("search_rows", "scanned"), ROWS_MATCHED("search_rows", "matched"),
+		HOTELS_MATCHED("search_hotels", "matched"), HOTELS_RETURNED("search_hotels", "returned"),
+		OFFERS_RETURNED("search_offers", "returned");
+
+		private final String metric;
+		private final String tag;
+
+		private Size(String metric, String tag) {
+			this.metric = metric;
+			this.tag = tag;
+		}
+	}
+
+	private final boolean enabled;
+	private final boolean allocationEnabled;
+	private final com.sun.management.ThreadMXBean threadMXBean;
+	private final ConcurrentHistogram[] stageNanos = new ConcurrentHistogram[Stage.values().length];
+	private final ConcurrentHistogram[] stageAllocatedBytes = new ConcurrentHistogram[Stage.values().length];
+	private final ConcurrentHistogram[] sizes = new ConcurrentHistogram[Size.values().length];
+	private final ThreadLocal<Recorder> recorders;
+	private final Recorder disabledRecorder;
+
+	public SearchMetrics(@Value("${search-metrics.enabled:true}") boolean enabled,
+			@Value("${search-metrics.allocation:false}") boolean allocationEnabled) {
+		this.enabled = enabled;
+		this.threadMXBean = allocationMXBean(enabled && allocationEnabled);
+		this.allocationEnabled = threadMXBean != null;
+		for (int i = 0; i < stageNanos.length; i++) {
+			stageNanos[i] = new ConcurrentHistogram();
+			stageAllocatedBytes[i] = new ConcurrentHistogram();
+		}
+		for (int i = 0; i < sizes.length; i++)
+			sizes[i] = new ConcurrentHistogram();
+		this.recorders = ThreadLocal.withInitial(() -> new Recorder(true));
+		this.disabledRecorder = new Recorder(false);
+	}
+
+	private static com.sun.management.ThreadMXBean allocationMXBean(boolean allocationEnabled) {
+		if (!allocationEnabled)
+			return null;
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (threadMXBean.isThreadAllocatedMemorySupported()) {
+				threadMXBean.setThreadAllocatedMemoryEnabled(true);
+				return threadMXBean;
+			}
+		}
+		logger.warn("This JVM cannot measure allocation per thread, search allocation metrics are disabled");
+		return null;
+	}
+
+	/**
+	 * The start method starts recording a search on the calling thread.
+	 * @return the Recorder of the calling thread, which records nothing if metrics are disabled.
+	 */
+	public Recorder start() {
+		if (!enabled)
+			return disabledRecorder;
+		return recorders.get().start();
+	}
+
+	/**
+	 * The Recorder class records the stages of the search running on its thread. Every stage lasts from the end of
+	 * the previous stage, or from mark(), to the call of stage(). A Recorder is only used by its own thread.
+	 */
+	public final class Recorder {
+
+		private final boolean recording;
+		private long searchStart;
+		private long mark;
+		private long allocationStart;
+		private long allocationMark;
+
+		private Recorder(boolean recording) {
+			this.recording = recording;
+		}
+
+		private Recorder start() {
+			searchStart = mark = System.nanoTime();
+			if (allocationEnabled)
+				allocationStart = allocationMark = allocatedBytes();
+			return this;
+		}
+
+		public boolean isRecording() {
+			return recording;
+		}
+
+		/**
+		 * The mark method starts the next stage now.
+		 */
+		public void mark() {
+			if (!recording)
+				return;
+			mark = System.nanoTime();
+			if (allocationEnabled)
+				allocationMark = allocatedBytes();
+		}
+
+		/**
+		 * The stage method records the given stage as ended now, and starts the next stage.
+		 * @param stage
+		 */
+		public void stage(Stage stage) {
+			if (!recording)
+				return;
+			long now = System.nanoTime();
+			stageNanos[stage.ordinal()].record(now - mark);
+			mark = now;
+			if (allocationEnabled) {
+				long allocated = allocatedBytes();
+				stageAllocatedBytes[stage.ordinal()].record(allocated - allocationMark);
+				allocationMark = allocated;
+			}
+		}
+
+		/**
+		 * The finish method records the SEARCH stage, from the start of the Recorder to now.
+		 */
+		public void finish() {
+			if (!recording)
+				return;
+			stageNanos[Stage.SEARCH.ordinal()].record(System.nanoTime() - searchStart);
+			if (allocationEnabled)
+				stageAllocatedBytes[Stage.SEARCH.ordinal()].record(allocatedBytes() - allocationStart);
+		}
+
+		/**
+		 * The size method records one count of a computed search.
+		 * @param size
+		 * @param value
+		 */
+		public void size(Size size, long value) {
+			if (recording)
+				sizes[size.ordinal()].record(value);
+		}
+	}
+
+	private long allocatedBytes() {
+		return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * The getStats method returns the count, mean, percentiles and maximum of every stage in microseconds, of the
+	 * bytes allocated by every stage if allocation is measured, and of every size.
+	 */
+	public Stats getStats() {
+		Map<String, Distribution> stages = new LinkedHashMap<String, Distribution>();
+		Map<String, Distribution> allocatedBytes = new LinkedHashMap<String, Distribution>();
+		for (Stage stage : Stage.values()) {
+			stages.put(stage.tag, new Distribution(stageNanos[stage.ordinal()].snapshot(), 1000.0));
+			if (allocationEnabled)
+				allocatedBytes.put(stage.tag, new Distribution(stageAllocatedBytes[stage.ordinal()].snapshot(), 1));
+		}
+		Map<String, Distribution> sizeDistributions = new LinkedHashMap<String, Distribution>();
+		for (Size size : Size.values())
+			sizeDistributions.put(size.metric.substring("search_".length()) + "_" + size.tag, new Distribution(sizes[size.ordinal()].snapshot(), 1));
+		return new Stats(enabled, allocationEnabled, stages, allocatedBytes, sizeDistributions);
+	}
+
+	/**
+	 * The writePrometheus method writes the metrics in the Prometheus text format, as Micrometer's Prometheus registry
+	 * writes a timer "search.stage" and distribution summaries "search.stage.allocated", "search.rows", "search.hotels"
+	 * and "search.offers" with percentiles 0.5, 0.9, 0.99 and 0.999.
+	 * @param out
+	 */
+	public void writePrometheus(StringBuilder out) {
+		out.append("# HELP search_stage_seconds Time spent in each stage of a search\n");
+		out.append("# TYPE search_stage_seconds summary\n");
+		for (Stage stage : Stage.values())
+			writeSummary(out, "search_stage_seconds", "stage", stage.tag, stageNanos[stage.ordinal()].snapshot(), 1e9);
+		if (allocationEnabled) {
+			out.append("# HELP search_stage_allocated_bytes Bytes allocated by each stage of a search\n");
+			out.append("# TYPE search_stage_allocated_bytes summary\n");
+			for (Stage stage : Stage.values())
+				writeSummary(out, "search_stage_allocated_bytes", "stage", stage.tag, stageAllocatedBytes[stage.ordinal()].snapshot(), 1);
+		}
+		String metric = null;
+		for (Size size : Size.values()) {
+			if (!size.metric.equals(metric)) {
+				metric = size.metric;
+				out.append("# HELP ").append(metric).append(" Number of ").append(metric.substring("search_".length()))
+						.append(" scanned, matched or returned by a computed search\n");
+				out.append("# TYPE ").append(metric).append(" summary\n");
+			}
+			writeSummary(out, size.metric, "kind", size.tag, sizes[size.ordinal()].snapshot(), 1);
+		}
+	}
+
+	private static void writeSummary(StringBuilder out, String metric, String tagName, String tag,
+			ConcurrentHistogram.Snapshot snapshot, double divisor) {
+		String tags = tagName + "=\"" + tag + "\",";
+		for (int i = 0; i < PERCENTILES.length; i++)
+			out.append(metric).append('{').append(tags).append("quantile=\"").append(QUANTILES[i]).append("\",} ")
+					.append(snapshot.getValueAtPercentile(PERCENTILES[i]) / divisor).append('\n');
+		out.append(metric).append("_count{").append(tags).append("} ").append(snapshot.getCount()).append('\n');
+		out.append(metric).append("_sum{").append(tags).append("} ").append(snapshot.getSum() / divisor).append('\n');
+		out.append(metric).append("_max{").append(tags).append("} ").append(snapshot.getMax() / divisor).append('\n');
+	}
+
+	public static class Stats {
+
+		private final boolean enabled;
+		private final boolean allocationEnabled;
+		private final Map<String, Distribution> stageMicros;
+		private final Map<String, Distribution> stageAllocatedBytes;
+		private final Map<String, Distribution> sizes;
+
+		public Stats(boolean enabled, boolean allocationEnabled, Map<String, Distribution> stageMicros,
+				Map<String, Distribution> stageAllocatedBytes, Map<String, Distribution> sizes) {
+			this.enabled = enabled;
+			this.allocationEnabled = allocationEnabled;
+			this.stageMicros = stageMicros;
+			this.stageAllocatedBytes = stageAllocatedBytes;
+			this.sizes = sizes;
+		}
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public boolean isAllocationEnabled() {
+			return allocationEnabled;
+		}
+
+		public Map<String, Distribution> getStageMicros() {
+			return stageMicros;
+		}
+
+		public Map<String, Distribution> getStageAllocatedBytes() {
+			return stageAllocatedBytes;
+		}
+
+		public Map<String, Distribution> getSizes() {
+			return sizes;
+		}
+	}
+
+	public static class Distribution {
+
+		private final long count;
+		private final double mean;
+		private final double p50;
+		private final double p90;
+		private final double p99;
+		private final double p999;
+		private final double max;
+
+		private Distribution(ConcurrentHistogram.Snapshot snapshot, double divisor) {
+			this.count = snapshot.getCount();
+			this.mean = snapshot.getMean() / divisor;
+			this.p50 = snapshot.getValueAtPercentile(50) / divisor;
+			this.p90 = snapshot.getValueAtPercentile(90) / divisor;
+			this.p99 = snapshot.getValueAtPercentile(99) / divisor;
+			this.p999 = snapshot.getValueAtPercentile(99.9) / divisor;
+			this.max = snapshot.getMax() / divisor;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public double getMean() {
+			return mean;
+		}
+
+		public double getP50() {
+			return p50;
+		}
+
+		public double getP90() {
+			return p90;
+		}
+
+		public double getP99() {
+			return p99;
+		}
+
+		public double getP999() {
+			return p999;
+		}
+
+		public double getMax() {
+			return max;
+		}
+	}
+}
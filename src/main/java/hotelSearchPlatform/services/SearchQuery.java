@@ -0,0 +1,66 @@
+package hotelSearchPlatform.services;
+
+import hotelSearchPlatform.ranking.RankingMode;
+
+/**
+ * The SearchQuery class holds one validated query of a batch search, see HotelFacade.createSearchResults(): city
+ * name, start and end date as epoch days, ranking mode and the requested page.
+ */
+public final class SearchQuery {
+
+	private final String cityName;
+	private final int startDay;
+	private final int endDay;
+	private final RankingMode rankingMode;
+	private final int offset;
+	private final int limit;
+	private final int offersPerHotel;
+
+	/**
+	 * @param cityName
+	 * @param startDay - epoch day of the start date.
+	 * @param endDay - epoch day of the end date.
+	 * @param rankingMode
+	 * @param offset - number of ranked hotels to skip.
+	 * @param limit - maximum number of hotels, or SearchKey.UNLIMITED.
+	 * @param offersPerHotel - maximum number of offers per hotel, or SearchKey.UNLIMITED.
+	 */
+	public SearchQuery(String cityName, int startDay, int endDay, RankingMode rankingMode, int offset,
+			int limit, int offersPerHotel) {
+		this.cityName = cityName;
+		this.startDay = startDay;
+		this.endDay = endDay;
+		this.rankingMode = rankingMode;
+		this.offset = offset;
+		this.limit = limit;
+		this.offersPerHotel = offersPerHotel;
+	}
+
+	public String getCityName() {
+		return cityName;
+	}
+
+	public int getStartDay() {
+		return startDay;
+	}
+
+	public int getEndDay() {
+		return endDay;
+	}
+
+	public RankingMode getRankingMode() {
+		return rankingMode;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public int getOffersPerHotel() {
+		return offersPerHotel;
+	}
+}
@@ -0,0 +1,266 @@
+package hotelSearchPlatform.services;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.entities.Offer;
+
+/**
+ * The SearchResultCache class keeps recent search results of the HotelFacade class, so repeated queries on
+ * the same city and dates are answered without filtering and sorting again.
+ * The cache is split into segments by key hash, each segment evicting its least recently used results once it holds
+ * more than its share of the maximum number of results or of the maximum number of offers.
+ * Every result is stored with the version of its city in the HotelDataSnapshot it was computed from, and is only
+ * returned for that same city version, so a result computed while an update was published is never served as fresh.
+ * Updates of hotel advertisers evict the results of the updated cities only.
+ * Cached results are shared between requests and must not be modified.
+ */
+@Service
+public class SearchResultCache {
+
+	private static final int SEGMENT_COUNT = 16;
+
+	private final boolean enabled;
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	public SearchResultCache(@Value("${search-cache.enabled:true}") boolean enabled,
+			@Value("${search-cache.max-results:10000}") int maxResults,
+			@Value("${search-cache.max-offers:2000000}") long maxOffers) {
+		this.enabled = enabled;
+		this.segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++)
+			segments[i] = new Segment(Math.max(1, maxResults / SEGMENT_COUNT), Math.max(1, maxOffers / SEGMENT_COUNT));
+	}
+
+	/**
+	 * @param key
+	 * @param cityVersion - the version of the key's city in the snapshot the result would be computed from.
+	 * @return the cached result of the given query, or null if there is none for the given city version.
+	 */
+	public Map<Hotel, TreeSet<Offer>> get(SearchKey key, long cityVersion) {
+		if (!enabled)
+			return null;
+		Map<Hotel, TreeSet<Offer>> result = segmentOf(key).get(key, cityVersion);
+		if (result == null)
+			misses.increment();
+		else
+			hits.increment();
+		return result;
+	}
+
+	/**
+	 * The put method caches the result of the given query, computed from a snapshot with the given city version.
+	 * @param key
+	 * @param cityVersion
+	 * @param result
+	 */
+	public void put(SearchKey key, long cityVersion, Map<Hotel, TreeSet<Offer>> result) {
+		if (!enabled)
+			return;
+		int weight = 1;
+		for (TreeSet<Offer> offers : result.values())
+			weight += offers.size();
+		segmentOf(key).put(key, new CachedResult(cityVersion, result, weight));
+	}
+
+	/**
+	 * The invalidateCity method evicts all cached results of the given city. It is called after the hotel advertisers
+	 * of the city have been updated.
+	 * @param cityId
+	 */
+	public void invalidateCity(int cityId) {
+		for (Segment segment : segments)
+			invalidations.add(segment.removeCity(cityId));
+	}
+
+	public void clear() {
+		for (Segment segment : segments)
+			segment.clear();
+	}
+
+	public Stats getStats() {
+		int results = 0;
+		long offers = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				results += segment.results.size();
+				offers += segment.weight;
+			}
+		}
+		return new Stats(enabled, hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), results, offers);
+	}
+
+	private Segment segmentOf(SearchKey key) {
+		int hash = key.hashCode() * 0x9E3779B9;
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENT_COUNT - 1)];
+	}
+
+	private static class CachedResult {
+
+		private final long cityVersion;
+		private final Map<Hotel, TreeSet<Offer>> result;
+		private final int weight;
+
+		private CachedResult(long cityVersion, Map<Hotel, TreeSet<Offer>> result, int weight) {
+			this.cityVersion = cityVersion;
+			this.result = result;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * A Segment keeps its results in access order together with the keys of every city, so a city is invalidated
+	 * without scanning the results of other cities.
+	 */
+	private class Segment {
+
+		private final int maxResults;
+		private final long maxWeight;
+		private final LinkedHashMap<SearchKey, CachedResult> results = new LinkedHashMap<SearchKey, CachedResult>(16, 0.75f, true);
+		private final Map<Integer, Set<SearchKey>> keysByCity = new HashMap<Integer, Set<SearchKey>>();
+		private long weight = 0;
+
+		private Segment(int maxResults, long maxWeight) {
+			this.maxResults = maxResults;
+			this.maxWeight = maxWeight;
+		}
+
+		private synchronized Map<Hotel, TreeSet<Offer>> get(SearchKey key, long cityVersion) {
+			CachedResult cachedResult = results.get(key);
+			if (cachedResult == null)
+				return null;
+			if (cachedResult.cityVersion != cityVersion) {
+				if (cachedResult.cityVersion < cityVersion)
+					remove(key);
+				return null;
+			}
+			return cachedResult.result;
+		}
+
+		private synchronized void put(SearchKey key, CachedResult cachedResult) {
+			CachedResult existing = results.get(key);
+			if (existing != null) {
+				if (existing.cityVersion > cachedResult.cityVersion)
+					return;
+				remove(key);
+			}
+			if (cachedResult.weight > maxWeight)
+				return;
+			results.put(key, cachedResult);
+			weight += cachedResult.weight;
+			if (keysByCity.get(key.getCityId()) == null)
+				keysByCity.put(key.getCityId(), new HashSet<SearchKey>());
+			keysByCity.get(key.getCityId()).add(key);
+			Iterator<Entry<SearchKey, CachedResult>> leastRecentlyUsed = results.entrySet().iterator();
+			while (results.size() > maxResults || weight > maxWeight) {
+				Entry<SearchKey, CachedResult> eldest = leastRecentlyUsed.next();
+				leastRecentlyUsed.remove();
+				forget(eldest.getKey(), eldest.getValue());
+				evictions.increment();
+			}
+		}
+
+		private synchronized int removeCity(int cityId) {
+			Set<SearchKey> cityKeys = keysByCity.remove(cityId);
+			if (cityKeys == null)
+				return 0;
+			for (SearchKey key : cityKeys)
+				weight -= results.remove(key).weight;
+			return cityKeys.size();
+		}
+
+		private synchronized void clear() {
+			results.clear();
+			keysByCity.clear();
+			weight = 0;
+		}
+
+		private void remove(SearchKey key) {
+			CachedResult removed = results.remove(key);
+			forget(key, removed);
+		}
+
+		/**
+		 * The forget method updates the weight and the city keys after the given key was removed from the results.
+		 */
+		private void forget(SearchKey key, CachedResult removed) {
+			weight -= removed.weight;
+			Set<SearchKey> cityKeys = keysByCity.get(key.getCityId());
+			cityKeys.remove(key);
+			if (cityKeys.isEmpty())
+				keysByCity.remove(key.getCityId());
+		}
+	}
+
+	/**
+	 * The Stats class is a point in time view of the cache counters, returned by the AdminController class.
+	 */
+	public static class Stats {
+
+		private final boolean enabled;
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+		private final long invalidations;
+		private final int results;
+		private final long offers;
+
+		public Stats(boolean enabled, long hits, long misses, long evictions, long invalidations, int results, long offers) {
+			this.enabled = enabled;
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.invalidations = invalidations;
+			this.results = results;
+			this.offers = offers;
+		}
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		public double getHitRatio() {
+			long requests = hits + misses;
+			return requests == 0 ? 0 : (double) hits / requests;
+		}
+
+		public long getEvictions() {
+			return evictions;
+		}
+
+		public long getInvalidations() {
+			return invalidations;
+		}
+
+		public int getResults() {
+			return results;
+		}
+
+		public long getOffers() {
+			return offers;
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package hotelSearchPlatform.web;
+
+/**
+ * The AdminController class enables GET and POST requests from operators to inspect and manage the services
+ * behind the HotelController class.
+ */
+
+import java.io.UncheckedIOException;
+
+import javax.annotation.Resource;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import hotelSearchPlatform.data.CurrencyRates;
+import hotelSearchPlatform.data.HotelData;
+import hotelSearchPlatform.data.MemoryReport;
+import hotelSearchPlatform.data.ReloadProgress;
+import hotelSearchPlatform.data.UpdateLog;
+import hotelSearchPlatform.services.SearchCoalescer;
+import hotelSearchPlatform.services.SearchMetrics;
+import hotelSearchPlatform.services.SearchResultCache;
+
+@RestController
+public class AdminController {
+
+	@Resource
+	private SearchResultCache searchResultCache;
+	@Resource
+	private SearchCoalescer searchCoalescer;
+	@Resource
+	private HotelData hotelData;
+	@Resource
+	private UpdateLog updateLog;
+	@Resource
+	private SearchMetrics searchMetrics;
+
+	/**
+	 * The getSearchCacheStats() method returns the hit, miss, eviction and invalidation counters of the search
+	 * result cache, with the number of results and offers it currently holds.
+	 */
+	@GetMapping("/admin/search-cache")
+	public ResponseEntity<SearchResultCache.Stats> getSearchCacheStats() {
+		return ResponseEntity.ok(searchResultCache.getStats());
+	}
+
+	/**
+	 * The clearSearchCache() method evicts all cached search results.
+	 */
+	@PostMapping("/admin/search-cache/clear")
+	public ResponseEntity<String> clearSearchCache() {
+		searchResultCache.clear();
+		return ResponseEntity.ok("Search cache cleared!");
+	}
+
+	/**
+	 * The getSearchCoalescingStats() method returns how many searches were computed, how many shared the result of
+	 * an identical search in flight, and how many stopped waiting after the timeout.
+	 */
+	@GetMapping("/admin/search-coalescing")
+	public ResponseEntity<SearchCoalescer.Stats> getSearchCoalescingStats() {
+		return ResponseEntity.ok(searchCoalescer.getStats());
+	}
+
+	/**
+	 * The getSearchMetrics() method returns the count, mean, percentiles and maximum of the time of every search
+	 * stage in microseconds, of the bytes they allocate if measured, and of the rows, hotels and offers of searches.
+	 */
+	@GetMapping("/admin/metrics")
+	public ResponseEntity<SearchMetrics.Stats> getSearchMetrics() {
+		return ResponseEntity.ok(searchMetrics.getStats());
+	}
+
+	/**
+	 * The getPrometheusMetrics() method returns the search metrics in the Prometheus text format, with the names
+	 * Micrometer would give them, to be scraped like an Actuator /prometheus endpoint.
+	 */
+	@GetMapping(value = "/admin/metrics/prometheus", produces = "text/plain; version=0.0.4; charset=utf-8")
+	public ResponseEntity<String> getPrometheusMetrics() {
+		StringBuilder out = new StringBuilder(8192);
+		searchMetrics.writePrometheus(out);
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType("text/plain; version=0.0.4; charset=utf-8")).body(out.toString());
+	}
+
+	/**
+	 * The getUpdateLogStats() method returns the durability, base version and number of records of the update log,
+	 * with how many records were appended and how many writes and syncs they took.
+	 */
+	@GetMapping("/admin/update-log")
+	public ResponseEntity<UpdateLog.Stats> getUpdateLogStats() {
+		return ResponseEntity.ok(updateLog.getStats());
+	}
+
+	/**
+	 * The writeHotelDataSnapshot() method writes the current hotel data to the snapshot file read on startup,
+	 * which also compacts the update log.
+	 */
+	@PostMapping("/admin/hotel-data/snapshot")
+	public ResponseEntity<String> writeHotelDataSnapshot() {
+		if (hotelData.getSnapshotFile() == null)
+			return ResponseEntity.badRequest().body("No snapshot file, set the hotel-data.snapshot-file property!");
+		try {
+			long version = hotelData.writeSnapshotFile();
+			return ResponseEntity.ok("Snapshot version " + version + " written to " + hotelData.getSnapshotFile() + "!");
+		} catch (UncheckedIOException e) {
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot write snapshot: " + e.getCause().getMessage());
+		}
+	}
+
+	/**
+	 * The reloadHotelData() method starts a hot reload of the *.csv files of the hotel data directory in the
+	 * background. Searches and updates keep using the current data until the reloaded data is swapped in.
+	 */
+	@PostMapping("/admin/hotel-data/reload")
+	public ResponseEntity<String> reloadHotelData() {
+		try {
+			if (!hotelData.startReload("admin"))
+				return ResponseEntity.status(HttpStatus.CONFLICT).body("A reload is already running!");
+		} catch (IllegalStateException e) {
+			return ResponseEntity.badRequest().body(e.getMessage() + "!");
+		}
+		return ResponseEntity.status(HttpStatus.ACCEPTED).body("Reload started, see GET /admin/hotel-data/reload!");
+	}
+
+	/**
+	 * The getReloadProgress() method returns the phase, loaded rows, elapsed time and memory high-water mark of the
+	 * running or last hot reload of the hotel data.
+	 */
+	@GetMapping("/admin/hotel-data/reload")
+	public ResponseEntity<ReloadProgress> getReloadProgress() {
+		return ResponseEntity.ok(hotelData.getReloadProgress());
+	}
+
+	/**
+	 * The getMemoryReport() method returns the estimated bytes of the rows, indexes and dictionaries of the current
+	 * hotel data with the heap and direct memory in use, without forcing a garbage collection.
+	 */
+	@GetMapping("/admin/memory")
+	public ResponseEntity<MemoryReport> getMemoryReport() {
+		return ResponseEntity.ok(hotelData.getMemoryReport());
+	}
+
+	/**
+	 * The getCurrencyRates() method returns the version and the rates of the FX table the prices are normalized with.
+	 */
+	@GetMapping("/admin/currency-rates")
+	public ResponseEntity<CurrencyRates> getCurrencyRates() {
+		return ResponseEntity.ok(hotelData.getCurrencyRates());
+	}
+
+	/**
+	 * The reloadCurrencyRates() method reads the currency rates file again and, if the rates changed, recomputes the
+	 * normalized prices and evicts the cached search results, which were sorted with the old rates.
+	 */
+	@PostMapping("/admin/currency-rates/reload")
+	public ResponseEntity<String> reloadCurrencyRates() {
+		if (!hotelData.hasCurrencyRatesFile())
+			return ResponseEntity.badRequest().body("No currency rates file, set the currency.rates-file property!");
+		try {
+			long previousVersion = hotelData.getCurrencyRates().getVersion();
+			CurrencyRates currencyRates = hotelData.reloadCurrencyRates();
+			if (currencyRates.getVersion() == previousVersion)
+				return ResponseEntity.ok("Currency rates version " + previousVersion + " unchanged!");
+			searchResultCache.clear();
+			return ResponseEntity.ok("Currency rates version " + currencyRates.getVersion() + " loaded!");
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body("Cannot load currency rates: " + e.getMessage());
+		} catch (UncheckedIOException e) {
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Cannot load currency rates: " + e.getCause().getMessage());
+		}
+	}
+}
@@ -5,35 +5,62 @@ package hotelSearchPlatform.web;
  * on the HotelData class via methods in the HotelFacade class.
  */
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.TreeSet;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import hotelSearchPlatform.data.AdvertiserOperation;
+import hotelSearchPlatform.data.EpochDays;
+import hotelSearchPlatform.data.PriceFeedReader;
 import hotelSearchPlatform.entities.Hotel;
 import hotelSearchPlatform.entities.HotelAdvertiserWithStringDate;
 import hotelSearchPlatform.entities.Offer;
+import hotelSearchPlatform.entities.SearchQueryWithStringDate;
 import hotelSearchPlatform.exceptions.HotelAdvertiserException;
+import hotelSearchPlatform.ranking.RankingMode;
+import hotelSearchPlatform.services.FacetedSearchResult;
+import hotelSearchPlatform.services.FlexibleSearchResult;
 import hotelSearchPlatform.services.HotelFacade;
+import hotelSearchPlatform.services.PriceFeedSummary;
+import hotelSearchPlatform.services.SearchFilter;
+import hotelSearchPlatform.services.SearchKey;
+import hotelSearchPlatform.services.SearchMetrics;
+import hotelSearchPlatform.services.SearchQuery;
 
 @RestController
 public class HotelController {
 	
 	@Resource
 	private HotelFacade hotelFacade;
+	@Resource
+	private SearchResultWriter searchResultWriter;
+	@Resource
+	private SearchMetrics searchMetrics;
+	@Value("${search-batch.max-queries:100}")
+	private int maxBatchQueries;
+
+	private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
 	
 	/**
 	 * The searchHotelOffers() method enables GET requests by web clients to answer search queries regarding the 
@@ -41,30 +68,308 @@ public class HotelController {
 	 * @param city - City name
 	 * @param startDateString - String date
 	 * @param endDateString - String date
+	 * @param rank - optional ranking mode (rating, stars, ctr, revenue or weighted), rating by default.
+	 * @param offset - optional number of ranked hotels to skip, 0 by default.
+	 * @param limit - optional maximum number of hotels, all hotels by default.
+	 * @param offersPerHotel - optional maximum number of offers per hotel, all offers by default.
 	 * @return The method returns a sorted map of hotel advertisers by hotel according to given parameters. 
 	 * In case there are no matched for the query sent the method returns an "ok" response with a relevant notice
-	 * in its body. In case of bad requests (e.g. illogical dates, invalid date format, non-existing city name)
-	 * the method returns a "bad request" response with a relevant notice in body. 
+	 * in its body. In case of bad requests (e.g. illogical dates, invalid date format, non-existing city name,
+	 * unknown ranking mode, negative offset, non positive limit or offersPerHotel) the method returns a "bad request"
+	 * response with a relevant notice in body. 
 	 */
 	@GetMapping("/search/{city}/{startDateString}/{endDateString}")
-	public ResponseEntity<?> serachHotelOffers (@PathVariable String city, @PathVariable String startDateString, @PathVariable String endDateString) {	
+	public ResponseEntity<?> serachHotelOffers (@PathVariable String city, @PathVariable String startDateString, @PathVariable String endDateString,
+			@RequestParam(required = false) String rank, @RequestParam(required = false) Integer offset, @RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) Integer offersPerHotel) {	
 		Map<Hotel, TreeSet<Offer>> hotelOffers = null;
-		DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.ENGLISH);
 		try {
-			LocalDate startDate = LocalDate.parse(startDateString, dateFormatter);
-			LocalDate endDate = LocalDate.parse(endDateString, dateFormatter);
-			if (startDate.isAfter(endDate))
-				return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("End date must be after start date...");
-			hotelOffers = hotelFacade.createSearchResult(city, startDate , endDate);
-		} catch (DateTimeParseException e) {
-			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Date must be given in 'yyyyMMdd' format...");
-		} catch (NullPointerException e) {
-			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("City name does not exist in database...");
+			hotelOffers = search(city, startDateString, endDateString, rank, offset, limit, offersPerHotel, false);
+		} catch (BadSearchException e) {
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
 		}
 		if (hotelOffers.isEmpty())
 			return ResponseEntity.ok("No offers found for entered query...");
 		return ResponseEntity.ok(hotelOffers);
 	}
+
+	/**
+	 * The streamHotelOffers() method answers the same search queries as the serachHotelOffers() method, but writes
+	 * the result straight to the response with the SearchResultWriter class instead of Jackson, as an object with a
+	 * "hotels" array of structured hotels, each with an "offers" array, in rank order. No matching offers give an
+	 * empty "hotels" array. Bad requests get the same "bad request" responses as the serachHotelOffers() method.
+	 * The optional filter parameters keep only the offers in a price range and the hotels of some star levels or with
+	 * a minimum rating, and facets=true adds the facet counts of the search, see HotelFacade.createFacetedSearchResult()
+	 * and SearchResultWriter.writeFaceted(). With summary=true only the best offer of every hotel is returned, straight
+	 * from the best offer view of the hotel data, see HotelFacade.createSummaryResult(). Filtered summary searches
+	 * keep the best matching offer of every hotel from its rows instead.
+	 * @param city - City name
+	 * @param startDateString - String date
+	 * @param endDateString - String date
+	 * @param rank - optional ranking mode (rating, stars, ctr, revenue or weighted), rating by default.
+	 * @param offset - optional number of ranked hotels to skip, 0 by default.
+	 * @param limit - optional maximum number of hotels, all hotels by default.
+	 * @param offersPerHotel - optional maximum number of offers per hotel, all offers by default.
+	 * @param minPrice - optional lowest offer price.
+	 * @param maxPrice - optional highest offer price.
+	 * @param stars - optional comma separated star levels, e.g. "4,5".
+	 * @param minRating - optional lowest hotel rating.
+	 * @param facets - optional, true to add the facet counts.
+	 * @param summary - optional, true for one offer per hotel, the same as offersPerHotel=1.
+	 * @param response - the response the result is written to.
+	 * @throws IOException - in case the response cannot be written.
+	 */
+	@GetMapping("/v2/search/{city}/{startDateString}/{endDateString}")
+	public void streamHotelOffers(@PathVariable String city, @PathVariable String startDateString, @PathVariable String endDateString,
+			@RequestParam(required = false) String rank, @RequestParam(required = false) Integer offset, @RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) Integer offersPerHotel, @RequestParam(required = false) Integer minPrice,
+			@RequestParam(required = false) Integer maxPrice, @RequestParam(required = false) String stars,
+			@RequestParam(required = false) Integer minRating, @RequestParam(defaultValue = "false") boolean facets,
+			@RequestParam(defaultValue = "false") boolean summary, HttpServletResponse response) throws IOException {
+		if (summary) {
+			if (offersPerHotel != null && offersPerHotel != 1) {
+				writeBadRequest(response, "summary returns one offer per hotel, offersPerHotel must be 1 or omitted...");
+				return;
+			}
+			offersPerHotel = 1;
+		}
+		if (minPrice != null || maxPrice != null || stars != null || minRating != null || facets) {
+			streamFacetedHotelOffers(city, startDateString, endDateString, rank, offset, limit, offersPerHotel,
+					minPrice, maxPrice, stars, minRating, facets, response);
+			return;
+		}
+		Map<Hotel, TreeSet<Offer>> hotelOffers;
+		try {
+			hotelOffers = search(city, startDateString, endDateString, rank, offset, limit, offersPerHotel, summary);
+		} catch (BadSearchException e) {
+			writeBadRequest(response, e.getMessage());
+			return;
+		}
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		SearchMetrics.Recorder recorder = searchMetrics.start();
+		searchResultWriter.write(hotelOffers, hotelFacade.getAdvertisers(), response.getOutputStream());
+		recorder.stage(SearchMetrics.Stage.SERIALIZE);
+	}
+
+	/**
+	 * The streamFacetedHotelOffers() method answers the searches of the streamHotelOffers() method with filter or facet
+	 * parameters.
+	 */
+	private void streamFacetedHotelOffers(String city, String startDateString, String endDateString, String rank,
+			Integer offset, Integer limit, Integer offersPerHotel, Integer minPrice, Integer maxPrice, String stars,
+			Integer minRating, boolean facets, HttpServletResponse response) throws IOException {
+		FacetedSearchResult searchResult;
+		try {
+			SearchQuery query = parseQuery(city, startDateString, endDateString, rank, offset, limit, offersPerHotel);
+			SearchFilter searchFilter = parseFilter(minPrice, maxPrice, stars, minRating);
+			searchResult = hotelFacade.createFacetedSearchResult(query, searchFilter, facets);
+		} catch (BadSearchException e) {
+			writeBadRequest(response, e.getMessage());
+			return;
+		} catch (NullPointerException e) {
+			writeBadRequest(response, "City name does not exist in database...");
+			return;
+		}
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		SearchMetrics.Recorder recorder = searchMetrics.start();
+		searchResultWriter.writeFaceted(searchResult, hotelFacade.getAdvertisers(), response.getOutputStream());
+		recorder.stage(SearchMetrics.Stage.SERIALIZE);
+	}
+
+	/**
+	 * The searchFlexibleHotelOffers() method enables GET requests by web clients to find hotels available for a stay
+	 * of the given number of nights anywhere between two dates, with the createFlexibleSearchResult() method in the
+	 * HotelFacade class. The result is written like the streamHotelOffers() method writes it, with the first stay found
+	 * for every hotel, see SearchResultWriter.writeFlexible().
+	 * @param city - City name
+	 * @param fromDateString - String date, first day a stay may start on.
+	 * @param toDateString - String date, last day a stay may end on.
+	 * @param nights - length of the stay.
+	 * @param rank - optional ranking mode (rating, stars, ctr, revenue or weighted), rating by default.
+	 * @param offset - optional number of ranked hotels to skip, 0 by default.
+	 * @param limit - optional maximum number of hotels, all hotels by default.
+	 * @param offersPerHotel - optional maximum number of offers per hotel, all offers by default.
+	 * @param response - the response the result is written to.
+	 * @throws IOException - in case the response cannot be written.
+	 */
+	@GetMapping("/v2/search/flexible/{city}/{fromDateString}/{toDateString}")
+	public void searchFlexibleHotelOffers(@PathVariable String city, @PathVariable String fromDateString, @PathVariable String toDateString,
+			@RequestParam(required = false) Integer nights, @RequestParam(required = false) String rank,
+			@RequestParam(required = false) Integer offset, @RequestParam(required = false) Integer limit,
+			@RequestParam(required = false) Integer offersPerHotel, HttpServletResponse response) throws IOException {
+		FlexibleSearchResult searchResult;
+		try {
+			SearchQuery query = parseQuery(city, fromDateString, toDateString, rank, offset, limit, offersPerHotel);
+			if (nights == null || nights < 1)
+				throw new BadSearchException("nights must be positive...");
+			searchResult = hotelFacade.createFlexibleSearchResult(query.getCityName(), query.getStartDay(), query.getEndDay(),
+					nights, query.getRankingMode(), query.getOffset(), query.getLimit(), query.getOffersPerHotel());
+		} catch (BadSearchException e) {
+			writeBadRequest(response, e.getMessage());
+			return;
+		} catch (NullPointerException e) {
+			writeBadRequest(response, "City name does not exist in database...");
+			return;
+		}
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		SearchMetrics.Recorder recorder = searchMetrics.start();
+		searchResultWriter.writeFlexible(searchResult, hotelFacade.getAdvertisers(), response.getOutputStream());
+		recorder.stage(SearchMetrics.Stage.SERIALIZE);
+	}
+
+	/**
+	 * The searchHotelOffersBatch() method enables POST requests by web clients to answer a batch of search queries
+	 * at once, e.g. the several cities and date ranges of one page, with the createSearchResults() method in the
+	 * HotelFacade class, which filters all date ranges of a city together. Every query has the parameters of the
+	 * streamHotelOffers() method, with dates as 'yyyyMMdd' strings, and an optional id naming its result, by default
+	 * "city/startDate/endDate".
+	 * @param queries - SearchQueryWithStringDate entities, at most 'search-batch.max-queries' of them.
+	 * @param response - the response the results are written to, as an object with a member per query id holding
+	 * the query's result as streamHotelOffers() writes it, or an "error" member with the notice a single search would
+	 * have returned.
+	 * @throws IOException - in case the response cannot be written.
+	 */
+	@PostMapping("/search/batch")
+	public void searchHotelOffersBatch(@RequestBody List<SearchQueryWithStringDate> queries, HttpServletResponse response)
+			throws IOException {
+		if (queries.size() > maxBatchQueries) {
+			writeBadRequest(response, "A batch must not have more than " + maxBatchQueries + " queries...");
+			return;
+		}
+		List<String> queryIds = new ArrayList<String>(queries.size());
+		List<String> errors = new ArrayList<String>(queries.size());
+		List<SearchQuery> validQueries = new ArrayList<SearchQuery>(queries.size());
+		for (SearchQueryWithStringDate query : queries) {
+			String queryId = query.getId() != null ? query.getId() : query.getCity() + "/" + query.getStartDate() + "/" + query.getEndDate();
+			if (queryIds.contains(queryId)) {
+				writeBadRequest(response, "Query ids must be unique, '" + queryId + "' is not...");
+				return;
+			}
+			queryIds.add(queryId);
+			try {
+				validQueries.add(parseQuery(query.getCity(), query.getStartDate(), query.getEndDate(), query.getRank(),
+						query.getOffset(), query.getLimit(), query.getOffersPerHotel()));
+				errors.add(null);
+			} catch (BadSearchException e) {
+				validQueries.add(null);
+				errors.add(e.getMessage());
+			}
+		}
+		List<SearchQuery> queriesToSearch = new ArrayList<SearchQuery>(queries.size());
+		for (SearchQuery query : validQueries)
+			if (query != null)
+				queriesToSearch.add(query);
+		List<Map<Hotel, TreeSet<Offer>>> searchResults = hotelFacade.createSearchResults(queriesToSearch);
+		List<Map<Hotel, TreeSet<Offer>>> resultsByQuery = new ArrayList<Map<Hotel, TreeSet<Offer>>>(queries.size());
+		for (int i = 0, next = 0; i < validQueries.size(); i++) {
+			Map<Hotel, TreeSet<Offer>> searchResult = validQueries.get(i) == null ? null : searchResults.get(next++);
+			if (validQueries.get(i) != null && searchResult == null)
+				errors.set(i, "City name does not exist in database...");
+			resultsByQuery.add(searchResult);
+		}
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		SearchMetrics.Recorder recorder = searchMetrics.start();
+		searchResultWriter.writeBatch(queryIds, resultsByQuery, errors, hotelFacade.getAdvertisers(), response.getOutputStream());
+		recorder.stage(SearchMetrics.Stage.SERIALIZE);
+	}
+
+	private static void writeBadRequest(HttpServletResponse response, String notice) throws IOException {
+		response.setStatus(HttpStatus.BAD_REQUEST.value());
+		response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.getWriter().write(notice);
+	}
+
+	/**
+	 * The search() method validates the parameters of a search request and creates its result with the HotelFacade class.
+	 * @param summary - true to create the result of a summary search, whose offersPerHotel is 1.
+	 * @throws BadSearchException - in case of illogical dates, invalid date format, non-existing city name,
+	 * unknown ranking mode, negative offset, non positive limit or offersPerHotel, with a relevant notice.
+	 */
+	private Map<Hotel, TreeSet<Offer>> search(String city, String startDateString, String endDateString, String rank,
+			Integer offset, Integer limit, Integer offersPerHotel, boolean summary) throws BadSearchException {
+		SearchQuery query = parseQuery(city, startDateString, endDateString, rank, offset, limit, offersPerHotel);
+		try {
+			if (summary)
+				return hotelFacade.createSummaryResult(query.getCityName(), query.getStartDay(), query.getEndDay(),
+						query.getRankingMode(), query.getOffset(), query.getLimit());
+			return hotelFacade.createSearchResult(query.getCityName(), query.getStartDay(), query.getEndDay(),
+					query.getRankingMode(), query.getOffset(), query.getLimit(), query.getOffersPerHotel());
+		} catch (NullPointerException e) {
+			throw new BadSearchException("City name does not exist in database...");
+		}
+	}
+
+	/**
+	 * The parseQuery() method validates the parameters of a search query, except for the existence of the city.
+	 * @return the SearchQuery of the parameters, with the defaults of omitted optional parameters.
+	 * @throws BadSearchException - in case of illogical dates, invalid date format, unknown ranking mode, negative
+	 * offset, non positive limit or offersPerHotel, with a relevant notice.
+	 */
+	private static SearchQuery parseQuery(String city, String startDateString, String endDateString, String rank,
+			Integer offset, Integer limit, Integer offersPerHotel) throws BadSearchException {
+		if (city == null)
+			throw new BadSearchException("City name does not exist in database...");
+		if ((offset != null && offset < 0) || (limit != null && limit < 1) || (offersPerHotel != null && offersPerHotel < 1))
+			throw new BadSearchException("offset must not be negative, limit and offersPerHotel must be positive...");
+		RankingMode rankingMode;
+		try {
+			rankingMode = rank == null ? RankingMode.RATING : RankingMode.of(rank);
+		} catch (IllegalArgumentException e) {
+			throw new BadSearchException("rank must be rating, stars, ctr, revenue or weighted...");
+		}
+		int startDay;
+		int endDay;
+		try {
+			startDay = EpochDays.parse(startDateString);
+			endDay = EpochDays.parse(endDateString);
+		} catch (DateTimeParseException e) {
+			throw new BadSearchException("Date must be given in 'yyyyMMdd' format...");
+		}
+		if (startDay > endDay)
+			throw new BadSearchException("End date must be after start date...");
+		return new SearchQuery(city, startDay, endDay, rankingMode, offset == null ? 0 : offset,
+				limit == null ? SearchKey.UNLIMITED : limit, offersPerHotel == null ? SearchKey.UNLIMITED : offersPerHotel);
+	}
+
+	/**
+	 * The parseFilter() method validates the filter parameters of a search.
+	 * @return the SearchFilter of the parameters, matching everything for omitted parameters.
+	 * @throws BadSearchException - in case the price range is empty or a star level is not a number from 0 to
+	 * SearchFilter.MAX_STARS, with a relevant notice.
+	 */
+	private static SearchFilter parseFilter(Integer minPrice, Integer maxPrice, String stars, Integer minRating)
+			throws BadSearchException {
+		if (minPrice != null && maxPrice != null && minPrice > maxPrice)
+			throw new BadSearchException("minPrice must not be greater than maxPrice...");
+		int starsMask = 0;
+		if (stars != null) {
+			try {
+				for (String level : stars.split(",")) {
+					int starLevel = Integer.parseInt(level.trim());
+					if (starLevel < 0 || starLevel > SearchFilter.MAX_STARS)
+						throw new NumberFormatException();
+					starsMask |= 1 << starLevel;
+				}
+			} catch (NumberFormatException e) {
+				throw new BadSearchException("stars must be a comma separated list of star levels from 0 to " + SearchFilter.MAX_STARS + "...");
+			}
+		}
+		return new SearchFilter(minPrice == null ? Integer.MIN_VALUE : minPrice, maxPrice == null ? Integer.MAX_VALUE : maxPrice,
+				starsMask, minRating == null ? Integer.MIN_VALUE : minRating);
+	}
+
+	/**
+	 * The BadSearchException class carries the notice of a bad search request to its response.
+	 */
+	private static class BadSearchException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		BadSearchException(String message) {
+			super(message);
+		}
+	}
 	
 	/**
 	 * The updateAdvertiser() method enables POST updates to the hotel data existing in memory.
@@ -72,7 +377,9 @@ public class HotelController {
 	 * @return if the hotel advertiser id exists the method will update the data of the advertiser in memory.
 	 * If the hotel advertiser id does not exist, the method will add the data to the hotel data in memory.
 	 * In case of "bad requests" (e.g. illogical dates, invalid date format, negative price or cpc) the 
-	 * method will return an appropriate response with a relevant notice in its body. 
+	 * method will return an appropriate response with a relevant notice in its body. The response is only sent once
+	 * the update is durable in the update log, according to its durability, and an "internal server error" response
+	 * tells when the update log could not write it or refuses updates.
 	 */
 	@PostMapping("/price/")
 	public ResponseEntity<String> updateAdvertiser (@RequestBody List<HotelAdvertiserWithStringDate> hotelAdvertiserToUpdate) {
@@ -82,8 +389,106 @@ public class HotelController {
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("start and end dates must be given in 'yyyyMMdd' format...");
 		} catch (HotelAdvertiserException e) {
 			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+		} catch (UncheckedIOException e) {
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body("Hotel advertiser updated in memory, but the update log could not be written...");
+		} catch (IllegalStateException e) {
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body("Hotel advertiser not updated, the update log refuses updates until a restart...");
 		}
 		return ResponseEntity.ok("Hotel advertiser updated!");
 	}
 
+	/**
+	 * The ingestPriceFeed() method enables POST updates of any number of hotel advertisers as a stream, read and
+	 * applied in batches while the body is received, with the ingestPriceFeed() method of the HotelFacade class.
+	 * @param request - the request whose body is the feed: "text/csv" in the layout of the hotel_advertiser.csv file,
+	 * starting with its header, or "application/x-ndjson" with a hotel advertiser like the ones posted to /price/ per
+	 * line.
+	 * @return a summary of the applied and rejected rows, with the line and reason of every rejected row, a "bad
+	 * request" response with a notice if the CSV header lacks a column, or an "internal server error" response with
+	 * the summary if a batch could not be written to the update log, which stops the feed.
+	 * @throws IOException - in case the body cannot be read.
+	 */
+	@PostMapping(value = "/price/feed", consumes = { "text/csv", "application/x-ndjson" })
+	public ResponseEntity<?> ingestPriceFeed(HttpServletRequest request) throws IOException {
+		PriceFeedReader.Format format = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(TEXT_CSV)
+				? PriceFeedReader.Format.CSV : PriceFeedReader.Format.NDJSON;
+		PriceFeedSummary summary;
+		try {
+			summary = hotelFacade.ingestPriceFeed(request.getInputStream(), format);
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+		}
+		if (summary.getError() != null)
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(summary);
+		return ResponseEntity.ok(summary);
+	}
+
+	/**
+	 * The suspendAdvertiser() method hides all offers of an advertiser from searches, keeping its hotel advertisers.
+	 * @param advertiserId
+	 * @return the number of suspended rows, or a "bad request" response with a notice for an unknown advertiser.
+	 */
+	@PostMapping("/advertisers/{advertiserId}/suspend")
+	public ResponseEntity<String> suspendAdvertiser(@PathVariable int advertiserId) {
+		return applyAdvertiserOperation(AdvertiserOperation.suspend(advertiserId), "suspended");
+	}
+
+	/**
+	 * The resumeAdvertiser() method shows the offers of a suspended advertiser in searches again.
+	 * @param advertiserId
+	 * @return the number of resumed rows, or a "bad request" response with a notice for an unknown advertiser.
+	 */
+	@PostMapping("/advertisers/{advertiserId}/resume")
+	public ResponseEntity<String> resumeAdvertiser(@PathVariable int advertiserId) {
+		return applyAdvertiserOperation(AdvertiserOperation.resume(advertiserId), "resumed");
+	}
+
+	/**
+	 * The deleteAdvertiser() method removes all hotel advertisers of an advertiser.
+	 * @param advertiserId
+	 * @return the number of deleted rows, or a "bad request" response with a notice for an unknown advertiser.
+	 */
+	@DeleteMapping("/advertisers/{advertiserId}")
+	public ResponseEntity<String> deleteAdvertiser(@PathVariable int advertiserId) {
+		return applyAdvertiserOperation(AdvertiserOperation.delete(advertiserId), "deleted");
+	}
+
+	/**
+	 * The adjustAdvertiser() method changes the prices and cpcs of all hotel advertisers of an advertiser: every value
+	 * is changed by the given percentage and then by the given amount, e.g. pricePercent=-10 makes every offer 10%
+	 * cheaper. Prices are changed in their own currency.
+	 * @param advertiserId
+	 * @param pricePercent - optional, 0 by default.
+	 * @param priceDelta - optional, 0 by default.
+	 * @param cpcPercent - optional, 0 by default.
+	 * @param cpcDelta - optional, 0 by default.
+	 * @return the number of adjusted rows, or a "bad request" response with a notice for an unknown advertiser or
+	 * when no change is given.
+	 */
+	@PostMapping("/advertisers/{advertiserId}/adjust")
+	public ResponseEntity<String> adjustAdvertiser(@PathVariable int advertiserId, 
+			@RequestParam(defaultValue = "0") double pricePercent, @RequestParam(defaultValue = "0") int priceDelta,
+			@RequestParam(defaultValue = "0") double cpcPercent, @RequestParam(defaultValue = "0") int cpcDelta) {
+		return applyAdvertiserOperation(AdvertiserOperation.adjust(advertiserId, pricePercent, priceDelta, cpcPercent, cpcDelta),
+				"adjusted");
+	}
+
+	private ResponseEntity<String> applyAdvertiserOperation(AdvertiserOperation operation, String done) {
+		int rows;
+		try {
+			rows = hotelFacade.applyAdvertiserOperation(operation);
+		} catch (HotelAdvertiserException e) {
+			return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+		} catch (UncheckedIOException e) {
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body("Advertiser " + done + " in memory, but the update log could not be written...");
+		} catch (IllegalStateException e) {
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+					.body("Advertiser not " + done + ", the update log refuses updates until a restart...");
+		}
+		return ResponseEntity.ok(rows + " rows of advertiser " + operation.getAdvertiserId() + " " + done + "!");
+	}
+
 }
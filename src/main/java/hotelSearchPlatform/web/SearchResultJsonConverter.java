@@ -0,0 +1,41 @@
+package hotelSearchPlatform.web;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import hotelSearchPlatform.services.SearchMetrics;
+
+/**
+ * The SearchResultJsonConverter class is the JSON message converter of the application. It writes JSON as Spring
+ * Boot's default converter does, and records the time it takes to write a search result in the SERIALIZE stage of
+ * the SearchMetrics class. Search results are the only response bodies that are maps. The time includes writing
+ * the JSON to the response buffer, and flushing it to the client when the buffer is full.
+ */
+public class SearchResultJsonConverter extends MappingJackson2HttpMessageConverter {
+
+	private final SearchMetrics searchMetrics;
+
+	public SearchResultJsonConverter(ObjectMapper objectMapper, SearchMetrics searchMetrics) {
+		super(objectMapper);
+		this.searchMetrics = searchMetrics;
+	}
+
+	@Override
+	protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+			throws IOException, HttpMessageNotWritableException {
+		if (!(object instanceof Map)) {
+			super.writeInternal(object, type, outputMessage);
+			return;
+		}
+		SearchMetrics.Recorder recorder = searchMetrics.start();
+		super.writeInternal(object, type, outputMessage);
+		recorder.stage(SearchMetrics.Stage.SERIALIZE);
+	}
+}
@@ -0,0 +1,390 @@
+package hotelSearchPlatform.web;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import hotelSearchPlatform.data.EpochDays;
+import hotelSearchPlatform.entities.Advertiser;
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.entities.Offer;
+import hotelSearchPlatform.services.FacetCounts;
+import hotelSearchPlatform.services.FacetedSearchResult;
+import hotelSearchPlatform.services.FlexibleSearchResult;
+import hotelSearchPlatform.services.SearchFilter;
+
+/**
+ * The SearchResultWriter class writes search results as JSON straight to an output stream, without reflection:
+ * <pre>
+ * {"hotels":[{"id":1,"city_id":2,"name":"...","rating":80,"stars":4,"clicks":10,"impressions":100,
+ *   "offers":[{"advertiser_id":3,"advertiser_name":"...","cpc":5,"price":120,"currency":"EUR"}, ...]}, ...]}
+ * </pre>
+ * The JSON of the fields of a hotel and of an advertiser is encoded once and cached on the entity, see
+ * Hotel.getJsonFragment(), so writing a result only encodes the numbers and currency of its offers. Output is
+ * collected in a buffer and written to the stream in chunks of BUFFER_SIZE bytes.
+ */
+@Component
+public class SearchResultWriter {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final byte[] RESULT_START = ascii("{\"hotels\":[");
+	private static final byte[] RESULT_END = ascii("]}");
+	private static final byte[] OFFERS_START = ascii("\"offers\":[");
+	private static final byte[] OFFERS_END = ascii("]}");
+	private static final byte[] STAY_START_DATE = ascii("\"stay_start_date\":\"");
+	private static final byte[] STAY_END_DATE = ascii("\",\"stay_end_date\":\"");
+	private static final byte[] STAY_END = ascii("\",");
+	private static final byte[] CPC = ascii("\"cpc\":");
+	private static final byte[] PRICE = ascii(",\"price\":");
+	private static final byte[] CURRENCY = ascii(",\"currency\":");
+	private static final byte[] NULL = ascii("null");
+
+	private final Map<String, byte[]> encodedCurrencies = new ConcurrentHashMap<String, byte[]>();
+
+	/**
+	 * The write method writes the given search result, in rank order, to the given stream. The stream is neither
+	 * flushed nor closed.
+	 * @param searchResult - hotels with their offers, as returned by HotelFacade.createSearchResult().
+	 * @param advertisers - advertisers by id, for the names of the offers' advertisers.
+	 * @param out
+	 * @throws IOException - in case the stream cannot be written.
+	 */
+	public void write(Map<Hotel, TreeSet<Offer>> searchResult, Map<Integer, Advertiser> advertisers, OutputStream out)
+			throws IOException {
+		Buffer buffer = new Buffer(out);
+		writeResult(buffer, searchResult, advertisers);
+		buffer.flush();
+	}
+
+	/**
+	 * The writeBatch method writes the results of a batch search as one object with a member per query, named by the
+	 * query id, in the order of the queries. A query with an error gets an object with an "error" member instead:
+	 * <pre>
+	 * {"id1":{"hotels":[...]},"id2":{"error":"City name does not exist in database..."}}
+	 * </pre>
+	 * @param queryIds - id of every query.
+	 * @param searchResults - result of every query, or null for a query with an error.
+	 * @param errors - notice of every query with an error, or null for a query with a result.
+	 * @param advertisers - advertisers by id, for the names of the offers' advertisers.
+	 * @param out
+	 * @throws IOException - in case the stream cannot be written.
+	 */
+	public void writeBatch(List<String> queryIds, List<Map<Hotel, TreeSet<Offer>>> searchResults, List<String> errors,
+			Map<Integer, Advertiser> advertisers, OutputStream out) throws IOException {
+		Buffer buffer = new Buffer(out);
+		buffer.write((byte) '{');
+		for (int i = 0; i < queryIds.size(); i++) {
+			StringBuilder name = new StringBuilder(64);
+			if (i > 0)
+				name.append(',');
+			appendString(name, queryIds.get(i));
+			name.append(':');
+			if (searchResults.get(i) == null) {
+				name.append("{\"error\":");
+				appendString(name, errors.get(i));
+				buffer.write(name.append('}').toString().getBytes(StandardCharsets.UTF_8));
+			} else {
+				buffer.write(name.toString().getBytes(StandardCharsets.UTF_8));
+				writeResult(buffer, searchResults.get(i), advertisers);
+			}
+		}
+		buffer.write((byte) '}');
+		buffer.flush();
+	}
+
+	/**
+	 * The writeFlexible method writes the given flexible date search result like the write method writes a search
+	 * result, with the length of the stays and the first and last day of the stay of every hotel before its offers:
+	 * <pre>
+	 * {"nights":3,"hotels":[{"id":1,...,"impressions":100,"stay_start_date":"20240105","stay_end_date":"20240108",
+	 *   "offers":[...]}, ...]}
+	 * </pre>
+	 * @param searchResult - as returned by HotelFacade.createFlexibleSearchResult().
+	 * @param advertisers - advertisers by id, for the names of the offers' advertisers.
+	 * @param out
+	 * @throws IOException - in case the stream cannot be written.
+	 */
+	public void writeFlexible(FlexibleSearchResult searchResult, Map<Integer, Advertiser> advertisers, OutputStream out)
+			throws IOException {
+		Buffer buffer = new Buffer(out);
+		buffer.write(ascii("{\"nights\":" + searchResult.getNights() + ","));
+		buffer.write(RESULT_START, 1, RESULT_START.length - 1);
+		boolean firstHotel = true;
+		for (Entry<Hotel, TreeSet<Offer>> hotelOffers : searchResult.getHotelOffers().entrySet()) {
+			if (!firstHotel)
+				buffer.write((byte) ',');
+			firstHotel = false;
+			Hotel hotel = hotelOffers.getKey();
+			byte[] fragment = hotelFragment(hotel);
+			buffer.write(fragment, 0, fragment.length - OFFERS_START.length);
+			buffer.write(STAY_START_DATE);
+			buffer.writeDate(searchResult.getStayStartDay(hotel.getId()));
+			buffer.write(STAY_END_DATE);
+			buffer.writeDate(searchResult.getStayEndDay(hotel.getId()));
+			buffer.write(STAY_END);
+			buffer.write(OFFERS_START);
+			writeOffers(buffer, hotelOffers.getValue(), advertisers);
+		}
+		buffer.write(RESULT_END);
+		buffer.flush();
+	}
+
+	/**
+	 * The writeFaceted method writes the given filtered search result like the write method writes a search result,
+	 * followed by its facet counts if there are any: the number of hotels of every star level that has hotels, and
+	 * of every price bucket, with its lowest price and, but for the last bucket, its highest price:
+	 * <pre>
+	 * {"hotels":[...],"facets":{"stars":{"3":120,"4":80},"price":[{"min":0,"max":49,"hotels":12}, ...,{"min":500,"hotels":3}]}}
+	 * </pre>
+	 * @param searchResult - as returned by HotelFacade.createFacetedSearchResult().
+	 * @param advertisers - advertisers by id, for the names of the offers' advertisers.
+	 * @param out
+	 * @throws IOException - in case the stream cannot be written.
+	 */
+	public void writeFaceted(FacetedSearchResult searchResult, Map<Integer, Advertiser> advertisers, OutputStream out)
+			throws IOException {
+		Buffer buffer = new Buffer(out);
+		buffer.write(RESULT_START);
+		writeHotels(buffer, searchResult.getHotelOffers(), advertisers);
+		buffer.write((byte) ']');
+		FacetCounts facetCounts = searchResult.getFacetCounts();
+		if (facetCounts != null) {
+			StringBuilder json = new StringBuilder(256).append(",\"facets\":{\"stars\":{");
+			boolean first = true;
+			for (int stars = 0; stars <= SearchFilter.MAX_STARS; stars++) {
+				if (facetCounts.getHotelsWithStars(stars) == 0)
+					continue;
+				if (!first)
+					json.append(',');
+				first = false;
+				json.append('"').append(stars).append("\":").append(facetCounts.getHotelsWithStars(stars));
+			}
+			json.append("},\"price\":[");
+			for (int bucket = 0; bucket < facetCounts.getPriceBucketCount(); bucket++) {
+				if (bucket > 0)
+					json.append(',');
+				json.append("{\"min\":").append(facetCounts.getPriceBucketBound(bucket));
+				if (bucket + 1 < facetCounts.getPriceBucketCount())
+					json.append(",\"max\":").append(facetCounts.getPriceBucketBound(bucket + 1) - 1);
+				json.append(",\"hotels\":").append(facetCounts.getHotelsInPriceBucket(bucket)).append('}');
+			}
+			buffer.write(ascii(json.append("]}").toString()));
+		}
+		buffer.write((byte) '}');
+		buffer.flush();
+	}
+
+	private void writeResult(Buffer buffer, Map<Hotel, TreeSet<Offer>> searchResult, Map<Integer, Advertiser> advertisers)
+			throws IOException {
+		buffer.write(RESULT_START);
+		writeHotels(buffer, searchResult, advertisers);
+		buffer.write(RESULT_END);
+	}
+
+	/**
+	 * The writeHotels method writes the hotels of a search result with their offers, separated by commas.
+	 */
+	private void writeHotels(Buffer buffer, Map<Hotel, TreeSet<Offer>> searchResult, Map<Integer, Advertiser> advertisers)
+			throws IOException {
+		boolean firstHotel = true;
+		for (Entry<Hotel, TreeSet<Offer>> hotelOffers : searchResult.entrySet()) {
+			if (!firstHotel)
+				buffer.write((byte) ',');
+			firstHotel = false;
+			buffer.write(hotelFragment(hotelOffers.getKey()));
+			writeOffers(buffer, hotelOffers.getValue(), advertisers);
+		}
+	}
+
+	/**
+	 * The writeOffers method writes the offers of a hotel and closes its offers array and the hotel.
+	 */
+	private void writeOffers(Buffer buffer, TreeSet<Offer> offers, Map<Integer, Advertiser> advertisers) throws IOException {
+		boolean firstOffer = true;
+		for (Offer offer : offers) {
+			if (!firstOffer)
+				buffer.write((byte) ',');
+			firstOffer = false;
+			buffer.write(advertiserFragment(offer, advertisers.get(offer.getAdvertiser_id())));
+			buffer.write(CPC);
+			buffer.writeInt(offer.getCpc());
+			buffer.write(PRICE);
+			buffer.writeInt(offer.getPrice());
+			buffer.write(CURRENCY);
+			buffer.write(currency(offer.getCurrency()));
+			buffer.write((byte) '}');
+		}
+		buffer.write(OFFERS_END);
+	}
+
+	/**
+	 * @return the JSON of the hotel up to the start of its offers array, encoded on first use.
+	 */
+	private static byte[] hotelFragment(Hotel hotel) {
+		byte[] fragment = hotel.getJsonFragment();
+		if (fragment == null) {
+			StringBuilder json = new StringBuilder(128);
+			json.append("{\"id\":").append(hotel.getId()).append(",\"city_id\":").append(hotel.getCity_id()).append(",\"name\":");
+			appendString(json, hotel.getName());
+			json.append(",\"rating\":").append(hotel.getRating()).append(",\"stars\":").append(hotel.getStars())
+					.append(",\"clicks\":").append(hotel.getClicks()).append(",\"impressions\":").append(hotel.getImpressions())
+					.append(",\"offers\":[");
+			fragment = json.toString().getBytes(StandardCharsets.UTF_8);
+			hotel.setJsonFragment(fragment);
+		}
+		return fragment;
+	}
+
+	/**
+	 * @return the JSON of the offer's advertiser id and name, up to its cpc, encoded on first use of the advertiser.
+	 */
+	private static byte[] advertiserFragment(Offer offer, Advertiser advertiser) {
+		if (advertiser == null)
+			return encodeAdvertiser(offer.getAdvertiser_id(), offer.getAdvertiser_name());
+		byte[] fragment = advertiser.getJsonFragment();
+		if (fragment == null) {
+			fragment = encodeAdvertiser(advertiser.getId(), advertiser.getAdvertiser_name());
+			advertiser.setJsonFragment(fragment);
+		}
+		return fragment;
+	}
+
+	private static byte[] encodeAdvertiser(int advertiserId, String advertiserName) {
+		StringBuilder json = new StringBuilder(64);
+		json.append("{\"advertiser_id\":").append(advertiserId).append(",\"advertiser_name\":");
+		appendString(json, advertiserName);
+		return json.append(',').toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private byte[] currency(String currency) {
+		if (currency == null)
+			return NULL;
+		byte[] encoded = encodedCurrencies.get(currency);
+		if (encoded == null) {
+			StringBuilder json = new StringBuilder(8);
+			appendString(json, currency);
+			encoded = json.toString().getBytes(StandardCharsets.UTF_8);
+			encodedCurrencies.put(currency, encoded);
+		}
+		return encoded;
+	}
+
+	/**
+	 * The appendString method appends the given string as a JSON string, escaping quotes, backslashes and control
+	 * characters.
+	 */
+	static void appendString(StringBuilder json, String value) {
+		if (value == null) {
+			json.append("null");
+			return;
+		}
+		json.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				json.append('\\').append(c);
+			else if (c < 0x20)
+				json.append(String.format("\\u%04x", (int) c));
+			else
+				json.append(c);
+		}
+		json.append('"');
+	}
+
+	private static byte[] ascii(String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * The Buffer class collects the bytes of a result and writes them to the stream whenever it is full.
+	 */
+	private static final class Buffer {
+
+		private final OutputStream out;
+		private final byte[] bytes = new byte[BUFFER_SIZE];
+		private int length = 0;
+
+		private Buffer(OutputStream out) {
+			this.out = out;
+		}
+
+		void write(byte value) throws IOException {
+			if (length == bytes.length)
+				flush();
+			bytes[length++] = value;
+		}
+
+		void write(byte[] values) throws IOException {
+			write(values, 0, values.length);
+		}
+
+		void write(byte[] values, int offset, int count) throws IOException {
+			if (count > bytes.length - length) {
+				flush();
+				if (count > bytes.length) {
+					out.write(values, offset, count);
+					return;
+				}
+			}
+			System.arraycopy(values, offset, bytes, length, count);
+			length += count;
+		}
+
+		/**
+		 * The writeInt method writes the decimal digits of the given int, without creating a String.
+		 */
+		void writeInt(int value) throws IOException {
+			if (bytes.length - length < 11)
+				flush();
+			if (value == Integer.MIN_VALUE) {
+				write(ascii(Integer.toString(value)));
+				return;
+			}
+			if (value < 0) {
+				bytes[length++] = '-';
+				value = -value;
+			}
+			int end = length + digitCount(value);
+			for (int position = end - 1; position >= length; position--) {
+				bytes[position] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			length = end;
+		}
+
+		/**
+		 * The writeDate method writes the given epoch day as the 8 digits of its 'yyyyMMdd' date, without creating a
+		 * String.
+		 */
+		void writeDate(int epochDay) throws IOException {
+			if (bytes.length - length < 8)
+				flush();
+			int value = EpochDays.toYyyyMmDd(epochDay);
+			for (int position = length + 7; position >= length; position--) {
+				bytes[position] = (byte) ('0' + value % 10);
+				value /= 10;
+			}
+			length += 8;
+		}
+
+		private static int digitCount(int value) {
+			int digits = 1;
+			for (long limit = 10; value >= limit; limit *= 10)
+				digits++;
+			return digits;
+		}
+
+		void flush() throws IOException {
+			if (length > 0)
+				out.write(bytes, 0, length);
+			length = 0;
+		}
+	}
+}
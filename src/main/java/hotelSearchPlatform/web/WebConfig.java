@@ -2,6 +2,11 @@ package hotelSearchPlatform.web;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import hotelSearchPlatform.services.SearchMetrics;
 
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
@@ -18,4 +23,12 @@ public class WebConfig {
 		return new Docket(DocumentationType.SWAGGER_2).select().apis(RequestHandlerSelectors.any())
 				.paths(PathSelectors.any()).build();
 	}
+
+	/**
+	 * The searchResultJsonConverter() method replaces Spring Boot's JSON message converter, see SearchResultJsonConverter.
+	 */
+	@Bean
+	public MappingJackson2HttpMessageConverter searchResultJsonConverter(ObjectMapper objectMapper, SearchMetrics searchMetrics) {
+		return new SearchResultJsonConverter(objectMapper, searchMetrics);
+	}
 }
@@ -0,0 +1,49 @@
+package hotelSearchPlatform.benchmarks;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import hotelSearchPlatform.HotelSearchPlatformApplication;
+
+/**
+ * The BenchmarkContext class starts the application without its web server on a benchmark data set, so benchmarks
+ * call the same HotelData, Filters and HotelFacade beans the controllers use. The snapshot file and the update log
+ * are disabled unless a benchmark sets them, so every trial starts from the *.csv files.
+ */
+final class BenchmarkContext {
+
+	private BenchmarkContext() {
+	}
+
+	/**
+	 * @param dataDirectory - directory of the *.csv files, see BenchmarkDataset.directory().
+	 * @param properties - further properties, as "name=value", replacing the defaults of the benchmarks.
+	 * @return the started application context, to be closed by the benchmark.
+	 */
+	static ConfigurableApplicationContext start(Path dataDirectory, String... properties) {
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		values.put("hotel-data.directory", dataDirectory.toString());
+		values.put("hotel-data.snapshot-file", "");
+		values.put("hotel-data.update-log.file", "");
+		values.put("logging.level.root", "warn");
+		for (String property : properties) {
+			int separator = property.indexOf('=');
+			values.put(property.substring(0, separator), property.substring(separator + 1));
+		}
+		List<String> arguments = new ArrayList<String>();
+		for (Map.Entry<String, String> value : values.entrySet())
+			arguments.add("--" + value.getKey() + "=" + value.getValue());
+		return new SpringApplicationBuilder(HotelSearchPlatformApplication.class)
+				.web(WebApplicationType.NONE)
+				.bannerMode(Banner.Mode.OFF)
+				.run(arguments.toArray(new String[0]));
+	}
+}
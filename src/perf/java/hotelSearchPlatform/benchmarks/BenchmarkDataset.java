@@ -0,0 +1,164 @@
+package hotelSearchPlatform.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import hotelSearchPlatform.entities.HotelAdvertiserWithStringDate;
+
+/**
+ * The BenchmarkDataset class writes synthetic hotel data in the *.csv formats read by the HotelData class, and creates
+ * the search queries and updates the benchmarks run against it. A data set is written once per size and number of
+ * cities to the hotel-search-benchmarks directory of the temporary directory and reused by later runs.
+ * Every hotel has OFFERS_PER_HOTEL hotel advertisers of different advertisers, hotels are spread evenly over the
+ * cities, and availability ranges start anywhere in 2020 and last 1 to 90 days.
+ */
+final class BenchmarkDataset {
+
+	static final int ADVERTISERS = 50;
+	static final int OFFERS_PER_HOTEL = 5;
+	static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+	static final int DAYS = 366;
+	static final int MAX_AVAILABILITY_DAYS = 90;
+	static final String[] CURRENCIES = {"EUR", "USD", "GBP"};
+
+	private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.ENGLISH);
+
+	private BenchmarkDataset() {
+	}
+
+	/**
+	 * @param hotelAdvertisers - number of rows of the hotel_advertiser.csv file.
+	 * @param cities - number of cities.
+	 * @return the directory of the data set with the given size, written first if it does not exist yet.
+	 */
+	static Path directory(int hotelAdvertisers, int cities) {
+		Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "hotel-search-benchmarks", hotelAdvertisers + "-" + cities);
+		if (Files.isRegularFile(directory.resolve("hotel_advertiser.csv")))
+			return directory;
+		try {
+			Files.createDirectories(directory);
+			write(directory, hotelAdvertisers, cities);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write benchmark data set to " + directory, e);
+		}
+		return directory;
+	}
+
+	static int hotelCount(int hotelAdvertisers) {
+		return Math.max(1, hotelAdvertisers / OFFERS_PER_HOTEL);
+	}
+
+	static String cityName(int cityId) {
+		return "City " + cityId;
+	}
+
+	private static void write(Path directory, int hotelAdvertisers, int cities) throws IOException {
+		Random random = new Random(42);
+		int hotels = hotelCount(hotelAdvertisers);
+		try (BufferedWriter out = Files.newBufferedWriter(directory.resolve("cities.csv"), StandardCharsets.UTF_8)) {
+			out.write("id,city_name\n");
+			for (int cityId = 1; cityId <= cities; cityId++)
+				out.write(cityId + "," + cityName(cityId) + "\n");
+		}
+		try (BufferedWriter out = Files.newBufferedWriter(directory.resolve("advertisers.csv"), StandardCharsets.UTF_8)) {
+			out.write("id,advertiser_name\n");
+			for (int advertiserId = 1; advertiserId <= ADVERTISERS; advertiserId++)
+				out.write(advertiserId + ",Advertiser " + advertiserId + "\n");
+		}
+		try (BufferedWriter out = Files.newBufferedWriter(directory.resolve("hotels.csv"), StandardCharsets.UTF_8)) {
+			out.write("id,city_id,clicks,impressions,name,rating,stars\n");
+			for (int hotelId = 1; hotelId <= hotels; hotelId++) {
+				int impressions = 100 + random.nextInt(10000);
+				out.write(hotelId + "," + (1 + hotelId % cities) + "," + random.nextInt(impressions) + "," + impressions
+						+ ",\"Hotel " + hotelId + ", benchmark\"," + random.nextInt(101) + "," + (1 + random.nextInt(5)) + "\n");
+			}
+		}
+		Path temporaryFile = directory.resolve("hotel_advertiser.csv.tmp");
+		try (BufferedWriter out = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+			out.write("advertiser_id,hotel_id,cpc,price,currency,availability_start_date,availability_end_date\n");
+			int row = 0;
+			for (int hotelId = 1; row < hotelAdvertisers; hotelId = hotelId % hotels + 1) {
+				int firstAdvertiser = random.nextInt(ADVERTISERS);
+				for (int offer = 0; offer < OFFERS_PER_HOTEL && row < hotelAdvertisers; offer++, row++) {
+					int advertiserId = (firstAdvertiser + offer * 7) % ADVERTISERS + 1;
+					LocalDate startDate = FIRST_DAY.plusDays(random.nextInt(DAYS));
+					LocalDate endDate = startDate.plusDays(1 + random.nextInt(MAX_AVAILABILITY_DAYS));
+					out.write(advertiserId + "," + hotelId + "," + (1 + random.nextInt(100)) + "," + (20 + random.nextInt(980))
+							+ "," + CURRENCIES[random.nextInt(CURRENCIES.length)] + "," + DATE_FORMATTER.format(startDate)
+							+ "," + DATE_FORMATTER.format(endDate) + "\n");
+				}
+			}
+		}
+		Files.move(temporaryFile, directory.resolve("hotel_advertiser.csv"), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * @param cities - number of cities of the data set.
+	 * @param windowDays - number of days between the start and end date of every query.
+	 * @param count
+	 * @param seed
+	 * @return search queries for random cities and start dates.
+	 */
+	static Query[] queries(int cities, int windowDays, int count, long seed) {
+		Random random = new Random(seed);
+		Query[] queries = new Query[count];
+		for (int i = 0; i < count; i++) {
+			LocalDate startDate = FIRST_DAY.plusDays(random.nextInt(DAYS));
+			queries[i] = new Query(cityName(1 + random.nextInt(cities)), startDate, startDate.plusDays(windowDays));
+		}
+		return queries;
+	}
+
+	/**
+	 * @param hotelAdvertisers - number of rows of the data set.
+	 * @param batchSize - number of hotel advertisers per update.
+	 * @param count
+	 * @param seed
+	 * @return updates, as posted to /price/, of random hotels and advertisers.
+	 */
+	static List<List<HotelAdvertiserWithStringDate>> updates(int hotelAdvertisers, int batchSize, int count, long seed) {
+		Random random = new Random(seed);
+		int hotels = hotelCount(hotelAdvertisers);
+		List<List<HotelAdvertiserWithStringDate>> updates = new ArrayList<List<HotelAdvertiserWithStringDate>>(count);
+		for (int i = 0; i < count; i++) {
+			List<HotelAdvertiserWithStringDate> update = new ArrayList<HotelAdvertiserWithStringDate>(batchSize);
+			for (int j = 0; j < batchSize; j++) {
+				LocalDate startDate = FIRST_DAY.plusDays(random.nextInt(DAYS));
+				LocalDate endDate = startDate.plusDays(1 + random.nextInt(MAX_AVAILABILITY_DAYS));
+				update.add(new HotelAdvertiserWithStringDate(1 + random.nextInt(ADVERTISERS), 1 + random.nextInt(hotels),
+						1 + random.nextInt(100), 20 + random.nextInt(980), CURRENCIES[random.nextInt(CURRENCIES.length)],
+						DATE_FORMATTER.format(startDate), DATE_FORMATTER.format(endDate)));
+			}
+			updates.add(update);
+		}
+		return updates;
+	}
+
+	/**
+	 * The Query class is one search of a benchmark: city name, start and end date.
+	 */
+	static final class Query {
+
+		final String cityName;
+		final LocalDate startDate;
+		final LocalDate endDate;
+
+		private Query(String cityName, LocalDate startDate, LocalDate endDate) {
+			this.cityName = cityName;
+			this.startDate = startDate;
+			this.endDate = endDate;
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package hotelSearchPlatform.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The Benchmarks class is the main class of target/benchmarks.jar, built by the 'perf' Maven profile. It runs the
+ * JMH benchmarks selected by the usual JMH command line options, always with the gc profiler, so every result
+ * reports its allocation rate (gc.alloc.rate.norm is the number of bytes allocated per operation).
+ * Results are compared to a baseline by writing them with "-rf json -rff result.json" for both versions.
+ */
+public final class Benchmarks {
+
+	private Benchmarks() {
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build()).run();
+	}
+}
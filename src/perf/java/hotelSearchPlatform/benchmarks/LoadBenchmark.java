@@ -0,0 +1,66 @@
+package hotelSearchPlatform.benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import hotelSearchPlatform.data.CSVLoader;
+import hotelSearchPlatform.data.ColumnarHotelAdvertiserStore;
+import hotelSearchPlatform.data.HotelAdvertiserStore;
+import hotelSearchPlatform.data.HotelDataLoader;
+import hotelSearchPlatform.data.MappedCSVLoader;
+
+/**
+ * The LoadBenchmark class measures loading the hotel_advertiser.csv file into a columnar HotelAdvertiserStore with
+ * the "commons-csv" loader (the CSVLoader class) and the "mapped" loader (the MappedCSVLoader class).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LoadBenchmark {
+
+	@Param({"100000", "1000000"})
+	public int hotelAdvertisers;
+
+	@Param({"commons-csv", "mapped"})
+	public String loader;
+
+	private ForkJoinPool pool;
+	private HotelDataLoader hotelDataLoader;
+	private String path;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		path = BenchmarkDataset.directory(hotelAdvertisers, 100).resolve("hotel_advertiser.csv").toString();
+		pool = new ForkJoinPool();
+		hotelDataLoader = "mapped".equals(loader) ? new MappedCSVLoader(pool) : new CSVLoader();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public HotelAdvertiserStore loadHotelAdvertisers() {
+		HotelAdvertiserStore hotelAdvertiserStore = new ColumnarHotelAdvertiserStore(false);
+		hotelDataLoader.loadHotelAdvertisers(path, hotelAdvertiserStore);
+		return hotelAdvertiserStore;
+	}
+}
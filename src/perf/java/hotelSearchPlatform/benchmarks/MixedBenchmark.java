@@ -0,0 +1,98 @@
+package hotelSearchPlatform.benchmarks;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import hotelSearchPlatform.entities.HotelAdvertiserWithStringDate;
+import hotelSearchPlatform.exceptions.HotelAdvertiserException;
+import hotelSearchPlatform.services.HotelFacade;
+
+/**
+ * The MixedBenchmark class measures searches and updates running together on several threads, as in production:
+ * every operation is an update with probability updatePercent / 100 and a search otherwise. Searches go through the
+ * search result cache and search coalescing when searchCache is true, so the cost of invalidating the cache on
+ * updates is included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(4)
+public class MixedBenchmark {
+
+	@Param({"1000000"})
+	public int hotelAdvertisers;
+
+	@Param({"100"})
+	public int cities;
+
+	@Param({"7"})
+	public int windowDays;
+
+	@Param({"0", "1", "10"})
+	public int updatePercent;
+
+	@Param({"true", "false"})
+	public boolean searchCache;
+
+	private ConfigurableApplicationContext context;
+	private HotelFacade hotelFacade;
+	private BenchmarkDataset.Query[] queries;
+	private List<List<HotelAdvertiserWithStringDate>> updates;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkContext.start(BenchmarkDataset.directory(hotelAdvertisers, cities),
+				"search-cache.enabled=" + searchCache, "search-coalescing.enabled=" + searchCache);
+		hotelFacade = context.getBean(HotelFacade.class);
+		queries = BenchmarkDataset.queries(cities, windowDays, 1024, 7);
+		updates = BenchmarkDataset.updates(hotelAdvertisers, 1, 1024, 11);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * The Cursor class holds the random choice of operation and the position in the queries and updates of each
+	 * benchmark thread.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private final SplittableRandom random = new SplittableRandom();
+		private int nextQuery = 0;
+		private int nextUpdate = 0;
+	}
+
+	@Benchmark
+	public Object searchOrUpdate(Cursor cursor) throws HotelAdvertiserException {
+		if (cursor.random.nextInt(100) < updatePercent) {
+			List<HotelAdvertiserWithStringDate> update = updates.get(cursor.nextUpdate++ & (updates.size() - 1));
+			hotelFacade.updateAdvertiser(update);
+			return update;
+		}
+		BenchmarkDataset.Query query = queries[cursor.nextQuery++ & (queries.length - 1)];
+		return hotelFacade.createSearchResult(query.cityName, query.startDate, query.endDate);
+	}
+}
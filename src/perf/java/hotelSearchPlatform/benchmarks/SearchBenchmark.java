@@ -0,0 +1,104 @@
+package hotelSearchPlatform.benchmarks;
+
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import hotelSearchPlatform.data.HotelData;
+import hotelSearchPlatform.entities.City;
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.entities.Offer;
+import hotelSearchPlatform.ranking.RankingMode;
+import hotelSearchPlatform.services.Filters;
+import hotelSearchPlatform.services.HotelFacade;
+
+/**
+ * The SearchBenchmark class measures the read path: filtering a city's hotel advertiser rows by date with the Filters
+ * class, and creating complete and first page search results with the HotelFacade class. The search result cache and
+ * search coalescing are disabled, so every invocation computes its result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SearchBenchmark {
+
+	@Param({"100000", "1000000"})
+	public int hotelAdvertisers;
+
+	@Param({"10", "100"})
+	public int cities;
+
+	@Param({"1", "7", "30"})
+	public int windowDays;
+
+	private ConfigurableApplicationContext context;
+	private HotelData hotelData;
+	private Filters filters;
+	private HotelFacade hotelFacade;
+	private BenchmarkDataset.Query[] queries;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkContext.start(BenchmarkDataset.directory(hotelAdvertisers, cities),
+				"search-cache.enabled=false", "search-coalescing.enabled=false");
+		hotelData = context.getBean(HotelData.class);
+		filters = context.getBean(Filters.class);
+		hotelFacade = context.getBean(HotelFacade.class);
+		queries = BenchmarkDataset.queries(cities, windowDays, 1024, 7);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	/**
+	 * The Cursor class walks each benchmark thread through the queries.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private int next = 0;
+
+		BenchmarkDataset.Query next(BenchmarkDataset.Query[] queries) {
+			return queries[next++ & (queries.length - 1)];
+		}
+	}
+
+	@Benchmark
+	public int[] filterRowsByQuery(Cursor cursor) {
+		BenchmarkDataset.Query query = cursor.next(queries);
+		City city = hotelData.getCities().get(query.cityName);
+		return filters.filterRowsByQuery(hotelData.getSnapshot(), city, query.startDate, query.endDate);
+	}
+
+	@Benchmark
+	public Map<Hotel, TreeSet<Offer>> createSearchResult(Cursor cursor) {
+		BenchmarkDataset.Query query = cursor.next(queries);
+		return hotelFacade.createSearchResult(query.cityName, query.startDate, query.endDate);
+	}
+
+	@Benchmark
+	public Map<Hotel, TreeSet<Offer>> createSearchResultFirstPage(Cursor cursor) {
+		BenchmarkDataset.Query query = cursor.next(queries);
+		return hotelFacade.createSearchResult(query.cityName, query.startDate, query.endDate, RankingMode.RATING, 0, 10, 3);
+	}
+}
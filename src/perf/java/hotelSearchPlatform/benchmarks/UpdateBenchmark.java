@@ -0,0 +1,97 @@
+package hotelSearchPlatform.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import hotelSearchPlatform.entities.HotelAdvertiserWithStringDate;
+import hotelSearchPlatform.exceptions.HotelAdvertiserException;
+import hotelSearchPlatform.services.HotelFacade;
+
+/**
+ * The UpdateBenchmark class measures the write path of the HotelFacade class: validating an update, building and
+ * publishing the next snapshot and, unless updateLog is "off", appending the update to the update log with the given
+ * durability.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class UpdateBenchmark {
+
+	@Param({"100000", "1000000"})
+	public int hotelAdvertisers;
+
+	@Param({"100"})
+	public int cities;
+
+	@Param({"1", "100"})
+	public int batchSize;
+
+	@Param({"off", "sync", "async"})
+	public String updateLog;
+
+	private ConfigurableApplicationContext context;
+	private HotelFacade hotelFacade;
+	private List<List<HotelAdvertiserWithStringDate>> updates;
+	private Path updateLogFile;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Path dataDirectory = BenchmarkDataset.directory(hotelAdvertisers, cities);
+		if ("off".equals(updateLog)) {
+			context = BenchmarkContext.start(dataDirectory);
+		} else {
+			updateLogFile = Files.createTempFile("hotel-data-benchmark", ".log");
+			Files.delete(updateLogFile);
+			context = BenchmarkContext.start(dataDirectory, "hotel-data.update-log.file=" + updateLogFile,
+					"hotel-data.update-log.durability=" + updateLog);
+		}
+		hotelFacade = context.getBean(HotelFacade.class);
+		updates = BenchmarkDataset.updates(hotelAdvertisers, batchSize, 1024, 11);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		context.close();
+		if (updateLogFile != null)
+			Files.deleteIfExists(updateLogFile);
+	}
+
+	/**
+	 * The Cursor class walks each benchmark thread through the updates.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+
+		private int next = 0;
+
+		List<HotelAdvertiserWithStringDate> next(List<List<HotelAdvertiserWithStringDate>> updates) {
+			return updates.get(next++ & (updates.size() - 1));
+		}
+	}
+
+	@Benchmark
+	public void updateAdvertiser(Cursor cursor) throws HotelAdvertiserException {
+		hotelFacade.updateAdvertiser(cursor.next(updates));
+	}
+}
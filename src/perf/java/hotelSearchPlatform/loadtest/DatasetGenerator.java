@@ -0,0 +1,171 @@
+package hotelSearchPlatform.loadtest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+/**
+ * The DatasetGenerator class writes a synthetic data set in the formats read by the CSVLoader and MappedCSVLoader
+ * classes: cities.csv, advertisers.csv, hotels.csv and hotel_advertiser.csv, plus a dataset.properties file with the
+ * parameters of the data set, read by the LoadDriver class. Options, all optional:
+ * <ul>
+ * <li>--out - output directory, target/dataset by default.</li>
+ * <li>--rows - number of rows of hotel_advertiser.csv, up to Integer.MAX_VALUE, 1000000 by default.</li>
+ * <li>--cities - number of cities, 1000 by default.</li>
+ * <li>--advertisers - number of advertisers, 100 by default.</li>
+ * <li>--offers-per-hotel - number of hotel advertisers of different advertisers per hotel, 5 by default.</li>
+ * <li>--skew - exponent of the Zipf distribution of hotels over cities, 1.0 by default, 0 spreads them evenly.</li>
+ * <li>--first-day and --days - period of the availability start dates, 2020-01-01 and 366 by default.</li>
+ * <li>--seed - seed of the random numbers, 42 by default, the same options always write the same files.</li>
+ * </ul>
+ * City 1 is the most popular city. Hotels get a price level from their stars and every advertiser offers it within
+ * 15%. Availability ranges start anywhere in the period and are mostly short: 70% last 1 to 14 days, 25% 15 to 90
+ * days and 5% up to a year. Rows are written hotel by hotel, with hotels.csv and hotel_advertiser.csv in one pass, so
+ * memory use does not depend on the number of rows.
+ */
+public final class DatasetGenerator {
+
+	static final String PROPERTIES_FILE = "dataset.properties";
+	static final String[] CURRENCIES = {"EUR", "USD", "GBP"};
+
+	private static final int MAX_AVAILABILITY_DAYS = 365;
+	private static final int PROGRESS_ROWS = 10000000;
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private DatasetGenerator() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		Options options = Options.parse(args);
+		Path directory = Paths.get(options.get("out", "target/dataset"));
+		long rows = options.getLong("rows", 1000000);
+		int cities = options.getInt("cities", 1000);
+		int advertisers = options.getInt("advertisers", 100);
+		int offersPerHotel = options.getInt("offers-per-hotel", 5);
+		double skew = options.getDouble("skew", 1.0);
+		LocalDate firstDay = LocalDate.parse(options.get("first-day", "2020-01-01"));
+		int days = options.getInt("days", 366);
+		long seed = options.getLong("seed", 42);
+		if (rows < 1 || rows > Integer.MAX_VALUE || cities < 1 || days < 1 || offersPerHotel < 1 || offersPerHotel > advertisers)
+			throw new IllegalArgumentException("rows must be from 1 to " + Integer.MAX_VALUE + ", cities and days positive"
+					+ " and offers-per-hotel from 1 to the number of advertisers");
+		int hotels = (int) ((rows + offersPerHotel - 1) / offersPerHotel);
+
+		long start = System.nanoTime();
+		Files.createDirectories(directory);
+		Files.deleteIfExists(directory.resolve(PROPERTIES_FILE));
+		SplittableRandom random = new SplittableRandom(seed);
+		ZipfDistribution cityPopularity = new ZipfDistribution(cities, skew);
+		writeCities(directory, cities);
+		writeAdvertisers(directory, advertisers);
+		writeHotelsAndHotelAdvertisers(directory, random, cityPopularity, rows, hotels, advertisers, offersPerHotel, firstDay, days);
+
+		Properties properties = new Properties();
+		properties.setProperty("rows", Long.toString(rows));
+		properties.setProperty("cities", Integer.toString(cities));
+		properties.setProperty("hotels", Integer.toString(hotels));
+		properties.setProperty("advertisers", Integer.toString(advertisers));
+		properties.setProperty("skew", Double.toString(skew));
+		properties.setProperty("first-day", firstDay.toString());
+		properties.setProperty("days", Integer.toString(days));
+		try (Writer out = Files.newBufferedWriter(directory.resolve(PROPERTIES_FILE), StandardCharsets.ISO_8859_1)) {
+			properties.store(out, "Written by DatasetGenerator with seed " + seed);
+		}
+		System.out.printf(Locale.ENGLISH, "Wrote %d rows, %d hotels in %d cities to %s in %d s, city 1 has %.1f%% of the hotels%n",
+				rows, hotels, cities, directory.toAbsolutePath(), (System.nanoTime() - start) / 1000000000L,
+				100 * cityPopularity.probability(0));
+	}
+
+	static String cityName(int cityId) {
+		return "City " + cityId;
+	}
+
+	private static BufferedWriter newWriter(Path file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	private static void writeCities(Path directory, int cities) throws IOException {
+		try (BufferedWriter out = newWriter(directory.resolve("cities.csv"))) {
+			out.write("id,city_name\n");
+			for (int cityId = 1; cityId <= cities; cityId++)
+				out.write(cityId + "," + cityName(cityId) + "\n");
+		}
+	}
+
+	private static void writeAdvertisers(Path directory, int advertisers) throws IOException {
+		try (BufferedWriter out = newWriter(directory.resolve("advertisers.csv"))) {
+			out.write("id,advertiser_name\n");
+			for (int advertiserId = 1; advertiserId <= advertisers; advertiserId++)
+				out.write(advertiserId + ",Advertiser " + advertiserId + "\n");
+		}
+	}
+
+	private static void writeHotelsAndHotelAdvertisers(Path directory, SplittableRandom random, ZipfDistribution cityPopularity,
+			long rows, int hotels, int advertisers, int offersPerHotel, LocalDate firstDay, int days) throws IOException {
+		String[] dates = dates(firstDay, days + MAX_AVAILABILITY_DAYS);
+		StringBuilder line = new StringBuilder(128);
+		long row = 0;
+		try (BufferedWriter hotelsOut = newWriter(directory.resolve("hotels.csv"));
+				BufferedWriter hotelAdvertisersOut = newWriter(directory.resolve("hotel_advertiser.csv"))) {
+			hotelsOut.write("id,city_id,clicks,impressions,name,rating,stars\n");
+			hotelAdvertisersOut.write("advertiser_id,hotel_id,cpc,price,currency,availability_start_date,availability_end_date\n");
+			for (int hotelId = 1; hotelId <= hotels; hotelId++) {
+				int stars = 1 + random.nextInt(5);
+				int impressions = 100 + random.nextInt(10000);
+				line.setLength(0);
+				line.append(hotelId).append(',').append(1 + cityPopularity.sample(random)).append(',')
+						.append(random.nextInt(impressions)).append(',').append(impressions)
+						.append(",\"Hotel ").append(hotelId).append(", ").append(stars).append(" stars\",")
+						.append(Math.min(100, 40 + 10 * stars + random.nextInt(21))).append(',').append(stars).append('\n');
+				hotelsOut.append(line);
+
+				int priceLevel = 30 * stars + random.nextInt(30 * stars);
+				int firstAdvertiser = random.nextInt(advertisers);
+				for (int offer = 0; offer < offersPerHotel && row < rows; offer++, row++) {
+					int startDay = random.nextInt(days);
+					line.setLength(0);
+					line.append((firstAdvertiser + offer) % advertisers + 1).append(',').append(hotelId).append(',')
+							.append(1 + random.nextInt(20 * stars)).append(',')
+							.append(priceLevel * (85 + random.nextInt(31)) / 100).append(',')
+							.append(CURRENCIES[random.nextInt(CURRENCIES.length)]).append(',')
+							.append(dates[startDay]).append(',').append(dates[startDay + availabilityDays(random)]).append('\n');
+					hotelAdvertisersOut.append(line);
+					if ((row + 1) % PROGRESS_ROWS == 0)
+						System.out.println("Wrote " + (row + 1) + " of " + rows + " rows");
+				}
+			}
+		}
+	}
+
+	private static int availabilityDays(SplittableRandom random) {
+		int kind = random.nextInt(100);
+		if (kind < 70)
+			return 1 + random.nextInt(14);
+		if (kind < 95)
+			return 15 + random.nextInt(76);
+		return 91 + random.nextInt(MAX_AVAILABILITY_DAYS - 90);
+	}
+
+	/**
+	 * @param firstDay
+	 * @param count
+	 * @return the 'yyyyMMdd' strings of count days from the first day, so rows do not format dates.
+	 */
+	static String[] dates(LocalDate firstDay, int count) {
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd", Locale.ENGLISH);
+		String[] dates = new String[count];
+		for (int day = 0; day < count; day++)
+			dates[day] = formatter.format(firstDay.plusDays(day));
+		return dates;
+	}
+}
@@ -0,0 +1,81 @@
+package hotelSearchPlatform.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class counts latencies in microseconds in log-linear buckets, as HdrHistogram does: values
+ * below 2048 have a bucket each and larger values share a bucket with values equal in their 11 most significant bits,
+ * so every percentile is reported within 0.1% of the recorded value, with a fixed amount of memory whatever the
+ * number of values. Values above one hour are counted as one hour. Threads record values concurrently.
+ */
+final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 11;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final long MAX_VALUE = 3600L * 1000000L;
+
+	private final AtomicLongArray counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+	private final LongAdder totalCount = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * @param value - latency in microseconds.
+	 */
+	void record(long value) {
+		long clamped = Math.max(0, Math.min(value, MAX_VALUE));
+		counts.incrementAndGet(index(clamped));
+		totalCount.increment();
+		sum.add(clamped);
+		max.accumulate(clamped);
+	}
+
+	long getTotalCount() {
+		return totalCount.sum();
+	}
+
+	double getMean() {
+		long count = totalCount.sum();
+		return count == 0 ? 0 : (double) sum.sum() / count;
+	}
+
+	long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @param percentile - from 0 to 100.
+	 * @return the highest value of the bucket of the given percentile, at most the largest recorded value.
+	 */
+	long getValueAtPercentile(double percentile) {
+		long count = totalCount.sum();
+		if (count == 0)
+			return 0;
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long cumulativeCount = 0;
+		for (int index = 0; index < counts.length(); index++) {
+			cumulativeCount += counts.get(index);
+			if (cumulativeCount >= rank)
+				return Math.min(highestValue(index), getMax());
+		}
+		return getMax();
+	}
+
+	private static int index(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * HALF_SUB_BUCKETS + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+	}
+
+	private static long highestValue(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int shift = index / HALF_SUB_BUCKETS - 1;
+		long subBucket = index % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return (subBucket << shift) + (1L << shift) - 1;
+	}
+}
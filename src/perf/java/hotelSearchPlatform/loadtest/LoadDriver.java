@@ -0,0 +1,219 @@
+package hotelSearchPlatform.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The LoadDriver class replays mixed /search and /price/ traffic against a running instance of the application and
+ * reports the throughput and latency percentiles of both. The traffic matches a data set written by the
+ * DatasetGenerator class: searches pick cities with the same Zipf skew as the hotels and stay 1 to 14 nights, mostly
+ * short, and updates post new prices and availability of random hotel advertisers. Options, all optional:
+ * <ul>
+ * <li>--url - address of the instance, http://localhost:8080 by default.</li>
+ * <li>--data - directory of the data set the instance loaded, target/dataset by default. Options not given on the
+ * command line are read from its dataset.properties file, so --skew, --hotels, --days etc. can be overridden.</li>
+ * <li>--mode - "closed" (default) or "open". In a closed loop every thread sends its next request when the previous
+ * one completes, which measures the throughput the instance sustains. In an open loop requests are sent at --rate
+ * requests per second whatever the response times, and latency is measured from the time a request was scheduled,
+ * so a stalled instance shows as queueing delay instead of as fewer requests (no coordinated omission).</li>
+ * <li>--threads - concurrent connections, 16 by default. An open loop needs enough threads for the rate times the
+ * latency.</li>
+ * <li>--rate - requests per second of an open loop, 1000 by default.</li>
+ * <li>--warmup and --duration - seconds of unrecorded and recorded traffic, 10 and 60 by default.</li>
+ * <li>--update-percent - percentage of requests that are updates, 10 by default, and --batch-size - hotel
+ * advertisers per update, 1 by default.</li>
+ * <li>--limit - hotels per search result, as the limit request parameter, 20 by default, 0 for all hotels.</li>
+ * <li>--timeout-ms - request timeout, 10000 by default, and --seed - 7 by default.</li>
+ * </ul>
+ */
+public final class LoadDriver {
+
+	private static final String SEARCH = "search";
+	private static final String UPDATE = "update";
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+	private final HttpClient client;
+	private final String url;
+	private final Duration timeout;
+	private final List<String> encodedCityNames;
+	private final ZipfDistribution cityPopularity;
+	private final int hotels;
+	private final int advertisers;
+	private final String[] dates;
+	private final int days;
+	private final int updatePercent;
+	private final int batchSize;
+	private final String searchParameters;
+
+	private final LatencyHistogram searchLatencies = new LatencyHistogram();
+	private final LatencyHistogram updateLatencies = new LatencyHistogram();
+	private final LongAdder searchErrors = new LongAdder();
+	private final LongAdder updateErrors = new LongAdder();
+
+	private LoadDriver(Options options, List<String> cityNames) {
+		this.url = options.get("url", "http://localhost:8080");
+		this.timeout = Duration.ofMillis(options.getInt("timeout-ms", 10000));
+		this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(timeout).build();
+		this.encodedCityNames = new ArrayList<String>(cityNames.size());
+		for (String cityName : cityNames)
+			encodedCityNames.add(URLEncoder.encode(cityName, StandardCharsets.UTF_8).replace("+", "%20"));
+		this.cityPopularity = new ZipfDistribution(cityNames.size(), options.getDouble("skew", 1.0));
+		this.hotels = options.getInt("hotels", 1);
+		this.advertisers = options.getInt("advertisers", 1);
+		this.days = options.getInt("days", 366);
+		this.dates = DatasetGenerator.dates(LocalDate.parse(options.get("first-day", "2020-01-01")), days + 100);
+		this.updatePercent = options.getInt("update-percent", 10);
+		this.batchSize = options.getInt("batch-size", 1);
+		int limit = options.getInt("limit", 20);
+		this.searchParameters = limit > 0 ? "?limit=" + limit : "";
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Options options = Options.parse(args);
+		Path directory = Paths.get(options.get("data", "target/dataset"));
+		Path propertiesFile = directory.resolve(DatasetGenerator.PROPERTIES_FILE);
+		if (Files.isRegularFile(propertiesFile)) {
+			Properties properties = new Properties();
+			try (Reader in = Files.newBufferedReader(propertiesFile, StandardCharsets.ISO_8859_1)) {
+				properties.load(in);
+			}
+			options.withDefaults(properties);
+		} else if (!options.has("hotels") || !options.has("advertisers")) {
+			throw new IllegalArgumentException(propertiesFile + " does not exist, give --hotels and --advertisers");
+		}
+		List<String> lines = Files.readAllLines(directory.resolve("cities.csv"), StandardCharsets.UTF_8);
+		List<String> cityNames = new ArrayList<String>(lines.size());
+		for (String line : lines.subList(1, lines.size()))
+			if (!line.isEmpty())
+				cityNames.add(line.substring(line.indexOf(',') + 1));
+
+		boolean openLoop = "open".equals(options.get("mode", "closed"));
+		int threads = options.getInt("threads", 16);
+		double rate = options.getDouble("rate", 1000);
+		long warmupNanos = options.getLong("warmup", 10) * 1000000000L;
+		long durationNanos = options.getLong("duration", 60) * 1000000000L;
+		long seed = options.getLong("seed", 7);
+		LoadDriver driver = new LoadDriver(options, cityNames);
+
+		long start = System.nanoTime() + 100000000L;
+		long measureStart = start + warmupNanos;
+		long end = measureStart + durationNanos;
+		long intervalNanos = (long) (1000000000L / rate);
+		AtomicLong nextRequest = new AtomicLong();
+		List<Thread> workers = new ArrayList<Thread>(threads);
+		for (int i = 0; i < threads; i++) {
+			SplittableRandom random = new SplittableRandom(seed + i);
+			Thread worker = new Thread(() -> {
+				while (true) {
+					long scheduled = openLoop ? start + nextRequest.getAndIncrement() * intervalNanos : Math.max(System.nanoTime(), start);
+					if (scheduled >= end)
+						return;
+					for (long wait = scheduled - System.nanoTime(); wait > 0; wait = scheduled - System.nanoTime())
+						LockSupport.parkNanos(wait);
+					driver.send(random, scheduled >= measureStart, scheduled);
+				}
+			}, "load-driver-" + i);
+			worker.start();
+			workers.add(worker);
+		}
+		System.out.printf(Locale.ENGLISH, "%s loop, %d threads%s, %d%% updates, %d s warmup, %d s recorded, against %s%n",
+				openLoop ? "Open" : "Closed", threads, openLoop ? String.format(Locale.ENGLISH, ", %.0f requests/s", rate) : "",
+				driver.updatePercent, warmupNanos / 1000000000L, durationNanos / 1000000000L, driver.url);
+		for (Thread worker : workers)
+			worker.join();
+		driver.report(durationNanos);
+	}
+
+	private void send(SplittableRandom random, boolean recorded, long scheduled) {
+		boolean update = random.nextInt(100) < updatePercent;
+		HttpRequest request = update ? updateRequest(random) : searchRequest(random);
+		boolean failed;
+		try {
+			failed = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200;
+		} catch (IOException e) {
+			failed = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (!recorded)
+			return;
+		long latency = (System.nanoTime() - scheduled) / 1000;
+		(update ? updateLatencies : searchLatencies).record(latency);
+		if (failed)
+			(update ? updateErrors : searchErrors).increment();
+	}
+
+	private HttpRequest searchRequest(SplittableRandom random) {
+		int startDay = random.nextInt(days);
+		String city = encodedCityNames.get(cityPopularity.sample(random));
+		return HttpRequest.newBuilder(URI.create(url + "/search/" + city + "/" + dates[startDay] + "/" + dates[startDay + nights(random)]
+				+ searchParameters)).timeout(timeout).GET().build();
+	}
+
+	private HttpRequest updateRequest(SplittableRandom random) {
+		StringBuilder body = new StringBuilder(160 * batchSize).append('[');
+		for (int i = 0; i < batchSize; i++) {
+			int startDay = random.nextInt(days);
+			int stars = 1 + random.nextInt(5);
+			if (i > 0)
+				body.append(',');
+			body.append("{\"advertiser_id\":").append(1 + random.nextInt(advertisers))
+					.append(",\"hotel_id\":").append(1 + random.nextInt(hotels))
+					.append(",\"cpc\":").append(1 + random.nextInt(20 * stars))
+					.append(",\"price\":").append(30 * stars + random.nextInt(30 * stars))
+					.append(",\"currency\":\"").append(DatasetGenerator.CURRENCIES[random.nextInt(DatasetGenerator.CURRENCIES.length)])
+					.append("\",\"availability_start_date\":\"").append(dates[startDay])
+					.append("\",\"availability_end_date\":\"").append(dates[startDay + 1 + random.nextInt(90)]).append("\"}");
+		}
+		body.append(']');
+		return HttpRequest.newBuilder(URI.create(url + "/price/")).timeout(timeout).header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body.toString())).build();
+	}
+
+	/**
+	 * @param random
+	 * @return number of nights of a search, 1 to 14 with shorter stays more likely.
+	 */
+	private static int nights(SplittableRandom random) {
+		int nights = 1;
+		while (nights < 14 && random.nextInt(100) < 55)
+			nights++;
+		return nights;
+	}
+
+	private void report(long durationNanos) {
+		System.out.printf(Locale.ENGLISH, "%-8s %10s %8s %10s %9s %9s %9s %9s %9s %9s %9s%n", "", "requests", "errors",
+				"req/s", "mean ms", "p50", "p90", "p99", "p99.9", "p99.99", "max");
+		report(SEARCH, searchLatencies, searchErrors.sum(), durationNanos);
+		report(UPDATE, updateLatencies, updateErrors.sum(), durationNanos);
+	}
+
+	private static void report(String name, LatencyHistogram latencies, long errors, long durationNanos) {
+		StringBuilder line = new StringBuilder(String.format(Locale.ENGLISH, "%-8s %10d %8d %10.1f %9.2f", name,
+				latencies.getTotalCount(), errors, latencies.getTotalCount() * 1e9 / durationNanos, latencies.getMean() / 1000));
+		for (double percentile : PERCENTILES)
+			line.append(String.format(Locale.ENGLISH, " %9.2f", latencies.getValueAtPercentile(percentile) / 1000.0));
+		line.append(String.format(Locale.ENGLISH, " %9.2f", latencies.getMax() / 1000.0));
+		System.out.println(line);
+	}
+}
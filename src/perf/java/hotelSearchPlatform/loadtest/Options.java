@@ -0,0 +1,67 @@
+package hotelSearchPlatform.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The Options class holds the "--name=value" command line options of the DatasetGenerator and LoadDriver classes,
+ * with defaults read from a properties file or given by the caller.
+ */
+final class Options {
+
+	private final Map<String, String> values = new LinkedHashMap<String, String>();
+
+	private Options() {
+	}
+
+	/**
+	 * @param args - command line arguments, each "--name=value".
+	 * @return the options of the command line.
+	 * @throws IllegalArgumentException if an argument is not of the form "--name=value".
+	 */
+	static Options parse(String[] args) {
+		Options options = new Options();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			if (!arg.startsWith("--") || separator < 3)
+				throw new IllegalArgumentException("Options must be given as --name=value: " + arg);
+			options.values.put(arg.substring(2, separator), arg.substring(separator + 1));
+		}
+		return options;
+	}
+
+	/**
+	 * The withDefaults method adds the given properties as options that are not given on the command line.
+	 * @param properties - default values by option name.
+	 */
+	void withDefaults(Properties properties) {
+		for (String name : properties.stringPropertyNames())
+			if (values.get(name) == null)
+				values.put(name, properties.getProperty(name));
+	}
+
+	String get(String name, String defaultValue) {
+		String value = values.get(name);
+		return value == null ? defaultValue : value;
+	}
+
+	int getInt(String name, int defaultValue) {
+		String value = values.get(name);
+		return value == null ? defaultValue : Integer.parseInt(value.replace("_", ""));
+	}
+
+	long getLong(String name, long defaultValue) {
+		String value = values.get(name);
+		return value == null ? defaultValue : Long.parseLong(value.replace("_", ""));
+	}
+
+	double getDouble(String name, double defaultValue) {
+		String value = values.get(name);
+		return value == null ? defaultValue : Double.parseDouble(value);
+	}
+
+	boolean has(String name) {
+		return values.get(name) != null;
+	}
+}
@@ -0,0 +1,49 @@
+package hotelSearchPlatform.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The ZipfDistribution class draws ranks 0 to n - 1 with a probability proportional to 1 / (rank + 1)^exponent,
+ * so a few ranks are drawn most of the time, as the most popular cities are searched most of the time.
+ * An exponent of 0 draws every rank with the same probability.
+ */
+final class ZipfDistribution {
+
+	private final double[] cumulativeProbabilities;
+
+	/**
+	 * @param n - number of ranks.
+	 * @param exponent - skew of the distribution, 0 or more.
+	 */
+	ZipfDistribution(int n, double exponent) {
+		if (n < 1 || exponent < 0)
+			throw new IllegalArgumentException("Zipf distribution needs at least 1 rank and a non negative exponent");
+		cumulativeProbabilities = new double[n];
+		double sum = 0;
+		for (int rank = 0; rank < n; rank++) {
+			sum += 1 / Math.pow(rank + 1, exponent);
+			cumulativeProbabilities[rank] = sum;
+		}
+		for (int rank = 0; rank < n; rank++)
+			cumulativeProbabilities[rank] /= sum;
+	}
+
+	/**
+	 * @param random - source of randomness of the calling thread.
+	 * @return a rank from 0 to n - 1.
+	 */
+	int sample(SplittableRandom random) {
+		int index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+		int rank = index < 0 ? -index - 1 : index;
+		return Math.min(rank, cumulativeProbabilities.length - 1);
+	}
+
+	/**
+	 * @param rank
+	 * @return the probability of drawing the given rank.
+	 */
+	double probability(int rank) {
+		return rank == 0 ? cumulativeProbabilities[0] : cumulativeProbabilities[rank] - cumulativeProbabilities[rank - 1];
+	}
+}
@@ -0,0 +1,157 @@
+package hotelSearchPlatform.data;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The AvailabilityIndexTest class checks the results of the AvailabilityIndex class against a scan of all its rows,
+ * while rows are inserted and removed in small deltas and merged into new static parts.
+ */
+public class AvailabilityIndexTest {
+
+	private static final int DAYS = 400;
+
+	private final Random random = new Random(42);
+	private final HotelAdvertiserStore store = new ColumnarHotelAdvertiserStore(false, new StringDictionary());
+
+	@Test
+	public void emptyIndexFindsNothing() {
+		AvailabilityIndex index = new AvailabilityIndex(store);
+		assertEquals(0, index.size());
+		assertArrayEquals(new int[0], index.findContaining(0, DAYS));
+		int[][] rowsByQuery = index.findContainingAll(new int[] {0, 10}, new int[] {5, 20});
+		assertArrayEquals(new int[0], rowsByQuery[0]);
+		assertArrayEquals(new int[0], rowsByQuery[1]);
+	}
+
+	@Test
+	public void buildMatchesScan() {
+		TreeSet<Integer> rows = addRows(2000);
+		AvailabilityIndex index = AvailabilityIndex.build(store, toArray(rows));
+		assertEquals(rows.size(), index.size());
+		assertMatchesScan(index, rows);
+	}
+
+	@Test
+	public void buildSortedMatchesBuild() {
+		TreeSet<Integer> rows = addRows(500);
+		List<Integer> sortedRows = new ArrayList<Integer>(rows);
+		sortedRows.sort((row1, row2) -> Integer.compare(store.getStartDay(row1), store.getStartDay(row2)));
+		int[] sorted = new int[sortedRows.size()];
+		for (int i = 0; i < sorted.length; i++)
+			sorted[i] = sortedRows.get(i);
+		assertMatchesScan(AvailabilityIndex.buildSorted(store, sorted), rows);
+	}
+
+	@Test
+	public void buildSortedRejectsUnsortedRows() {
+		int late = store.add(1, 1, 1, 100, "EUR", 50, 60);
+		int early = store.add(1, 1, 1, 100, "EUR", 10, 60);
+		assertThrows(IllegalArgumentException.class, () -> AvailabilityIndex.buildSorted(store, new int[] {late, early}));
+	}
+
+	@Test
+	public void withChangesMatchesScanAcrossMerges() {
+		TreeSet<Integer> live = addRows(1000);
+		AvailabilityIndex index = AvailabilityIndex.build(store, toArray(live));
+		for (int step = 0; step < 300; step++) {
+			TreeSet<Integer> inserted = addRows(random.nextInt(8));
+			TreeSet<Integer> removed = new TreeSet<Integer>();
+			for (int i = random.nextInt(8); i > 0 && !live.isEmpty(); i--) {
+				Integer row = live.ceiling(random.nextInt(store.size()));
+				removed.add(row == null ? live.first() : row);
+			}
+			if (!inserted.isEmpty() && random.nextBoolean())
+				removed.add(inserted.first());
+			TreeSet<Integer> previous = new TreeSet<Integer>(live);
+			AvailabilityIndex previousIndex = index;
+			index = index.withChanges(toArray(inserted), toArray(removed));
+			live.addAll(inserted);
+			live.removeAll(removed);
+			assertEquals(live.size(), index.size());
+			assertMatchesScan(index, live);
+			if (step % 50 == 0)
+				assertMatchesScan(previousIndex, previous);
+		}
+	}
+
+	@Test
+	public void removingAllRowsLeavesAnEmptyIndex() {
+		TreeSet<Integer> rows = addRows(300);
+		AvailabilityIndex index = AvailabilityIndex.build(store, toArray(rows)).withChanges(new int[0], toArray(rows));
+		assertEquals(0, index.size());
+		assertMatchesScan(index, new TreeSet<Integer>());
+	}
+
+	/**
+	 * The addRows method adds rows with random availability ranges, some of a single day, to the store.
+	 * @return the added rows.
+	 */
+	private TreeSet<Integer> addRows(int count) {
+		TreeSet<Integer> rows = new TreeSet<Integer>();
+		for (int i = 0; i < count; i++) {
+			int startDay = random.nextInt(DAYS);
+			int endDay = startDay + (random.nextInt(4) == 0 ? 0 : random.nextInt(90));
+			rows.add(store.add(random.nextInt(10), random.nextInt(50), random.nextInt(100), random.nextInt(500), "EUR",
+					startDay, endDay));
+		}
+		return rows;
+	}
+
+	/**
+	 * The assertMatchesScan method runs random queries, one by one and more than 64 at once so findContainingAll
+	 * walks the tree for several words of queries, and compares them with a scan of the given rows.
+	 */
+	private void assertMatchesScan(AvailabilityIndex index, TreeSet<Integer> rows) {
+		int queryCount = 100;
+		int[] startDays = new int[queryCount];
+		int[] endDays = new int[queryCount];
+		for (int query = 0; query < queryCount; query++) {
+			startDays[query] = random.nextInt(DAYS + 20) - 10;
+			endDays[query] = startDays[query] + random.nextInt(30);
+		}
+		int[][] rowsByQuery = index.findContainingAll(startDays, endDays);
+		for (int query = 0; query < queryCount; query++) {
+			int[] expected = scan(rows, startDays[query], endDays[query]);
+			assertArrayEquals(expected, sorted(index.findContaining(startDays[query], endDays[query])),
+					"findContaining(" + startDays[query] + ", " + endDays[query] + ")");
+			assertArrayEquals(expected, sorted(rowsByQuery[query]),
+					"findContainingAll query " + query + " (" + startDays[query] + ", " + endDays[query] + ")");
+		}
+	}
+
+	private int[] scan(TreeSet<Integer> rows, int startDay, int endDay) {
+		List<Integer> matches = new ArrayList<Integer>();
+		for (int row : rows) {
+			if (store.getStartDay(row) <= startDay && store.getEndDay(row) >= endDay)
+				matches.add(row);
+		}
+		int[] result = new int[matches.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = matches.get(i);
+		return result;
+	}
+
+	private static int[] sorted(int[] rows) {
+		int[] sortedRows = rows.clone();
+		Arrays.sort(sortedRows);
+		return sortedRows;
+	}
+
+	private static int[] toArray(TreeSet<Integer> rows) {
+		int[] array = new int[rows.size()];
+		int i = 0;
+		for (int row : rows)
+			array[i++] = row;
+		return array;
+	}
+}
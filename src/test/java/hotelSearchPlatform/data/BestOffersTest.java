@@ -0,0 +1,94 @@
+package hotelSearchPlatform.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The BestOffersTest class checks which windows a BestOffers view keeps, and compares the best offers it finds with
+ * a scan of the rows of the hotel, with many rows of the same price and cpc.
+ */
+public class BestOffersTest {
+
+	private final Random random = new Random(25);
+	private final HotelAdvertiserStore store = new ColumnarHotelAdvertiserStore(false, new StringDictionary());
+
+	@Test
+	public void windowInsideTheWindowOfABetterRowIsDropped() {
+		int cheap = store.add(1, 1, 5, 100, "EUR", 0, 30);
+		int inside = store.add(2, 1, 5, 120, "EUR", 5, 10);
+		int outside = store.add(3, 1, 5, 110, "EUR", 20, 40);
+		BestOffers bestOffers = build(cheap, inside, outside);
+		assertEquals(2, bestOffers.size());
+		assertEquals(cheap, bestOffers.find(5, 10));
+		assertEquals(outside, bestOffers.find(25, 35));
+		assertEquals(BestOffers.NOT_FOUND, bestOffers.find(35, 45));
+	}
+
+	@Test
+	public void cheaperWindowInsideTheWindowOfAnotherRowIsKept() {
+		int wide = store.add(1, 1, 5, 100, "EUR", 0, 30);
+		int inside = store.add(2, 1, 5, 90, "EUR", 5, 10);
+		BestOffers bestOffers = build(wide, inside);
+		assertEquals(2, bestOffers.size());
+		assertEquals(inside, bestOffers.find(6, 8));
+		assertEquals(wide, bestOffers.find(4, 8));
+	}
+
+	@Test
+	public void higherCpcWinsAtTheSamePrice() {
+		int low = store.add(1, 1, 5, 100, "EUR", 0, 10);
+		int high = store.add(2, 1, 9, 100, "EUR", 0, 10);
+		int sameCpc = store.add(3, 1, 9, 100, "EUR", 0, 10);
+		BestOffers bestOffers = build(low, high, sameCpc);
+		assertEquals(1, bestOffers.size());
+		assertEquals(high, bestOffers.find(2, 3));
+	}
+
+	@Test
+	public void findMatchesScanWithTies() {
+		for (int hotel = 0; hotel < 200; hotel++) {
+			int[] rows = new int[1 + random.nextInt(30)];
+			for (int i = 0; i < rows.length; i++) {
+				int startDay = random.nextInt(60);
+				rows[i] = store.add(1 + random.nextInt(4), hotel, 1 + random.nextInt(3), 100 + 10 * random.nextInt(3), "EUR",
+						startDay, startDay + random.nextInt(30));
+			}
+			NormalizedPrices normalizedPrices = NormalizedPrices.build(store, CurrencyRates.NONE);
+			BestOffers bestOffers = BestOffers.build(store, normalizedPrices, HotelData.sortRows(normalizedPrices, rows));
+			assertTrue(bestOffers.size() <= rows.length);
+			for (int startDay = -5; startDay < 95; startDay += 3) {
+				for (int nights = 0; nights < 20; nights += 4) {
+					int expected = scan(normalizedPrices, rows, startDay, startDay + nights);
+					int found = bestOffers.find(startDay, startDay + nights);
+					String range = "hotel " + hotel + " from day " + startDay + " for " + nights + " nights";
+					if (expected == BestOffers.NOT_FOUND)
+						assertEquals(BestOffers.NOT_FOUND, found, range);
+					else
+						assertEquals(0, found == BestOffers.NOT_FOUND ? -1 : normalizedPrices.compareOffers(expected, found), range);
+				}
+			}
+		}
+	}
+
+	private BestOffers build(int... rows) {
+		NormalizedPrices normalizedPrices = NormalizedPrices.build(store, CurrencyRates.NONE);
+		return BestOffers.build(store, normalizedPrices, HotelData.sortRows(normalizedPrices, rows));
+	}
+
+	/**
+	 * @return the best of the given rows available for the whole date range, or NOT_FOUND.
+	 */
+	private int scan(NormalizedPrices normalizedPrices, int[] rows, int startDay, int endDay) {
+		int best = BestOffers.NOT_FOUND;
+		for (int row : rows) {
+			if (store.getStartDay(row) <= startDay && store.getEndDay(row) >= endDay
+					&& (best == BestOffers.NOT_FOUND || normalizedPrices.compareOffers(row, best) < 0))
+				best = row;
+		}
+		return best;
+	}
+}
@@ -0,0 +1,77 @@
+package hotelSearchPlatform.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The DayBitmapTest class compares the days and runs found by the DayBitmap class with a scan of the availability
+ * ranges of its rows, for ranges crossing and filling 64 day words.
+ */
+public class DayBitmapTest {
+
+	private static final int DAYS = 600;
+
+	private final Random random = new Random(17);
+	private final HotelAdvertiserStore store = new ColumnarHotelAdvertiserStore(false, new StringDictionary());
+
+	@Test
+	public void emptyBitmapFindsNothing() {
+		DayBitmap bitmap = DayBitmap.build(store, new int[0]);
+		assertEquals(0, bitmap.getWordCount());
+		assertFalse(bitmap.contains(10));
+		assertEquals(DayBitmap.NOT_FOUND, bitmap.firstRun(0, DAYS, 1));
+	}
+
+	@Test
+	public void runIsCarriedAcrossWords() {
+		int first = store.add(1, 1, 5, 100, "EUR", 60, 63);
+		int second = store.add(2, 1, 5, 100, "EUR", 64, 127);
+		int third = store.add(3, 1, 5, 100, "EUR", 128, 130);
+		DayBitmap bitmap = DayBitmap.build(store, new int[] {third, first, second});
+		assertEquals(3, bitmap.getWordCount());
+		assertEquals(60, bitmap.firstRun(0, DAYS, 71));
+		assertEquals(DayBitmap.NOT_FOUND, bitmap.firstRun(0, DAYS, 72));
+		assertEquals(DayBitmap.NOT_FOUND, bitmap.firstRun(0, 129, 71));
+		assertEquals(61, bitmap.firstRun(61, 200, 70));
+		assertEquals(DayBitmap.NOT_FOUND, bitmap.firstRun(100, 90, 1));
+	}
+
+	@Test
+	public void runsMatchScan() {
+		for (int hotel = 0; hotel < 300; hotel++) {
+			int[] rows = new int[random.nextInt(6)];
+			boolean[] available = new boolean[DAYS];
+			for (int i = 0; i < rows.length; i++) {
+				int startDay = random.nextInt(DAYS - 150);
+				int endDay = startDay + (random.nextInt(3) == 0 ? random.nextInt(3) : random.nextInt(150));
+				rows[i] = store.add(1, hotel, 5, 100, "EUR", startDay, endDay);
+				for (int day = startDay; day <= endDay; day++)
+					available[day] = true;
+			}
+			DayBitmap bitmap = DayBitmap.build(store, rows);
+			for (int day = 0; day < DAYS; day++)
+				assertEquals(available[day], bitmap.contains(day), "hotel " + hotel + " day " + day);
+			for (int query = 0; query < 50; query++) {
+				int fromDay = random.nextInt(DAYS);
+				int toDay = Math.min(DAYS - 1, fromDay + random.nextInt(200));
+				int length = 1 + random.nextInt(random.nextBoolean() ? 5 : 100);
+				assertEquals(scan(available, fromDay, toDay, length), bitmap.firstRun(fromDay, toDay, length),
+						"hotel " + hotel + " run of " + length + " from day " + fromDay + " to " + toDay);
+			}
+		}
+	}
+
+	private static int scan(boolean[] available, int fromDay, int toDay, int length) {
+		int runLength = 0;
+		for (int day = fromDay; day <= toDay; day++) {
+			runLength = available[day] ? runLength + 1 : 0;
+			if (runLength == length)
+				return day - length + 1;
+		}
+		return DayBitmap.NOT_FOUND;
+	}
+}
@@ -0,0 +1,44 @@
+package hotelSearchPlatform.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The EpochDaysTest class compares the conversions of the EpochDays class with LocalDate over several centuries,
+ * and checks the dates parse() rejects.
+ */
+public class EpochDaysTest {
+
+	@Test
+	public void conversionsMatchLocalDate() {
+		for (LocalDate date = LocalDate.of(1600, 1, 1); date.getYear() < 2500; date = date.plusDays(1)) {
+			int epochDay = (int) date.toEpochDay();
+			int yyyyMmDd = date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+			assertEquals(epochDay, EpochDays.of(date.getYear(), date.getMonthValue(), date.getDayOfMonth()), date.toString());
+			assertEquals(yyyyMmDd, EpochDays.toYyyyMmDd(epochDay), date.toString());
+			assertEquals(epochDay, EpochDays.parse(String.valueOf(yyyyMmDd)), date.toString());
+		}
+		assertEquals(18293, EpochDays.parse("20200201"));
+	}
+
+	@Test
+	public void parseRejectsInvalidDates() {
+		String[] invalidDates = { null, "", "2020021", "202002011", "2020-02-1", "2020020a", "+2020020", "20200230",
+				"20190229", "21000229", "20201301", "20200001", "20200100" };
+		for (String date : invalidDates)
+			assertThrows(DateTimeParseException.class, () -> EpochDays.parse(date));
+		assertEquals(EpochDays.of(2000, 2, 29), EpochDays.parse("20000229"));
+	}
+
+	@Test
+	public void ofRejectsInvalidDates() {
+		assertThrows(IllegalArgumentException.class, () -> EpochDays.of(2021, 2, 29));
+		assertThrows(IllegalArgumentException.class, () -> EpochDays.of(2021, 4, 31));
+		assertThrows(IllegalArgumentException.class, () -> EpochDays.of(2021, 0, 1));
+	}
+}
@@ -0,0 +1,178 @@
+package hotelSearchPlatform.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hotelSearchPlatform.entities.Advertiser;
+import hotelSearchPlatform.entities.City;
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.ranking.HotelScores;
+import hotelSearchPlatform.ranking.RankingFormulas;
+import hotelSearchPlatform.ranking.RankingMode;
+
+/**
+ * The HotelDataSnapshotFileTest class writes a snapshot with a suspended advertiser to a file, reads it back into
+ * an empty store and compares both, and checks that damaged files are refused.
+ */
+public class HotelDataSnapshotFileTest {
+
+	private static final int SUSPENDED_ADVERTISER_ID = 3;
+
+	@TempDir
+	Path directory;
+
+	private final Random random = new Random(7);
+	private final RankingFormulas rankingFormulas = new RankingFormulas(1, 0, 0, 0);
+
+	@Test
+	public void readReturnsTheWrittenSnapshot() {
+		HotelDataSnapshot written = buildSnapshot(new ColumnarHotelAdvertiserStore(false, new StringDictionary()));
+		Path path = directory.resolve("hotel-data.snapshot");
+		HotelDataSnapshotFile.write(written, path);
+		assertFalse(Files.exists(path.resolveSibling("hotel-data.snapshot.tmp")));
+
+		HotelDataSnapshot read = HotelDataSnapshotFile.read(path, new ObjectHotelAdvertiserStore(new StringDictionary()),
+				rankingFormulas, CurrencyRates.NONE);
+		assertEquals(written.getVersion(), read.getVersion());
+		assertEquals(written.getCities().toString(), read.getCities().toString());
+		assertEquals(written.getAdvertisers().toString(), read.getAdvertisers().toString());
+		assertEquals(written.getHotels().toString(), read.getHotels().toString());
+		assertEquals(written.getSuspendedAdvertiserIds(), read.getSuspendedAdvertiserIds());
+		assertEquals(rowsOf(written, written.getSuspendedRows(), true), rowsOf(read, read.getSuspendedRows(), true));
+		for (Integer hotelId : written.getHotels().keySet()) {
+			assertEquals(rowsOf(written, written.getRowsByHotel(hotelId), false), rowsOf(read, read.getRowsByHotel(hotelId), false),
+					"rows of hotel " + hotelId);
+			for (RankingMode mode : RankingMode.values())
+				assertEquals(written.getHotelScores().getScore(mode, hotelId), read.getHotelScores().getScore(mode, hotelId),
+						mode + " score of hotel " + hotelId);
+		}
+		for (City city : written.getCities().values()) {
+			for (int startDay = 0; startDay < 120; startDay += 7) {
+				assertEquals(rowsOf(written, written.getAvailabilityIndex(city.getId()).findContaining(startDay, startDay + 3), true),
+						rowsOf(read, read.getAvailabilityIndex(city.getId()).findContaining(startDay, startDay + 3), true),
+						"rows of city " + city.getId() + " from day " + startDay);
+			}
+		}
+	}
+
+	@Test
+	public void readRefusesACorruptFile() throws IOException {
+		Path path = directory.resolve("hotel-data.snapshot");
+		HotelDataSnapshotFile.write(buildSnapshot(new ColumnarHotelAdvertiserStore(false, new StringDictionary())), path);
+		byte[] bytes = Files.readAllBytes(path);
+		bytes[bytes.length / 2] ^= 0x5A;
+		Files.write(path, bytes);
+		assertThrows(IllegalArgumentException.class, () -> HotelDataSnapshotFile.read(path,
+				new ColumnarHotelAdvertiserStore(false, new StringDictionary()), rankingFormulas, CurrencyRates.NONE));
+	}
+
+	@Test
+	public void readRefusesATruncatedFile() throws IOException {
+		Path path = directory.resolve("hotel-data.snapshot");
+		HotelDataSnapshotFile.write(buildSnapshot(new ColumnarHotelAdvertiserStore(false, new StringDictionary())), path);
+		byte[] bytes = Files.readAllBytes(path);
+		Files.write(path, Arrays.copyOf(bytes, bytes.length - 10));
+		assertThrows(IllegalArgumentException.class, () -> HotelDataSnapshotFile.read(path,
+				new ColumnarHotelAdvertiserStore(false, new StringDictionary()), rankingFormulas, CurrencyRates.NONE));
+	}
+
+	@Test
+	public void readRefusesAnotherFile() throws IOException {
+		Path path = directory.resolve("hotel_advertiser.csv");
+		Files.write(path, "advertiser_id,hotel_id,cpc,price,currency,availability_start_date,availability_end_date\n".getBytes());
+		assertThrows(IllegalArgumentException.class, () -> HotelDataSnapshotFile.read(path,
+				new ColumnarHotelAdvertiserStore(false, new StringDictionary()), rankingFormulas, CurrencyRates.NONE));
+	}
+
+	/**
+	 * The buildSnapshot method builds a snapshot of two cities, whose hotels have a row of some of five advertisers,
+	 * in several currencies, with the rows of advertiser 3 suspended.
+	 */
+	private HotelDataSnapshot buildSnapshot(HotelAdvertiserStore store) {
+		Map<String, City> cities = new HashMap<String, City>();
+		cities.put("Berlin", new City(1, "Berlin"));
+		cities.put("Paris", new City(2, "Paris"));
+		Map<Integer, Advertiser> advertisers = new HashMap<Integer, Advertiser>();
+		for (int advertiserId = 1; advertiserId <= 5; advertiserId++)
+			advertisers.put(advertiserId, new Advertiser(advertiserId, "Adv " + advertiserId));
+		Map<Integer, Hotel> hotels = new HashMap<Integer, Hotel>();
+		for (int hotelId = 1; hotelId <= 20; hotelId++)
+			hotels.put(hotelId, new Hotel(hotelId, 1 + hotelId % 2, random.nextInt(100), 100 + random.nextInt(900),
+					random.nextInt(101), 1 + random.nextInt(5), "Hotel " + hotelId));
+
+		String[] currencies = {"EUR", "USD", "GBP"};
+		Map<Integer, List<Integer>> hotelRowLists = new HashMap<Integer, List<Integer>>();
+		List<Integer> suspendedRowList = new ArrayList<Integer>();
+		for (Integer hotelId : hotels.keySet()) {
+			hotelRowLists.put(hotelId, new ArrayList<Integer>());
+			for (int advertiserId = 1; advertiserId <= 5; advertiserId++) {
+				if (random.nextInt(3) == 0)
+					continue;
+				int startDay = random.nextInt(100);
+				int row = store.add(advertiserId, hotelId, 1 + random.nextInt(50), 50 + random.nextInt(400),
+						currencies[random.nextInt(currencies.length)], startDay, startDay + random.nextInt(40));
+				if (advertiserId == SUSPENDED_ADVERTISER_ID)
+					suspendedRowList.add(row);
+				else
+					hotelRowLists.get(hotelId).add(row);
+			}
+		}
+
+		NormalizedPrices normalizedPrices = NormalizedPrices.build(store, CurrencyRates.NONE);
+		Map<Integer, int[]> rowsByHotel = new HashMap<Integer, int[]>();
+		Map<Integer, List<Integer>> cityRowLists = new HashMap<Integer, List<Integer>>();
+		for (Map.Entry<Integer, List<Integer>> hotelRows : hotelRowLists.entrySet()) {
+			rowsByHotel.put(hotelRows.getKey(), HotelData.sortRows(normalizedPrices, toArray(hotelRows.getValue())));
+			cityRowLists.computeIfAbsent(hotels.get(hotelRows.getKey()).getCity_id(), cityId -> new ArrayList<Integer>())
+					.addAll(hotelRows.getValue());
+		}
+		Map<Integer, AvailabilityIndex> availabilityIndexByCity = new HashMap<Integer, AvailabilityIndex>();
+		for (Map.Entry<Integer, List<Integer>> cityRows : cityRowLists.entrySet())
+			availabilityIndexByCity.put(cityRows.getKey(), AvailabilityIndex.build(store, toArray(cityRows.getValue())));
+		Map<Integer, SortedSet<Integer>> hotelIdsByCity = HotelData.buildHotelIdsByCity(hotels);
+		HotelScores hotelScores = HotelScores.build(rankingFormulas, hotels,
+				hotelId -> HotelData.bestCpc(store, normalizedPrices, rowsByHotel.get(hotelId)));
+		Set<Integer> suspendedAdvertiserIds = new HashSet<Integer>();
+		suspendedAdvertiserIds.add(SUSPENDED_ADVERTISER_ID);
+		return new HotelDataSnapshot(42, cities, advertisers, hotels, hotelIdsByCity, store, PersistentIntMap.of(rowsByHotel),
+				PersistentIntMap.of(availabilityIndexByCity), hotelScores, normalizedPrices, suspendedAdvertiserIds,
+				toArray(suspendedRowList));
+	}
+
+	/**
+	 * @return the hotel advertisers of the given rows of the snapshot, in the given order or sorted, as their row ids
+	 * differ between the written and the read store.
+	 */
+	private static List<String> rowsOf(HotelDataSnapshot snapshot, int[] rows, boolean sort) {
+		List<String> hotelAdvertisers = new ArrayList<String>();
+		for (int row : rows)
+			hotelAdvertisers.add(snapshot.getHotelAdvertiserStore().get(row).toString());
+		if (sort)
+			hotelAdvertisers.sort(null);
+		return hotelAdvertisers;
+	}
+
+	private static int[] toArray(List<Integer> rows) {
+		int[] array = new int[rows.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = rows.get(i);
+		return array;
+	}
+}
@@ -0,0 +1,340 @@
+package hotelSearchPlatform.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.entities.HotelAdvertiser;
+import hotelSearchPlatform.ranking.RankingFormulas;
+import hotelSearchPlatform.ranking.RankingMode;
+
+/**
+ * The HotelDataTest class loads a few csv files into a HotelData instance and checks the rows of the hotels after
+ * updates and advertiser operations, and after reloads and compactions of the rows that other changes run into. A
+ * reload or a compaction is paused in the middle by the ranking formulas, which it calls on the reload thread to build
+ * its new snapshot.
+ */
+public class HotelDataTest {
+
+	private static final int DAY = 18293;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void updateReplacesTheLastRowOfTheAdvertiser() throws IOException {
+		HotelData hotelData = load("1,1,5,100,EUR,20200201,20200210", "1,1,5,200,EUR,20200201,20200210",
+				"2,1,7,150,EUR,20200201,20200210");
+		try {
+			hotelData.updateHotelAdvertisers(Arrays.asList(new HotelAdvertiser(1, 1, 5, 120, "EUR", DAY, DAY + 9)));
+			assertEquals(Arrays.asList("1:100:5", "1:120:5", "2:150:7"), offersOf(hotelData.getSnapshot(), 1));
+			assertEquals(2, hotelData.getSnapshot().getRowsByAdvertiser(1, 1).length);
+		} finally {
+			hotelData.shutdown();
+		}
+	}
+
+	@Test
+	public void updateEqualToAnotherRowOfTheHotelIsLeftOut() throws IOException {
+		HotelData hotelData = load("1,1,5,100,EUR,20200201,20200210", "1,1,5,200,EUR,20200201,20200210");
+		try {
+			hotelData.updateHotelAdvertisers(Arrays.asList(new HotelAdvertiser(1, 1, 5, 100, "EUR", DAY + 20, DAY + 30)));
+			HotelDataSnapshot snapshot = hotelData.getSnapshot();
+			assertEquals(Arrays.asList("1:100:5"), offersOf(snapshot, 1));
+			assertEquals(1, snapshot.getRowsByAdvertiser(1, 1).length);
+			assertEquals(snapshot.getRowsByHotel(1)[0], snapshot.getRowsByAdvertiser(1, 1)[0]);
+			assertEquals(1, snapshot.getAvailabilityIndex(1).findContaining(DAY + 1, DAY + 2).length);
+			assertEquals(0, snapshot.getAvailabilityIndex(1).findContaining(DAY + 21, DAY + 22).length);
+		} finally {
+			hotelData.shutdown();
+		}
+	}
+
+	@Test
+	public void suspendHidesTheRowsUntilResume() throws IOException {
+		HotelData hotelData = load("1,1,5,100,EUR,20200201,20200210", "2,1,7,150,EUR,20200201,20200210",
+				"2,2,7,300,EUR,20200201,20200210");
+		try {
+			assertEquals(new HashSet<Integer>(Arrays.asList(1, 2)), hotelData.applyAdvertiserOperation(AdvertiserOperation.suspend(2)).getChangedCityIds());
+			assertEquals(Arrays.asList("1:100:5"), offersOf(hotelData.getSnapshot(), 1));
+			assertEquals(Collections.<String>emptyList(), offersOf(hotelData.getSnapshot(), 2));
+			hotelData.updateHotelAdvertisers(Arrays.asList(new HotelAdvertiser(2, 1, 8, 90, "EUR", DAY, DAY + 9)));
+			assertEquals(Arrays.asList("1:100:5"), offersOf(hotelData.getSnapshot(), 1));
+			assertEquals(1, hotelData.getSnapshot().getAvailabilityIndex(1).findContaining(DAY + 1, DAY + 2).length);
+
+			assertEquals(2, hotelData.applyAdvertiserOperation(AdvertiserOperation.resume(2)).getRows());
+			assertEquals(Arrays.asList("2:90:8", "1:100:5"), offersOf(hotelData.getSnapshot(), 1));
+			assertEquals(Arrays.asList("2:300:7"), offersOf(hotelData.getSnapshot(), 2));
+			assertEquals(2, hotelData.getSnapshot().getAvailabilityIndex(1).findContaining(DAY + 1, DAY + 2).length);
+			assertEquals(0, hotelData.applyAdvertiserOperation(AdvertiserOperation.resume(2)).getRows());
+		} finally {
+			hotelData.shutdown();
+		}
+	}
+
+	@Test
+	public void adjustChangesThePricesAndCpcsOfTheAdvertiser() throws IOException {
+		HotelData hotelData = load("1,1,5,100,EUR,20200201,20200210", "2,1,10,200,EUR,20200201,20200210",
+				"2,2,3,50,EUR,20200201,20200210");
+		try {
+			hotelData.applyAdvertiserOperation(AdvertiserOperation.adjust(2, -10, 0, 100, 1));
+			assertEquals(Arrays.asList("1:100:5", "2:180:21"), offersOf(hotelData.getSnapshot(), 1));
+			assertEquals(Arrays.asList("2:45:7"), offersOf(hotelData.getSnapshot(), 2));
+			hotelData.applyAdvertiserOperation(AdvertiserOperation.adjust(2, 0, -100, 0, 0));
+			assertEquals(Arrays.asList("2:0:7"), offersOf(hotelData.getSnapshot(), 2));
+			assertEquals(2, hotelData.getSnapshot().getAvailabilityIndex(1).findContaining(DAY + 1, DAY + 2).length);
+		} finally {
+			hotelData.shutdown();
+		}
+	}
+
+	@Test
+	public void deleteRemovesTheRowsOfASuspendedAdvertiser() throws IOException {
+		HotelData hotelData = load("1,1,5,100,EUR,20200201,20200210", "2,1,7,150,EUR,20200201,20200210");
+		try {
+			hotelData.applyAdvertiserOperation(AdvertiserOperation.suspend(2));
+			hotelData.applyAdvertiserOperation(AdvertiserOperation.delete(2));
+			assertEquals(0, hotelData.applyAdvertiserOperation(AdvertiserOperation.resume(2)).getRows());
+			assertEquals(Arrays.asList("1:100:5"), offersOf(hotelData.getSnapshot(), 1));
+			assertEquals(0, hotelData.getSnapshot().getRowCountByAdvertiser(2));
+		} finally {
+			hotelData.shutdown();
+		}
+	}
+
+	@Test
+	public void compactionKeepsTheChangesAppliedWhileItRuns() throws Exception {
+		PausingRankingFormulas rankingFormulas = new PausingRankingFormulas();
+		HotelData hotelData = load(0.5, rankingFormulas, "", "1,1,5,100,EUR,20200201,20200210", 
+				"2,1,7,150,EUR,20200201,20200210", "1,2,5,300,EUR,20200201,20200210", "2,3,6,80,EUR,20200201,20200210");
+		try {
+			rankingFormulas.pauseNextBuild();
+			hotelData.updateHotelAdvertisers(replacements());
+			assertTrue(rankingFormulas.awaitPaused(), "compaction started");
+			hotelData.updateHotelAdvertisers(Arrays.asList(new HotelAdvertiser(1, 1, 4, 95, "EUR", DAY, DAY + 9)));
+			hotelData.applyAdvertiserOperation(AdvertiserOperation.suspend(2));
+			HotelDataSnapshot beforeCompaction = hotelData.getSnapshot();
+			List<List<String>> offers = offersOfAllHotels(beforeCompaction);
+			rankingFormulas.resume();
+
+			HotelDataSnapshot compacted = awaitCompaction(hotelData, beforeCompaction.getHotelAdvertiserStore(), null);
+			assertEquals(beforeCompaction.getVersion(), compacted.getVersion());
+			assertEquals(offers, offersOfAllHotels(compacted));
+			assertEquals(5, compacted.getHotelAdvertiserStore().size());
+			assertEquals(1, compacted.getAvailabilityIndex(1).findContaining(DAY + 1, DAY + 2).length);
+			hotelData.applyAdvertiserOperation(AdvertiserOperation.resume(2));
+			assertEquals(Arrays.asList("1:95:4", "2:160:7"), offersOf(hotelData.getSnapshot(), 1));
+			assertEquals(Arrays.asList("2:90:6"), offersOf(hotelData.getSnapshot(), 3));
+		} finally {
+			rankingFormulas.resume();
+			hotelData.shutdown();
+		}
+	}
+
+	@Test
+	public void compactionDuringARateReloadIsDroppedAndStartsAgain() throws Exception {
+		Path ratesFile = directory.resolve("rates.csv");
+		Files.write(ratesFile, Arrays.asList("currency,rate", "EUR,1", "USD,1"));
+		PausingRankingFormulas rankingFormulas = new PausingRankingFormulas();
+		HotelData hotelData = load(0.5, rankingFormulas, ratesFile.toString(), "1,1,5,100,EUR,20200201,20200210", 
+				"2,1,7,150,USD,20200201,20200210", "1,2,5,300,EUR,20200201,20200210", "2,3,6,80,USD,20200201,20200210");
+		try {
+			rankingFormulas.pauseNextBuild();
+			hotelData.updateHotelAdvertisers(replacements());
+			assertTrue(rankingFormulas.awaitPaused(), "compaction started");
+			HotelDataSnapshot beforeCompaction = hotelData.getSnapshot();
+			Files.write(ratesFile, Arrays.asList("currency,rate", "EUR,1", "USD,0.5"));
+			hotelData.reloadCurrencyRates();
+			List<List<String>> offers = offersOfAllHotels(hotelData.getSnapshot());
+			assertEquals(Arrays.asList("2:160:7", "1:110:5"), offers.get(0));
+			rankingFormulas.resume();
+
+			HotelDataSnapshot compacted = awaitCompaction(hotelData, beforeCompaction.getHotelAdvertiserStore(), 
+					new HotelAdvertiser(1, 2, 5, 310, "EUR", DAY, DAY + 9));
+			assertEquals(0.5, compacted.getNormalizedPrices().getRates().rateOf("USD"));
+			assertEquals(offers, offersOfAllHotels(compacted));
+			assertEquals(80, compacted.getNormalizedPrices().get(compacted.getRowsByHotel(1)[0]));
+		} finally {
+			rankingFormulas.resume();
+			hotelData.shutdown();
+		}
+	}
+
+	@Test
+	public void reloadKeepsTheChangesAppliedWhileItRuns() throws Exception {
+		PausingRankingFormulas rankingFormulas = new PausingRankingFormulas();
+		HotelData hotelData = load(0, rankingFormulas, "", "1,1,5,100,EUR,20200201,20200210", 
+				"2,1,7,150,EUR,20200201,20200210", "2,3,6,80,EUR,20200201,20200210");
+		try {
+			hotelData.applyAdvertiserOperation(AdvertiserOperation.suspend(2));
+			Files.write(directory.resolve("hotels.csv"), Arrays.asList("id,city_id,clicks,impressions,name,rating,stars",
+					"1,1,10,100,Hotel 1,80,4", "2,2,20,100,Hotel 2,90,5"));
+			Files.write(directory.resolve("hotel_advertiser.csv"), Arrays.asList(
+					"advertiser_id,hotel_id,cpc,price,currency,availability_start_date,availability_end_date",
+					"1,1,5,120,EUR,20200201,20200210", "2,1,7,140,EUR,20200201,20200210", "1,2,5,300,EUR,20200201,20200210"));
+			rankingFormulas.pauseNextBuild();
+			assertTrue(hotelData.startReload("test"));
+			assertTrue(rankingFormulas.awaitPaused(), "reload started");
+			assertFalse(hotelData.startReload("test"));
+			hotelData.updateHotelAdvertisers(Arrays.asList(new HotelAdvertiser(1, 1, 4, 95, "EUR", DAY, DAY + 9)));
+			hotelData.updateHotelAdvertisers(Arrays.asList(new HotelAdvertiser(1, 3, 5, 70, "EUR", DAY, DAY + 9)));
+			HotelDataSnapshot beforeReload = hotelData.getSnapshot();
+			assertEquals(Arrays.asList("1:95:4"), offersOf(beforeReload, 1));
+			rankingFormulas.resume();
+
+			ReloadProgress reloadProgress = awaitReload(hotelData);
+			assertEquals(ReloadProgress.Phase.DONE, reloadProgress.getPhase());
+			assertEquals(2, reloadProgress.getReappliedUpdates());
+			HotelDataSnapshot reloaded = hotelData.getSnapshot();
+			assertEquals(reloadProgress.getVersion(), reloaded.getVersion());
+			assertEquals(beforeReload.getVersion() + 3, reloaded.getVersion());
+			assertEquals(Arrays.asList("1:95:4"), offersOf(reloaded, 1));
+			assertEquals(Arrays.asList("1:300:5"), offersOf(reloaded, 2));
+			assertNull(reloaded.getHotels().get(3));
+			assertEquals(1, hotelData.applyAdvertiserOperation(AdvertiserOperation.resume(2)).getRows());
+			assertEquals(Arrays.asList("1:95:4", "2:140:7"), offersOf(hotelData.getSnapshot(), 1));
+		} finally {
+			rankingFormulas.resume();
+			hotelData.shutdown();
+		}
+	}
+
+	/**
+	 * @return updates replacing every row loaded by the compaction tests, which leave half of the store dead.
+	 */
+	private static List<HotelAdvertiser> replacements() {
+		return Arrays.asList(new HotelAdvertiser(1, 1, 5, 110, "EUR", DAY, DAY + 9), new HotelAdvertiser(2, 1, 7, 160, "USD", DAY, DAY + 9),
+				new HotelAdvertiser(1, 2, 5, 310, "EUR", DAY, DAY + 9), new HotelAdvertiser(2, 3, 6, 90, "USD", DAY, DAY + 9));
+	}
+
+	/**
+	 * The awaitCompaction method waits until a snapshot with another store than the given one is published. If an
+	 * update is given, it is applied again every few milliseconds meanwhile, to start a compaction once none runs.
+	 * @return the compacted snapshot.
+	 */
+	private static HotelDataSnapshot awaitCompaction(HotelData hotelData, HotelAdvertiserStore store, HotelAdvertiser update) 
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (hotelData.getSnapshot().getHotelAdvertiserStore() == store) {
+			if (System.nanoTime() > deadline)
+				return fail("no compaction was published");
+			if (update != null)
+				hotelData.updateHotelAdvertisers(Arrays.asList(update));
+			Thread.sleep(10);
+		}
+		return hotelData.getSnapshot();
+	}
+
+	/**
+	 * The awaitReload method waits until the running reload is done or failed.
+	 * @return the progress of the reload.
+	 */
+	private static ReloadProgress awaitReload(HotelData hotelData) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (hotelData.getReloadProgress().isRunning()) {
+			if (System.nanoTime() > deadline)
+				return fail("the reload did not finish");
+			Thread.sleep(10);
+		}
+		return hotelData.getReloadProgress();
+	}
+
+	/**
+	 * The load method writes csv files of two cities, with hotels 1 and 3 in Berlin and hotel 2 in Paris, and the
+	 * given hotel advertiser lines, and loads them.
+	 */
+	private HotelData load(String... hotelAdvertiserLines) throws IOException {
+		return load(0, new RankingFormulas(1, 0, 0, 0), "", hotelAdvertiserLines);
+	}
+
+	private HotelData load(double compactionDeadRowFraction, RankingFormulas rankingFormulas, String currencyRatesFile, 
+			String... hotelAdvertiserLines) throws IOException {
+		Files.write(directory.resolve("cities.csv"), Arrays.asList("id,city_name", "1,Berlin", "2,Paris"));
+		Files.write(directory.resolve("advertisers.csv"), Arrays.asList("id,advertiser_name", "1,Adv 1", "2,Adv 2", "3,Adv 3"));
+		Files.write(directory.resolve("hotels.csv"), Arrays.asList("id,city_id,clicks,impressions,name,rating,stars",
+				"1,1,10,100,Hotel 1,80,4", "2,2,20,100,Hotel 2,90,5", "3,1,30,100,Hotel 3,70,3"));
+		List<String> lines = new ArrayList<String>();
+		lines.add("advertiser_id,hotel_id,cpc,price,currency,availability_start_date,availability_end_date");
+		lines.addAll(Arrays.asList(hotelAdvertiserLines));
+		Files.write(directory.resolve("hotel_advertiser.csv"), lines);
+		return new HotelData("columnar", "mapped", 1, directory.toString(), "", 0, compactionDeadRowFraction, currencyRatesFile,
+				rankingFormulas, new UpdateLog("", "sync", 50, 0));
+	}
+
+	/**
+	 * @return the rows of the given hotel in their order, as advertiser id:price:cpc.
+	 */
+	private static List<String> offersOf(HotelDataSnapshot snapshot, int hotelId) {
+		HotelAdvertiserStore store = snapshot.getHotelAdvertiserStore();
+		List<String> offers = new ArrayList<String>();
+		int[] rows = snapshot.getRowsByHotel(hotelId);
+		for (int row : rows == null ? new int[0] : rows)
+			offers.add(store.getAdvertiserId(row) + ":" + store.getPrice(row) + ":" + store.getCpc(row));
+		return offers;
+	}
+
+	private static List<List<String>> offersOfAllHotels(HotelDataSnapshot snapshot) {
+		List<List<String>> offers = new ArrayList<List<String>>();
+		for (int hotelId = 1; hotelId <= 3; hotelId++)
+			offers.add(offersOf(snapshot, hotelId));
+		return offers;
+	}
+
+	/**
+	 * The PausingRankingFormulas class scores hotels like the RankingFormulas class, and once asked to, pauses the
+	 * next snapshot built on the reload thread until it is resumed.
+	 */
+	private static final class PausingRankingFormulas extends RankingFormulas {
+
+		private final CountDownLatch paused = new CountDownLatch(1);
+		private final CountDownLatch resumed = new CountDownLatch(1);
+		private volatile boolean pausing;
+
+		PausingRankingFormulas() {
+			super(1, 0, 0, 0);
+		}
+
+		void pauseNextBuild() {
+			pausing = true;
+		}
+
+		boolean awaitPaused() throws InterruptedException {
+			return paused.await(10, TimeUnit.SECONDS);
+		}
+
+		void resume() {
+			resumed.countDown();
+		}
+
+		@Override
+		public int score(RankingMode mode, Hotel hotel, int bestCpc) {
+			if (pausing && Thread.currentThread().getName().equals("hotel-data-reload")) {
+				pausing = false;
+				paused.countDown();
+				try {
+					resumed.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return super.score(mode, hotel, bestCpc);
+		}
+	}
+}
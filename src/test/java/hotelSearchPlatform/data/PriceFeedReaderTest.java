@@ -0,0 +1,106 @@
+package hotelSearchPlatform.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import hotelSearchPlatform.entities.HotelAdvertiser;
+
+/**
+ * The PriceFeedReaderTest class reads CSV and NDJSON feeds with valid and invalid rows, and checks the rows read, the
+ * rows rejected and the line numbers reported for them.
+ */
+public class PriceFeedReaderTest {
+
+	private static final String HEADER = "advertiser_id,hotel_id,cpc,price,currency,availability_start_date,availability_end_date";
+
+	@Test
+	public void csvFeedRejectsInvalidRowsAndGoesOn() {
+		List<String> rows = read(PriceFeedReader.Format.CSV, HEADER + "\r\n"
+				+ "1,2,5,100,EUR,20200201,20200210\r\n"
+				+ "\r\n"
+				+ "1,x,5,100,EUR,20200201,20200210\n"
+				+ "1,3,5,100,EUR,20200231,20200210\n"
+				+ "  \n"
+				+ "2,3,7,90,USD,20200201,20200203");
+		assertEquals(Arrays.asList("2: 1/2 5 100 EUR 18293-18302", "4: rejected", "5: rejected", "7: 2/3 7 90 USD 18293-18295"),
+				rows);
+	}
+
+	@Test
+	public void csvFeedMustStartWithAHeader() {
+		assertThrows(IllegalArgumentException.class, () -> read(PriceFeedReader.Format.CSV, ""));
+		assertThrows(IllegalArgumentException.class,
+				() -> read(PriceFeedReader.Format.CSV, "advertiser_id,hotel_id,cpc,price\n1,2,5,100\n"));
+	}
+
+	@Test
+	public void ndjsonFeedRejectsInvalidRowsAndGoesOn() {
+		List<String> rows = read(PriceFeedReader.Format.NDJSON, ""
+				+ "{\"advertiser_id\":1,\"hotel_id\":2,\"cpc\":5,\"price\":100,\"currency\":\"EUR\","
+				+ "\"availability_start_date\":\"20200201\",\"availability_end_date\":\"20200210\",\"extra\":{\"a\":[1]}}\n"
+				+ "{\"advertiser_id\":1,\"hotel_id\":2,\"cpc\":5,\"price\":100,\"currency\":\"EUR\"}\n"
+				+ "{\"advertiser_id\":\"1\",\"hotel_id\":2,\"cpc\":5,\"price\":100,\"currency\":\"EUR\","
+				+ "\"availability_start_date\":\"20200201\",\"availability_end_date\":\"20200210\"}\n"
+				+ "{\"advertiser_id\":1,\"hotel_id\":2,\"cpc\":5,\"price\":100,\"currency\":\"EUR\","
+				+ "\"availability_start_date\":\"2020-02-01\",\"availability_end_date\":\"20200210\"}\n"
+				+ "[1,2]\n"
+				+ "{\"advertiser_id\":1\n"
+				+ "{} {}\n");
+		assertEquals(Arrays.asList("1: 1/2 5 100 EUR 18293-18302", "2: rejected", "3: rejected", "4: rejected", "5: rejected",
+				"6: rejected", "7: rejected"), rows);
+	}
+
+	@Test
+	public void lineLongerThanTheBufferIsRejected() {
+		StringBuilder feed = new StringBuilder(HEADER).append('\n');
+		feed.append("1,2,5,100,EUR,20200201,20200210,");
+		for (int i = 0; i < PriceFeedReader.MAX_LINE_BYTES; i++)
+			feed.append('x');
+		feed.append("\n2,3,7,90,USD,20200201,20200203\n");
+		assertEquals(Arrays.asList("2: rejected", "3: 2/3 7 90 USD 18293-18295"), read(PriceFeedReader.Format.CSV, feed.toString()));
+	}
+
+	@Test
+	public void rejectionHoldsTheReason() {
+		PriceFeedReader reader = reader(PriceFeedReader.Format.NDJSON, "{\"advertiser_id\":1}\n");
+		assertTrue(reader.next());
+		assertNull(reader.getHotelAdvertiser());
+		assertEquals("Missing field 'hotel_id'", reader.getRejection());
+		assertFalse(reader.next());
+	}
+
+	/**
+	 * @return every row of the given feed as its line number and either its fields or 'rejected'.
+	 */
+	private static List<String> read(PriceFeedReader.Format format, String feed) {
+		PriceFeedReader reader = reader(format, feed);
+		List<String> rows = new ArrayList<String>();
+		while (reader.next()) {
+			HotelAdvertiser hotelAdvertiser = reader.getHotelAdvertiser();
+			if (hotelAdvertiser == null) {
+				assertTrue(reader.getRejection() != null, "line " + reader.getLineNumber());
+				rows.add(reader.getLineNumber() + ": rejected");
+			} else {
+				rows.add(reader.getLineNumber() + ": " + hotelAdvertiser.getAdvertiser_id() + "/" + hotelAdvertiser.getHotel_id()
+						+ " " + hotelAdvertiser.getCpc() + " " + hotelAdvertiser.getPrice() + " " + hotelAdvertiser.getCurrency()
+						+ " " + hotelAdvertiser.getAvailability_start_day() + "-" + hotelAdvertiser.getAvailability_end_day());
+			}
+		}
+		return rows;
+	}
+
+	private static PriceFeedReader reader(PriceFeedReader.Format format, String feed) {
+		return new PriceFeedReader(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), format);
+	}
+}
@@ -0,0 +1,163 @@
+package hotelSearchPlatform.data;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hotelSearchPlatform.entities.HotelAdvertiser;
+
+/**
+ * The UpdateLogTest class appends records to an UpdateLog, opens it again as on a restart and checks which records
+ * are replayed, including after a crash cut off the last record.
+ */
+public class UpdateLogTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void openReplaysTheRecordsNewerThanTheLoadedVersion() {
+		Path path = directory.resolve("hotel-data.log");
+		UpdateLog updateLog = openLog(path, 10, new ArrayList<UpdateLog.Record>());
+		updateLog.append(11, hotelAdvertisers(11)).join();
+		updateLog.append(12, AdvertiserOperation.suspend(4)).join();
+		updateLog.append(13, hotelAdvertisers(13)).join();
+		updateLog.close();
+
+		List<UpdateLog.Record> replayed = new ArrayList<UpdateLog.Record>();
+		openLog(path, 10, replayed).close();
+		assertEquals(Arrays.asList(11L, 12L, 13L), versionsOf(replayed));
+		assertEquals(hotelAdvertisers(11).toString(), replayed.get(0).getHotelAdvertisers().toString());
+		assertNull(replayed.get(0).getOperation());
+		assertEquals(AdvertiserOperation.suspend(4).toString(), replayed.get(1).getOperation().toString());
+		assertEquals(hotelAdvertisers(13).toString(), replayed.get(2).getHotelAdvertisers().toString());
+
+		replayed.clear();
+		openLog(path, 12, replayed).close();
+		assertEquals(Arrays.asList(13L), versionsOf(replayed));
+	}
+
+	@Test
+	public void openDropsACutOffLastRecord() throws IOException {
+		Path path = directory.resolve("hotel-data.log");
+		UpdateLog updateLog = openLog(path, 0, new ArrayList<UpdateLog.Record>());
+		updateLog.append(1, hotelAdvertisers(1)).join();
+		updateLog.append(2, hotelAdvertisers(2)).join();
+		long lengthBeforeLastRecord = Files.size(path);
+		updateLog.append(3, hotelAdvertisers(3)).join();
+		updateLog.close();
+		byte[] bytes = Files.readAllBytes(path);
+		Files.write(path, Arrays.copyOf(bytes, (int) (lengthBeforeLastRecord + bytes.length) / 2));
+
+		List<UpdateLog.Record> replayed = new ArrayList<UpdateLog.Record>();
+		updateLog = openLog(path, 0, replayed);
+		assertEquals(Arrays.asList(1L, 2L), versionsOf(replayed));
+		assertEquals(lengthBeforeLastRecord, Files.size(path));
+		updateLog.append(3, hotelAdvertisers(30)).join();
+		updateLog.append(4, hotelAdvertisers(4)).join();
+		updateLog.close();
+
+		replayed.clear();
+		openLog(path, 0, replayed).close();
+		assertEquals(Arrays.asList(1L, 2L, 3L, 4L), versionsOf(replayed));
+		assertEquals(hotelAdvertisers(30).toString(), replayed.get(2).getHotelAdvertisers().toString());
+	}
+
+	@Test
+	public void openDropsACorruptLastRecord() throws IOException {
+		Path path = directory.resolve("hotel-data.log");
+		UpdateLog updateLog = openLog(path, 0, new ArrayList<UpdateLog.Record>());
+		updateLog.append(1, hotelAdvertisers(1)).join();
+		updateLog.append(2, hotelAdvertisers(2)).join();
+		updateLog.close();
+		byte[] bytes = Files.readAllBytes(path);
+		bytes[bytes.length - 1] ^= 0x5A;
+		Files.write(path, bytes);
+
+		List<UpdateLog.Record> replayed = new ArrayList<UpdateLog.Record>();
+		openLog(path, 0, replayed).close();
+		assertEquals(Arrays.asList(1L), versionsOf(replayed));
+	}
+
+	@Test
+	public void rotateKeepsOnlyTheRecordsNewerThanTheSnapshot() {
+		Path path = directory.resolve("hotel-data.log");
+		UpdateLog updateLog = openLog(path, 0, new ArrayList<UpdateLog.Record>());
+		for (int version = 1; version <= 5; version++)
+			updateLog.append(version, hotelAdvertisers(version)).join();
+		updateLog.rotate(3);
+		updateLog.append(6, Collections.<HotelAdvertiser>emptyList()).join();
+		assertEquals(3, updateLog.getStats().getBaseVersion());
+		updateLog.close();
+
+		List<UpdateLog.Record> replayed = new ArrayList<UpdateLog.Record>();
+		openLog(path, 3, replayed).close();
+		assertEquals(Arrays.asList(4L, 5L, 6L), versionsOf(replayed));
+		assertThrows(IllegalStateException.class, () -> openLog(path, 2, new ArrayList<UpdateLog.Record>()));
+	}
+
+	@Test
+	public void rotateWithUnsyncedRecordsKeepsLaterRecords() {
+		Path path = directory.resolve("hotel-data.log");
+		UpdateLog updateLog = new UpdateLog(path.toString(), "batched", 500, 0);
+		updateLog.open(0, false, record -> {});
+		for (int version = 1; version <= 20; version++)
+			updateLog.append(version, hotelAdvertisers(version)).join();
+		updateLog.rotate(18);
+		for (int version = 21; version <= 22; version++)
+			updateLog.append(version, hotelAdvertisers(version)).join();
+		updateLog.close();
+
+		List<UpdateLog.Record> replayed = new ArrayList<UpdateLog.Record>();
+		openLog(path, 18, replayed).close();
+		assertEquals(Arrays.asList(19L, 20L, 21L, 22L), versionsOf(replayed));
+	}
+
+	@Test
+	public void openMovesTheLogOfReplacedDataAside() {
+		Path path = directory.resolve("hotel-data.log");
+		UpdateLog updateLog = openLog(path, 0, new ArrayList<UpdateLog.Record>());
+		updateLog.append(1, hotelAdvertisers(1)).join();
+		updateLog.close();
+
+		List<UpdateLog.Record> replayed = new ArrayList<UpdateLog.Record>();
+		UpdateLog newUpdateLog = new UpdateLog(path.toString(), "sync", 50, 0);
+		newUpdateLog.open(0, true, replayed::add);
+		newUpdateLog.close();
+		assertTrue(replayed.isEmpty());
+		assertTrue(Files.exists(directory.resolve("hotel-data.log.discarded")));
+	}
+
+	private static UpdateLog openLog(Path path, long loadedVersion, List<UpdateLog.Record> replayed) {
+		UpdateLog updateLog = new UpdateLog(path.toString(), "sync", 50, 0);
+		updateLog.open(loadedVersion, false, replayed::add);
+		return updateLog;
+	}
+
+	/**
+	 * @return two hotel advertisers whose prices and dates are derived from the given seed.
+	 */
+	private static List<HotelAdvertiser> hotelAdvertisers(int seed) {
+		return Arrays.asList(new HotelAdvertiser(1, 10 + seed, 5, 100 + seed, "EUR", 18300 + seed, 18330 + seed),
+				new HotelAdvertiser(2, 20 + seed, 7, 200 + seed, "USD", 18310 + seed, 18340 + seed));
+	}
+
+	private static List<Long> versionsOf(List<UpdateLog.Record> records) {
+		List<Long> versions = new ArrayList<Long>();
+		for (UpdateLog.Record record : records)
+			versions.add(record.getVersion());
+		return versions;
+	}
+}
@@ -0,0 +1,68 @@
+package hotelSearchPlatform.ranking;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import hotelSearchPlatform.entities.Hotel;
+
+/**
+ * The HotelScoresTest class checks that rank keys order hotels by score decreasing and then by hotel id, and that
+ * a change of the best offer rescores only the modes depending on it.
+ */
+public class HotelScoresTest {
+
+	@Test
+	public void rankKeysOrderByScoreThenByHotelId() {
+		Map<Integer, Hotel> hotels = new HashMap<Integer, Hotel>();
+		hotels.put(7, new Hotel(7, 1, 0, 0, 80, 3, "Hotel 7"));
+		hotels.put(3, new Hotel(3, 1, 0, 0, 90, 4, "Hotel 3"));
+		hotels.put(5, new Hotel(5, 1, 0, 0, 80, 5, "Hotel 5"));
+		hotels.put(9, new Hotel(9, 1, 0, 0, -20, 2, "Hotel 9"));
+		hotels.put(1, new Hotel(1, 1, 0, 0, 0, 3, "Hotel 1"));
+		HotelScores hotelScores = HotelScores.build(new RankingFormulas(1, 0, 0, 0), hotels, hotelId -> 0);
+		assertEquals("[3, 5, 7, 1, 9]", ranked(hotelScores, RankingMode.RATING, hotels));
+		assertEquals("[5, 3, 1, 7, 9]", ranked(hotelScores, RankingMode.STARS, hotels));
+		assertEquals(Integer.MIN_VALUE, hotelScores.getScore(RankingMode.RATING, 4));
+		assertTrue(hotelScores.rankKey(RankingMode.RATING, 9) < hotelScores.rankKey(RankingMode.RATING, 4),
+				"an unknown hotel must rank last");
+	}
+
+	@Test
+	public void bestCpcRescoresOnlyTheModesDependingOnIt() {
+		Map<Integer, Hotel> hotels = new HashMap<Integer, Hotel>();
+		Hotel hotel1 = new Hotel(1, 1, 10, 100, 80, 3, "Hotel 1");
+		hotels.put(1, hotel1);
+		hotels.put(2, new Hotel(2, 1, 10, 100, 80, 3, "Hotel 2"));
+		HotelScores hotelScores = HotelScores.build(new RankingFormulas(1, 0, 0, 0), hotels, hotelId -> 5);
+		assertEquals(500, hotelScores.getScore(RankingMode.REVENUE, 1));
+		assertEquals("[1, 2]", ranked(hotelScores, RankingMode.REVENUE, hotels));
+		assertSame(hotelScores, hotelScores.withBestCpc(hotel1, 5));
+		HotelScores rescored = hotelScores.withBestCpc(hotel1, 2);
+		assertEquals(200, rescored.getScore(RankingMode.REVENUE, 1));
+		assertEquals(500, hotelScores.getScore(RankingMode.REVENUE, 1));
+		assertEquals(80000, rescored.getScore(RankingMode.WEIGHTED, 1));
+		assertEquals("[2, 1]", ranked(rescored, RankingMode.REVENUE, hotels));
+	}
+
+	/**
+	 * @return the hotel ids of the given hotels, sorted by their rank keys in the given mode.
+	 */
+	private static String ranked(HotelScores hotelScores, RankingMode mode, Map<Integer, Hotel> hotels) {
+		long[] rankKeys = new long[hotels.size()];
+		int i = 0;
+		for (Integer hotelId : hotels.keySet())
+			rankKeys[i++] = hotelScores.rankKey(mode, hotelId);
+		Arrays.sort(rankKeys);
+		int[] hotelIds = new int[rankKeys.length];
+		for (i = 0; i < rankKeys.length; i++)
+			hotelIds[i] = HotelScores.hotelIdOf(rankKeys[i]);
+		return Arrays.toString(hotelIds);
+	}
+}
@@ -0,0 +1,145 @@
+package hotelSearchPlatform.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import hotelSearchPlatform.data.HotelAdvertiserStore;
+import hotelSearchPlatform.data.HotelData;
+import hotelSearchPlatform.data.HotelDataSnapshot;
+import hotelSearchPlatform.data.UpdateLog;
+import hotelSearchPlatform.entities.City;
+import hotelSearchPlatform.ranking.RankingFormulas;
+
+/**
+ * The FiltersTest class loads a city of four hotels and checks the rows Filters.filterRowsByFilter() keeps for
+ * filters on price, star level and rating, and the facet counts it counts in the same pass.
+ */
+public class FiltersTest {
+
+	private static final int DAY = 18293;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void noFilterKeepsAllRowsAndCountsAllHotels() throws IOException {
+		HotelData hotelData = load();
+		try {
+			HotelDataSnapshot snapshot = hotelData.getSnapshot();
+			Filters filters = filters();
+			FacetCounts facetCounts = filters.createFacetCounts();
+			int[] rows = filters.filterRowsByFilter(snapshot, queryRows(filters, snapshot), SearchFilter.NONE, facetCounts);
+			assertEquals("[1:40, 1:120, 2:210, 3:60]", pricesOf(snapshot, rows));
+			assertStars(facetCounts, 0, 1, 2, 0);
+			assertPriceBuckets(facetCounts, 1, 1, 1, 0, 1, 0, 0);
+		} finally {
+			hotelData.shutdown();
+		}
+	}
+
+	@Test
+	public void starsAndRatingFilterKeepsTheMatchingHotels() throws IOException {
+		HotelData hotelData = load();
+		try {
+			HotelDataSnapshot snapshot = hotelData.getSnapshot();
+			Filters filters = filters();
+			FacetCounts facetCounts = filters.createFacetCounts();
+			SearchFilter filter = new SearchFilter(0, 300, 1 << 4, 70);
+			int[] rows = filters.filterRowsByFilter(snapshot, queryRows(filters, snapshot), filter, facetCounts);
+			assertEquals("[2:210]", pricesOf(snapshot, rows));
+			assertStars(facetCounts, 0, 1, 1, 0);
+			assertPriceBuckets(facetCounts, 0, 0, 0, 0, 1, 0, 0);
+		} finally {
+			hotelData.shutdown();
+		}
+	}
+
+	@Test
+	public void priceFilterKeepsTheOffersInRange() throws IOException {
+		HotelData hotelData = load();
+		try {
+			HotelDataSnapshot snapshot = hotelData.getSnapshot();
+			Filters filters = filters();
+			FacetCounts facetCounts = filters.createFacetCounts();
+			SearchFilter filter = new SearchFilter(100, 250, 0, Integer.MIN_VALUE);
+			int[] rows = filters.filterRowsByFilter(snapshot, queryRows(filters, snapshot), filter, facetCounts);
+			assertEquals("[1:120, 2:210]", pricesOf(snapshot, rows));
+			assertStars(facetCounts, 0, 1, 1, 0);
+			assertPriceBuckets(facetCounts, 1, 1, 1, 0, 1, 0, 0);
+			assertArrayEquals(new int[0], filters.filterRowsByFilter(snapshot, queryRows(filters, snapshot),
+					new SearchFilter(600, 700, 0, Integer.MIN_VALUE), null));
+		} finally {
+			hotelData.shutdown();
+		}
+	}
+
+	@Test
+	public void priceBucketBoundsMustIncrease() {
+		assertThrows(IllegalArgumentException.class, () -> new Filters().setPriceBucketBounds(new int[] {0, 100, 100}));
+		assertThrows(IllegalArgumentException.class, () -> new Filters().setPriceBucketBounds(new int[0]));
+	}
+
+	private static Filters filters() {
+		Filters filters = new Filters();
+		filters.setPriceBucketBounds(new int[] {0, 50, 100, 150, 200, 300, 500});
+		return filters;
+	}
+
+	private static int[] queryRows(Filters filters, HotelDataSnapshot snapshot) {
+		City berlin = snapshot.getCities().get("Berlin");
+		return filters.filterRowsByQuery(snapshot, berlin, DAY + 1, DAY + 3);
+	}
+
+	/**
+	 * The load method loads a city of four hotels: a 3 star hotel rated 80 with offers for 40 and 120, a 4 star hotel
+	 * rated 90 with an offer for 210, a 4 star hotel rated 60 with an offer for 60, and a 5 star hotel rated 95 whose
+	 * offer is available in August only.
+	 */
+	private HotelData load() throws IOException {
+		Files.write(directory.resolve("cities.csv"), Arrays.asList("id,city_name", "1,Berlin"));
+		Files.write(directory.resolve("advertisers.csv"), Arrays.asList("id,advertiser_name", "1,Adv 1", "2,Adv 2"));
+		Files.write(directory.resolve("hotels.csv"), Arrays.asList("id,city_id,clicks,impressions,name,rating,stars",
+				"1,1,10,100,Hotel 1,80,3", "2,1,10,100,Hotel 2,90,4", "3,1,10,100,Hotel 3,60,4", "4,1,10,100,Hotel 4,95,5"));
+		Files.write(directory.resolve("hotel_advertiser.csv"), Arrays.asList(
+				"advertiser_id,hotel_id,cpc,price,currency,availability_start_date,availability_end_date",
+				"1,1,5,40,EUR,20200201,20200210", "2,1,5,120,EUR,20200201,20200210", "1,2,5,210,EUR,20200201,20200210",
+				"1,3,5,60,EUR,20200201,20200210", "1,4,5,520,EUR,20200801,20200810"));
+		return new HotelData("columnar", "mapped", 1, directory.toString(), "", 0, 0.5, "", new RankingFormulas(1, 0, 0, 0),
+				new UpdateLog("", "sync", 50, 0));
+	}
+
+	/**
+	 * @return the given rows as hotel id:price, sorted.
+	 */
+	private static String pricesOf(HotelDataSnapshot snapshot, int[] rows) {
+		HotelAdvertiserStore store = snapshot.getHotelAdvertiserStore();
+		long[] pricesByHotel = new long[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			pricesByHotel[i] = ((long) store.getHotelId(rows[i]) << 32) | store.getPrice(rows[i]);
+		Arrays.sort(pricesByHotel);
+		String[] prices = new String[rows.length];
+		for (int i = 0; i < rows.length; i++)
+			prices[i] = (pricesByHotel[i] >> 32) + ":" + (int) pricesByHotel[i];
+		return Arrays.toString(prices);
+	}
+
+	private static void assertStars(FacetCounts facetCounts, int... hotelsByStarsFrom2) {
+		for (int i = 0; i < hotelsByStarsFrom2.length; i++)
+			assertEquals(hotelsByStarsFrom2[i], facetCounts.getHotelsWithStars(2 + i), "hotels with " + (2 + i) + " stars");
+	}
+
+	private static void assertPriceBuckets(FacetCounts facetCounts, int... hotelsByPriceBucket) {
+		assertEquals(hotelsByPriceBucket.length, facetCounts.getPriceBucketCount());
+		for (int bucket = 0; bucket < hotelsByPriceBucket.length; bucket++)
+			assertEquals(hotelsByPriceBucket[bucket], facetCounts.getHotelsInPriceBucket(bucket), "hotels in price bucket " + bucket);
+	}
+}
@@ -0,0 +1,67 @@
+package hotelSearchPlatform.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The LongTopKTest class compares the keys kept by the LongTopK class with a sort of all offered keys, and checks
+ * that the pages of a search taken from them neither skip nor repeat a key.
+ */
+public class LongTopKTest {
+
+	private final Random random = new Random(7);
+
+	@Test
+	public void keepsTheSmallestKeysSorted() {
+		for (int round = 0; round < 200; round++) {
+			long[] keys = new long[random.nextInt(300)];
+			for (int i = 0; i < keys.length; i++)
+				keys[i] = random.nextInt(4) == 0 ? random.nextInt(20) - 10 : random.nextLong();
+			int capacity = random.nextInt(40);
+			LongTopK topK = new LongTopK(capacity, random.nextBoolean() ? keys.length : 1);
+			for (long key : keys)
+				topK.offer(key);
+			long[] sortedKeys = keys.clone();
+			Arrays.sort(sortedKeys);
+			assertEquals(Arrays.toString(Arrays.copyOf(sortedKeys, Math.min(capacity, keys.length))),
+					Arrays.toString(topK.toSortedArray()), "capacity " + capacity + " of " + keys.length + " keys");
+		}
+	}
+
+	@Test
+	public void emptyAndZeroCapacityKeepNothing() {
+		assertEquals(0, new LongTopK(10, 0).toSortedArray().length);
+		LongTopK topK = new LongTopK(0, 5);
+		topK.offer(1);
+		topK.offer(-1);
+		assertEquals(0, topK.toSortedArray().length);
+	}
+
+	@Test
+	public void pagesCoverAllKeysOnce() {
+		long[] keys = new long[95];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = random.nextInt(30);
+		long[] sortedKeys = keys.clone();
+		Arrays.sort(sortedKeys);
+		int limit = 10;
+		int returned = 0;
+		for (int offset = 0; offset < keys.length + limit; offset += limit) {
+			LongTopK topK = new LongTopK(offset + limit, keys.length);
+			for (long key : keys)
+				topK.offer(key);
+			long[] kept = topK.toSortedArray();
+			long[] page = kept.length <= offset ? new long[0] : Arrays.copyOfRange(kept, offset, kept.length);
+			assertTrue(page.length <= limit, "page at " + offset);
+			assertEquals(Arrays.toString(Arrays.copyOfRange(sortedKeys, Math.min(offset, keys.length),
+					Math.min(offset + limit, keys.length))), Arrays.toString(page), "page at " + offset);
+			returned += page.length;
+		}
+		assertEquals(keys.length, returned);
+	}
+}
@@ -0,0 +1,145 @@
+package hotelSearchPlatform.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.entities.Offer;
+
+/**
+ * The SearchCoalescerTest class holds the computation of a search open while identical searches arrive, and checks
+ * which of them wait for its result and which compute their own.
+ */
+public class SearchCoalescerTest {
+
+	private static final SearchKey KEY = new SearchKey(1, 18293, 18295);
+
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@Test
+	public void followersShareTheResultOfTheLeader() throws Exception {
+		SearchCoalescer coalescer = new SearchCoalescer(true, 10000);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger computations = new AtomicInteger();
+		Map<Hotel, TreeSet<Offer>> result = new LinkedHashMap<Hotel, TreeSet<Offer>>();
+		try {
+			Future<Map<Hotel, TreeSet<Offer>>> leader = executor.submit(() -> coalescer.execute(KEY, 1, () -> {
+				computations.incrementAndGet();
+				started.countDown();
+				await(release);
+				return result;
+			}));
+			started.await();
+			Future<Map<Hotel, TreeSet<Offer>>> follower1 = follow(coalescer, () -> {
+				computations.incrementAndGet();
+				return new LinkedHashMap<Hotel, TreeSet<Offer>>();
+			});
+			Future<Map<Hotel, TreeSet<Offer>>> follower2 = follow(coalescer, () -> {
+				computations.incrementAndGet();
+				return new LinkedHashMap<Hotel, TreeSet<Offer>>();
+			});
+			Map<Hotel, TreeSet<Offer>> otherVersion = coalescer.execute(KEY, 2, () -> new LinkedHashMap<Hotel, TreeSet<Offer>>());
+			assertNotSame(result, otherVersion);
+			release.countDown();
+			assertSame(result, leader.get(5, TimeUnit.SECONDS));
+			assertSame(result, follower1.get(5, TimeUnit.SECONDS));
+			assertSame(result, follower2.get(5, TimeUnit.SECONDS));
+			assertEquals(1, computations.get());
+			SearchCoalescer.Stats stats = coalescer.getStats();
+			assertEquals(2, stats.getComputations());
+			assertEquals(2, stats.getCoalesced());
+			assertEquals(0, stats.getInFlight());
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void followerComputesItsOwnResultAfterTheTimeout() throws Exception {
+		SearchCoalescer coalescer = new SearchCoalescer(true, 50);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			Future<Map<Hotel, TreeSet<Offer>>> leader = executor.submit(() -> coalescer.execute(KEY, 1, () -> {
+				started.countDown();
+				await(release);
+				return new LinkedHashMap<Hotel, TreeSet<Offer>>();
+			}));
+			started.await();
+			Map<Hotel, TreeSet<Offer>> own = new LinkedHashMap<Hotel, TreeSet<Offer>>();
+			assertSame(own, coalescer.execute(KEY, 1, () -> own));
+			assertEquals(1, coalescer.getStats().getTimeouts());
+			release.countDown();
+			leader.get(5, TimeUnit.SECONDS);
+			assertEquals(2, coalescer.getStats().getComputations());
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void failureOfTheLeaderIsThrownToFollowers() throws Exception {
+		SearchCoalescer coalescer = new SearchCoalescer(true, 10000);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try {
+			Future<Map<Hotel, TreeSet<Offer>>> leader = executor.submit(() -> coalescer.execute(KEY, 1, () -> {
+				started.countDown();
+				await(release);
+				throw new IllegalStateException("search failed");
+			}));
+			started.await();
+			Future<Map<Hotel, TreeSet<Offer>>> follower = follow(coalescer, () -> new LinkedHashMap<Hotel, TreeSet<Offer>>());
+			release.countDown();
+			assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+			Exception thrown = assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS));
+			assertEquals("search failed", thrown.getCause().getMessage());
+		} finally {
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The follow method runs the given search for KEY on another thread, and returns once that thread waits for the
+	 * result of the search in flight.
+	 */
+	private Future<Map<Hotel, TreeSet<Offer>>> follow(SearchCoalescer coalescer, Supplier<Map<Hotel, TreeSet<Offer>>> search)
+			throws InterruptedException {
+		AtomicReference<Thread> thread = new AtomicReference<Thread>();
+		Future<Map<Hotel, TreeSet<Offer>>> follower = executor.submit(() -> {
+			thread.set(Thread.currentThread());
+			return coalescer.execute(KEY, 1, search);
+		});
+		while (!follower.isDone() && (thread.get() == null || thread.get().getState() != Thread.State.TIMED_WAITING))
+			Thread.sleep(1);
+		return follower;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,115 @@
+package hotelSearchPlatform.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import hotelSearchPlatform.comparators.OfferComparator;
+import hotelSearchPlatform.entities.Hotel;
+import hotelSearchPlatform.entities.Offer;
+
+/**
+ * The SearchResultCacheTest class checks that cached results are returned only for the city version they were
+ * computed from, that a city is invalidated on its own, and that the cache keeps to its size limit.
+ */
+public class SearchResultCacheTest {
+
+	private static final int DAY = 18293;
+
+	@Test
+	public void resultIsReturnedOnlyForItsCityVersion() {
+		SearchResultCache cache = new SearchResultCache(true, 100, 1000);
+		SearchKey key = new SearchKey(1, DAY, DAY + 2);
+		Map<Hotel, TreeSet<Offer>> result = result();
+		cache.put(key, 5, result);
+		assertSame(result, cache.get(key, 5));
+		assertNull(cache.get(key, 4));
+		assertSame(result, cache.get(key, 5), "an older city version must not evict the result");
+		assertNull(cache.get(key, 6));
+		assertNull(cache.get(key, 5), "a newer city version must evict the result");
+		SearchResultCache.Stats stats = cache.getStats();
+		assertEquals(2, stats.getHits());
+		assertEquals(3, stats.getMisses());
+		assertEquals(0, stats.getResults());
+	}
+
+	@Test
+	public void olderResultDoesNotReplaceANewerOne() {
+		SearchResultCache cache = new SearchResultCache(true, 100, 1000);
+		SearchKey key = new SearchKey(1, DAY, DAY + 2);
+		Map<Hotel, TreeSet<Offer>> newer = result();
+		cache.put(key, 6, newer);
+		cache.put(key, 5, result());
+		assertSame(newer, cache.get(key, 6));
+		Map<Hotel, TreeSet<Offer>> newest = result();
+		cache.put(key, 7, newest);
+		assertSame(newest, cache.get(key, 7));
+		assertEquals(1, cache.getStats().getResults());
+	}
+
+	@Test
+	public void invalidateCityEvictsOnlyThatCity() {
+		SearchResultCache cache = new SearchResultCache(true, 100, 1000);
+		SearchKey berlin = new SearchKey(1, DAY, DAY + 2);
+		SearchKey berlinLater = new SearchKey(1, DAY + 5, DAY + 7);
+		SearchKey paris = new SearchKey(2, DAY, DAY + 2);
+		Map<Hotel, TreeSet<Offer>> parisResult = result();
+		cache.put(berlin, 1, result());
+		cache.put(berlinLater, 1, result());
+		cache.put(paris, 1, parisResult);
+		cache.invalidateCity(1);
+		assertNull(cache.get(berlin, 1));
+		assertNull(cache.get(berlinLater, 1));
+		assertSame(parisResult, cache.get(paris, 1));
+		assertEquals(2, cache.getStats().getInvalidations());
+		assertEquals(1, cache.getStats().getResults());
+	}
+
+	@Test
+	public void cacheKeepsToItsSizeLimits() {
+		SearchResultCache cache = new SearchResultCache(true, 16, 1000);
+		for (int day = 0; day < 200; day++)
+			cache.put(new SearchKey(1, DAY + day, DAY + day + 1), 1, result());
+		SearchResultCache.Stats stats = cache.getStats();
+		assertTrue(stats.getResults() <= 16, "results " + stats.getResults());
+		assertEquals(200, stats.getResults() + stats.getEvictions());
+
+		SearchResultCache small = new SearchResultCache(true, 100, 32);
+		SearchKey key = new SearchKey(1, DAY, DAY + 2);
+		small.put(key, 1, result(5));
+		assertNull(small.get(key, 1), "a result heavier than a segment must not be cached");
+		assertEquals(0, small.getStats().getOffers());
+	}
+
+	@Test
+	public void disabledCacheKeepsNothing() {
+		SearchResultCache cache = new SearchResultCache(false, 100, 1000);
+		SearchKey key = new SearchKey(1, DAY, DAY + 2);
+		cache.put(key, 1, result());
+		assertNull(cache.get(key, 1));
+		assertEquals(0, cache.getStats().getResults());
+	}
+
+	private static Map<Hotel, TreeSet<Offer>> result() {
+		return result(1);
+	}
+
+	/**
+	 * @return a result of one hotel with the given number of offers.
+	 */
+	private static Map<Hotel, TreeSet<Offer>> result(int offerCount) {
+		TreeSet<Offer> offers = new TreeSet<Offer>(new OfferComparator());
+		for (int advertiserId = 1; advertiserId <= offerCount; advertiserId++)
+			offers.add(new Offer(advertiserId, 5, 100 + advertiserId, "Adv " + advertiserId, "EUR"));
+		Map<Hotel, TreeSet<Offer>> result = new LinkedHashMap<Hotel, TreeSet<Offer>>();
+		result.put(new Hotel(1, 1, 10, 100, 80, 3, "Hotel 1"), offers);
+		return result;
+	}
+}